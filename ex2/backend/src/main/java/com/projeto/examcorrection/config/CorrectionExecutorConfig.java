@@ -0,0 +1,48 @@
+package com.projeto.examcorrection.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableScheduling
+public class CorrectionExecutorConfig {
+
+    /**
+     * Pool limitado de virtual threads usado na correção em lote. O limite evita que uma prova
+     * grande sature o pool de conexões do MongoDB.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService correctionExecutor(@Value("${app.correction.parallelism}") int parallelism) {
+        return Executors.newFixedThreadPool(parallelism, Thread.ofVirtual().name("correction-", 0).factory());
+    }
+
+    /**
+     * Workers dos jobs de correção assíncrona. O tamanho do pool é o teto de jobs processados
+     * simultaneamente nesta instância.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService correctionJobExecutor(@Value("${app.correction.jobs.concurrency}") int concurrency) {
+        return Executors.newFixedThreadPool(concurrency, Thread.ofVirtual().name("correction-job-", 0).factory());
+    }
+
+    /**
+     * Drena a fila de admissão de submissões. O tamanho do pool é o ritmo sustentado de gravação de
+     * envios nesta instância; o excedente espera na fila limitada por prova do {@code SubmissionAdmission}.
+     * <p>
+     * Com a gravação em grupo, cada worker fica parado no {@code SubmissionGroupCommit} até o lote do seu
+     * envio ser gravado, então o pool é o teto do tamanho do lote: ele cresce até {@code max-batch}, e a
+     * pressão no banco passa a ser limitada pelos lotes, não pelos workers.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService submissionAdmissionExecutor(@Value("${app.submission.admission.workers}") int workers,
+            @Value("${app.submission.group-commit.enabled}") boolean groupCommit,
+            @Value("${app.submission.group-commit.max-batch}") int maxBatch) {
+        int tamanho = groupCommit ? Math.max(workers, maxBatch) : workers;
+        return Executors.newFixedThreadPool(tamanho, Thread.ofVirtual().name("submission-admission-", 0).factory());
+    }
+}
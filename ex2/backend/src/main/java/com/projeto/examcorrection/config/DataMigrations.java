@@ -0,0 +1,309 @@
+package com.projeto.examcorrection.config;
+
+import com.projeto.examcorrection.domain.CorrectionResult;
+import com.projeto.examcorrection.domain.ExamAggregate;
+import com.projeto.examcorrection.domain.IdempotencyRecord;
+import com.projeto.examcorrection.domain.QuestionIssue;
+import com.projeto.examcorrection.domain.SeedMetadata;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.domain.User;
+import com.projeto.examcorrection.repository.SeedMetadataRepository;
+import com.projeto.examcorrection.service.RegradeService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Migrações de dados aplicadas uma única vez na inicialização. Cada migração é registrada em
+ * {@code seed_metadata} com sua própria chave, como o seed.
+ * <p>
+ * Os índices também são criados aqui, e não por {@code auto-index-creation}: o Spring os criaria junto
+ * com o contexto de mapeamento, antes de qualquer migração, e um índice único sobre dados com duplicatas
+ * antigas derrubaria a inicialização. Os índices únicos são garantidos logo depois da remoção das
+ * duplicatas, e os demais declarados nas entidades em seguida.
+ */
+@Configuration
+public class DataMigrations {
+
+    private static final Logger log = LoggerFactory.getLogger(DataMigrations.class);
+
+    private static final String RESULT_EXAM_ID_KEY = "correction-result-exam-id-v1";
+    private static final String RESULT_MAPA_KEY = "correction-result-mapa-v1";
+    private static final String RESULT_COMPACT_KEY = "correction-result-compact-v1";
+    private static final String AGGREGATE_SKETCH_KEY = "exam-aggregate-sketch-v1";
+    private static final String ISSUE_RESOLVIDA_KEY = "question-issue-resolvida-v1";
+    private static final String SUBMISSION_INDEX_KEY = "submission-index-exam-corrigida-v1";
+    private static final String SUBMISSION_ALUNO_NOME_KEY = "submission-aluno-nome-v1";
+    private static final String RESULT_DEDUP_KEY = "correction-result-dedup-v1";
+    private static final String SUBMISSION_DEDUP_KEY = "submission-exam-aluno-dedup-v1";
+    private static final int BATCH_SIZE = 500;
+
+    @Bean
+    public CommandLineRunner migrateData(SeedMetadataRepository seedMetadataRepository, MongoTemplate mongoTemplate,
+            @Value("${app.correction.compact-results:false}") boolean compactResults,
+            @Value("${app.idempotency.ttl-seconds}") long idempotencyTtlSeconds) {
+        return args -> {
+            // Envios repetidos do mesmo aluno, anteriores ao índice único exam+aluno
+            if (!seedMetadataRepository.existsByChave(SUBMISSION_DEDUP_KEY)) {
+                long total = dedupeSubmissions(mongoTemplate);
+                applied(seedMetadataRepository, SUBMISSION_DEDUP_KEY, total);
+            }
+            mongoTemplate.indexOps(Submission.class).ensureIndex(new Index()
+                    .on("examId", Sort.Direction.ASC).on("alunoId", Sort.Direction.ASC)
+                    .named("exam_aluno_unique").unique());
+            // A detecção de duplicatas da correção em lote depende do índice único em submissionId
+            if (!seedMetadataRepository.existsByChave(RESULT_DEDUP_KEY)) {
+                long total = dedupeResults(mongoTemplate);
+                applied(seedMetadataRepository, RESULT_DEDUP_KEY, total);
+            }
+            mongoTemplate.indexOps(CorrectionResult.class).ensureIndex(
+                    new Index("submissionId", Sort.Direction.ASC).named("submissionId").unique());
+            ensureEntityIndexes(mongoTemplate);
+            ensureIdempotencyTtl(mongoTemplate, Duration.ofSeconds(idempotencyTtlSeconds));
+            if (!seedMetadataRepository.existsByChave(RESULT_EXAM_ID_KEY)) {
+                long total = backfillResultExamId(mongoTemplate);
+                applied(seedMetadataRepository, RESULT_EXAM_ID_KEY, total);
+            }
+            if (!seedMetadataRepository.existsByChave(RESULT_MAPA_KEY)) {
+                long total = updateResults(mongoTemplate,
+                        new Document("mapaCorrecao", new Document("$exists", false))
+                                .append("detalhesPorQuestao", new Document("$exists", true)),
+                        List.of(new Document("$set",
+                                new Document("mapaCorrecao", RegradeService.mapaCorrecaoFromDetalhes()))));
+                applied(seedMetadataRepository, RESULT_MAPA_KEY, total);
+            }
+            // Só descarta os detalhes quando o modo compacto está ligado; o mapa já foi preenchido acima
+            if (compactResults && !seedMetadataRepository.existsByChave(RESULT_COMPACT_KEY)) {
+                long total = updateResults(mongoTemplate,
+                        new Document("mapaCorrecao", new Document("$exists", true))
+                                .append("detalhesPorQuestao", new Document("$exists", true)),
+                        List.of(new Document("$unset", "detalhesPorQuestao")));
+                applied(seedMetadataRepository, RESULT_COMPACT_KEY, total);
+            }
+            // Agregados anteriores ao sketch de notas são reconstruídos no próximo acesso
+            if (!seedMetadataRepository.existsByChave(AGGREGATE_SKETCH_KEY)) {
+                long total = mongoTemplate.updateMulti(
+                        Query.query(Criteria.where("histogramaNotas").exists(false)),
+                        new Update().set("desatualizado", true).inc("versao", 1),
+                        ExamAggregate.class).getModifiedCount();
+                applied(seedMetadataRepository, AGGREGATE_SKETCH_KEY, total);
+            }
+            // Problemas anteriores à resolução automática ficam em aberto
+            if (!seedMetadataRepository.existsByChave(ISSUE_RESOLVIDA_KEY)) {
+                long total = mongoTemplate.updateMulti(
+                        Query.query(Criteria.where("resolvida").exists(false)),
+                        new Update().set("resolvida", false),
+                        QuestionIssue.class).getModifiedCount();
+                applied(seedMetadataRepository, ISSUE_RESOLVIDA_KEY, total);
+            }
+            // exam_corrigida é prefixo de exam_corrigida_envio, criado pela listagem paginada
+            if (!seedMetadataRepository.existsByChave(SUBMISSION_INDEX_KEY)) {
+                IndexOperations indices = mongoTemplate.indexOps(Submission.class);
+                boolean existe = indices.getIndexInfo().stream()
+                        .anyMatch(indice -> indice.getName().equals("exam_corrigida"));
+                if (existe) {
+                    indices.dropIndex("exam_corrigida");
+                }
+                applied(seedMetadataRepository, SUBMISSION_INDEX_KEY, existe ? 1 : 0);
+            }
+            if (!seedMetadataRepository.existsByChave(SUBMISSION_ALUNO_NOME_KEY)) {
+                long total = backfillAlunoNome(mongoTemplate);
+                applied(seedMetadataRepository, SUBMISSION_ALUNO_NOME_KEY, total);
+            }
+        };
+    }
+
+    private void applied(SeedMetadataRepository seedMetadataRepository, String chave, long total) {
+        seedMetadataRepository.save(new SeedMetadata(chave, Instant.now()));
+        log.info("Migração '{}' concluída: {} resultado(s) atualizado(s).", chave, total);
+    }
+
+    private long updateResults(MongoTemplate mongoTemplate, Document filtro, List<Document> pipeline) {
+        return mongoTemplate.execute(CorrectionResult.class,
+                collection -> collection.updateMany(filtro, pipeline).getModifiedCount());
+    }
+
+    /** Cria os índices declarados nas entidades; uma falha é registrada sem impedir a inicialização. */
+    private void ensureEntityIndexes(MongoTemplate mongoTemplate) {
+        var mappingContext = mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            IndexOperations indices = mongoTemplate.indexOps(entity.getType());
+            resolver.resolveIndexFor(entity.getTypeInformation()).forEach(indice -> {
+                try {
+                    indices.ensureIndex(indice);
+                } catch (RuntimeException e) {
+                    log.error("Índice não criado: colecao={}, indice={}", entity.getCollection(),
+                            indice.getIndexKeys(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Índice TTL de {@code idempotency_keys} com o prazo configurado, o mesmo do cache em memória. Um
+     * índice existente com outro prazo é ajustado por {@code collMod}, sem ser recriado.
+     */
+    private void ensureIdempotencyTtl(MongoTemplate mongoTemplate, Duration ttl) {
+        IndexOperations indices = mongoTemplate.indexOps(IdempotencyRecord.class);
+        try {
+            IndexInfo existente = indices.getIndexInfo().stream()
+                    .filter(indice -> indice.isIndexForFields(List.of("criadoEm")))
+                    .findFirst().orElse(null);
+            if (existente != null && existente.getExpireAfter().isPresent()
+                    && !existente.getExpireAfter().get().equals(ttl)) {
+                mongoTemplate.getDb().runCommand(new Document("collMod",
+                        mongoTemplate.getCollectionName(IdempotencyRecord.class))
+                        .append("index", new Document("name", existente.getName())
+                                .append("expireAfterSeconds", ttl.toSeconds())));
+                log.info("TTL de idempotency_keys ajustado: {}s -> {}s",
+                        existente.getExpireAfter().get().toSeconds(), ttl.toSeconds());
+                return;
+            }
+            if (existente != null && existente.getExpireAfter().isEmpty()) {
+                indices.dropIndex(existente.getName());
+            }
+            indices.ensureIndex(new Index("criadoEm", Sort.Direction.ASC).named("criadoEm").expire(ttl));
+        } catch (RuntimeException e) {
+            log.error("Índice TTL de idempotency_keys não criado: ttl={}s", ttl.toSeconds(), e);
+        }
+    }
+
+    /**
+     * Mantém uma submissão por aluno e prova (a corrigida, senão a mais antiga) e remove as demais com
+     * seus resultados. Os agregados das provas afetadas são reconstruídos no próximo acesso.
+     */
+    private long dedupeSubmissions(MongoTemplate mongoTemplate) {
+        List<Document> pipeline = List.of(
+                new Document("$sort", new Document("corrigida", -1).append("dataEnvio", 1).append("_id", 1)),
+                new Document("$group", new Document("_id",
+                        new Document("examId", "$examId").append("alunoId", "$alunoId"))
+                        .append("ids", new Document("$push", "$_id"))
+                        .append("total", new Document("$sum", 1))),
+                new Document("$match", new Document("total", new Document("$gt", 1))));
+        List<Object> remover = new ArrayList<>();
+        Set<String> exams = new HashSet<>();
+        for (Document grupo : mongoTemplate.getCollection(mongoTemplate.getCollectionName(Submission.class))
+                .aggregate(pipeline).allowDiskUse(true)) {
+            List<Object> ids = grupo.getList("ids", Object.class);
+            remover.addAll(ids.subList(1, ids.size()));
+            exams.add(grupo.get("_id", Document.class).getString("examId"));
+        }
+        if (remover.isEmpty()) {
+            return 0;
+        }
+        List<String> submissionIds = remover.stream().map(Object::toString).toList();
+        mongoTemplate.remove(Query.query(Criteria.where("submissionId").in(submissionIds)), CorrectionResult.class);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("examId").in(exams)),
+                new Update().set("desatualizado", true).inc("versao", 1), ExamAggregate.class);
+        return mongoTemplate.remove(Query.query(Criteria.where("_id").in(remover)), Submission.class)
+                .getDeletedCount();
+    }
+
+    /** Mantém o primeiro resultado de cada submissão e remove os demais. */
+    private long dedupeResults(MongoTemplate mongoTemplate) {
+        List<Document> pipeline = List.of(
+                new Document("$group", new Document("_id", "$submissionId")
+                        .append("ids", new Document("$push", "$_id"))
+                        .append("total", new Document("$sum", 1))),
+                new Document("$match", new Document("total", new Document("$gt", 1))));
+        List<Object> remover = new ArrayList<>();
+        for (Document grupo : mongoTemplate.getCollection(mongoTemplate.getCollectionName(CorrectionResult.class))
+                .aggregate(pipeline).allowDiskUse(true)) {
+            List<Object> ids = grupo.getList("ids", Object.class);
+            remover.addAll(ids.subList(1, ids.size()));
+        }
+        if (remover.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.remove(Query.query(Criteria.where("_id").in(remover)), CorrectionResult.class)
+                .getDeletedCount();
+    }
+
+    /** Preenche {@code examId} dos resultados gravados antes do campo existir, a partir da submissão. */
+    private long backfillResultExamId(MongoTemplate mongoTemplate) {
+        Query semExamId = Query.query(Criteria.where("examId").exists(false));
+        semExamId.fields().include("submissionId");
+
+        long total = 0;
+        List<String> lote = new ArrayList<>(BATCH_SIZE);
+        try (Stream<CorrectionResult> resultados = mongoTemplate.stream(semExamId, CorrectionResult.class)) {
+            Iterator<CorrectionResult> it = resultados.iterator();
+            while (it.hasNext()) {
+                lote.add(it.next().getSubmissionId());
+                if (lote.size() == BATCH_SIZE || !it.hasNext()) {
+                    total += backfillBatch(mongoTemplate, lote);
+                    lote.clear();
+                }
+            }
+        }
+        return total;
+    }
+
+    /** Grava nas submissões o nome de exibição do aluno, com um {@code $in} por lote de alunos. */
+    private long backfillAlunoNome(MongoTemplate mongoTemplate) {
+        List<String> alunoIds = mongoTemplate.findDistinct(
+                Query.query(Criteria.where("alunoNome").exists(false)), "alunoId", Submission.class, String.class);
+        long total = 0;
+        for (int inicio = 0; inicio < alunoIds.size(); inicio += BATCH_SIZE) {
+            Query users = Query.query(Criteria.where("_id")
+                    .in(alunoIds.subList(inicio, Math.min(inicio + BATCH_SIZE, alunoIds.size()))));
+            users.fields().include("nome").include("email");
+            List<User> encontrados = mongoTemplate.find(users, User.class);
+            if (encontrados.isEmpty()) {
+                continue;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Submission.class);
+            for (User user : encontrados) {
+                bulk.updateMulti(Query.query(Criteria.where("alunoId").is(user.getId())
+                                .and("alunoNome").exists(false)),
+                        new Update().set("alunoNome", user.nomeExibicao()));
+            }
+            total += bulk.execute().getModifiedCount();
+        }
+        return total;
+    }
+
+    private long backfillBatch(MongoTemplate mongoTemplate, List<String> submissionIds) {
+        Query submissions = Query.query(Criteria.where("_id").in(submissionIds));
+        submissions.fields().include("examId");
+        List<Submission> encontradas = mongoTemplate.find(submissions, Submission.class);
+        if (encontradas.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CorrectionResult.class);
+        for (Submission sub : encontradas) {
+            bulk.updateOne(Query.query(Criteria.where("submissionId").is(sub.getId())),
+                    new Update().set("examId", sub.getExamId()));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+}
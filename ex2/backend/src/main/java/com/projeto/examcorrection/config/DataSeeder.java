@@ -59,6 +59,8 @@ public class DataSeeder {
                 }
                 userRepository.saveAll(users);
                 log.info("{} usuário(s) carregado(s).", users.size());
+                Map<String, String> nomes = new HashMap<>();
+                users.forEach(u -> nomes.put(u.getId(), u.nomeExibicao()));
 
                 // ── Provas ────────────────────────────────────────────────
                 List<Exam> exams = new ArrayList<>();
@@ -115,6 +117,7 @@ public class DataSeeder {
                     s.setId(node.get("id").asText());
                     s.setExamId(node.get("examId").asText());
                     s.setAlunoId(node.get("alunoId").asText());
+                    s.setAlunoNome(nomes.get(s.getAlunoId()));
                     s.setNota(node.get("nota").asDouble());
                     s.setCorrigida(node.get("corrigida").asBoolean());
                     s.setDataEnvio(Instant.parse(node.get("dataEnvio").asText()));
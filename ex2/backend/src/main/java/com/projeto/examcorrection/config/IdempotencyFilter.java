@@ -0,0 +1,224 @@
+package com.projeto.examcorrection.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projeto.examcorrection.error.ErrorResponse;
+import com.projeto.examcorrection.service.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Suporte ao header {@code Idempotency-Key} nos POSTs que os clientes repetem em conexões instáveis
+ * (envio de submissão e correção). A chave vale por usuário; a repetição recebe a resposta original,
+ * com {@code Idempotency-Replayed: true}, sem chegar aos controllers. Reusar a chave com outro corpo ou
+ * outra rota é recusado com 422.
+ * <p>
+ * Roda depois da cadeia do Spring Security, que identifica o usuário.
+ */
+@Component
+@Order(1)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotency-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final List<String> ROTAS = List.of(
+            "/exams/*/submissions",
+            "/exams/*/draft/submit",
+            "/submissions/*/correct");
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final long waitMs;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper,
+            @Value("${app.idempotency.wait-ms}") long waitMs) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.waitMs = waitMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return ROTAS.stream().noneMatch(rota -> matcher.match(rota, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String idempotencyKey = request.getHeader(HEADER);
+        if (auth == null || !auth.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            error(response, HttpStatus.BAD_REQUEST, "INVALID_IDEMPOTENCY_KEY",
+                    "O header Idempotency-Key deve ter entre 1 e " + MAX_KEY_LENGTH + " caracteres.");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        String chave = auth.getName() + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request.getServletPath(), body);
+        IdempotencyStore.Reserva reserva = store.reservar(chave, fingerprint);
+
+        if (!reserva.nova()) {
+            replay(reserva.entrada(), fingerprint, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean concluida = false;
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), wrapper);
+            store.concluir(chave, reserva.entrada(), new IdempotencyStore.Resposta(wrapper.getStatus(),
+                    wrapper.getContentType(), wrapper.getContentAsByteArray()));
+            concluida = true;
+        } finally {
+            if (!concluida) {
+                store.descartar(chave, reserva.entrada());
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void replay(IdempotencyStore.Entrada entrada, String fingerprint, HttpServletResponse response)
+            throws IOException {
+        if (entrada == null) {
+            inProgress(response);
+            return;
+        }
+        if (!entrada.fingerprint().equals(fingerprint)) {
+            error(response, HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_REUSED",
+                    "A chave de idempotência já foi usada em outra requisição.");
+            return;
+        }
+        IdempotencyStore.Resposta original;
+        try {
+            original = entrada.resposta().get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            inProgress(response);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inProgress(response);
+            return;
+        }
+        response.setStatus(original.status());
+        if (original.contentType() != null) {
+            response.setContentType(original.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.getOutputStream().write(original.body());
+    }
+
+    private void inProgress(HttpServletResponse response) throws IOException {
+        error(response, HttpStatus.CONFLICT, "IDEMPOTENCY_KEY_IN_PROGRESS",
+                "A requisição original com esta chave ainda está em processamento. Tente novamente.");
+    }
+
+    private void error(HttpServletResponse response, HttpStatus status, String code, String message)
+            throws IOException {
+        String traceId = MDC.get("traceId");
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(objectMapper.writeValueAsString(new ErrorResponse(code, message, null,
+                traceId != null ? traceId : UUID.randomUUID().toString())));
+    }
+
+    static String fingerprint(String path, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(path.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Requisição com o corpo já lido, para que o controller o leia de novo. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.projeto.examcorrection.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Carimba o instante de chegada da requisição antes de qualquer outro filtro (inclusive a autenticação,
+ * que consulta o MongoDB). É esse instante, e não o do processamento, que vale para o prazo da prova.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestArrivalFilter extends OncePerRequestFilter {
+
+    public static final String ATTRIBUTE = "recebidaEm";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        request.setAttribute(ATTRIBUTE, Instant.now());
+        filterChain.doFilter(request, response);
+    }
+}
@@ -2,7 +2,10 @@ package com.projeto.examcorrection.controller;
 
 import com.projeto.examcorrection.dto.AnswerKeyRequest;
 import com.projeto.examcorrection.dto.AnswerKeyResponse;
+import com.projeto.examcorrection.dto.RegradeRequest;
+import com.projeto.examcorrection.dto.RegradeResponse;
 import com.projeto.examcorrection.service.AnswerKeyService;
+import com.projeto.examcorrection.service.RegradeService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,9 +19,11 @@ import java.security.Principal;
 public class AnswerKeyController {
 
     private final AnswerKeyService answerKeyService;
+    private final RegradeService regradeService;
 
-    public AnswerKeyController(AnswerKeyService answerKeyService) {
+    public AnswerKeyController(AnswerKeyService answerKeyService, RegradeService regradeService) {
         this.answerKeyService = answerKeyService;
+        this.regradeService = regradeService;
     }
 
     @GetMapping
@@ -43,4 +48,12 @@ public class AnswerKeyController {
             Principal principal) {
         return ResponseEntity.ok(answerKeyService.update(examId, request, principal.getName()));
     }
+
+    @PostMapping("/regrade")
+    @PreAuthorize("hasRole('PROFESSOR')")
+    public ResponseEntity<RegradeResponse> regrade(@PathVariable String examId,
+            @RequestBody RegradeRequest request,
+            Principal principal) {
+        return ResponseEntity.ok(regradeService.regrade(examId, request, principal.getName()));
+    }
 }
@@ -1,6 +1,8 @@
 package com.projeto.examcorrection.controller;
 
+import com.projeto.examcorrection.dto.CorrectionBatchResponse;
 import com.projeto.examcorrection.dto.CorrectionResultResponse;
+import com.projeto.examcorrection.service.BatchCorrectionService;
 import com.projeto.examcorrection.service.CorrectionService;
 import com.projeto.examcorrection.service.UserService;
 import org.springframework.http.ResponseEntity;
@@ -10,26 +12,35 @@ import org.springframework.web.bind.annotation.*;
 import java.security.Principal;
 
 @RestController
-@RequestMapping("/submissions")
 public class CorrectionController {
 
     private final CorrectionService correctionService;
+    private final BatchCorrectionService batchCorrectionService;
     private final UserService userService;
 
-    public CorrectionController(CorrectionService correctionService, UserService userService) {
+    public CorrectionController(CorrectionService correctionService, BatchCorrectionService batchCorrectionService,
+            UserService userService) {
         this.correctionService = correctionService;
+        this.batchCorrectionService = batchCorrectionService;
         this.userService = userService;
     }
 
-    @PostMapping("/{id}/correct")
+    @PostMapping("/submissions/{id}/correct")
     @PreAuthorize("hasRole('PROFESSOR') and @securityExpressions.isProfessorOfSubmission(authentication, #id)")
     public ResponseEntity<CorrectionResultResponse> correct(@PathVariable String id) {
         return ResponseEntity.ok(correctionService.correct(id));
     }
 
-    @GetMapping("/{id}/correction-result")
+    @GetMapping("/submissions/{id}/correction-result")
     @PreAuthorize("(hasRole('ALUNO') and @securityExpressions.isSubmissionOwner(authentication, #id)) or (hasRole('PROFESSOR') and @securityExpressions.isProfessorOfSubmission(authentication, #id))")
-    public ResponseEntity<CorrectionResultResponse> getResult(@PathVariable String id) {
-        return ResponseEntity.ok(correctionService.getResult(id));
+    public ResponseEntity<CorrectionResultResponse> getResult(@PathVariable String id,
+            @RequestParam(defaultValue = "true") boolean details) {
+        return ResponseEntity.ok(correctionService.getResult(id, details));
+    }
+
+    @PostMapping("/exams/{examId}/correct-all")
+    @PreAuthorize("hasRole('PROFESSOR') and @securityExpressions.isExamOwner(authentication, #examId)")
+    public ResponseEntity<CorrectionBatchResponse> correctAll(@PathVariable String examId) {
+        return ResponseEntity.ok(batchCorrectionService.correctAll(examId));
     }
 }
@@ -0,0 +1,39 @@
+package com.projeto.examcorrection.controller;
+
+import com.projeto.examcorrection.dto.CorrectionJobResponse;
+import com.projeto.examcorrection.service.CorrectionJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+
+@RestController
+public class CorrectionJobController {
+
+    private final CorrectionJobService correctionJobService;
+
+    public CorrectionJobController(CorrectionJobService correctionJobService) {
+        this.correctionJobService = correctionJobService;
+    }
+
+    @PostMapping("/exams/{examId}/correction-jobs")
+    @PreAuthorize("hasRole('PROFESSOR') and @securityExpressions.isExamOwner(authentication, #examId)")
+    public ResponseEntity<CorrectionJobResponse> create(@PathVariable String examId, Principal principal) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(correctionJobService.create(examId, principal.getName()));
+    }
+
+    @GetMapping("/correction-jobs/{id}")
+    @PreAuthorize("hasRole('PROFESSOR')")
+    public ResponseEntity<CorrectionJobResponse> getById(@PathVariable String id, Principal principal) {
+        return ResponseEntity.ok(correctionJobService.getById(id, principal.getName()));
+    }
+
+    @PostMapping("/correction-jobs/{id}/cancel")
+    @PreAuthorize("hasRole('PROFESSOR')")
+    public ResponseEntity<CorrectionJobResponse> cancel(@PathVariable String id, Principal principal) {
+        return ResponseEntity.ok(correctionJobService.cancel(id, principal.getName()));
+    }
+}
@@ -0,0 +1,26 @@
+package com.projeto.examcorrection.controller;
+
+import com.projeto.examcorrection.dto.ProfessorDashboardResponse;
+import com.projeto.examcorrection.service.DashboardService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+
+@RestController
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    public DashboardController(DashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    @GetMapping("/professors/me/dashboard")
+    @PreAuthorize("hasRole('PROFESSOR')")
+    public ResponseEntity<ProfessorDashboardResponse> getDashboard(Principal principal) {
+        return ResponseEntity.ok(dashboardService.getDashboard(principal.getName()));
+    }
+}
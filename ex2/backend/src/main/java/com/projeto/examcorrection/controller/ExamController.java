@@ -3,6 +3,7 @@ package com.projeto.examcorrection.controller;
 import com.projeto.examcorrection.domain.Role;
 import com.projeto.examcorrection.dto.ExamRequest;
 import com.projeto.examcorrection.dto.ExamResponse;
+import com.projeto.examcorrection.service.CorrectionJobService;
 import com.projeto.examcorrection.service.ExamService;
 import com.projeto.examcorrection.service.UserService;
 import jakarta.validation.Valid;
@@ -20,10 +21,13 @@ public class ExamController {
 
     private final ExamService examService;
     private final UserService userService;
+    private final CorrectionJobService correctionJobService;
 
-    public ExamController(ExamService examService, UserService userService) {
+    public ExamController(ExamService examService, UserService userService,
+            CorrectionJobService correctionJobService) {
         this.examService = examService;
         this.userService = userService;
+        this.correctionJobService = correctionJobService;
     }
 
     @GetMapping
@@ -67,6 +71,8 @@ public class ExamController {
     @PostMapping("/{id}/close")
     @PreAuthorize("hasRole('PROFESSOR') and @securityExpressions.isExamOwner(authentication, #id)")
     public ResponseEntity<ExamResponse> close(@PathVariable String id) {
-        return ResponseEntity.ok(examService.close(id));
+        ExamResponse response = examService.close(id);
+        correctionJobService.startClosing(id);
+        return ResponseEntity.ok(response);
     }
 }
@@ -1,16 +1,19 @@
 package com.projeto.examcorrection.controller;
 
+import com.projeto.examcorrection.domain.ExamAggregate;
+import com.projeto.examcorrection.domain.ExamItemAnalysis;
 import com.projeto.examcorrection.domain.ExamReport;
 import com.projeto.examcorrection.domain.ExamStatistics;
+import com.projeto.examcorrection.dto.GradeQuantilesResponse;
 import com.projeto.examcorrection.service.ReportService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
+import java.util.List;
 
 @RestController
-@RequestMapping("/exams/{examId}")
 public class ReportController {
 
     private final ReportService reportService;
@@ -19,15 +22,41 @@ public class ReportController {
         this.reportService = reportService;
     }
 
-    @GetMapping("/report")
+    @GetMapping("/exams/{examId}/report")
     @PreAuthorize("hasRole('PROFESSOR')")
     public ResponseEntity<ExamReport> getReport(@PathVariable String examId, Principal principal) {
         return ResponseEntity.ok(reportService.getReport(examId, principal.getName()));
     }
 
-    @GetMapping("/statistics")
+    @GetMapping("/exams/{examId}/statistics")
     @PreAuthorize("hasRole('PROFESSOR')")
     public ResponseEntity<ExamStatistics> getStatistics(@PathVariable String examId, Principal principal) {
         return ResponseEntity.ok(reportService.getStatistics(examId, principal.getName()));
     }
+
+    @GetMapping("/exams/{examId}/statistics/quantiles")
+    @PreAuthorize("hasRole('PROFESSOR')")
+    public ResponseEntity<GradeQuantilesResponse> getQuantiles(@PathVariable String examId,
+            @RequestParam(name = "q", defaultValue = "0.5") List<Double> quantis, Principal principal) {
+        return ResponseEntity.ok(reportService.getQuantiles(examId, principal.getName(), quantis));
+    }
+
+    @GetMapping("/reports/quantiles")
+    @PreAuthorize("hasRole('PROFESSOR')")
+    public ResponseEntity<GradeQuantilesResponse> getProfessorQuantiles(
+            @RequestParam(name = "q", defaultValue = "0.5") List<Double> quantis, Principal principal) {
+        return ResponseEntity.ok(reportService.getProfessorQuantiles(principal.getName(), quantis));
+    }
+
+    @GetMapping("/exams/{examId}/item-analysis")
+    @PreAuthorize("hasRole('PROFESSOR')")
+    public ResponseEntity<ExamItemAnalysis> getItemAnalysis(@PathVariable String examId, Principal principal) {
+        return ResponseEntity.ok(reportService.getItemAnalysis(examId, principal.getName()));
+    }
+
+    @PostMapping("/exams/{examId}/statistics/rebuild")
+    @PreAuthorize("hasRole('PROFESSOR')")
+    public ResponseEntity<ExamAggregate> rebuildStatistics(@PathVariable String examId, Principal principal) {
+        return ResponseEntity.ok(reportService.rebuildStatistics(examId, principal.getName()));
+    }
 }
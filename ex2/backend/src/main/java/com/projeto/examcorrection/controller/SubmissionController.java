@@ -1,34 +1,97 @@
 package com.projeto.examcorrection.controller;
 
+import com.projeto.examcorrection.config.RequestArrivalFilter;
+import com.projeto.examcorrection.dto.DraftPatchRequest;
+import com.projeto.examcorrection.dto.DraftResponse;
+import com.projeto.examcorrection.dto.SubmissionReceiptResponse;
 import com.projeto.examcorrection.dto.SubmissionRequest;
 import com.projeto.examcorrection.dto.SubmissionResponse;
+import com.projeto.examcorrection.service.DraftService;
+import com.projeto.examcorrection.service.ResultExportService;
+import com.projeto.examcorrection.service.SubmissionAdmission;
+import com.projeto.examcorrection.service.SubmissionListQuery;
 import com.projeto.examcorrection.service.SubmissionService;
 import com.projeto.examcorrection.service.UserService;
 import jakarta.validation.Valid;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.security.Principal;
-import java.util.List;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 public class SubmissionController {
 
     private final SubmissionService submissionService;
     private final UserService userService;
+    private final ResultExportService resultExportService;
+    private final DraftService draftService;
+    private final SubmissionAdmission submissionAdmission;
 
-    public SubmissionController(SubmissionService submissionService, UserService userService) {
+    public SubmissionController(SubmissionService submissionService, UserService userService,
+            ResultExportService resultExportService, DraftService draftService,
+            SubmissionAdmission submissionAdmission) {
         this.submissionService = submissionService;
         this.userService = userService;
+        this.resultExportService = resultExportService;
+        this.draftService = draftService;
+        this.submissionAdmission = submissionAdmission;
     }
 
+    /**
+     * Submissões da prova em páginas por cursor, ordenadas por data de envio. Sem {@code respostas=true}
+     * as respostas ficam de fora; a página é escrita direto na resposta.
+     */
     @GetMapping("/exams/{examId}/submissions")
     @PreAuthorize("hasRole('ALUNO') or (hasRole('PROFESSOR') and @securityExpressions.isExamOwner(authentication, #examId))")
-    public ResponseEntity<List<SubmissionResponse>> findByExam(@PathVariable String examId, Principal principal) {
+    public ResponseEntity<StreamingResponseBody> findByExam(@PathVariable String examId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Boolean corrigida,
+            @RequestParam(required = false) Double notaMin,
+            @RequestParam(required = false) Double notaMax,
+            @RequestParam(defaultValue = "asc") String ordem,
+            @RequestParam(defaultValue = "false") boolean respostas,
+            Principal principal) {
         String role = ((org.springframework.security.core.Authentication) principal).getAuthorities().iterator().next().getAuthority();
-        return ResponseEntity.ok(submissionService.findByExamId(examId, principal.getName(), role));
+        String userId = principal.getName();
+        SubmissionListQuery consulta = SubmissionListQuery.of(cursor, limit, corrigida, notaMin, notaMax, ordem,
+                respostas);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> submissionService.writePage(examId, userId, role, consulta, out));
+    }
+
+    /** Resultados da prova em CSV ou NDJSON, escritos direto na resposta; {@code gzip} comprime o arquivo. */
+    @GetMapping("/exams/{examId}/results/export")
+    @PreAuthorize("hasRole('PROFESSOR') and @securityExpressions.isExamOwner(authentication, #examId)")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String examId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ResultExportService.Formato formato = ResultExportService.formato(format);
+        String arquivo = "resultados-" + examId + "." + formato.getExtensao() + (gzip ? ".gz" : "");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compactado = new GZIPOutputStream(out, 64 * 1024);
+                resultExportService.export(examId, formato, compactado);
+                compactado.finish();
+            } else {
+                resultExportService.export(examId, formato, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : formato.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(arquivo).build().toString())
+                .body(body);
     }
 
     @GetMapping("/submissions/{id}")
@@ -37,12 +100,61 @@ public class SubmissionController {
         return ResponseEntity.ok(submissionService.findResponseById(id));
     }
 
+    /**
+     * Envio pela fila de admissão: 201 com a submissão quando processada dentro da espera, 202 com o
+     * recibo quando a fila da prova está funda, 503 com {@code Retry-After} quando ela está cheia.
+     */
     @PostMapping("/exams/{examId}/submissions")
     @PreAuthorize("hasRole('ALUNO')")
-    public ResponseEntity<SubmissionResponse> create(@PathVariable String examId,
+    public ResponseEntity<?> create(@PathVariable String examId,
             @Valid @RequestBody SubmissionRequest request,
+            @RequestAttribute(name = RequestArrivalFilter.ATTRIBUTE, required = false) Instant recebidaEm,
+            Principal principal) {
+        String alunoId = principal.getName();
+        Instant recibo = recebidaEm != null ? recebidaEm : Instant.now();
+        return toResponse(submissionAdmission.admit(examId, alunoId, recibo,
+                () -> submissionService.create(examId, request, alunoId, recibo)));
+    }
+
+    @GetMapping("/submissions/receipts/{id}")
+    @PreAuthorize("hasRole('ALUNO')")
+    public ResponseEntity<SubmissionReceiptResponse> findReceipt(@PathVariable String id, Principal principal) {
+        return ResponseEntity.ok(submissionAdmission.findReceipt(id, principal.getName()));
+    }
+
+    @GetMapping("/exams/{examId}/draft")
+    @PreAuthorize("hasRole('ALUNO')")
+    public ResponseEntity<DraftResponse> getDraft(@PathVariable String examId, Principal principal) {
+        return ResponseEntity.ok(draftService.get(examId, principal.getName()));
+    }
+
+    /** Salva só as respostas alteradas desde o último PATCH; a gravação é agrupada em segundo plano. */
+    @PatchMapping("/exams/{examId}/draft")
+    @PreAuthorize("hasRole('ALUNO')")
+    public ResponseEntity<Void> patchDraft(@PathVariable String examId,
+            @Valid @RequestBody DraftPatchRequest request,
+            Principal principal) {
+        draftService.patch(examId, principal.getName(), request.respostas(), request.versao());
+        return ResponseEntity.accepted().build();
+    }
+
+    /** {@code versao} é a do último PATCH do cliente; sem ela, promove o rascunho como estiver gravado. */
+    @PostMapping("/exams/{examId}/draft/submit")
+    @PreAuthorize("hasRole('ALUNO')")
+    public ResponseEntity<?> submitDraft(@PathVariable String examId,
+            @RequestParam(required = false) Long versao,
+            @RequestAttribute(name = RequestArrivalFilter.ATTRIBUTE, required = false) Instant recebidaEm,
             Principal principal) {
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(submissionService.create(examId, request, principal.getName()));
+        String alunoId = principal.getName();
+        Instant recibo = recebidaEm != null ? recebidaEm : Instant.now();
+        return toResponse(submissionAdmission.admit(examId, alunoId, recibo,
+                () -> submissionService.submitDraft(examId, alunoId, versao, recibo)));
+    }
+
+    private static ResponseEntity<?> toResponse(SubmissionAdmission.Admissao admissao) {
+        if (admissao.submissao() != null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(admissao.submissao());
+        }
+        return ResponseEntity.accepted().body(admissao.recibo());
     }
 }
@@ -5,7 +5,9 @@ import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 @Document(collection = "answer_keys")
 public class AnswerKey {
@@ -17,6 +19,7 @@ public class AnswerKey {
     private String examId;
 
     private Map<String, String> respostas; // questionId -> alternativaCorreta
+    private Set<String> questoesAnuladas = new HashSet<>();
 
     private Instant dataCriacao;
     private Instant dataAtualizacao;
@@ -48,6 +51,14 @@ public class AnswerKey {
         this.respostas = respostas;
     }
 
+    public Set<String> getQuestoesAnuladas() {
+        return questoesAnuladas != null ? questoesAnuladas : Set.of();
+    }
+
+    public void setQuestoesAnuladas(Set<String> questoesAnuladas) {
+        this.questoesAnuladas = questoesAnuladas;
+    }
+
     public Instant getDataCriacao() {
         return dataCriacao;
     }
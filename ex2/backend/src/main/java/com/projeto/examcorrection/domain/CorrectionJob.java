@@ -0,0 +1,183 @@
+package com.projeto.examcorrection.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "correction_jobs")
+public class CorrectionJob {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String examId;
+
+    private String solicitadoPor;
+
+    @Indexed
+    private CorrectionJobStatus status;
+
+    private int total;
+    private int processadas;
+    private int falhas;
+    /** Submissões que esgotaram as tentativas de correção e ficaram pendentes. */
+    private int naoCorrigidas;
+    private Instant dataCriacao;
+    private Instant dataInicio;
+    private Instant dataFim;
+    private Instant ultimaAtividade;
+    /** Job criado pelo encerramento da prova: depois da correção, materializa os relatórios. */
+    private boolean encerramento;
+    private EtapaEncerramento etapa;
+    /** Reserva da materialização, com a mesma expiração das reservas de submissões. */
+    private Instant materializacaoEm;
+    private int tentativasMaterializacao;
+    /** Motivo do término em {@link CorrectionJobStatus#FALHOU}. */
+    private String motivoFalha;
+
+    public CorrectionJob() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getExamId() {
+        return examId;
+    }
+
+    public void setExamId(String examId) {
+        this.examId = examId;
+    }
+
+    public String getSolicitadoPor() {
+        return solicitadoPor;
+    }
+
+    public void setSolicitadoPor(String solicitadoPor) {
+        this.solicitadoPor = solicitadoPor;
+    }
+
+    public CorrectionJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CorrectionJobStatus status) {
+        this.status = status;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getProcessadas() {
+        return processadas;
+    }
+
+    public void setProcessadas(int processadas) {
+        this.processadas = processadas;
+    }
+
+    public int getFalhas() {
+        return falhas;
+    }
+
+    public void setFalhas(int falhas) {
+        this.falhas = falhas;
+    }
+
+    public int getNaoCorrigidas() {
+        return naoCorrigidas;
+    }
+
+    public void setNaoCorrigidas(int naoCorrigidas) {
+        this.naoCorrigidas = naoCorrigidas;
+    }
+
+    public Instant getDataCriacao() {
+        return dataCriacao;
+    }
+
+    public void setDataCriacao(Instant dataCriacao) {
+        this.dataCriacao = dataCriacao;
+    }
+
+    public Instant getDataInicio() {
+        return dataInicio;
+    }
+
+    public void setDataInicio(Instant dataInicio) {
+        this.dataInicio = dataInicio;
+    }
+
+    public Instant getDataFim() {
+        return dataFim;
+    }
+
+    public void setDataFim(Instant dataFim) {
+        this.dataFim = dataFim;
+    }
+
+    public Instant getUltimaAtividade() {
+        return ultimaAtividade;
+    }
+
+    public void setUltimaAtividade(Instant ultimaAtividade) {
+        this.ultimaAtividade = ultimaAtividade;
+    }
+
+    public boolean isEncerramento() {
+        return encerramento;
+    }
+
+    public void setEncerramento(boolean encerramento) {
+        this.encerramento = encerramento;
+    }
+
+    public EtapaEncerramento getEtapa() {
+        return etapa;
+    }
+
+    public void setEtapa(EtapaEncerramento etapa) {
+        this.etapa = etapa;
+    }
+
+    public Instant getMaterializacaoEm() {
+        return materializacaoEm;
+    }
+
+    public void setMaterializacaoEm(Instant materializacaoEm) {
+        this.materializacaoEm = materializacaoEm;
+    }
+
+    public int getTentativasMaterializacao() {
+        return tentativasMaterializacao;
+    }
+
+    public void setTentativasMaterializacao(int tentativasMaterializacao) {
+        this.tentativasMaterializacao = tentativasMaterializacao;
+    }
+
+    public String getMotivoFalha() {
+        return motivoFalha;
+    }
+
+    public void setMotivoFalha(String motivoFalha) {
+        this.motivoFalha = motivoFalha;
+    }
+
+    public boolean isAtivo() {
+        return status == CorrectionJobStatus.PENDENTE || status == CorrectionJobStatus.EM_ANDAMENTO;
+    }
+}
@@ -0,0 +1,9 @@
+package com.projeto.examcorrection.domain;
+
+public enum CorrectionJobStatus {
+    PENDENTE,
+    EM_ANDAMENTO,
+    CONCLUIDO,
+    CANCELADO,
+    FALHOU
+}
@@ -15,9 +15,13 @@ public class CorrectionResult {
     @Indexed(unique = true)
     private String submissionId;
 
+    @Indexed
+    private String examId;
+
     private int acertos;
     private int erros;
     private double notaFinal;
+    private String mapaCorrecao; // '1' correta, '0' errada, '-' em branco, na ordem das questões
     private List<QuestionDetail> detalhesPorQuestao;
 
     public CorrectionResult() {
@@ -39,6 +43,14 @@ public class CorrectionResult {
         this.submissionId = submissionId;
     }
 
+    public String getExamId() {
+        return examId;
+    }
+
+    public void setExamId(String examId) {
+        this.examId = examId;
+    }
+
     public int getAcertos() {
         return acertos;
     }
@@ -63,6 +75,14 @@ public class CorrectionResult {
         this.notaFinal = notaFinal;
     }
 
+    public String getMapaCorrecao() {
+        return mapaCorrecao;
+    }
+
+    public void setMapaCorrecao(String mapaCorrecao) {
+        this.mapaCorrecao = mapaCorrecao;
+    }
+
     public List<QuestionDetail> getDetalhesPorQuestao() {
         return detalhesPorQuestao;
     }
@@ -0,0 +1,12 @@
+package com.projeto.examcorrection.domain;
+
+/**
+ * Etapas do processamento disparado pelo encerramento de uma prova, na ordem de execução. O job guarda a
+ * próxima etapa a executar, de modo que uma retomada pula as já concluídas.
+ */
+public enum EtapaEncerramento {
+    CORRECAO,
+    RELATORIO,
+    ESTATISTICAS,
+    CONCLUIDA
+}
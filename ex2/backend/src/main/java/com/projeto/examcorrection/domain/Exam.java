@@ -1,6 +1,7 @@
 package com.projeto.examcorrection.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -8,6 +9,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Document(collection = "exams")
+// O id das questões embutidas é gravado como _id
+@CompoundIndex(name = "questions_id", def = "{'questions._id': 1}")
 public class Exam {
 
     @Id
@@ -21,6 +24,10 @@ public class Exam {
     private ExamStatus status;
     private List<Question> questions = new ArrayList<>();
     private Instant dataCriacao;
+    private boolean correcaoAutomatica;
+    private boolean resultadosProntos;
+    private Instant dataResultados;
+    private Instant dataEncerramento;
 
     public Exam() {
     }
@@ -97,7 +104,39 @@ public class Exam {
         this.dataCriacao = dataCriacao;
     }
 
+    public boolean isCorrecaoAutomatica() {
+        return correcaoAutomatica;
+    }
+
+    public void setCorrecaoAutomatica(boolean correcaoAutomatica) {
+        this.correcaoAutomatica = correcaoAutomatica;
+    }
+
+    public boolean isResultadosProntos() {
+        return resultadosProntos;
+    }
+
+    public void setResultadosProntos(boolean resultadosProntos) {
+        this.resultadosProntos = resultadosProntos;
+    }
+
+    public Instant getDataResultados() {
+        return dataResultados;
+    }
+
+    public void setDataResultados(Instant dataResultados) {
+        this.dataResultados = dataResultados;
+    }
+
     public boolean isOwner(String userId) {
         return this.professorId != null && this.professorId.equals(userId);
     }
+
+    public Instant getDataEncerramento() {
+        return dataEncerramento;
+    }
+
+    public void setDataEncerramento(Instant dataEncerramento) {
+        this.dataEncerramento = dataEncerramento;
+    }
 }
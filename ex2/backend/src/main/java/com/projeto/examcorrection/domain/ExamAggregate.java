@@ -0,0 +1,176 @@
+package com.projeto.examcorrection.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Agregados corrigidos de uma prova, mantidos incrementalmente a cada correção gravada. Relatório e
+ * estatísticas são montados a partir deste documento, sem reler submissões ou resultados.
+ */
+@Document(collection = "exam_aggregates")
+public class ExamAggregate {
+
+    /** Faixas de 10% da nota máxima usadas na distribuição de notas. */
+    public static final int FAIXAS = 10;
+
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    private String examId;
+
+    private int total;
+    private double somaNotas;
+    private Double menorNota;
+    private Double maiorNota;
+    private Map<String, Integer> acertosPorQuestao = new HashMap<>(); // questionId -> acertos
+    private Map<String, Integer> brancosPorQuestao = new HashMap<>(); // questionId -> em branco
+    private Map<String, Integer> distribuicaoNotas = new HashMap<>(); // faixa -> count
+    private Map<String, Integer> histogramaNotas = new HashMap<>(); // posição do GradeSketch -> count
+    private long versao;
+    private long geracao; // incrementada só pela reconstrução
+    private boolean desatualizado;
+    private Instant dataAtualizacao;
+
+    public ExamAggregate() {
+    }
+
+    /** Rótulo da faixa {@code i}, de "0-10%" a "90-100%". */
+    public static String faixa(int i) {
+        return (i * 10) + "-" + ((i + 1) * 10) + "%";
+    }
+
+    /** Índice da faixa de uma nota; notas iguais ou acima da máxima ficam na última faixa. */
+    public static int faixa(double nota, double notaMaxima) {
+        if (notaMaxima <= 0) {
+            return 0;
+        }
+        return (int) Math.min(Math.floor((nota / notaMaxima) * 100.0 / 10.0), FAIXAS - 1);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getExamId() {
+        return examId;
+    }
+
+    public void setExamId(String examId) {
+        this.examId = examId;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public double getSomaNotas() {
+        return somaNotas;
+    }
+
+    public void setSomaNotas(double somaNotas) {
+        this.somaNotas = somaNotas;
+    }
+
+    public Double getMenorNota() {
+        return menorNota;
+    }
+
+    public void setMenorNota(Double menorNota) {
+        this.menorNota = menorNota;
+    }
+
+    public Double getMaiorNota() {
+        return maiorNota;
+    }
+
+    public void setMaiorNota(Double maiorNota) {
+        this.maiorNota = maiorNota;
+    }
+
+    public Map<String, Integer> getAcertosPorQuestao() {
+        return acertosPorQuestao != null ? acertosPorQuestao : Map.of();
+    }
+
+    public void setAcertosPorQuestao(Map<String, Integer> acertosPorQuestao) {
+        this.acertosPorQuestao = acertosPorQuestao;
+    }
+
+    public Map<String, Integer> getBrancosPorQuestao() {
+        return brancosPorQuestao != null ? brancosPorQuestao : Map.of();
+    }
+
+    public void setBrancosPorQuestao(Map<String, Integer> brancosPorQuestao) {
+        this.brancosPorQuestao = brancosPorQuestao;
+    }
+
+    public Map<String, Integer> getDistribuicaoNotas() {
+        return distribuicaoNotas != null ? distribuicaoNotas : Map.of();
+    }
+
+    public void setDistribuicaoNotas(Map<String, Integer> distribuicaoNotas) {
+        this.distribuicaoNotas = distribuicaoNotas;
+    }
+
+    public Map<String, Integer> getHistogramaNotas() {
+        return histogramaNotas != null ? histogramaNotas : Map.of();
+    }
+
+    public void setHistogramaNotas(Map<String, Integer> histogramaNotas) {
+        this.histogramaNotas = histogramaNotas;
+    }
+
+    public GradeSketch sketch() {
+        return GradeSketch.of(getHistogramaNotas());
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(long versao) {
+        this.versao = versao;
+    }
+
+    /**
+     * Número da reconstrução que gravou os contadores atuais. Uma correção lê a geração antes de marcar a
+     * submissão e só soma ao agregado se ela não mudou.
+     */
+    public long getGeracao() {
+        return geracao;
+    }
+
+    public void setGeracao(long geracao) {
+        this.geracao = geracao;
+    }
+
+    /** Verdadeiro quando a prova mudou e os contadores precisam ser reconstruídos. */
+    public boolean isDesatualizado() {
+        return desatualizado;
+    }
+
+    public void setDesatualizado(boolean desatualizado) {
+        this.desatualizado = desatualizado;
+    }
+
+    public Instant getDataAtualizacao() {
+        return dataAtualizacao;
+    }
+
+    public void setDataAtualizacao(Instant dataAtualizacao) {
+        this.dataAtualizacao = dataAtualizacao;
+    }
+}
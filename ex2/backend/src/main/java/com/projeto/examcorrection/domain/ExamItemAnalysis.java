@@ -0,0 +1,98 @@
+package com.projeto.examcorrection.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+@Document(collection = "exam_item_analyses")
+public class ExamItemAnalysis {
+
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    private String examId;
+
+    private int totalSubmissoes;
+    private List<ItemAnalysis> itens;
+    private Instant dataGeracao;
+    private long versao; // versão do ExamAggregate usada na geração
+
+    @Transient
+    private boolean desatualizado;
+    @Transient
+    private long versoesPendentes;
+
+    public ExamItemAnalysis() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getExamId() {
+        return examId;
+    }
+
+    public void setExamId(String examId) {
+        this.examId = examId;
+    }
+
+    public int getTotalSubmissoes() {
+        return totalSubmissoes;
+    }
+
+    public void setTotalSubmissoes(int totalSubmissoes) {
+        this.totalSubmissoes = totalSubmissoes;
+    }
+
+    public List<ItemAnalysis> getItens() {
+        return itens;
+    }
+
+    public void setItens(List<ItemAnalysis> itens) {
+        this.itens = itens;
+    }
+
+    public Instant getDataGeracao() {
+        return dataGeracao;
+    }
+
+    public void setDataGeracao(Instant dataGeracao) {
+        this.dataGeracao = dataGeracao;
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(long versao) {
+        this.versao = versao;
+    }
+
+    /** Verdadeiro quando houve correções depois da geração; uma atualização já foi agendada. */
+    public boolean isDesatualizado() {
+        return desatualizado;
+    }
+
+    public void setDesatualizado(boolean desatualizado) {
+        this.desatualizado = desatualizado;
+    }
+
+    /** Quantidade de alterações da prova ainda não refletidas. */
+    public long getVersoesPendentes() {
+        return versoesPendentes;
+    }
+
+    public void setVersoesPendentes(long versoesPendentes) {
+        this.versoesPendentes = versoesPendentes;
+    }
+}
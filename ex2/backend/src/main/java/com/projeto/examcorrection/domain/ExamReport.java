@@ -1,6 +1,7 @@
 package com.projeto.examcorrection.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -18,8 +19,15 @@ public class ExamReport {
     private double mediaNotas;
     private double maiorNota;
     private double menorNota;
+    private double mediana;
     private int totalSubmissoes;
     private Instant dataGeracao;
+    private long versao; // versão do ExamAggregate usada na geração
+
+    @Transient
+    private boolean desatualizado;
+    @Transient
+    private long versoesPendentes;
 
     public ExamReport() {
     }
@@ -64,6 +72,14 @@ public class ExamReport {
         this.menorNota = menorNota;
     }
 
+    public double getMediana() {
+        return mediana;
+    }
+
+    public void setMediana(double mediana) {
+        this.mediana = mediana;
+    }
+
     public int getTotalSubmissoes() {
         return totalSubmissoes;
     }
@@ -79,4 +95,30 @@ public class ExamReport {
     public void setDataGeracao(Instant dataGeracao) {
         this.dataGeracao = dataGeracao;
     }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(long versao) {
+        this.versao = versao;
+    }
+
+    /** Verdadeiro quando houve correções depois da geração; uma atualização já foi agendada. */
+    public boolean isDesatualizado() {
+        return desatualizado;
+    }
+
+    public void setDesatualizado(boolean desatualizado) {
+        this.desatualizado = desatualizado;
+    }
+
+    /** Quantidade de alterações da prova ainda não refletidas. */
+    public long getVersoesPendentes() {
+        return versoesPendentes;
+    }
+
+    public void setVersoesPendentes(long versoesPendentes) {
+        this.versoesPendentes = versoesPendentes;
+    }
 }
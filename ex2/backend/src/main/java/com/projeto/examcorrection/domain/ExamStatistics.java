@@ -1,6 +1,7 @@
 package com.projeto.examcorrection.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -19,8 +20,17 @@ public class ExamStatistics {
 
     private Map<String, Double> percentualAcertoPorQuestao; // questionId -> %
     private Map<String, Integer> distribuicaoNotas; // faixa -> count
+    private Map<String, Double> percentis; // p10, p25, p50, p75, p90 -> nota
+    private double notaMaxima;
+    private GradeSketch sketchNotas;
     private List<String> questoesComProblema;
     private Instant dataGeracao;
+    private long versao; // versão do ExamAggregate usada na geração
+
+    @Transient
+    private boolean desatualizado;
+    @Transient
+    private long versoesPendentes;
 
     public ExamStatistics() {
     }
@@ -57,6 +67,31 @@ public class ExamStatistics {
         this.distribuicaoNotas = distribuicaoNotas;
     }
 
+    public Map<String, Double> getPercentis() {
+        return percentis;
+    }
+
+    public void setPercentis(Map<String, Double> percentis) {
+        this.percentis = percentis;
+    }
+
+    public double getNotaMaxima() {
+        return notaMaxima;
+    }
+
+    public void setNotaMaxima(double notaMaxima) {
+        this.notaMaxima = notaMaxima;
+    }
+
+    /** Sketch usado nos percentis; permite consultar outros quantis e combinar provas. */
+    public GradeSketch getSketchNotas() {
+        return sketchNotas;
+    }
+
+    public void setSketchNotas(GradeSketch sketchNotas) {
+        this.sketchNotas = sketchNotas;
+    }
+
     public List<String> getQuestoesComProblema() {
         return questoesComProblema;
     }
@@ -72,4 +107,30 @@ public class ExamStatistics {
     public void setDataGeracao(Instant dataGeracao) {
         this.dataGeracao = dataGeracao;
     }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(long versao) {
+        this.versao = versao;
+    }
+
+    /** Verdadeiro quando houve correções depois da geração; uma atualização já foi agendada. */
+    public boolean isDesatualizado() {
+        return desatualizado;
+    }
+
+    public void setDesatualizado(boolean desatualizado) {
+        this.desatualizado = desatualizado;
+    }
+
+    /** Quantidade de alterações da prova ainda não refletidas. */
+    public long getVersoesPendentes() {
+        return versoesPendentes;
+    }
+
+    public void setVersoesPendentes(long versoesPendentes) {
+        this.versoesPendentes = versoesPendentes;
+    }
 }
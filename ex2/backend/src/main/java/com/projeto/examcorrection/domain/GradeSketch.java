@@ -0,0 +1,120 @@
+package com.projeto.examcorrection.domain;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sketch de quantis das notas: um histograma de resolução fixa sobre a fração da nota máxima
+ * ({@link #RESOLUCAO} posições, ou 0,1% da nota máxima). Como as notas são limitadas a [0, máxima], o
+ * erro de qualquer quantil fica abaixo de meia posição, independentemente do número de notas.
+ * <p>
+ * Só as posições ocupadas são guardadas, em arrays paralelos ordenados. Sketches de provas diferentes
+ * se combinam somando as contagens (a escala é relativa à nota máxima de cada prova), e cada nova nota
+ * é um {@code $inc} atômico em {@link ExamAggregate#getHistogramaNotas()}.
+ */
+public class GradeSketch {
+
+    public static final int RESOLUCAO = 1000;
+
+    private int[] posicoes = new int[0];
+    private long[] contagens = new long[0];
+
+    public GradeSketch() {
+    }
+
+    /** Posição da nota no histograma, arredondada para a mais próxima. */
+    public static int posicao(double nota, double notaMaxima) {
+        if (notaMaxima <= 0) {
+            return 0;
+        }
+        int posicao = (int) Math.floor(nota / notaMaxima * RESOLUCAO + 0.5);
+        return Math.max(0, Math.min(posicao, RESOLUCAO));
+    }
+
+    /** Monta o sketch a partir das contagens por posição, como guardadas no agregado. */
+    public static GradeSketch of(Map<String, Integer> contagemPorPosicao) {
+        TreeMap<Integer, Long> ordenadas = new TreeMap<>();
+        contagemPorPosicao.forEach((posicao, contagem) -> {
+            if (contagem > 0) {
+                ordenadas.merge(Integer.parseInt(posicao), (long) contagem, Long::sum);
+            }
+        });
+        GradeSketch sketch = new GradeSketch();
+        sketch.posicoes = ordenadas.keySet().stream().mapToInt(Integer::intValue).toArray();
+        sketch.contagens = ordenadas.values().stream().mapToLong(Long::longValue).toArray();
+        return sketch;
+    }
+
+    /** Novo sketch com as contagens dos dois. */
+    public GradeSketch merge(GradeSketch outro) {
+        int[] p = new int[posicoes.length + outro.posicoes.length];
+        long[] c = new long[p.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < posicoes.length || j < outro.posicoes.length) {
+            if (j == outro.posicoes.length || (i < posicoes.length && posicoes[i] < outro.posicoes[j])) {
+                p[k] = posicoes[i];
+                c[k++] = contagens[i++];
+            } else if (i == posicoes.length || outro.posicoes[j] < posicoes[i]) {
+                p[k] = outro.posicoes[j];
+                c[k++] = outro.contagens[j++];
+            } else {
+                p[k] = posicoes[i];
+                c[k++] = contagens[i++] + outro.contagens[j++];
+            }
+        }
+        GradeSketch merged = new GradeSketch();
+        merged.posicoes = Arrays.copyOf(p, k);
+        merged.contagens = Arrays.copyOf(c, k);
+        return merged;
+    }
+
+    public long total() {
+        long total = 0;
+        for (long contagem : contagens) {
+            total += contagem;
+        }
+        return total;
+    }
+
+    /**
+     * Quantil {@code q} (entre 0 e 1) como fração da nota máxima, pelo critério do posto mais próximo
+     * ({@code ceil(q * n)}-ésima nota em ordem crescente). Sem notas, devolve zero.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1 || Double.isNaN(q)) {
+            throw new IllegalArgumentException("Quantil deve estar entre 0 e 1.");
+        }
+        long total = total();
+        if (total == 0) {
+            return 0.0;
+        }
+        long posto = Math.max(1, (long) Math.ceil(q * total));
+        long acumulado = 0;
+        for (int i = 0; i < posicoes.length; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= posto) {
+                return (double) posicoes[i] / RESOLUCAO;
+            }
+        }
+        return (double) posicoes[posicoes.length - 1] / RESOLUCAO;
+    }
+
+    public int[] getPosicoes() {
+        return posicoes;
+    }
+
+    public void setPosicoes(int[] posicoes) {
+        this.posicoes = posicoes;
+    }
+
+    public long[] getContagens() {
+        return contagens;
+    }
+
+    public void setContagens(long[] contagens) {
+        this.contagens = contagens;
+    }
+}
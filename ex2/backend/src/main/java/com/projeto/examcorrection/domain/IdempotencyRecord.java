@@ -0,0 +1,86 @@
+package com.projeto.examcorrection.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Resposta gravada para uma chave de idempotência, compartilhada entre instâncias quando
+ * {@code app.idempotency.persistent} está ligado. Sem {@code status} a chave está reservada por uma
+ * requisição em andamento até {@code reservadoAte}; vencido esse prazo, uma repetição pode assumir a
+ * reserva. O índice TTL sobre {@code criadoEm}, criado em {@code DataMigrations} com o prazo de
+ * {@code app.idempotency.ttl-seconds}, descarta o registro.
+ */
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String id; // usuário + Idempotency-Key
+
+    private String fingerprint;
+    private Integer status;
+    private String contentType;
+    private byte[] body;
+    private Instant reservadoAte;
+    private Instant criadoEm;
+
+    public IdempotencyRecord() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
+
+    public Instant getReservadoAte() {
+        return reservadoAte;
+    }
+
+    public void setReservadoAte(Instant reservadoAte) {
+        this.reservadoAte = reservadoAte;
+    }
+
+    public Instant getCriadoEm() {
+        return criadoEm;
+    }
+
+    public void setCriadoEm(Instant criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+}
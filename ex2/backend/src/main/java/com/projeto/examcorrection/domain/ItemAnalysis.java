@@ -0,0 +1,18 @@
+package com.projeto.examcorrection.domain;
+
+import java.util.Map;
+
+/**
+ * Análise clássica de uma questão. Índices são proporções entre 0 e 1 (a discriminação e o ponto-bisserial
+ * vão de -1 a 1); {@code alternativas} conta quantas vezes cada alternativa foi escolhida e {@code outras}
+ * as respostas que não pertencem às alternativas da questão.
+ */
+public record ItemAnalysis(
+        String questionId,
+        double dificuldade,
+        double discriminacao,
+        double pontoBisserial,
+        double taxaBranco,
+        Map<String, Integer> alternativas,
+        int outras) {
+}
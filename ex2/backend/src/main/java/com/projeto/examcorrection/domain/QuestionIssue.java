@@ -1,11 +1,19 @@
 package com.projeto.examcorrection.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
 
+/**
+ * Problema de uma questão, registrado pelo professor ou detectado pelo sistema. Os detectados são únicos
+ * por questão e tipo e ficam {@code resolvida} quando a condição deixa de valer.
+ */
 @Document(collection = "question_issues")
+@CompoundIndex(name = "question_tipo_sistema_unique", def = "{'questionId': 1, 'tipoProblema': 1, 'geradoPor': 1}",
+        unique = true, partialFilter = "{'geradoPor': 'SISTEMA'}")
+@CompoundIndex(name = "exam_resolvida", def = "{'examId': 1, 'resolvida': 1}")
 public class QuestionIssue {
 
     @Id
@@ -18,6 +26,8 @@ public class QuestionIssue {
     private String descricao;
     private GeradoPor geradoPor;
     private Instant dataIdentificacao;
+    private boolean resolvida;
+    private Instant dataResolucao;
 
     public QuestionIssue() {
     }
@@ -85,4 +95,20 @@ public class QuestionIssue {
     public void setDataIdentificacao(Instant dataIdentificacao) {
         this.dataIdentificacao = dataIdentificacao;
     }
+
+    public boolean isResolvida() {
+        return resolvida;
+    }
+
+    public void setResolvida(boolean resolvida) {
+        this.resolvida = resolvida;
+    }
+
+    public Instant getDataResolucao() {
+        return dataResolucao;
+    }
+
+    public void setDataResolucao(Instant dataResolucao) {
+        this.dataResolucao = dataResolucao;
+    }
 }
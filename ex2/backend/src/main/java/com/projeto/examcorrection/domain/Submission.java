@@ -9,6 +9,9 @@ import java.util.Map;
 
 @Document(collection = "submissions")
 @CompoundIndex(name = "exam_aluno_unique", def = "{'examId': 1, 'alunoId': 1}", unique = true)
+@CompoundIndex(name = "aluno", def = "{'alunoId': 1}")
+@CompoundIndex(name = "exam_envio", def = "{'examId': 1, 'dataEnvio': 1, '_id': 1}")
+@CompoundIndex(name = "exam_corrigida_envio", def = "{'examId': 1, 'corrigida': 1, 'dataEnvio': 1, '_id': 1, 'nota': 1}")
 public class Submission {
 
     @Id
@@ -16,10 +19,16 @@ public class Submission {
 
     private String examId;
     private String alunoId;
+    private String alunoNome; // nome de exibição do aluno no envio, mantido pelo StudentNamePropagator
     private Map<String, String> respostas; // questionId -> alternativaSelecionada
     private Double nota;
     private boolean corrigida;
     private Instant dataEnvio;
+    private String correcaoJobId; // job que reservou a submissão para correção
+    private Instant reservadaEm;
+    private String reserva; // identifica a reserva do worker, para reler só o próprio lote
+    private int tentativasCorrecao; // reservas já feitas sem que a correção fosse gravada
+    private Instant versaoGabarito; // carimbada pela recorreção nas pendentes; barra resultados do gabarito antigo
 
     public Submission() {
     }
@@ -48,6 +57,14 @@ public class Submission {
         this.alunoId = alunoId;
     }
 
+    public String getAlunoNome() {
+        return alunoNome;
+    }
+
+    public void setAlunoNome(String alunoNome) {
+        this.alunoNome = alunoNome;
+    }
+
     public Map<String, String> getRespostas() {
         return respostas;
     }
@@ -80,7 +97,47 @@ public class Submission {
         this.dataEnvio = dataEnvio;
     }
 
+    public String getCorrecaoJobId() {
+        return correcaoJobId;
+    }
+
+    public void setCorrecaoJobId(String correcaoJobId) {
+        this.correcaoJobId = correcaoJobId;
+    }
+
+    public Instant getReservadaEm() {
+        return reservadaEm;
+    }
+
+    public void setReservadaEm(Instant reservadaEm) {
+        this.reservadaEm = reservadaEm;
+    }
+
     public boolean isOwner(String userId) {
         return this.alunoId != null && this.alunoId.equals(userId);
     }
+
+    public String getReserva() {
+        return reserva;
+    }
+
+    public void setReserva(String reserva) {
+        this.reserva = reserva;
+    }
+
+    public int getTentativasCorrecao() {
+        return tentativasCorrecao;
+    }
+
+    public void setTentativasCorrecao(int tentativasCorrecao) {
+        this.tentativasCorrecao = tentativasCorrecao;
+    }
+
+    public Instant getVersaoGabarito() {
+        return versaoGabarito;
+    }
+
+    public void setVersaoGabarito(Instant versaoGabarito) {
+        this.versaoGabarito = versaoGabarito;
+    }
 }
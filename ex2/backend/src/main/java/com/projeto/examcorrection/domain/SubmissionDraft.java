@@ -0,0 +1,76 @@
+package com.projeto.examcorrection.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Respostas em andamento de um aluno, salvas durante a prova e promovidas a submissão no envio. */
+@Document(collection = "submission_drafts")
+@CompoundIndex(name = "draft_exam_aluno_unique", def = "{'examId': 1, 'alunoId': 1}", unique = true)
+public class SubmissionDraft {
+
+    @Id
+    private String id;
+
+    private String examId;
+    private String alunoId;
+    private Map<String, String> respostas = new HashMap<>();
+    private Instant dataAtualizacao;
+    /** Maior versão do cliente já gravada; o envio do rascunho espera alcançar a que o cliente informa. */
+    private long versao;
+
+    public SubmissionDraft() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getExamId() {
+        return examId;
+    }
+
+    public void setExamId(String examId) {
+        this.examId = examId;
+    }
+
+    public String getAlunoId() {
+        return alunoId;
+    }
+
+    public void setAlunoId(String alunoId) {
+        this.alunoId = alunoId;
+    }
+
+    public Map<String, String> getRespostas() {
+        return respostas;
+    }
+
+    public void setRespostas(Map<String, String> respostas) {
+        this.respostas = respostas;
+    }
+
+    public Instant getDataAtualizacao() {
+        return dataAtualizacao;
+    }
+
+    public void setDataAtualizacao(Instant dataAtualizacao) {
+        this.dataAtualizacao = dataAtualizacao;
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(long versao) {
+        this.versao = versao;
+    }
+}
@@ -0,0 +1,104 @@
+package com.projeto.examcorrection.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Recibo de um envio que saiu da fila de admissão com 202, gravado para ser consultado em qualquer
+ * instância. O índice TTL o descarta em {@code expiraEm}.
+ */
+@Document(collection = "submission_receipts")
+public class SubmissionReceipt {
+
+    @Id
+    private String id;
+
+    private String examId;
+    private String alunoId;
+    private String status;
+    private Instant recebidaEm;
+    private String submissionId;
+    private String code;
+    private String message;
+
+    @Indexed(expireAfter = "0s")
+    private Instant expiraEm;
+
+    public SubmissionReceipt() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getExamId() {
+        return examId;
+    }
+
+    public void setExamId(String examId) {
+        this.examId = examId;
+    }
+
+    public String getAlunoId() {
+        return alunoId;
+    }
+
+    public void setAlunoId(String alunoId) {
+        this.alunoId = alunoId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Instant getRecebidaEm() {
+        return recebidaEm;
+    }
+
+    public void setRecebidaEm(Instant recebidaEm) {
+        this.recebidaEm = recebidaEm;
+    }
+
+    public String getSubmissionId() {
+        return submissionId;
+    }
+
+    public void setSubmissionId(String submissionId) {
+        this.submissionId = submissionId;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Instant getExpiraEm() {
+        return expiraEm;
+    }
+
+    public void setExpiraEm(Instant expiraEm) {
+        this.expiraEm = expiraEm;
+    }
+}
@@ -25,6 +25,10 @@ public class User {
 
     private Instant dataCriacao;
 
+    /** Preenchido quando o nome de exibição muda e limpo depois de propagado às submissões. */
+    @Indexed(sparse = true)
+    private Instant nomeAlteradoEm;
+
     public User() {
     }
 
@@ -83,4 +87,17 @@ public class User {
     public void setDataCriacao(Instant dataCriacao) {
         this.dataCriacao = dataCriacao;
     }
+
+    public Instant getNomeAlteradoEm() {
+        return nomeAlteradoEm;
+    }
+
+    public void setNomeAlteradoEm(Instant nomeAlteradoEm) {
+        this.nomeAlteradoEm = nomeAlteradoEm;
+    }
+
+    /** Nome mostrado nas listagens: o nome, ou o email quando o nome está em branco. */
+    public String nomeExibicao() {
+        return nome != null && !nome.isBlank() ? nome : email;
+    }
 }
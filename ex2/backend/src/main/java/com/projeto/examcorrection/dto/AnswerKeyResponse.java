@@ -2,11 +2,13 @@ package com.projeto.examcorrection.dto;
 
 import java.time.Instant;
 import java.util.Map;
+import java.util.Set;
 
 public record AnswerKeyResponse(
         String id,
         String examId,
         Map<String, String> respostas,
         Instant dataCriacao,
-        Instant dataAtualizacao) {
+        Instant dataAtualizacao,
+        Set<String> questoesAnuladas) {
 }
@@ -0,0 +1,9 @@
+package com.projeto.examcorrection.dto;
+
+public record CorrectionBatchResponse(
+        String examId,
+        int corrigidas,
+        int falhas,
+        int pendentes, // lotes que não puderam ser refeitos após sucessivas trocas de gabarito
+        long duracaoMs) {
+}
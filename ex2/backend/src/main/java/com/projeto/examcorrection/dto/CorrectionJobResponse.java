@@ -0,0 +1,22 @@
+package com.projeto.examcorrection.dto;
+
+import com.projeto.examcorrection.domain.CorrectionJobStatus;
+import com.projeto.examcorrection.domain.EtapaEncerramento;
+
+import java.time.Instant;
+
+public record CorrectionJobResponse(
+        String id,
+        String examId,
+        CorrectionJobStatus status,
+        EtapaEncerramento etapa,
+        int total,
+        int processadas,
+        int falhas,
+        int naoCorrigidas,
+        String motivoFalha,
+        double porSegundo,
+        Instant dataCriacao,
+        Instant dataInicio,
+        Instant dataFim) {
+}
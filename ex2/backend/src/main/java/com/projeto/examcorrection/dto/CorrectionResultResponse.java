@@ -9,5 +9,6 @@ public record CorrectionResultResponse(
         int acertos,
         int erros,
         double notaFinal,
+        String mapaCorrecao,
         List<QuestionDetail> detalhesPorQuestao) {
 }
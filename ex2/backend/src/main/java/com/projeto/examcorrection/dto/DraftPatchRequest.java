@@ -0,0 +1,10 @@
+package com.projeto.examcorrection.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.util.Map;
+
+public record DraftPatchRequest(
+        @NotNull Map<String, String> respostas, // só as questões alteradas; null limpa a resposta
+        Long versao // sequência do cliente, crescente a cada PATCH; o envio do rascunho espera por ela
+) {
+}
@@ -0,0 +1,11 @@
+package com.projeto.examcorrection.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record DraftResponse(
+        String examId,
+        Map<String, String> respostas,
+        Instant dataAtualizacao,
+        long versao) {
+}
@@ -0,0 +1,14 @@
+package com.projeto.examcorrection.dto;
+
+import com.projeto.examcorrection.domain.ExamStatus;
+
+public record ExamDashboardItem(
+        String examId,
+        String titulo,
+        ExamStatus status,
+        long submissoes,
+        long corrigidas,
+        long pendentes,
+        Double mediaNotas,
+        long problemasAbertos) {
+}
@@ -7,5 +7,6 @@ public record ExamRequest(
         @NotBlank String titulo,
         String descricao,
         Instant dataInicio,
-        Instant dataFim) {
+        Instant dataFim,
+        Boolean correcaoAutomatica) {
 }
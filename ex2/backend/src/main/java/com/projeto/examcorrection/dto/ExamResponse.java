@@ -15,5 +15,7 @@ public record ExamResponse(
         Instant dataFim,
         ExamStatus status,
         List<Question> questions,
-        Instant dataCriacao) {
+        Instant dataCriacao,
+        boolean correcaoAutomatica,
+        boolean resultadosProntos) {
 }
@@ -0,0 +1,14 @@
+package com.projeto.examcorrection.dto;
+
+import java.util.Map;
+
+/**
+ * Quantis de nota. Para uma prova, {@code notaMaxima} é a nota máxima da prova e os quantis vêm em nota;
+ * na visão combinada de várias provas a escala é percentual ({@code notaMaxima} = 100).
+ */
+public record GradeQuantilesResponse(
+        String examId,
+        long total,
+        double notaMaxima,
+        Map<String, Double> quantis) {
+}
@@ -0,0 +1,9 @@
+package com.projeto.examcorrection.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ProfessorDashboardResponse(
+        List<ExamDashboardItem> provas,
+        Instant dataGeracao) {
+}
@@ -12,5 +12,7 @@ public record QuestionIssueResponse(
         Severidade severidade,
         String descricao,
         GeradoPor geradoPor,
-        Instant dataIdentificacao) {
+        Instant dataIdentificacao,
+        boolean resolvida,
+        Instant dataResolucao) {
 }
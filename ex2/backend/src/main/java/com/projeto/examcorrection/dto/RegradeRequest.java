@@ -0,0 +1,9 @@
+package com.projeto.examcorrection.dto;
+
+import java.util.Map;
+import java.util.Set;
+
+public record RegradeRequest(
+        Map<String, String> respostas, // questionId -> nova alternativaCorreta
+        Set<String> questoesAnuladas) {
+}
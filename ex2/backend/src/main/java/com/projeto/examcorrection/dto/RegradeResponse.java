@@ -0,0 +1,8 @@
+package com.projeto.examcorrection.dto;
+
+public record RegradeResponse(
+        String examId,
+        int questoesAlteradas,
+        long resultadosAtualizados,
+        long duracaoMs) {
+}
@@ -0,0 +1,17 @@
+package com.projeto.examcorrection.dto;
+
+import java.time.Instant;
+
+/**
+ * Recibo de uma submissão aceita na fila de admissão. {@code status} é PENDENTE, ACEITA (com
+ * {@code submissionId}) ou RECUSADA (com o código e a mensagem do erro).
+ */
+public record SubmissionReceiptResponse(
+        String id,
+        String examId,
+        String status,
+        Instant recebidaEm,
+        String submissionId,
+        String code,
+        String message) {
+}
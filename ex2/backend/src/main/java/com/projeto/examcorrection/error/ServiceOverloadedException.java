@@ -0,0 +1,28 @@
+package com.projeto.examcorrection.error;
+
+import org.springframework.http.HttpStatus;
+
+/** Requisição recusada por excesso de carga; o cliente deve tentar de novo após {@code retryAfterSeconds}. */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final String code;
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String code, String message, long retryAfterSeconds) {
+        super(message);
+        this.code = code;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public HttpStatus getStatus() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
@@ -0,0 +1,14 @@
+package com.projeto.examcorrection.repository;
+
+import com.projeto.examcorrection.domain.CorrectionJob;
+import com.projeto.examcorrection.domain.CorrectionJobStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CorrectionJobRepository extends MongoRepository<CorrectionJob, String> {
+    List<CorrectionJob> findByStatusInOrderByDataCriacaoAsc(Collection<CorrectionJobStatus> status);
+
+    boolean existsByExamIdAndStatusIn(String examId, Collection<CorrectionJobStatus> status);
+}
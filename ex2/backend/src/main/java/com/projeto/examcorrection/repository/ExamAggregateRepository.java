@@ -0,0 +1,14 @@
+package com.projeto.examcorrection.repository;
+
+import com.projeto.examcorrection.domain.ExamAggregate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ExamAggregateRepository extends MongoRepository<ExamAggregate, String> {
+    Optional<ExamAggregate> findByExamId(String examId);
+
+    List<ExamAggregate> findByExamIdIn(Collection<String> examIds);
+}
@@ -0,0 +1,10 @@
+package com.projeto.examcorrection.repository;
+
+import com.projeto.examcorrection.domain.ExamItemAnalysis;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+public interface ExamItemAnalysisRepository extends MongoRepository<ExamItemAnalysis, String> {
+    Optional<ExamItemAnalysis> findByExamId(String examId);
+}
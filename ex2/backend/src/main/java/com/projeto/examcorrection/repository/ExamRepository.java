@@ -3,11 +3,19 @@ package com.projeto.examcorrection.repository;
 import com.projeto.examcorrection.domain.Exam;
 import com.projeto.examcorrection.domain.ExamStatus;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ExamRepository extends MongoRepository<Exam, String> {
     List<Exam> findByProfessorId(String professorId);
 
     List<Exam> findByStatus(ExamStatus status);
+
+    boolean existsByIdAndStatus(String id, ExamStatus status);
+
+    /** Só o ID da prova que contém a questão, pelo índice {@code questions_id}. */
+    @Query(value = "{ 'questions.id': ?0 }", fields = "{ '_id': 1 }")
+    Optional<Exam> findExamIdByQuestionId(String questionId);
 }
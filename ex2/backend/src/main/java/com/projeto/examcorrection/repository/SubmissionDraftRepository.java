@@ -0,0 +1,12 @@
+package com.projeto.examcorrection.repository;
+
+import com.projeto.examcorrection.domain.SubmissionDraft;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+public interface SubmissionDraftRepository extends MongoRepository<SubmissionDraft, String> {
+    Optional<SubmissionDraft> findByExamIdAndAlunoId(String examId, String alunoId);
+
+    void deleteByExamIdAndAlunoId(String examId, String alunoId);
+}
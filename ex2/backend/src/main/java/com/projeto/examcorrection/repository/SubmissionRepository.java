@@ -5,6 +5,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SubmissionRepository extends MongoRepository<Submission, String> {
     List<Submission> findByExamId(String examId);
@@ -16,4 +17,6 @@ public interface SubmissionRepository extends MongoRepository<Submission, String
     boolean existsByExamIdAndAlunoId(String examId, String alunoId);
 
     List<Submission> findByExamIdAndCorrigida(String examId, boolean corrigida);
+
+    Stream<Submission> streamByExamIdAndCorrigida(String examId, boolean corrigida);
 }
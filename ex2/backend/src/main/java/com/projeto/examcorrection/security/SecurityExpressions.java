@@ -1,19 +1,24 @@
 package com.projeto.examcorrection.security;
 
-import com.projeto.examcorrection.repository.ExamRepository;
+import com.projeto.examcorrection.error.ResourceNotFoundException;
 import com.projeto.examcorrection.repository.SubmissionRepository;
+import com.projeto.examcorrection.service.ExamService;
+import com.projeto.examcorrection.service.QuestionExamIndex;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 @Component("securityExpressions")
 public class SecurityExpressions {
 
-    private final ExamRepository examRepository;
     private final SubmissionRepository submissionRepository;
+    private final ExamService examService;
+    private final QuestionExamIndex questionExamIndex;
 
-    public SecurityExpressions(ExamRepository examRepository, SubmissionRepository submissionRepository) {
-        this.examRepository = examRepository;
+    public SecurityExpressions(SubmissionRepository submissionRepository, ExamService examService,
+            QuestionExamIndex questionExamIndex) {
         this.submissionRepository = submissionRepository;
+        this.examService = examService;
+        this.questionExamIndex = questionExamIndex;
     }
 
     public boolean isExamOwner(Authentication authentication, String examId) {
@@ -21,9 +26,7 @@ public class SecurityExpressions {
             return false;
         }
         String userId = authentication.getPrincipal().toString();
-        return examRepository.findById(examId)
-                .map(exam -> exam.isOwner(userId))
-                .orElse(false);
+        return ownsExam(examId, userId);
     }
 
     public boolean isSubmissionOwner(Authentication authentication, String submissionId) {
@@ -42,8 +45,7 @@ public class SecurityExpressions {
         }
         String userId = authentication.getPrincipal().toString();
         return submissionRepository.findById(submissionId)
-                .flatMap(sub -> examRepository.findById(sub.getExamId()))
-                .map(exam -> exam.isOwner(userId))
+                .map(sub -> ownsExam(sub.getExamId(), userId))
                 .orElse(false);
     }
 
@@ -52,10 +54,18 @@ public class SecurityExpressions {
             return false;
         }
         String userId = authentication.getPrincipal().toString();
-        return examRepository.findAll().stream()
-                .filter(e -> e.getQuestions() != null && e.getQuestions().stream().anyMatch(q -> q.getId().equals(questionId)))
-                .findFirst()
-                .map(exam -> exam.isOwner(userId))
-                .orElse(false);
+        try {
+            return ownsExam(questionExamIndex.examId(questionId), userId);
+        } catch (ResourceNotFoundException e) {
+            return false;
+        }
+    }
+
+    private boolean ownsExam(String examId, String userId) {
+        try {
+            return examService.findById(examId).isOwner(userId);
+        } catch (ResourceNotFoundException e) {
+            return false;
+        }
     }
 }
@@ -66,7 +66,7 @@ public class AnswerKeyService {
 
         if (submissionRepository.existsByExamId(examId)) {
             throw new BusinessRuleException("ANSWER_KEY_LOCKED",
-                    "O gabarito não pode ser alterado após existirem submissões.");
+                    "O gabarito não pode ser alterado após existirem submissões. Use a recorreção.");
         }
 
         AnswerKey ak = answerKeyRepository.findByExamId(examId)
@@ -90,6 +90,6 @@ public class AnswerKeyService {
 
     private AnswerKeyResponse toResponse(AnswerKey ak) {
         return new AnswerKeyResponse(ak.getId(), ak.getExamId(), ak.getRespostas(), ak.getDataCriacao(),
-                ak.getDataAtualizacao());
+                ak.getDataAtualizacao(), ak.getQuestoesAnuladas());
     }
 }
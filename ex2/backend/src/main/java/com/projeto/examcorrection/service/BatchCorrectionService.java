@@ -0,0 +1,266 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.projeto.examcorrection.domain.AnswerKey;
+import com.projeto.examcorrection.domain.CorrectionResult;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.dto.CorrectionBatchResponse;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.SubmissionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Correção de todas as submissões pendentes de uma prova. Exam e AnswerKey são carregados uma única vez,
+ * as submissões são lidas por cursor e corrigidas em lotes paralelos gravados com bulk writes. Lotes
+ * descartados porque uma recorreção trocou o gabarito são refeitos com o gabarito recarregado, até
+ * {@value #MAX_TENTATIVAS_GABARITO} vezes; os que restarem são informados como pendentes.
+ */
+@Service
+public class BatchCorrectionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchCorrectionService.class);
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int MAX_TENTATIVAS_GABARITO = 3;
+
+    private final SubmissionRepository submissionRepository;
+    private final AnswerKeyRepository answerKeyRepository;
+    private final ExamService examService;
+    private final CorrectionCalculator correctionCalculator;
+    private final ScoringPlanCache scoringPlanCache;
+    private final ExamAggregateService examAggregateService;
+    private final DashboardService dashboardService;
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService correctionExecutor;
+
+    @Value("${app.correction.batch-size}")
+    private int batchSize;
+
+    @Value("${app.correction.parallelism}")
+    private int parallelism;
+
+    public BatchCorrectionService(SubmissionRepository submissionRepository,
+            AnswerKeyRepository answerKeyRepository,
+            ExamService examService,
+            CorrectionCalculator correctionCalculator,
+            ScoringPlanCache scoringPlanCache,
+            ExamAggregateService examAggregateService,
+            DashboardService dashboardService,
+            MongoTemplate mongoTemplate,
+            @Qualifier("correctionExecutor") ExecutorService correctionExecutor) {
+        this.submissionRepository = submissionRepository;
+        this.answerKeyRepository = answerKeyRepository;
+        this.examService = examService;
+        this.correctionCalculator = correctionCalculator;
+        this.scoringPlanCache = scoringPlanCache;
+        this.examAggregateService = examAggregateService;
+        this.dashboardService = dashboardService;
+        this.mongoTemplate = mongoTemplate;
+        this.correctionExecutor = correctionExecutor;
+    }
+
+    public CorrectionBatchResponse correctAll(String examId) {
+        long inicio = System.nanoTime();
+        Exam exam = examService.findById(examId);
+        ScoringPlan plan = currentPlan(exam);
+
+        // Limita os lotes em voo para que o cursor não seja drenado inteiro para a memória
+        Semaphore emVoo = new Semaphore(parallelism * 2);
+        List<List<Submission>> lotes = new ArrayList<>();
+        List<Future<BatchOutcome>> futures = new ArrayList<>();
+
+        try (Stream<Submission> pendentes = submissionRepository.streamByExamIdAndCorrigida(examId, false)) {
+            Iterator<Submission> it = pendentes.iterator();
+            List<Submission> lote = new ArrayList<>(batchSize);
+            while (it.hasNext()) {
+                lote.add(it.next());
+                if (lote.size() == batchSize || !it.hasNext()) {
+                    lotes.add(lote);
+                    futures.add(submit(plan, lote, emVoo));
+                    lote = new ArrayList<>(batchSize);
+                }
+            }
+        }
+
+        int corrigidas = 0;
+        int falhas = 0;
+        for (int tentativa = 1; ; tentativa++) {
+            List<List<Submission>> desatualizados = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                BatchOutcome outcome = await(futures.get(i));
+                corrigidas += outcome.corrigidas();
+                falhas += outcome.falhas();
+                if (outcome.desatualizado()) {
+                    desatualizados.add(lotes.get(i));
+                }
+            }
+            lotes = desatualizados;
+            if (lotes.isEmpty() || tentativa > MAX_TENTATIVAS_GABARITO) {
+                break;
+            }
+            log.info("Batch correction: answer key changed, redoing {} batch(es) for exam {}", lotes.size(), examId);
+            plan = currentPlan(exam);
+            futures = new ArrayList<>(lotes.size());
+            for (List<Submission> lote : lotes) {
+                futures.add(submit(plan, lote, emVoo));
+            }
+        }
+        int pendentes = lotes.stream().mapToInt(List::size).sum();
+
+        if (corrigidas > 0) {
+            dashboardService.invalidate(exam.getProfessorId());
+        }
+
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Batch correction finished: exam={}, corrigidas={}, falhas={}, pendentes={}, duracaoMs={}", examId,
+                corrigidas, falhas, pendentes, duracaoMs);
+        return new CorrectionBatchResponse(examId, corrigidas, falhas, pendentes, duracaoMs);
+    }
+
+    private ScoringPlan currentPlan(Exam exam) {
+        AnswerKey answerKey = answerKeyRepository.findByExamId(exam.getId())
+                .orElseThrow(() -> new BusinessRuleException("ANSWER_KEY_NOT_FOUND",
+                        "Gabarito não encontrado para correção."));
+        return scoringPlanCache.get(exam, answerKey);
+    }
+
+    private Future<BatchOutcome> submit(ScoringPlan plan, List<Submission> lote, Semaphore emVoo) {
+        emVoo.acquireUninterruptibly();
+        try {
+            return correctionExecutor.submit(() -> {
+                try {
+                    return commitBatch(plan, lote);
+                } finally {
+                    emVoo.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            emVoo.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Corrige um lote e grava os resultados com um insert em lote. Submissões cujo resultado já existia
+     * (corrigidas em paralelo por outra requisição) são contadas como falha; a submissão é alinhada ao
+     * resultado existente para não voltar a ser considerada pendente, e o agregado da prova é refeito.
+     * <p>
+     * Depois do insert, a versão do gabarito é conferida: se uma recorreção trocou o gabarito enquanto o
+     * lote era corrigido, os resultados gravados podem ter escapado dela. Eles são removidos, as submissões
+     * continuam pendentes e o lote volta marcado como desatualizado, para que quem o enviou o refaça com o
+     * gabarito atual ({@link #correctAll} ou o {@code CorrectionJobWorker}).
+     */
+    BatchOutcome commitBatch(ScoringPlan plan, List<Submission> lote) {
+        List<CorrectionResult> results = new ArrayList<>(lote.size());
+        for (Submission sub : lote) {
+            results.add(correctionCalculator.calculate(plan, sub.getRespostas(), sub.getId()));
+        }
+
+        Set<Integer> rejeitados = new HashSet<>();
+        List<String> duplicados = new ArrayList<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CorrectionResult.class)
+                    .insert(results)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                rejeitados.add(error.getIndex());
+                if (error.getCode() == DUPLICATE_KEY) {
+                    duplicados.add(results.get(error.getIndex()).getSubmissionId());
+                }
+            }
+            log.warn("Batch correction: {} result(s) rejected for exam {}", rejeitados.size(), plan.getExamId());
+        }
+
+        if (!answerKeyRepository.existsByExamIdAndDataAtualizacao(plan.getExamId(), plan.getVersao())) {
+            List<String> nossos = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                if (!rejeitados.contains(i)) {
+                    nossos.add(results.get(i).getSubmissionId());
+                }
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("submissionId").in(nossos)), CorrectionResult.class);
+            log.warn("Batch correction: answer key changed during batch, {} result(s) discarded for exam {}",
+                    nossos.size(), plan.getExamId());
+            return new BatchOutcome(0, 0, true);
+        }
+
+        Long geracao = examAggregateService.generation(plan.getExamId());
+        BulkOperations submissions = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Submission.class);
+        List<Submission> gravadas = new ArrayList<>(results.size());
+        List<CorrectionResult> gravados = new ArrayList<>(results.size());
+        boolean pendente = false;
+        for (int i = 0; i < results.size(); i++) {
+            if (rejeitados.contains(i)) {
+                continue;
+            }
+            CorrectionResult result = results.get(i);
+            gravadas.add(lote.get(i));
+            gravados.add(result);
+            submissions.updateOne(Query.query(Criteria.where("_id").is(result.getSubmissionId())),
+                    corrigida(result.getNotaFinal()));
+            pendente = true;
+        }
+        if (!duplicados.isEmpty()) {
+            Query existentes = Query.query(Criteria.where("submissionId").in(duplicados));
+            existentes.fields().include("submissionId", "notaFinal");
+            for (CorrectionResult existente : mongoTemplate.find(existentes, CorrectionResult.class)) {
+                submissions.updateOne(Query.query(Criteria.where("_id").is(existente.getSubmissionId())),
+                        corrigida(existente.getNotaFinal()));
+                pendente = true;
+            }
+        }
+        if (pendente) {
+            submissions.execute();
+        }
+        examAggregateService.record(plan, geracao, gravadas, gravados);
+        if (!duplicados.isEmpty()) {
+            // Quem gravou os resultados existentes pode ter caído antes de somá-los; o agregado é refeito
+            examAggregateService.discard(plan.getExamId());
+        }
+
+        return new BatchOutcome(results.size() - rejeitados.size(), rejeitados.size(), false);
+    }
+
+    private static Update corrigida(double nota) {
+        return new Update().set("corrigida", true).set("nota", nota)
+                .unset("correcaoJobId").unset("reservadaEm").unset("reserva").unset("tentativasCorrecao");
+    }
+
+    private BatchOutcome await(Future<BatchOutcome> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Correção em lote interrompida.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na correção em lote.", e.getCause());
+        }
+    }
+
+    /** Resultado de um lote; {@code desatualizado} indica que o gabarito mudou e nada foi gravado. */
+    record BatchOutcome(int corrigidas, int falhas, boolean desatualizado) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.projeto.examcorrection.service;
+
+import java.util.Map;
+
+/**
+ * Correção sobre vetores de bits. As respostas de uma submissão viram um plano {@code long[]} por
+ * alternativa (bit i = questão i marcada com aquela alternativa), e acertos/brancos saem de
+ * {@link Long#bitCount(long)} sobre máscaras AND/XOR contra os planos do gabarito no {@link ScoringPlan}.
+ */
+public final class BitPackedScoring {
+
+    private BitPackedScoring() {
+    }
+
+    /**
+     * Empacota as respostas de uma submissão. Se {@code respostasPorOrdinal} não for nulo, recebe também
+     * o texto de cada resposta na posição do ordinal da questão.
+     */
+    public static PackedAnswers pack(ScoringPlan plan, Map<String, String> respostas, String[] respostasPorOrdinal) {
+        long[][] planos = new long[plan.maxAlternativas()][plan.palavras()];
+        long[] respondidas = new long[plan.palavras()];
+        if (respostas == null) {
+            return new PackedAnswers(planos, respondidas);
+        }
+        for (Map.Entry<String, String> entry : respostas.entrySet()) {
+            int i = plan.ordinal(entry.getKey());
+            if (i < 0 || entry.getValue() == null) {
+                continue;
+            }
+            long bit = 1L << i;
+            respondidas[i >>> 6] |= bit;
+            int codigo = plan.encode(i, entry.getValue());
+            if (codigo >= 0) {
+                planos[codigo][i >>> 6] |= bit;
+            }
+            if (respostasPorOrdinal != null) {
+                respostasPorOrdinal[i] = entry.getValue();
+            }
+        }
+        return new PackedAnswers(planos, respondidas);
+    }
+
+    public static PackedScore score(ScoringPlan plan, PackedAnswers answers) {
+        int palavras = plan.palavras();
+        long[] corretas = new long[palavras];
+        int acertos = 0;
+        int respondidas = 0;
+        int erros = 0;
+
+        for (int w = 0; w < palavras; w++) {
+            long acerto = plan.anuladas()[w];
+            for (int a = 0; a < answers.planos().length; a++) {
+                acerto |= plan.planoGabarito(a)[w] & answers.planos()[a][w];
+            }
+            corretas[w] = acerto;
+            acertos += Long.bitCount(acerto);
+            respondidas += Long.bitCount(answers.respondidas()[w]);
+            erros += Long.bitCount(answers.respondidas()[w] & ~acerto);
+        }
+
+        double nota;
+        if (plan.isPontuacaoUniforme()) {
+            nota = plan.size() > 0 ? acertos * plan.pontuacao(0) : 0.0;
+        } else {
+            nota = 0.0;
+            for (int w = 0; w < palavras; w++) {
+                long bits = corretas[w];
+                while (bits != 0) {
+                    nota += plan.pontuacao((w << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return new PackedScore(acertos, erros, plan.size() - respondidas, nota, corretas);
+    }
+
+    public record PackedAnswers(long[][] planos, long[] respondidas) {
+    }
+
+    public record PackedScore(int acertos, int erros, int brancos, double nota, long[] corretas) {
+
+        public boolean correta(int ordinal) {
+            return (corretas[ordinal >>> 6] & (1L << ordinal)) != 0;
+        }
+    }
+}
@@ -1,43 +1,120 @@
 package com.projeto.examcorrection.service;
 
 import com.projeto.examcorrection.domain.CorrectionResult;
-import com.projeto.examcorrection.domain.Question;
 import com.projeto.examcorrection.domain.QuestionDetail;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 @Component
 public class CorrectionCalculator {
 
-    public CorrectionResult calculate(Map<String, String> gabarito, Map<String, String> respostasAluno, List<Question> questions, String submissionId) {
-        
-        List<QuestionDetail> detalhes = questions.stream().map(q -> {
-            boolean correta = false;
+    /** Posições do {@code mapaCorrecao}: uma por questão, na ordem do plano. */
+    public static final char CORRETA = '1';
+    public static final char ERRADA = '0';
+    public static final char EM_BRANCO = '-';
+
+    @Value("${app.correction.bit-packed:false}")
+    private boolean bitPacked;
+
+    /** Em modo compacto o resultado guarda só os totais e o mapa; os detalhes são refeitos sob demanda. */
+    @Value("${app.correction.compact-results:false}")
+    private boolean compactResults;
+
+    public CorrectionResult calculate(ScoringPlan plan, Map<String, String> respostasAluno, String submissionId) {
+        if (bitPacked) {
+            return calculatePacked(plan, respostasAluno, submissionId, !compactResults);
+        }
+        return calculateLoop(plan, respostasAluno, submissionId, !compactResults);
+    }
+
+    /** Detalhes por questão de uma submissão, para resultados gravados sem eles. */
+    public List<QuestionDetail> details(ScoringPlan plan, Map<String, String> respostasAluno) {
+        return calculateLoop(plan, respostasAluno, null, true).getDetalhesPorQuestao();
+    }
+
+    private CorrectionResult calculateLoop(ScoringPlan plan, Map<String, String> respostasAluno, String submissionId,
+            boolean comDetalhes) {
+        Map<String, String> respostas = respostasAluno != null ? respostasAluno : Map.of();
+        int n = plan.size();
+        QuestionDetail[] detalhes = comDetalhes ? new QuestionDetail[n] : null;
+        char[] mapa = new char[n];
+        int acertos = 0;
+        int erros = 0;
+        double notaFinal = 0.0;
+
+        for (int i = 0; i < n; i++) {
+            String respostaAluno = respostas.get(plan.questionId(i));
             double pontuacaoObtida = 0.0;
-            String respostaEsperada = gabarito.get(q.getId());
-            String respostaAluno = respostasAluno.get(q.getId());
+            boolean correta = false;
 
-            if (respostaAluno != null && respostaAluno.equals(respostaEsperada)) {
+            if (plan.gabarito(i) == ScoringPlan.ANULADA) {
                 correta = true;
-                pontuacaoObtida = q.getPontuacao();
+                pontuacaoObtida = plan.pontuacao(i);
+                acertos++;
+                notaFinal += pontuacaoObtida;
+            } else if (respostaAluno != null) {
+                if (plan.encode(i, respostaAluno) == plan.gabarito(i)) {
+                    correta = true;
+                    pontuacaoObtida = plan.pontuacao(i);
+                    acertos++;
+                    notaFinal += pontuacaoObtida;
+                } else {
+                    erros++;
+                }
             }
 
-            return new QuestionDetail(q.getId(), correta, respostaAluno, respostaEsperada, pontuacaoObtida);
-        }).toList();
+            mapa[i] = correta ? CORRETA : respostaAluno != null ? ERRADA : EM_BRANCO;
+            if (comDetalhes) {
+                detalhes[i] = new QuestionDetail(plan.questionId(i), correta, respostaAluno, plan.gabaritoTexto(i),
+                        pontuacaoObtida);
+            }
+        }
+
+        return toResult(plan, submissionId, acertos, erros, notaFinal, mapa, detalhes);
+    }
+
+    /**
+     * Mesma correção feita com {@link BitPackedScoring}: contagens e nota saem das máscaras de bits e os
+     * detalhes por questão são preenchidos a partir do vetor de acertos.
+     */
+    CorrectionResult calculatePacked(ScoringPlan plan, Map<String, String> respostasAluno, String submissionId) {
+        return calculatePacked(plan, respostasAluno, submissionId, true);
+    }
 
-        int acertos = (int) detalhes.stream().filter(QuestionDetail::correta).count();
-        int erros = (int) detalhes.stream().filter(d -> !d.correta() && d.respostaAluno() != null).count();
-        double notaFinal = detalhes.stream().mapToDouble(QuestionDetail::pontuacaoObtida).sum();
+    private CorrectionResult calculatePacked(ScoringPlan plan, Map<String, String> respostasAluno,
+            String submissionId, boolean comDetalhes) {
+        int n = plan.size();
+        String[] respostas = new String[n];
+        BitPackedScoring.PackedScore score = BitPackedScoring.score(plan,
+                BitPackedScoring.pack(plan, respostasAluno, respostas));
 
+        QuestionDetail[] detalhes = comDetalhes ? new QuestionDetail[n] : null;
+        char[] mapa = new char[n];
+        for (int i = 0; i < n; i++) {
+            boolean correta = score.correta(i);
+            mapa[i] = correta ? CORRETA : respostas[i] != null ? ERRADA : EM_BRANCO;
+            if (comDetalhes) {
+                detalhes[i] = new QuestionDetail(plan.questionId(i), correta, respostas[i], plan.gabaritoTexto(i),
+                        correta ? plan.pontuacao(i) : 0.0);
+            }
+        }
+        return toResult(plan, submissionId, score.acertos(), score.erros(), score.nota(), mapa, detalhes);
+    }
+
+    private CorrectionResult toResult(ScoringPlan plan, String submissionId, int acertos, int erros,
+            double notaFinal, char[] mapa, QuestionDetail[] detalhes) {
         CorrectionResult result = new CorrectionResult();
         result.setSubmissionId(submissionId);
+        result.setExamId(plan.getExamId());
         result.setAcertos(acertos);
         result.setErros(erros);
         result.setNotaFinal(notaFinal);
-        result.setDetalhesPorQuestao(detalhes);
-
+        result.setMapaCorrecao(new String(mapa));
+        result.setDetalhesPorQuestao(detalhes != null ? Arrays.asList(detalhes) : null);
         return result;
     }
 }
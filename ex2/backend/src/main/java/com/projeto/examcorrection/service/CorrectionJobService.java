@@ -0,0 +1,204 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.CorrectionJob;
+import com.projeto.examcorrection.domain.CorrectionJobStatus;
+import com.projeto.examcorrection.domain.EtapaEncerramento;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.ExamStatus;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.dto.CorrectionJobResponse;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.error.ConflictException;
+import com.projeto.examcorrection.error.ResourceNotFoundException;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.CorrectionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Jobs de correção assíncrona. O job é persistido em {@code correction_jobs} e processado pelo
+ * {@link CorrectionJobWorker}; o estado no banco é a fonte da verdade, de modo que um job sobrevive
+ * a reinícios da aplicação.
+ */
+@Service
+public class CorrectionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(CorrectionJobService.class);
+
+    static final List<CorrectionJobStatus> ATIVOS = List.of(CorrectionJobStatus.PENDENTE,
+            CorrectionJobStatus.EM_ANDAMENTO);
+
+    private final CorrectionJobRepository correctionJobRepository;
+    private final AnswerKeyRepository answerKeyRepository;
+    private final ExamService examService;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.correction.jobs.closing-sweep-interval-ms}")
+    private long closingSweepIntervalMs;
+
+    public CorrectionJobService(CorrectionJobRepository correctionJobRepository,
+            AnswerKeyRepository answerKeyRepository,
+            ExamService examService,
+            MongoTemplate mongoTemplate) {
+        this.correctionJobRepository = correctionJobRepository;
+        this.answerKeyRepository = answerKeyRepository;
+        this.examService = examService;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public CorrectionJobResponse create(String examId, String professorId) {
+        Exam exam = examService.findById(examId);
+        if (answerKeyRepository.findByExamId(examId).isEmpty()) {
+            throw new BusinessRuleException("ANSWER_KEY_NOT_FOUND", "Gabarito não encontrado para correção.");
+        }
+        if (correctionJobRepository.existsByExamIdAndStatusIn(examId, ATIVOS)) {
+            throw new ConflictException("CORRECTION_JOB_RUNNING", "Já existe uma correção em andamento para esta prova.");
+        }
+
+        long pendentes = resetAttempts(examId);
+
+        CorrectionJob job = new CorrectionJob();
+        job.setExamId(exam.getId());
+        job.setSolicitadoPor(professorId);
+        job.setStatus(CorrectionJobStatus.PENDENTE);
+        job.setTotal((int) pendentes);
+        // Prova encerrada sem resultados (encerramento que falhou): a nova correção retoma o encerramento
+        if (exam.getStatus() == ExamStatus.ENCERRADA && !exam.isResultadosProntos()) {
+            job.setEncerramento(true);
+            job.setEtapa(EtapaEncerramento.CORRECAO);
+        }
+        job.setDataCriacao(Instant.now());
+        job = correctionJobRepository.save(job);
+
+        log.info("Correction job queued: id={}, exam={}, total={}", job.getId(), examId, pendentes);
+        return toResponse(job);
+    }
+
+    /**
+     * Agenda o processamento de encerramento da prova: corrige as submissões pendentes e materializa o
+     * relatório e as estatísticas. Um job de correção já ativo para a prova é convertido em vez de
+     * duplicado. Sem gabarito não há o que corrigir, e o encerramento segue sem o processamento.
+     */
+    public void startClosing(String examId) {
+        Exam exam = examService.findById(examId);
+        if (answerKeyRepository.findByExamId(exam.getId()).isEmpty()) {
+            log.warn("Closing pipeline skipped, no answer key: exam={}", exam.getId());
+            return;
+        }
+        boolean convertido = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("examId").is(exam.getId()).and("status").in(ATIVOS)),
+                new Update().set("encerramento", true).set("etapa", EtapaEncerramento.CORRECAO),
+                CorrectionJob.class).getModifiedCount() > 0;
+        if (convertido) {
+            log.info("Closing pipeline attached to running job: exam={}", exam.getId());
+            return;
+        }
+
+        long pendentes = resetAttempts(exam.getId());
+
+        CorrectionJob job = new CorrectionJob();
+        job.setExamId(exam.getId());
+        job.setSolicitadoPor(exam.getProfessorId());
+        job.setStatus(CorrectionJobStatus.PENDENTE);
+        job.setTotal((int) pendentes);
+        job.setEncerramento(true);
+        job.setEtapa(EtapaEncerramento.CORRECAO);
+        job.setDataCriacao(Instant.now());
+        job = correctionJobRepository.save(job);
+
+        log.info("Closing pipeline queued: id={}, exam={}, total={}", job.getId(), exam.getId(), pendentes);
+    }
+
+    /**
+     * Agenda o encerramento das provas encerradas que ficaram sem job de encerramento, por exemplo quando
+     * a aplicação caiu entre encerrar a prova e agendar o processamento. Provas encerradas há menos de um
+     * ciclo são ignoradas, para não concorrer com o agendamento feito pelo próprio encerramento.
+     */
+    @Scheduled(fixedDelayString = "${app.correction.jobs.closing-sweep-interval-ms}",
+            initialDelayString = "${app.correction.jobs.closing-sweep-interval-ms}")
+    public void recoverClosings() {
+        Query encerradas = Query.query(Criteria.where("status").is(ExamStatus.ENCERRADA)
+                .and("resultadosProntos").ne(true)
+                .and("dataEncerramento").not().gt(Instant.now().minusMillis(closingSweepIntervalMs)));
+        encerradas.fields().include("_id");
+        for (Exam exam : mongoTemplate.find(encerradas, Exam.class)) {
+            boolean agendado = mongoTemplate.exists(
+                    Query.query(Criteria.where("examId").is(exam.getId()).and("encerramento").is(true)),
+                    CorrectionJob.class);
+            if (!agendado && answerKeyRepository.existsByExamId(exam.getId())) {
+                log.info("Closing pipeline recovered: exam={}", exam.getId());
+                startClosing(exam.getId());
+            }
+        }
+    }
+
+    public CorrectionJobResponse getById(String id, String professorId) {
+        return toResponse(findOwned(id, professorId));
+    }
+
+    public CorrectionJobResponse cancel(String id, String professorId) {
+        CorrectionJob job = findOwned(id, professorId);
+        if (!job.isAtivo()) {
+            throw new BusinessRuleException("CORRECTION_JOB_FINISHED", "O job de correção já foi encerrado.");
+        }
+        // Condicional ao status para não sobrescrever um job concluído entre a leitura e a escrita
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(id).and("status").in(ATIVOS)),
+                new Update().set("status", CorrectionJobStatus.CANCELADO).set("dataFim", Instant.now()),
+                CorrectionJob.class);
+        // Devolve as submissões reservadas pelo job, sem esperar a reserva expirar
+        long liberadas = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("correcaoJobId").is(id).and("corrigida").is(false)),
+                new Update().unset("correcaoJobId").unset("reservadaEm").unset("reserva"),
+                Submission.class).getModifiedCount();
+        log.info("Correction job cancelled: id={}, exam={}, liberadas={}", id, job.getExamId(), liberadas);
+        return toResponse(correctionJobRepository.findById(id).orElse(job));
+    }
+
+    /**
+     * Zera as tentativas das submissões pendentes da prova, para que um job novo volte a tentar as que
+     * esgotaram as tentativas de um job anterior, e devolve quantas estão pendentes.
+     */
+    private long resetAttempts(String examId) {
+        Query pendentes = Query.query(Criteria.where("examId").is(examId).and("corrigida").is(false));
+        mongoTemplate.updateMulti(Query.query(Criteria.where("examId").is(examId).and("corrigida").is(false)
+                        .and("tentativasCorrecao").gt(0)),
+                new Update().unset("tentativasCorrecao"), Submission.class);
+        return mongoTemplate.count(pendentes, Submission.class);
+    }
+
+    private CorrectionJob findOwned(String id, String professorId) {
+        CorrectionJob job = correctionJobRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("CORRECTION_JOB_NOT_FOUND",
+                        "Job de correção não encontrado."));
+        if (!job.getSolicitadoPor().equals(professorId)) {
+            throw new BusinessRuleException("ACCESS_DENIED", "Acesso negado.", HttpStatus.FORBIDDEN);
+        }
+        return job;
+    }
+
+    CorrectionJobResponse toResponse(CorrectionJob job) {
+        double porSegundo = 0.0;
+        if (job.getDataInicio() != null && job.getProcessadas() > 0) {
+            Instant fim = job.getDataFim() != null ? job.getDataFim() : Instant.now();
+            long ms = Math.max(1, Duration.between(job.getDataInicio(), fim).toMillis());
+            porSegundo = Math.round(job.getProcessadas() * 1000.0 / ms * 100.0) / 100.0;
+        }
+        return new CorrectionJobResponse(job.getId(), job.getExamId(), job.getStatus(), job.getEtapa(),
+                job.getTotal(), job.getProcessadas(), job.getFalhas(), job.getNaoCorrigidas(), job.getMotivoFalha(),
+                porSegundo,
+                job.getDataCriacao(), job.getDataInicio(), job.getDataFim());
+    }
+}
@@ -0,0 +1,348 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.AnswerKey;
+import com.projeto.examcorrection.domain.CorrectionJob;
+import com.projeto.examcorrection.domain.CorrectionJobStatus;
+import com.projeto.examcorrection.domain.EtapaEncerramento;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.error.ResourceNotFoundException;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.CorrectionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processa os jobs de correção ativos. Cada worker reserva um lote de submissões de uma vez (uma leitura
+ * dos ids e um {@code updateMulti} que marca {@code correcaoJobId}, {@code reservadaEm} e um identificador
+ * da reserva), corrige o lote e grava com {@link BatchCorrectionService#commitBatch}. Reservas expiram após
+ * {@code lease-seconds}, então submissões presas em um worker interrompido voltam a ficar disponíveis e o
+ * job é retomado no próximo ciclo, inclusive após um reinício da aplicação. Cada reserva conta uma
+ * tentativa; submissões que chegam a {@code max-attempts} sem correção deixam de ser reservadas, e o job
+ * termina como {@link CorrectionJobStatus#FALHOU} registrando quantas ficaram sem correção.
+ * <p>
+ * Jobs de encerramento continuam depois da correção: um único worker reserva a materialização e gera o
+ * relatório e as estatísticas, gravando no job a próxima etapa a cada passo. Se o worker cair no meio, a
+ * reserva expira e outro retoma da última etapa gravada; se uma etapa falhar, a reserva é liberada na
+ * hora. Cada reserva conta uma tentativa, e depois de {@code max-attempts} o job termina em
+ * {@link CorrectionJobStatus#FALHOU} com o motivo registrado.
+ */
+@Component
+public class CorrectionJobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(CorrectionJobWorker.class);
+
+    private final CorrectionJobRepository correctionJobRepository;
+    private final AnswerKeyRepository answerKeyRepository;
+    private final ExamService examService;
+    private final BatchCorrectionService batchCorrectionService;
+    private final ScoringPlanCache scoringPlanCache;
+    private final DashboardService dashboardService;
+    private final ReportService reportService;
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService correctionJobExecutor;
+
+    private final AtomicInteger emExecucao = new AtomicInteger();
+
+    @Value("${app.correction.jobs.concurrency}")
+    private int concurrency;
+
+    @Value("${app.correction.jobs.lease-seconds}")
+    private long leaseSeconds;
+
+    @Value("${app.correction.jobs.max-attempts}")
+    private int maxTentativas;
+
+    @Value("${app.correction.batch-size}")
+    private int batchSize;
+
+    public CorrectionJobWorker(CorrectionJobRepository correctionJobRepository,
+            AnswerKeyRepository answerKeyRepository,
+            ExamService examService,
+            BatchCorrectionService batchCorrectionService,
+            ScoringPlanCache scoringPlanCache,
+            DashboardService dashboardService,
+            ReportService reportService,
+            MongoTemplate mongoTemplate,
+            @Qualifier("correctionJobExecutor") ExecutorService correctionJobExecutor) {
+        this.correctionJobRepository = correctionJobRepository;
+        this.answerKeyRepository = answerKeyRepository;
+        this.examService = examService;
+        this.batchCorrectionService = batchCorrectionService;
+        this.scoringPlanCache = scoringPlanCache;
+        this.dashboardService = dashboardService;
+        this.reportService = reportService;
+        this.mongoTemplate = mongoTemplate;
+        this.correctionJobExecutor = correctionJobExecutor;
+    }
+
+    /**
+     * Distribui os slots livres entre os jobs ativos, do mais antigo para o mais novo. Com um único
+     * job, todos os workers livres trabalham nele; as reservas atômicas evitam correções em dobro.
+     */
+    @Scheduled(fixedDelayString = "${app.correction.jobs.poll-interval-ms}")
+    public void poll() {
+        int livres = concurrency - emExecucao.get();
+        if (livres <= 0) {
+            return;
+        }
+        List<CorrectionJob> ativos = correctionJobRepository.findByStatusInOrderByDataCriacaoAsc(
+                CorrectionJobService.ATIVOS);
+        if (ativos.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < livres; i++) {
+            String jobId = ativos.get(i % ativos.size()).getId();
+            emExecucao.incrementAndGet();
+            try {
+                correctionJobExecutor.execute(() -> {
+                    try {
+                        process(jobId);
+                    } catch (RuntimeException e) {
+                        log.error("Correction job worker failed: id={}", jobId, e);
+                    } finally {
+                        emExecucao.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                emExecucao.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    void process(String jobId) {
+        Optional<CorrectionJob> found = correctionJobRepository.findById(jobId);
+        if (found.isEmpty() || !found.get().isAtivo()) {
+            return;
+        }
+        CorrectionJob job = found.get();
+        String examId = job.getExamId();
+
+        Exam exam;
+        AnswerKey answerKey;
+        try {
+            exam = examService.findById(examId);
+            answerKey = answerKeyRepository.findByExamId(examId)
+                    .orElseThrow(() -> new ResourceNotFoundException("ANSWER_KEY_NOT_FOUND",
+                            "Gabarito não encontrado para correção."));
+        } catch (ResourceNotFoundException e) {
+            fail(jobId, 0, e.getMessage());
+            log.warn("Correction job failed: id={}, exam={}, reason={}", jobId, examId, e.getMessage());
+            return;
+        }
+        ScoringPlan plan = scoringPlanCache.get(exam, answerKey);
+
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(jobId).and("status").is(CorrectionJobStatus.PENDENTE)),
+                new Update().set("status", CorrectionJobStatus.EM_ANDAMENTO).set("dataInicio", Instant.now()),
+                CorrectionJob.class);
+
+        while (isAtivo(jobId)) {
+            List<Submission> lote = reserve(examId, jobId);
+            if (lote.isEmpty()) {
+                // Submissões ainda reservadas por outro worker mantêm o job ativo até serem gravadas
+                // ou até a reserva expirar
+                Instant agora = Instant.now();
+                boolean pendentes = mongoTemplate.exists(
+                        Query.query(Criteria.where("examId").is(examId).and("corrigida").is(false)
+                                .orOperator(Criteria.where("tentativasCorrecao").not().gte(maxTentativas),
+                                        Criteria.where("reservadaEm").gt(agora.minusSeconds(leaseSeconds)))),
+                        Submission.class);
+                if (pendentes) {
+                    return;
+                }
+                long naoCorrigidas = mongoTemplate.count(
+                        Query.query(Criteria.where("examId").is(examId).and("corrigida").is(false)),
+                        Submission.class);
+                if (naoCorrigidas > 0) {
+                    fail(jobId, naoCorrigidas, naoCorrigidas + " submissão(ões) sem correção após "
+                            + maxTentativas + " tentativas.");
+                    log.warn("Correction job failed: id={}, exam={}, naoCorrigidas={}", jobId, examId,
+                            naoCorrigidas);
+                } else if (finishCorrection(jobId)) {
+                    log.info("Correction job finished: id={}, exam={}", jobId, examId);
+                } else {
+                    materialize(jobId, exam);
+                }
+                return;
+            }
+
+            BatchCorrectionService.BatchOutcome outcome = batchCorrectionService.commitBatch(plan, lote);
+            if (outcome.desatualizado()) {
+                // Gabarito recorrigido durante o lote: devolve as submissões sem gastar tentativa e deixa o
+                // próximo ciclo recompilar o plano
+                release(lote);
+                return;
+            }
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(jobId)),
+                    new Update().inc("processadas", outcome.corrigidas())
+                            .inc("falhas", outcome.falhas())
+                            .set("ultimaAtividade", Instant.now()),
+                    CorrectionJob.class);
+            if (outcome.corrigidas() > 0) {
+                dashboardService.invalidate(exam.getProfessorId());
+            }
+        }
+    }
+
+    /**
+     * Executa as etapas de encerramento que faltam, a partir da registrada no job. Cada etapa é
+     * idempotente (os relatórios só são regerados se estiverem atrás da versão do agregado), então
+     * repetir a etapa interrompida é seguro.
+     */
+    private void materialize(String jobId, Exam exam) {
+        Instant agora = Instant.now();
+        CorrectionJob job = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(jobId)
+                        .and("status").in(CorrectionJobService.ATIVOS)
+                        .and("encerramento").is(true)
+                        .and("materializacaoEm").not().gt(agora.minusSeconds(leaseSeconds))),
+                new Update().set("materializacaoEm", agora).set("ultimaAtividade", agora)
+                        .inc("tentativasMaterializacao", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                CorrectionJob.class);
+        if (job == null) {
+            return;
+        }
+        if (job.getTentativasMaterializacao() > maxTentativas) {
+            fail(jobId, 0, "Falha ao gerar relatório e estatísticas após " + maxTentativas + " tentativas.");
+            log.warn("Closing pipeline failed: id={}, exam={}, etapa={}", jobId, exam.getId(), job.getEtapa());
+            return;
+        }
+
+        EtapaEncerramento etapa = job.getEtapa() != null ? job.getEtapa() : EtapaEncerramento.CORRECAO;
+        try {
+            while (etapa != EtapaEncerramento.CONCLUIDA) {
+                switch (etapa) {
+                    case RELATORIO -> reportService.materializeReport(exam);
+                    case ESTATISTICAS -> reportService.materializeStatistics(exam);
+                    default -> {
+                    }
+                }
+                etapa = EtapaEncerramento.values()[etapa.ordinal() + 1];
+                checkpoint(jobId, etapa);
+            }
+        } catch (RuntimeException e) {
+            // Libera a reserva para a próxima tentativa não esperar a expiração
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(jobId)),
+                    new Update().unset("materializacaoEm"), CorrectionJob.class);
+            log.error("Closing pipeline step failed: id={}, exam={}, etapa={}, tentativa={}", jobId, exam.getId(),
+                    etapa, job.getTentativasMaterializacao(), e);
+            return;
+        }
+
+        Instant fim = Instant.now();
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(exam.getId())),
+                new Update().set("resultadosProntos", true).set("dataResultados", fim),
+                Exam.class);
+        examService.invalidate(exam.getId());
+        finish(jobId, CorrectionJobStatus.CONCLUIDO);
+        dashboardService.invalidate(exam.getProfessorId());
+        log.info("Closing pipeline finished: id={}, exam={}, duracaoMs={}", jobId, exam.getId(),
+                fim.toEpochMilli() - agora.toEpochMilli());
+    }
+
+    /** Grava a próxima etapa e renova a reserva da materialização. */
+    private void checkpoint(String jobId, EtapaEncerramento etapa) {
+        Instant agora = Instant.now();
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(jobId)),
+                new Update().set("etapa", etapa).set("materializacaoEm", agora).set("ultimaAtividade", agora),
+                CorrectionJob.class);
+    }
+
+    /**
+     * Reserva até {@code batchSize} submissões pendentes sem reserva válida e com tentativas restantes. O
+     * {@code updateMulti} repete o filtro, então candidatas reservadas por outro worker entre a leitura e a
+     * escrita ficam de fora, e o lote é relido pelo identificador desta reserva.
+     */
+    List<Submission> reserve(String examId, String jobId) {
+        Instant agora = Instant.now();
+        Criteria livre = Criteria.where("examId").is(examId)
+                .and("corrigida").is(false)
+                .and("reservadaEm").not().gt(agora.minusSeconds(leaseSeconds))
+                .and("tentativasCorrecao").not().gte(maxTentativas);
+        Query candidatas = Query.query(livre).limit(batchSize);
+        candidatas.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidatas, Submission.class).stream()
+                .map(Submission::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        String reserva = UUID.randomUUID().toString();
+        long reservadas = mongoTemplate.updateMulti(
+                Query.query(new Criteria().andOperator(Criteria.where("_id").in(ids), livre)),
+                new Update().set("correcaoJobId", jobId).set("reservadaEm", agora).set("reserva", reserva)
+                        .inc("tentativasCorrecao", 1),
+                Submission.class).getModifiedCount();
+        if (reservadas == 0) {
+            return List.of();
+        }
+        return mongoTemplate.find(
+                Query.query(Criteria.where("_id").in(ids).and("reserva").is(reserva)), Submission.class);
+    }
+
+    private void release(List<Submission> lote) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(lote.stream().map(Submission::getId).toList())
+                        .and("corrigida").is(false)
+                        .and("reserva").is(lote.get(0).getReserva())),
+                new Update().unset("correcaoJobId").unset("reservadaEm").unset("reserva")
+                        .inc("tentativasCorrecao", -1),
+                Submission.class);
+    }
+
+    private boolean isAtivo(String jobId) {
+        return mongoTemplate.exists(
+                Query.query(Criteria.where("_id").is(jobId).and("status").in(CorrectionJobService.ATIVOS)),
+                CorrectionJob.class);
+    }
+
+    /** Conclui um job de correção comum; jobs de encerramento seguem para a materialização. */
+    private boolean finishCorrection(String jobId) {
+        Instant agora = Instant.now();
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(jobId)
+                        .and("status").in(CorrectionJobService.ATIVOS)
+                        .and("encerramento").ne(true)),
+                new Update().set("status", CorrectionJobStatus.CONCLUIDO).set("dataFim", agora)
+                        .set("ultimaAtividade", agora),
+                CorrectionJob.class).getModifiedCount() > 0;
+    }
+
+    private void fail(String jobId, long naoCorrigidas, String motivo) {
+        Instant agora = Instant.now();
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(jobId).and("status").in(CorrectionJobService.ATIVOS)),
+                new Update().set("status", CorrectionJobStatus.FALHOU).set("naoCorrigidas", naoCorrigidas)
+                        .set("motivoFalha", motivo).set("dataFim", agora).set("ultimaAtividade", agora),
+                CorrectionJob.class);
+    }
+
+    private boolean finish(String jobId, CorrectionJobStatus status) {
+        Instant agora = Instant.now();
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(jobId).and("status").in(CorrectionJobService.ATIVOS)),
+                new Update().set("status", status).set("dataFim", agora).set("ultimaAtividade", agora),
+                CorrectionJob.class).getModifiedCount() > 0;
+    }
+}
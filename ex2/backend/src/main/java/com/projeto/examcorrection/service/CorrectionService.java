@@ -3,94 +3,231 @@ package com.projeto.examcorrection.service;
 import com.projeto.examcorrection.domain.*;
 import com.projeto.examcorrection.dto.CorrectionResultResponse;
 import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.error.ConflictException;
 import com.projeto.examcorrection.error.ResourceNotFoundException;
 import com.projeto.examcorrection.repository.CorrectionResultRepository;
-import com.projeto.examcorrection.repository.ExamReportRepository;
-import com.projeto.examcorrection.repository.ExamStatisticsRepository;
 import com.projeto.examcorrection.repository.SubmissionRepository;
 import com.projeto.examcorrection.repository.AnswerKeyRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatus;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 @Service
 public class CorrectionService {
 
     private static final Logger log = LoggerFactory.getLogger(CorrectionService.class);
 
+    private static final int MAX_TENTATIVAS_GABARITO = 3;
+
     private final SubmissionRepository submissionRepository;
     private final CorrectionResultRepository correctionResultRepository;
     private final AnswerKeyRepository answerKeyRepository;
     private final ExamService examService;
-    private final ExamReportRepository examReportRepository;
-    private final ExamStatisticsRepository examStatisticsRepository;
     private final CorrectionCalculator correctionCalculator;
+    private final ScoringPlanCache scoringPlanCache;
+    private final ExamAggregateService examAggregateService;
+    private final DashboardService dashboardService;
+    private final MongoTemplate mongoTemplate;
 
     public CorrectionService(SubmissionRepository submissionRepository,
             CorrectionResultRepository correctionResultRepository,
             AnswerKeyRepository answerKeyRepository,
             ExamService examService,
-            ExamReportRepository examReportRepository,
-            ExamStatisticsRepository examStatisticsRepository,
-            CorrectionCalculator correctionCalculator) {
+            CorrectionCalculator correctionCalculator,
+            ScoringPlanCache scoringPlanCache,
+            ExamAggregateService examAggregateService,
+            DashboardService dashboardService,
+            MongoTemplate mongoTemplate) {
         this.submissionRepository = submissionRepository;
         this.correctionResultRepository = correctionResultRepository;
         this.answerKeyRepository = answerKeyRepository;
         this.examService = examService;
-        this.examReportRepository = examReportRepository;
-        this.examStatisticsRepository = examStatisticsRepository;
         this.correctionCalculator = correctionCalculator;
+        this.scoringPlanCache = scoringPlanCache;
+        this.examAggregateService = examAggregateService;
+        this.dashboardService = dashboardService;
+        this.mongoTemplate = mongoTemplate;
     }
 
+    /**
+     * Corrige uma submissão. A unicidade é garantida pelo índice único de {@code submissionId}: o
+     * resultado é inserido diretamente e uma chave duplicada significa que outra requisição corrigiu
+     * a submissão antes. A submissão é atualizada com um {@code $set} atômico, condicionado à versão do
+     * gabarito, e a nota é somada ao {@link ExamAggregateService agregado da prova}, cuja nova versão
+     * marca os relatórios em cache como desatualizados.
+     */
     public CorrectionResultResponse correct(String submissionId) {
+        return correct(submissionId, MAX_TENTATIVAS_GABARITO);
+    }
+
+    private CorrectionResultResponse correct(String submissionId, int tentativas) {
         Submission sub = submissionRepository.findById(submissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("SUBMISSION_NOT_FOUND", "Submissão não encontrada."));
-
-        Exam exam = examService.findById(sub.getExamId());
-
-        if (correctionResultRepository.existsBySubmissionId(submissionId)) {
-            throw new BusinessRuleException("ALREADY_CORRECTED", "Esta submissão já foi corrigida.");
+        if (sub.isCorrigida()) {
+            throw alreadyCorrected();
         }
 
+        Exam exam = examService.findById(sub.getExamId());
         AnswerKey answerKey = answerKeyRepository.findByExamId(sub.getExamId())
                 .orElseThrow(() -> new BusinessRuleException("ANSWER_KEY_NOT_FOUND",
                         "Gabarito não encontrado para correção."));
 
-        Map<String, String> gabarito = answerKey.getRespostas();
-        Map<String, String> respostasAluno = sub.getRespostas();
+        ScoringPlan plan = scoringPlanCache.get(exam, answerKey);
+        CorrectionResult result = correctionCalculator.calculate(plan, sub.getRespostas(), submissionId);
+        try {
+            result = correctionResultRepository.insert(result);
+        } catch (DuplicateKeyException e) {
+            // O resultado pode ter sido gravado sem que a submissão fosse marcada (quem o gravou caiu antes
+            // de marcá-la); quem consegue marcá-la soma o resultado existente ao agregado
+            CorrectionResult existente = correctionResultRepository.findBySubmissionId(submissionId).orElse(null);
+            Long geracao = examAggregateService.generation(sub.getExamId());
+            if (existente != null && markCorrected(submissionId, existente.getNotaFinal(), plan)) {
+                examAggregateService.record(plan, geracao, List.of(sub), List.of(existente));
+                dashboardService.invalidate(exam.getProfessorId());
+            }
+            throw alreadyCorrected();
+        }
+        Long geracao = examAggregateService.generation(sub.getExamId());
+        if (!markCorrected(submissionId, result.getNotaFinal(), plan)) {
+            if (isCorrected(submissionId)) {
+                // Outra correção alinhou a submissão a este resultado; sem saber se ela o somou, o agregado
+                // é refeito
+                examAggregateService.discard(sub.getExamId());
+                return toResponse(result);
+            }
+            // Uma recorreção trocou o gabarito durante a correção e pode não ter alcançado este resultado
+            correctionResultRepository.delete(result);
+            if (tentativas <= 1) {
+                throw new ConflictException("ANSWER_KEY_CHANGED",
+                        "O gabarito foi alterado durante a correção. Tente novamente.");
+            }
+            log.info("Answer key changed during correction, retrying: id={}", submissionId);
+            return correct(submissionId, tentativas - 1);
+        }
+
+        examAggregateService.record(plan, geracao, List.of(sub), List.of(result));
+        dashboardService.invalidate(exam.getProfessorId());
 
-        CorrectionResult result = correctionCalculator.calculate(gabarito, respostasAluno, exam.getQuestions(), submissionId);
-        result = correctionResultRepository.save(result);
+        log.info("Submission corrected: id={}, nota={}", submissionId, result.getNotaFinal());
+        return toResponse(result);
+    }
+
+    /**
+     * Grava uma submissão nova já corrigida, para provas com correção automática. A submissão é inserida
+     * pendente (o índice único exam+aluno continua barrando duplicatas), o resultado em seguida, e só então
+     * ela é marcada como corrigida. Uma falha em qualquer ponto deixa a submissão pendente, e a correção
+     * manual ou em lote a retoma; se o resultado já existir, a correção em lote alinha a nota a ele.
+     * <p>
+     * O gabarito é lido depois do insert: uma recorreção anterior à leitura já está no plano, e uma
+     * posterior carimba a submissão já gravada e barra a marcação.
+     */
+    public Submission correctOnSubmit(Exam exam, Submission sub) {
+        sub.setCorrigida(false);
+        sub.setNota(null);
+        sub = submissionRepository.insert(sub);
+
+        AnswerKey answerKey = answerKeyRepository.findByExamId(exam.getId()).orElse(null);
+        if (answerKey == null) {
+            log.warn("Answer key not found for inline correction, submission left pending: id={}", sub.getId());
+            return sub;
+        }
+        ScoringPlan plan = scoringPlanCache.get(exam, answerKey);
+        CorrectionResult result = correctionCalculator.calculate(plan, sub.getRespostas(), sub.getId());
+        try {
+            correctionResultRepository.insert(result);
+        } catch (RuntimeException e) {
+            log.warn("Inline correction failed, submission left pending: id={}", sub.getId(), e);
+            return sub;
+        }
+        Long geracao = examAggregateService.generation(exam.getId());
+        if (!markCorrected(sub.getId(), result.getNotaFinal(), plan)) {
+            if (!isCorrected(sub.getId())) {
+                correctionResultRepository.delete(result);
+                log.info("Answer key changed during inline correction, submission left pending: id={}",
+                        sub.getId());
+                return sub;
+            }
+            // Alinhada a este resultado pela correção em lote, que não o somou ao agregado
+            examAggregateService.discard(exam.getId());
+            sub.setCorrigida(true);
+            sub.setNota(result.getNotaFinal());
+            return sub;
+        }
 
         sub.setCorrigida(true);
         sub.setNota(result.getNotaFinal());
-        submissionRepository.save(sub);
-
-        // Invalidate cached reports/stats
-        examReportRepository.deleteByExamId(sub.getExamId());
-        examStatisticsRepository.deleteByExamId(sub.getExamId());
+        examAggregateService.record(plan, geracao, List.of(sub), List.of(result));
+        dashboardService.invalidate(exam.getProfessorId());
 
-        log.info("Submission corrected: id={}, nota={}", submissionId, result.getNotaFinal());
-        return toResponse(result);
+        log.info("Submission corrected on submit: id={}, nota={}", sub.getId(), result.getNotaFinal());
+        return sub;
     }
 
-    public CorrectionResultResponse getResult(String submissionId) {
+    /**
+     * Resultado da correção. Os detalhes por questão são omitidos quando dispensados; resultados gravados
+     * em modo compacto têm os detalhes refeitos a partir das respostas da submissão e do plano de correção.
+     */
+    public CorrectionResultResponse getResult(String submissionId, boolean details) {
         Submission sub = submissionRepository.findById(submissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("SUBMISSION_NOT_FOUND", "Submissão não encontrada."));
 
         CorrectionResult result = correctionResultRepository.findBySubmissionId(submissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("CORRECTION_NOT_FOUND",
                         "Resultado de correção não encontrado."));
-        return toResponse(result);
+
+        List<QuestionDetail> detalhes = null;
+        if (details) {
+            detalhes = result.getDetalhesPorQuestao();
+            if (detalhes == null) {
+                Exam exam = examService.findById(sub.getExamId());
+                AnswerKey answerKey = answerKeyRepository.findByExamId(sub.getExamId())
+                        .orElseThrow(() -> new ResourceNotFoundException("ANSWER_KEY_NOT_FOUND",
+                                "Gabarito não encontrado para esta prova."));
+                detalhes = correctionCalculator.details(scoringPlanCache.get(exam, answerKey), sub.getRespostas());
+            }
+        }
+        return toResponse(result, detalhes);
+    }
+
+    /**
+     * Marca a submissão pendente como corrigida, na mesma escrita que confere a versão do gabarito: a
+     * recorreção grava o gabarito e carimba as pendentes com a nova versão antes de recalcular os
+     * resultados, então um resultado gravado com o plano antigo ou é alcançado pela recorreção ou esbarra
+     * no carimbo aqui. Devolve {@code false} se a submissão não foi marcada (carimbo mais novo que o plano,
+     * ou já corrigida por outra requisição).
+     */
+    private boolean markCorrected(String submissionId, double nota, ScoringPlan plan) {
+        Criteria gabarito = plan.getVersao() != null
+                ? Criteria.where("versaoGabarito").not().gt(plan.getVersao())
+                : Criteria.where("versaoGabarito").exists(false);
+        Query pendente = Query.query(Criteria.where("_id").is(submissionId).and("corrigida").is(false))
+                .addCriteria(gabarito);
+        return mongoTemplate.updateFirst(pendente, new Update().set("corrigida", true).set("nota", nota),
+                Submission.class).getModifiedCount() > 0;
+    }
+
+    private boolean isCorrected(String submissionId) {
+        return mongoTemplate.exists(Query.query(Criteria.where("_id").is(submissionId).and("corrigida").is(true)),
+                Submission.class);
+    }
+
+    private static BusinessRuleException alreadyCorrected() {
+        return new BusinessRuleException("ALREADY_CORRECTED", "Esta submissão já foi corrigida.");
     }
 
     private CorrectionResultResponse toResponse(CorrectionResult r) {
+        return toResponse(r, r.getDetalhesPorQuestao());
+    }
+
+    private CorrectionResultResponse toResponse(CorrectionResult r, List<QuestionDetail> detalhes) {
         return new CorrectionResultResponse(r.getId(), r.getSubmissionId(), r.getAcertos(), r.getErros(),
-                r.getNotaFinal(), r.getDetalhesPorQuestao());
+                r.getNotaFinal(), r.getMapaCorrecao(), detalhes);
     }
 }
@@ -0,0 +1,118 @@
+package com.projeto.examcorrection.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.ExamStatus;
+import com.projeto.examcorrection.domain.QuestionIssue;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.dto.ExamDashboardItem;
+import com.projeto.examcorrection.dto.ProfessorDashboardResponse;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Painel do professor: contagens de submissões, média e problemas abertos de todas as suas provas,
+ * produzido por uma única agregação sobre {@code exams} com {@code $lookup} em submissões e problemas.
+ * O resultado fica em cache por professor com TTL curto e é descartado quando uma prova dele recebe
+ * submissões ou correções.
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, ProfessorDashboardResponse> dashboards;
+
+    public DashboardService(MongoTemplate mongoTemplate,
+            @Value("${app.dashboard.cache-ttl-seconds}") long cacheTtlSeconds,
+            @Value("${app.dashboard.cache-size}") long cacheSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.dashboards = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public ProfessorDashboardResponse getDashboard(String professorId) {
+        return dashboards.get(professorId, this::compute);
+    }
+
+    public void invalidate(String professorId) {
+        if (professorId != null) {
+            dashboards.invalidate(professorId);
+        }
+    }
+
+    private ProfessorDashboardResponse compute(String professorId) {
+        long inicio = System.nanoTime();
+        // examId é guardado como texto nas coleções relacionadas
+        Document examId = new Document("examId", new Document("$toString", "$_id"));
+        Document mesmaProva = new Document("$match", new Document("$expr",
+                new Document("$eq", List.of("$examId", "$$examId"))));
+
+        Document submissoes = new Document("$lookup", new Document("from",
+                mongoTemplate.getCollectionName(Submission.class))
+                .append("let", examId)
+                .append("pipeline", List.of(mesmaProva,
+                        new Document("$group", new Document("_id", null)
+                                .append("total", new Document("$sum", 1))
+                                .append("corrigidas", new Document("$sum",
+                                        new Document("$cond", List.of("$corrigida", 1, 0))))
+                                .append("somaNotas", new Document("$sum",
+                                        new Document("$cond", List.of("$corrigida",
+                                                new Document("$ifNull", List.of("$nota", 0)), 0)))))))
+                .append("as", "submissoes"));
+        Document problemas = new Document("$lookup", new Document("from",
+                mongoTemplate.getCollectionName(QuestionIssue.class))
+                .append("let", examId)
+                .append("pipeline", List.of(mesmaProva,
+                        new Document("$match", new Document("resolvida", new Document("$ne", true))),
+                        new Document("$count", "total")))
+                .append("as", "problemas"));
+
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("professorId", professorId)),
+                new Document("$project", new Document("titulo", 1).append("status", 1).append("dataCriacao", 1)),
+                submissoes,
+                problemas,
+                new Document("$sort", new Document("dataCriacao", -1)));
+
+        List<ExamDashboardItem> provas = new ArrayList<>();
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Exam.class)).aggregate(pipeline)
+                .forEach(doc -> provas.add(toItem(doc)));
+
+        log.info("Dashboard computed: professor={}, provas={}, duracaoMs={}", professorId, provas.size(),
+                (System.nanoTime() - inicio) / 1_000_000);
+        return new ProfessorDashboardResponse(provas, Instant.now());
+    }
+
+    private static ExamDashboardItem toItem(Document doc) {
+        Document contagem = first(doc, "submissoes");
+        Document problemas = first(doc, "problemas");
+        long total = contagem != null ? contagem.get("total", Number.class).longValue() : 0;
+        long corrigidas = contagem != null ? contagem.get("corrigidas", Number.class).longValue() : 0;
+        Double media = corrigidas > 0
+                ? Math.round(contagem.get("somaNotas", Number.class).doubleValue() / corrigidas * 100.0) / 100.0
+                : null;
+        String status = doc.getString("status");
+        return new ExamDashboardItem(doc.get("_id").toString(), doc.getString("titulo"),
+                status != null ? ExamStatus.valueOf(status) : null, total, corrigidas, total - corrigidas, media,
+                problemas != null ? problemas.get("total", Number.class).longValue() : 0);
+    }
+
+    private static Document first(Document doc, String campo) {
+        List<Document> valores = doc.getList(campo, Document.class);
+        return valores != null && !valores.isEmpty() ? valores.get(0) : null;
+    }
+}
@@ -0,0 +1,214 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.SubmissionDraft;
+import com.projeto.examcorrection.dto.DraftResponse;
+import com.projeto.examcorrection.error.ConflictException;
+import com.projeto.examcorrection.repository.SubmissionDraftRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rascunho das respostas durante a prova. Cada PATCH traz só as questões alteradas, que são acumuladas em
+ * memória por aluno; a cada {@code flush-interval-ms} as alterações pendentes de todos os alunos vão em
+ * um único {@link BulkOperations}, com um upsert por aluno que faz {@code $set} (ou {@code $unset}) apenas
+ * nas chaves alteradas. Edições rápidas da mesma questão entre dois ciclos viram uma única escrita.
+ * <p>
+ * As pendências ficam na instância que recebeu o PATCH; leituras na mesma instância as enxergam, e as
+ * demais as veem depois do próximo ciclo. Por isso cada PATCH traz a {@code versao} do cliente, gravada
+ * com {@code $max} junto das respostas, e o envio informa a última versão enviada: a promoção espera até
+ * {@code sync-wait-ms} que o rascunho no banco a alcance, em vez de promover respostas incompletas
+ * enquanto outra instância ainda segura as últimas alterações do aluno.
+ */
+@Service
+public class DraftService {
+
+    private static final Logger log = LoggerFactory.getLogger(DraftService.class);
+
+    private static final long INTERVALO_ESPERA_MS = 100;
+
+    private record Chave(String examId, String alunoId) {
+    }
+
+    /** Alterações ainda não gravadas de um aluno e a maior versão do cliente entre elas. */
+    private record Pendencia(Map<String, String> alteracoes, long versao) {
+
+        Pendencia merge(Pendencia novas) {
+            Map<String, String> merged = new HashMap<>(alteracoes);
+            merged.putAll(novas.alteracoes());
+            return new Pendencia(merged, Math.max(versao, novas.versao()));
+        }
+    }
+
+    private final SubmissionDraftRepository submissionDraftRepository;
+    private final ExamService examService;
+    private final MongoTemplate mongoTemplate;
+    private final long syncWaitMs;
+
+    /** Alterações ainda não gravadas por aluno; valor {@code null} remove a resposta. */
+    private final Map<Chave, Pendencia> pendentes = new ConcurrentHashMap<>();
+    /** Serializa gravações, para que a promoção não leia o banco antes de um ciclo em andamento. */
+    private final Object gravacao = new Object();
+
+    public DraftService(SubmissionDraftRepository submissionDraftRepository, ExamService examService,
+            MongoTemplate mongoTemplate, @Value("${app.submission.draft.sync-wait-ms}") long syncWaitMs) {
+        this.submissionDraftRepository = submissionDraftRepository;
+        this.examService = examService;
+        this.mongoTemplate = mongoTemplate;
+        this.syncWaitMs = syncWaitMs;
+    }
+
+    public DraftResponse get(String examId, String alunoId) {
+        Map<String, String> respostas = new HashMap<>();
+        Instant dataAtualizacao = null;
+        long versao = 0;
+        var draft = submissionDraftRepository.findByExamIdAndAlunoId(examId, alunoId);
+        if (draft.isPresent()) {
+            respostas.putAll(draft.get().getRespostas());
+            dataAtualizacao = draft.get().getDataAtualizacao();
+            versao = draft.get().getVersao();
+        }
+        Pendencia pendencia = pendentes.get(new Chave(examId, alunoId));
+        if (pendencia != null) {
+            apply(respostas, pendencia.alteracoes());
+            versao = Math.max(versao, pendencia.versao());
+        }
+        return new DraftResponse(examId, respostas, dataAtualizacao, versao);
+    }
+
+    /** Valida e acumula as alterações; a gravação acontece no próximo ciclo. */
+    public void patch(String examId, String alunoId, Map<String, String> alteracoes, Long versao) {
+        ExamSnapshot snapshot = examService.snapshotAcceptingAnswers(examId, Instant.now());
+        alteracoes.forEach((questionId, alternativa) -> {
+            // Limpar a resposta (null) só exige que a questão seja da prova
+            if (alternativa != null || snapshot.ordinal(questionId) < 0) {
+                snapshot.validateAnswer(questionId, alternativa);
+            }
+        });
+
+        pendentes.merge(new Chave(examId, alunoId),
+                new Pendencia(new HashMap<>(alteracoes), versao != null ? versao : 0), Pendencia::merge);
+    }
+
+    /**
+     * Respostas finais do rascunho, com as alterações pendentes do aluno gravadas antes da leitura. Usado
+     * no envio, que promove o rascunho a submissão. Com {@code versao}, espera o rascunho gravado chegar a
+     * ela, já que as alterações pendentes podem estar em outra instância.
+     */
+    public Map<String, String> take(String examId, String alunoId, Long versao) {
+        Chave chave = new Chave(examId, alunoId);
+        synchronized (gravacao) {
+            Pendencia pendencia = pendentes.remove(chave);
+            if (pendencia != null) {
+                mongoTemplate.upsert(query(chave), update(pendencia, Instant.now()), SubmissionDraft.class);
+            }
+        }
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(syncWaitMs);
+        Optional<SubmissionDraft> draft = submissionDraftRepository.findByExamIdAndAlunoId(examId, alunoId);
+        while (versao != null && draft.map(SubmissionDraft::getVersao).orElse(0L) < versao) {
+            if (System.nanoTime() - limite >= 0) {
+                log.warn("Draft behind client version: exam={}, aluno={}, versao={}", examId, alunoId, versao);
+                throw new ConflictException("DRAFT_NOT_SAVED",
+                        "As últimas respostas do rascunho ainda não foram salvas. Tente enviar novamente.");
+            }
+            try {
+                Thread.sleep(INTERVALO_ESPERA_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Envio do rascunho interrompido.", e);
+            }
+            draft = submissionDraftRepository.findByExamIdAndAlunoId(examId, alunoId);
+        }
+        Map<String, String> respostas = new HashMap<>();
+        draft.ifPresent(d -> respostas.putAll(d.getRespostas()));
+        return respostas;
+    }
+
+    public void delete(String examId, String alunoId) {
+        pendentes.remove(new Chave(examId, alunoId));
+        submissionDraftRepository.deleteByExamIdAndAlunoId(examId, alunoId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.submission.draft.flush-interval-ms}")
+    public void flush() {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        synchronized (gravacao) {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        Instant agora = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SubmissionDraft.class);
+        Map<Chave, Pendencia> lote = new HashMap<>();
+        for (Chave chave : List.copyOf(pendentes.keySet())) {
+            Pendencia pendencia = pendentes.remove(chave);
+            if (pendencia != null) {
+                bulk.upsert(query(chave), update(pendencia, agora));
+                lote.put(chave, pendencia);
+            }
+        }
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            bulk.execute();
+        } catch (RuntimeException e) {
+            // Devolve o lote às pendências sem sobrescrever alterações que chegaram durante a gravação
+            lote.forEach((chave, pendencia) -> pendentes.merge(chave, pendencia,
+                    (novas, antigas) -> antigas.merge(novas)));
+            log.warn("Draft flush failed, will retry: alunos={}", lote.size(), e);
+            return;
+        }
+        log.debug("Drafts flushed: alunos={}", lote.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static Query query(Chave chave) {
+        return Query.query(Criteria.where("examId").is(chave.examId()).and("alunoId").is(chave.alunoId()));
+    }
+
+    private static Update update(Pendencia pendencia, Instant agora) {
+        Update update = new Update().set("dataAtualizacao", agora).max("versao", pendencia.versao());
+        pendencia.alteracoes().forEach((questionId, alternativa) -> {
+            if (alternativa != null) {
+                update.set("respostas." + questionId, alternativa);
+            } else {
+                update.unset("respostas." + questionId);
+            }
+        });
+        return update;
+    }
+
+    private static void apply(Map<String, String> respostas, Map<String, String> alteracoes) {
+        alteracoes.forEach((questionId, alternativa) -> {
+            if (alternativa != null) {
+                respostas.put(questionId, alternativa);
+            } else {
+                respostas.remove(questionId);
+            }
+        });
+    }
+}
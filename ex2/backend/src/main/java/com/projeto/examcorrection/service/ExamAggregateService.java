@@ -0,0 +1,389 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.CorrectionResult;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.ExamAggregate;
+import com.projeto.examcorrection.domain.GradeSketch;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.repository.ExamAggregateRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manutenção de {@link ExamAggregate}. Cada correção gravada aplica um único update com
+ * {@code $inc}/{@code $min}/{@code $max} no documento da prova e incrementa a sua versão, que identifica
+ * o estado corrigido da prova para os relatórios em cache. Quando o documento não existe (prova antiga)
+ * ou foi marcado como desatualizado (questões alteradas) ele é reconstruído a partir dos dados brutos
+ * com agregações.
+ * <p>
+ * A reconstrução não substitui o documento: os contadores recalculados são gravados com um
+ * {@code findAndModify} condicionado à versão lida antes das agregações. Se uma correção incrementou o
+ * agregado nesse meio tempo, a versão mudou e a reconstrução é refeita, agora contando essa correção.
+ * Correções sobre um agregado ainda inexistente o criam já marcado como desatualizado, para que a
+ * reconstrução concorrente não o sobrescreva com um insert.
+ * <p>
+ * A versão não protege o intervalo entre marcar a submissão como corrigida e somá-la: uma reconstrução
+ * nesse intervalo já a conta, e o incremento a contaria de novo. Por isso cada reconstrução incrementa
+ * também a {@link ExamAggregate#getGeracao() geração}; quem corrige lê a geração antes de marcar e o
+ * incremento só é aplicado se ela não mudou. Se mudou, não há como saber se a reconstrução viu a
+ * submissão, e o agregado é marcado como desatualizado.
+ */
+@Service
+public class ExamAggregateService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExamAggregateService.class);
+
+    private static final int MAX_TENTATIVAS_RECONSTRUCAO = 5;
+
+    private final ExamAggregateRepository examAggregateRepository;
+    private final MongoTemplate mongoTemplate;
+
+    public ExamAggregateService(ExamAggregateRepository examAggregateRepository, MongoTemplate mongoTemplate) {
+        this.examAggregateRepository = examAggregateRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public ExamAggregate get(Exam exam) {
+        return examAggregateRepository.findByExamId(exam.getId())
+                .filter(aggregate -> !aggregate.isDesatualizado())
+                .orElseGet(() -> rebuild(exam));
+    }
+
+    /** Agregados de várias provas com uma única consulta; os ausentes ou desatualizados são reconstruídos. */
+    public List<ExamAggregate> getAll(List<Exam> exams) {
+        Map<String, ExamAggregate> existentes = new HashMap<>();
+        for (ExamAggregate aggregate : examAggregateRepository.findByExamIdIn(
+                exams.stream().map(Exam::getId).toList())) {
+            existentes.put(aggregate.getExamId(), aggregate);
+        }
+        List<ExamAggregate> aggregates = new ArrayList<>(exams.size());
+        for (Exam exam : exams) {
+            ExamAggregate aggregate = existentes.get(exam.getId());
+            aggregates.add(aggregate != null && !aggregate.isDesatualizado() ? aggregate : rebuild(exam));
+        }
+        return aggregates;
+    }
+
+    /**
+     * Geração atual do agregado da prova, a ser lida antes de marcar submissões como corrigidas e passada
+     * a {@link #record}; {@code null} se o agregado ainda não existe.
+     */
+    public Long generation(String examId) {
+        Query query = Query.query(Criteria.where("examId").is(examId));
+        query.fields().include("geracao");
+        ExamAggregate aggregate = mongoTemplate.findOne(query, ExamAggregate.class);
+        return aggregate != null ? aggregate.getGeracao() : null;
+    }
+
+    /**
+     * Soma ao agregado da prova as correções gravadas. {@code submissions} e {@code results} são
+     * paralelos; o lote inteiro vira um único update, condicionado à {@code geracao} lida por
+     * {@link #generation} antes de as submissões serem marcadas.
+     */
+    public void record(ScoringPlan plan, Long geracao, List<Submission> submissions, List<CorrectionResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        if (geracao == null) {
+            // Sem agregado na leitura: uma reconstrução concorrente pode ou não ter visto estas correções
+            discard(plan.getExamId());
+            return;
+        }
+        Map<String, Integer> acertos = new HashMap<>();
+        Map<String, Integer> brancos = new HashMap<>();
+        int[] faixas = new int[ExamAggregate.FAIXAS];
+        Map<Integer, Integer> histograma = new HashMap<>();
+        double soma = 0.0;
+        double menor = Double.POSITIVE_INFINITY;
+        double maior = Double.NEGATIVE_INFINITY;
+
+        for (int r = 0; r < results.size(); r++) {
+            CorrectionResult result = results.get(r);
+            Map<String, String> respostas = submissions.get(r).getRespostas() != null
+                    ? submissions.get(r).getRespostas() : Map.of();
+            double nota = result.getNotaFinal();
+            soma += nota;
+            menor = Math.min(menor, nota);
+            maior = Math.max(maior, nota);
+            faixas[ExamAggregate.faixa(nota, plan.getPontuacaoMaxima())]++;
+            histograma.merge(GradeSketch.posicao(nota, plan.getPontuacaoMaxima()), 1, Integer::sum);
+
+            String mapa = result.getMapaCorrecao();
+            for (int i = 0; i < plan.size(); i++) {
+                String questionId = plan.questionId(i);
+                if (mapa.charAt(i) == CorrectionCalculator.CORRETA) {
+                    acertos.merge(questionId, 1, Integer::sum);
+                }
+                if (respostas.get(questionId) == null) {
+                    brancos.merge(questionId, 1, Integer::sum);
+                }
+            }
+        }
+
+        Update update = new Update()
+                .inc("total", results.size())
+                .inc("somaNotas", soma)
+                .min("menorNota", menor)
+                .max("maiorNota", maior)
+                .inc("versao", 1)
+                .set("dataAtualizacao", Instant.now());
+        acertos.forEach((questionId, n) -> update.inc("acertosPorQuestao." + questionId, n));
+        brancos.forEach((questionId, n) -> update.inc("brancosPorQuestao." + questionId, n));
+        for (int i = 0; i < faixas.length; i++) {
+            if (faixas[i] > 0) {
+                update.inc("distribuicaoNotas." + ExamAggregate.faixa(i), faixas[i]);
+            }
+        }
+        histograma.forEach((posicao, n) -> update.inc("histogramaNotas." + posicao, n));
+        // Agregados gravados antes da geração existir não têm o campo
+        Criteria mesmaGeracao = geracao == 0
+                ? Criteria.where("geracao").exists(false)
+                : Criteria.where("geracao").is(geracao);
+        Query query = Query.query(Criteria.where("examId").is(plan.getExamId())).addCriteria(mesmaGeracao);
+        if (mongoTemplate.updateFirst(query, update, ExamAggregate.class).getMatchedCount() == 0) {
+            log.info("Exam aggregate rebuilt while recording corrections, discarding: exam={}", plan.getExamId());
+            discard(plan.getExamId());
+        }
+    }
+
+    /**
+     * Marca o agregado como desatualizado; o próximo acesso reconstrói a partir dos dados brutos. O
+     * documento é mantido para que a versão continue crescendo e os relatórios em cache sejam vistos
+     * como defasados; se ainda não existe, é criado já desatualizado, para que uma reconstrução concorrente
+     * não o grave com um insert.
+     */
+    public void discard(String examId) {
+        mongoTemplate.upsert(Query.query(Criteria.where("examId").is(examId)),
+                new Update().set("desatualizado", true).inc("versao", 1), ExamAggregate.class);
+    }
+
+    /**
+     * Recalcula o agregado da prova a partir das submissões corrigidas e dos resultados. A gravação só
+     * acontece se a versão não mudou desde a leitura; caso contrário as agregações são refeitas.
+     */
+    public ExamAggregate rebuild(Exam exam) {
+        String examId = exam.getId();
+        for (int tentativa = 1; ; tentativa++) {
+            ExamAggregate atual = examAggregateRepository.findByExamId(examId).orElse(null);
+            ExamAggregate aggregate = compute(exam);
+
+            if (atual == null) {
+                aggregate.setVersao(1);
+                aggregate.setGeracao(1);
+                try {
+                    aggregate = mongoTemplate.insert(aggregate);
+                    log.info("Exam aggregate rebuilt: exam={}, total={}", examId, aggregate.getTotal());
+                    return aggregate;
+                } catch (DuplicateKeyException e) {
+                    // Outra reconstrução ou uma correção criou o documento; tenta de novo sobre ele
+                    continue;
+                }
+            }
+
+            Update update = new Update()
+                    .set("total", aggregate.getTotal())
+                    .set("somaNotas", aggregate.getSomaNotas())
+                    .set("menorNota", aggregate.getMenorNota())
+                    .set("maiorNota", aggregate.getMaiorNota())
+                    .set("distribuicaoNotas", aggregate.getDistribuicaoNotas())
+                    .set("histogramaNotas", aggregate.getHistogramaNotas())
+                    .set("acertosPorQuestao", aggregate.getAcertosPorQuestao())
+                    .set("brancosPorQuestao", aggregate.getBrancosPorQuestao())
+                    .set("desatualizado", false)
+                    .set("dataAtualizacao", aggregate.getDataAtualizacao())
+                    .inc("versao", 1)
+                    .inc("geracao", 1);
+            ExamAggregate gravado = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("examId").is(examId).and("versao").is(atual.getVersao())),
+                    update, FindAndModifyOptions.options().returnNew(true), ExamAggregate.class);
+            if (gravado != null) {
+                log.info("Exam aggregate rebuilt: exam={}, total={}, tentativas={}", examId, gravado.getTotal(),
+                        tentativa);
+                return gravado;
+            }
+            if (tentativa == MAX_TENTATIVAS_RECONSTRUCAO) {
+                // Correções chegando sem parar: devolve o cálculo sem gravar, e o documento continua como
+                // está até a próxima reconstrução
+                log.warn("Exam aggregate rebuild kept losing the race: exam={}, tentativas={}", examId, tentativa);
+                aggregate.setId(atual.getId());
+                aggregate.setVersao(atual.getVersao());
+                return aggregate;
+            }
+        }
+    }
+
+    /** Agregado calculado dos dados brutos, sem id nem versão. */
+    private ExamAggregate compute(Exam exam) {
+        String examId = exam.getId();
+        double maxNota = exam.getQuestions().stream().mapToDouble(Question::getPontuacao).sum();
+
+        ExamAggregate aggregate = new ExamAggregate();
+        aggregate.setExamId(examId);
+
+        Document resumo = summarize(examId);
+        int total = resumo != null ? resumo.get("total", Number.class).intValue() : 0;
+        aggregate.setTotal(total);
+        aggregate.setSomaNotas(resumo != null ? resumo.get("soma", Number.class).doubleValue() : 0.0);
+        aggregate.setMenorNota(resumo != null ? toDouble(resumo.get("menor")) : null);
+        aggregate.setMaiorNota(resumo != null ? toDouble(resumo.get("maior")) : null);
+
+        int[] faixas = countByGradeBand(examId, maxNota);
+        Map<String, Integer> distribuicao = new HashMap<>();
+        for (int i = 0; i < faixas.length; i++) {
+            if (faixas[i] > 0) {
+                distribuicao.put(ExamAggregate.faixa(i), faixas[i]);
+            }
+        }
+        aggregate.setDistribuicaoNotas(distribuicao);
+        aggregate.setHistogramaNotas(countByGradePosition(examId, maxNota));
+        aggregate.setAcertosPorQuestao(countHitsByQuestion(exam));
+
+        Map<String, Integer> respondidas = countAnsweredByQuestion(examId);
+        Map<String, Integer> brancos = new HashMap<>();
+        for (Question q : exam.getQuestions()) {
+            int emBranco = total - respondidas.getOrDefault(q.getId(), 0);
+            if (emBranco > 0) {
+                brancos.put(q.getId(), emBranco);
+            }
+        }
+        aggregate.setBrancosPorQuestao(brancos);
+        aggregate.setDesatualizado(false);
+        aggregate.setDataAtualizacao(Instant.now());
+        return aggregate;
+    }
+
+    private Document summarize(String examId) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("examId").is(examId).and("corrigida").is(true)),
+                Aggregation.group()
+                        .sum("nota").as("soma")
+                        .max("nota").as("maior")
+                        .min("nota").as("menor")
+                        .count().as("total"));
+        return mongoTemplate.aggregate(agg, "submissions", Document.class).getUniqueMappedResult();
+    }
+
+    /**
+     * Quantidade de submissões corrigidas por faixa de 10% da nota máxima, com a mesma aritmética de
+     * {@link ExamAggregate#faixa(double, double)}.
+     */
+    private int[] countByGradeBand(String examId, double maxNota) {
+        Object faixa = maxNota > 0
+                ? new Document("$min", List.of(new Document("$floor", new Document("$divide", List.of(
+                        new Document("$multiply", List.of(new Document("$divide", List.of("$nota", maxNota)), 100.0)),
+                        10.0))), ExamAggregate.FAIXAS - 1))
+                : 0;
+        List<Integer> limites = new ArrayList<>();
+        for (int i = 0; i <= ExamAggregate.FAIXAS; i++) {
+            limites.add(i);
+        }
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("examId").is(examId).and("corrigida").is(true)),
+                stage(new Document("$bucket", new Document("groupBy", faixa)
+                        .append("boundaries", limites)
+                        .append("default", ExamAggregate.FAIXAS)
+                        .append("output", new Document("total", new Document("$sum", 1))))));
+
+        int[] contagem = new int[ExamAggregate.FAIXAS];
+        for (Document bucket : mongoTemplate.aggregate(agg, "submissions", Document.class)) {
+            // A faixa padrão (nota ausente) fica com a última
+            int faixaNota = Math.min(bucket.get("_id", Number.class).intValue(), ExamAggregate.FAIXAS - 1);
+            contagem[faixaNota] += bucket.get("total", Number.class).intValue();
+        }
+        return contagem;
+    }
+
+    /** Contagens do {@link GradeSketch}, com o mesmo arredondamento de {@link GradeSketch#posicao}. */
+    private Map<String, Integer> countByGradePosition(String examId, double maxNota) {
+        Object posicao = maxNota > 0
+                ? new Document("$toInt", new Document("$max", List.of(0, new Document("$min", List.of(
+                        GradeSketch.RESOLUCAO,
+                        new Document("$floor", new Document("$add", List.of(
+                                new Document("$multiply", List.of(new Document("$divide",
+                                        List.of(new Document("$ifNull", List.of("$nota", 0)), maxNota)),
+                                        GradeSketch.RESOLUCAO)),
+                                0.5))))))))
+                : 0;
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("examId").is(examId).and("corrigida").is(true)),
+                stage(new Document("$group", new Document("_id", posicao)
+                        .append("total", new Document("$sum", 1)))));
+        return countsById(mongoTemplate.aggregate(agg, "submissions", Document.class).getMappedResults());
+    }
+
+    /**
+     * Acertos por questão sobre os resultados da prova. Resultados com detalhes usam
+     * {@code detalhesPorQuestao}; resultados compactos usam o {@code mapaCorrecao}, cuja posição i
+     * corresponde à i-ésima questão da prova.
+     */
+    private Map<String, Integer> countHitsByQuestion(Exam exam) {
+        List<String> questionIds = exam.getQuestions().stream().map(Question::getId).toList();
+        Document porDetalhes = new Document("$map", new Document("input", "$detalhesPorQuestao")
+                .append("as", "d")
+                .append("in", new Document("q", "$$d.questionId").append("c", "$$d.correta")));
+        Document porMapa = new Document("$map", new Document("input",
+                new Document("$range", List.of(0, new Document("$strLenCP", new Document("$ifNull", List.of("$mapaCorrecao", ""))))))
+                .append("as", "i")
+                .append("in", new Document("q", new Document("$arrayElemAt", List.of(questionIds, "$$i")))
+                        .append("c", new Document("$eq", List.of(
+                                new Document("$substrCP", List.of("$mapaCorrecao", "$$i", 1)),
+                                String.valueOf(CorrectionCalculator.CORRETA))))));
+
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("examId").is(exam.getId())),
+                stage(new Document("$project", new Document("itens", new Document("$cond", List.of(
+                        new Document("$isArray", "$detalhesPorQuestao"), porDetalhes, porMapa))))),
+                Aggregation.unwind("itens"),
+                Aggregation.match(Criteria.where("itens.c").is(true)),
+                Aggregation.group("itens.q").count().as("total"));
+        return countsById(mongoTemplate.aggregate(agg, "correction_results", Document.class).getMappedResults());
+    }
+
+    /** Submissões corrigidas que responderam cada questão (resposta presente e não nula). */
+    private Map<String, Integer> countAnsweredByQuestion(String examId) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("examId").is(examId).and("corrigida").is(true)),
+                stage(new Document("$project", new Document("kv", new Document("$objectToArray",
+                        new Document("$ifNull", List.of("$respostas", new Document())))))),
+                Aggregation.unwind("kv"),
+                Aggregation.match(Criteria.where("kv.v").ne(null)),
+                Aggregation.group("kv.k").count().as("total"));
+        return countsById(mongoTemplate.aggregate(agg, "submissions", Document.class).getMappedResults());
+    }
+
+    private static Map<String, Integer> countsById(List<Document> grupos) {
+        Map<String, Integer> contagem = new HashMap<>();
+        for (Document grupo : grupos) {
+            Object id = grupo.get("_id");
+            if (id != null) {
+                contagem.put(id.toString(), grupo.get("total", Number.class).intValue());
+            }
+        }
+        return contagem;
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number n ? n.doubleValue() : null;
+    }
+
+    private static AggregationOperation stage(Document stage) {
+        return context -> stage;
+    }
+}
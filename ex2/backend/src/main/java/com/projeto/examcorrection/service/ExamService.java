@@ -7,15 +7,24 @@ import com.projeto.examcorrection.error.ResourceNotFoundException;
 import com.projeto.examcorrection.repository.AnswerKeyRepository;
 import com.projeto.examcorrection.repository.ExamRepository;
 import com.projeto.examcorrection.repository.SubmissionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * Provas e suas transições de status. As leituras por ID passam por um cache de {@link ExamSnapshot}
+ * limitado em tamanho, descartado a cada alteração da prova (edição, transição de status ou questões);
+ * o TTL limita a defasagem entre instâncias, que só enxergam as próprias invalidações.
+ */
 @Service
 public class ExamService {
 
@@ -24,12 +33,21 @@ public class ExamService {
     private final ExamRepository examRepository;
     private final AnswerKeyRepository answerKeyRepository;
     private final SubmissionRepository submissionRepository;
+    private final QuestionExamIndex questionExamIndex;
+    private final Cache<String, ExamSnapshot> snapshots;
 
     public ExamService(ExamRepository examRepository, AnswerKeyRepository answerKeyRepository,
-            SubmissionRepository submissionRepository) {
+            SubmissionRepository submissionRepository, QuestionExamIndex questionExamIndex,
+            @Value("${app.exam-cache.size}") long cacheSize,
+            @Value("${app.exam-cache.ttl-seconds}") long cacheTtlSeconds) {
         this.examRepository = examRepository;
         this.answerKeyRepository = answerKeyRepository;
         this.submissionRepository = submissionRepository;
+        this.questionExamIndex = questionExamIndex;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
     }
 
     public List<ExamResponse> findAll(String userId, Role role) {
@@ -43,18 +61,59 @@ public class ExamService {
         return exams.stream().map(this::toResponse).toList();
     }
 
+    public List<Exam> findByProfessorId(String professorId) {
+        return examRepository.findByProfessorId(professorId);
+    }
+
     public ExamResponse findResponseById(String id, String userId, Role role) {
         Exam exam = findById(id);
         checkReadAccess(exam, userId, role);
         return toResponse(exam);
     }
 
+    /** Prova em cache, somente para leitura. */
     public Exam findById(String id) {
+        return snapshot(id).exam();
+    }
+
+    public ExamSnapshot snapshot(String id) {
+        return snapshots.get(id, key -> ExamSnapshot.compile(findForUpdate(key)));
+    }
+
+    /**
+     * Snapshot para os caminhos que gravam respostas. O prazo é conferido no snapshot, mas o status é
+     * confirmado no banco: o encerramento feito em outra instância não invalida este cache, e uma
+     * submissão aceita depois dele ficaria fora dos resultados já materializados. Pelo mesmo motivo uma
+     * recusa nunca vem só do cache (prova guardada como rascunho e publicada em outra instância): o
+     * snapshot é recarregado e conferido de novo antes de recusar.
+     */
+    public ExamSnapshot snapshotAcceptingAnswers(String id, Instant recebidaEm) {
+        ExamSnapshot snapshot = snapshot(id);
+        try {
+            snapshot.checkAcceptingAnswers(recebidaEm);
+            if (examRepository.existsByIdAndStatus(id, ExamStatus.PUBLICADA)) {
+                return snapshot;
+            }
+        } catch (BusinessRuleException e) {
+            log.debug("Cached exam snapshot rejects answers, reloading: id={}, code={}", id, e.getCode());
+        }
+        invalidate(id);
+        snapshot = snapshot(id);
+        snapshot.checkAcceptingAnswers(recebidaEm);
+        return snapshot;
+    }
+
+    /** Prova lida do banco, para ser alterada e salva; depois de salvar, chame {@link #invalidate}. */
+    public Exam findForUpdate(String id) {
         return examRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("EXAM_NOT_FOUND",
                         "Prova não encontrada com o ID informado."));
     }
 
+    public void invalidate(String id) {
+        snapshots.invalidate(id);
+    }
+
     public ExamResponse create(ExamRequest request, String professorId) {
         Exam exam = new Exam();
         exam.setTitulo(request.titulo());
@@ -64,6 +123,7 @@ public class ExamService {
         exam.setDataFim(request.dataFim());
         exam.setStatus(ExamStatus.RASCUNHO);
         exam.setDataCriacao(Instant.now());
+        exam.setCorrecaoAutomatica(Boolean.TRUE.equals(request.correcaoAutomatica()));
 
         exam = examRepository.save(exam);
         log.info("Exam created: id={}, professor={}", exam.getId(), professorId);
@@ -71,29 +131,35 @@ public class ExamService {
     }
 
     public ExamResponse update(String id, ExamRequest request) {
-        Exam exam = findById(id);
+        Exam exam = findForUpdate(id);
         checkStatus(exam, ExamStatus.RASCUNHO, "Apenas provas em RASCUNHO podem ser editadas.");
 
         exam.setTitulo(request.titulo());
         exam.setDescricao(request.descricao());
         exam.setDataInicio(request.dataInicio());
         exam.setDataFim(request.dataFim());
+        if (request.correcaoAutomatica() != null) {
+            exam.setCorrecaoAutomatica(request.correcaoAutomatica());
+        }
 
         exam = examRepository.save(exam);
+        invalidate(id);
         log.info("Exam updated: id={}", exam.getId());
         return toResponse(exam);
     }
 
     public void delete(String id) {
-        Exam exam = findById(id);
+        Exam exam = findForUpdate(id);
         checkStatus(exam, ExamStatus.RASCUNHO, "Apenas provas em RASCUNHO podem ser deletadas.");
 
         examRepository.delete(exam);
+        invalidate(id);
+        exam.getQuestions().forEach(q -> questionExamIndex.invalidate(q.getId()));
         log.info("Exam deleted: id={}", id);
     }
 
     public ExamResponse publish(String id) {
-        Exam exam = findById(id);
+        Exam exam = findForUpdate(id);
         checkStatus(exam, ExamStatus.RASCUNHO, "Apenas provas em RASCUNHO podem ser publicadas.");
 
         if (exam.getQuestions() == null || exam.getQuestions().isEmpty()) {
@@ -114,16 +180,19 @@ public class ExamService {
 
         exam.setStatus(ExamStatus.PUBLICADA);
         exam = examRepository.save(exam);
+        invalidate(id);
         log.info("Exam published: id={}", exam.getId());
         return toResponse(exam);
     }
 
     public ExamResponse close(String id) {
-        Exam exam = findById(id);
+        Exam exam = findForUpdate(id);
         checkStatus(exam, ExamStatus.PUBLICADA, "Apenas provas PUBLICADAS podem ser encerradas.");
 
         exam.setStatus(ExamStatus.ENCERRADA);
+        exam.setDataEncerramento(Instant.now());
         exam = examRepository.save(exam);
+        invalidate(id);
         log.info("Exam closed: id={}", exam.getId());
         return toResponse(exam);
     }
@@ -148,6 +217,7 @@ public class ExamService {
 
     private ExamResponse toResponse(Exam exam) {
         return new ExamResponse(exam.getId(), exam.getTitulo(), exam.getDescricao(), exam.getProfessorId(),
-                exam.getDataInicio(), exam.getDataFim(), exam.getStatus(), exam.getQuestions(), exam.getDataCriacao());
+                exam.getDataInicio(), exam.getDataFim(), exam.getStatus(), exam.getQuestions(), exam.getDataCriacao(),
+                exam.isCorrecaoAutomatica(), exam.isResultadosProntos());
     }
 }
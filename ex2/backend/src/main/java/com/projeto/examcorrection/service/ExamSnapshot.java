@@ -0,0 +1,106 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.ExamStatus;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import org.springframework.http.HttpStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prova compilada para leitura: índice questão→ordinal, conjunto de alternativas por questão, janela de
+ * submissão e status. Guardada no cache do {@link ExamService}; a {@link Exam} de origem é compartilhada
+ * entre as requisições e não deve ser alterada (alterações partem de {@link ExamService#findForUpdate}).
+ */
+public final class ExamSnapshot {
+
+    private final Exam exam;
+    private final Map<String, Integer> ordinais;
+    /** Alternativas aceitas por ordinal; {@code null} quando a questão não restringe a resposta. */
+    private final List<Set<String>> alternativas;
+
+    private ExamSnapshot(Exam exam, Map<String, Integer> ordinais, List<Set<String>> alternativas) {
+        this.exam = exam;
+        this.ordinais = ordinais;
+        this.alternativas = alternativas;
+    }
+
+    public static ExamSnapshot compile(Exam exam) {
+        List<Question> questions = exam.getQuestions() != null ? exam.getQuestions() : List.of();
+        Map<String, Integer> ordinais = new HashMap<>(questions.size() * 2);
+        List<Set<String>> alternativas = new ArrayList<>(questions.size());
+        for (Question q : questions) {
+            ordinais.put(q.getId(), alternativas.size());
+            alternativas.add(q.getAlternativas() != null ? Set.copyOf(q.getAlternativas()) : null);
+        }
+        return new ExamSnapshot(exam, Map.copyOf(ordinais), alternativas);
+    }
+
+    public Exam exam() {
+        return exam;
+    }
+
+    public String id() {
+        return exam.getId();
+    }
+
+    public ExamStatus status() {
+        return exam.getStatus();
+    }
+
+    public Instant dataInicio() {
+        return exam.getDataInicio();
+    }
+
+    public Instant dataFim() {
+        return exam.getDataFim();
+    }
+
+    public int size() {
+        return alternativas.size();
+    }
+
+    /** Ordinal da questão na prova, ou -1 se ela não pertence à prova. */
+    public int ordinal(String questionId) {
+        Integer ordinal = ordinais.get(questionId);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    public boolean isAlternativaValida(int ordinal, String alternativa) {
+        Set<String> aceitas = alternativas.get(ordinal);
+        return aceitas == null || (alternativa != null && aceitas.contains(alternativa));
+    }
+
+    /** Recusa respostas fora da prova publicada ou da janela de submissão. */
+    public void checkAcceptingAnswers(Instant now) {
+        if (status() != ExamStatus.PUBLICADA) {
+            throw new BusinessRuleException("EXAM_NOT_PUBLISHED", "A prova não está publicada para submissões.");
+        }
+        if (dataInicio() != null && now.isBefore(dataInicio())) {
+            throw new BusinessRuleException("EXAM_NOT_STARTED", "A prova ainda não está disponível para submissões.");
+        }
+        if (dataFim() != null && now.isAfter(dataFim())) {
+            throw new BusinessRuleException("EXAM_EXPIRED", "O prazo para submissões desta prova já encerrou.");
+        }
+    }
+
+    /** Recusa questões que não são da prova e alternativas que a questão não aceita. */
+    public void validateAnswer(String questionId, String alternativa) {
+        int ordinal = ordinal(questionId);
+        if (ordinal < 0) {
+            throw new BusinessRuleException("INVALID_QUESTION_ID", "Questão inválida: " + questionId,
+                    HttpStatus.BAD_REQUEST);
+        }
+        if (!isAlternativaValida(ordinal, alternativa)) {
+            throw new BusinessRuleException("INVALID_ALTERNATIVE",
+                    "Alternativa inválida para questão " + questionId + ": " + alternativa,
+                    HttpStatus.BAD_REQUEST);
+        }
+    }
+}
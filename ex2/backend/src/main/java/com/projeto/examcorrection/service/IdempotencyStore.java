@@ -0,0 +1,246 @@
+package com.projeto.examcorrection.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.projeto.examcorrection.domain.IdempotencyRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Respostas já dadas por chave de idempotência. A primeira requisição com uma chave a reserva e grava a
+ * resposta ao terminar; repetições esperam essa resposta e a recebem de volta sem passar pelos serviços.
+ * O armazenamento é um cache Caffeine limitado em tamanho e com TTL, cujo mapa concorrente trava por
+ * bucket, então reservas de chaves diferentes não disputam o mesmo lock.
+ * <p>
+ * Com {@code persistent}, a reserva e a resposta também vão para {@code idempotency_keys}, para que uma
+ * repetição que caia em outra instância seja reconhecida. A reserva vale por {@code lease-seconds}: se a
+ * instância que a fez cair antes de concluir, a primeira repetição depois do prazo a assume com um update
+ * condicional, em vez de receber 409 até o TTL do registro. A conclusão e o descarte só alteram o
+ * registro se a reserva ainda for desta requisição. Só respostas 2xx e 4xx determinísticas são
+ * guardadas; 5xx e 4xx transitórios (409 de gabarito alterado ou rascunho não salvo, 429...) liberam a
+ * chave, e a repetição executa de novo. Taxa de acerto e contadores ficam expostos via JMX.
+ */
+@Component
+@ManagedResource(objectName = "examcorrection:type=Idempotency", description = "Chaves de idempotência")
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    /** Recusas que dependem do momento: repetir a requisição pode dar outra resposta. */
+    private static final Set<Integer> STATUS_TRANSITORIOS = Set.of(408, 409, 423, 425, 429);
+
+    public record Resposta(int status, String contentType, byte[] body) {
+    }
+
+    /** Chave reservada; {@code resposta} completa quando a requisição original termina. */
+    public static final class Entrada {
+        private final String fingerprint;
+        private final CompletableFuture<Resposta> resposta = new CompletableFuture<>();
+        /** Prazo da reserva em {@code idempotency_keys}; identifica a reserva desta requisição. */
+        private volatile Instant reservadoAte;
+
+        Entrada(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public String fingerprint() {
+            return fingerprint;
+        }
+
+        public CompletableFuture<Resposta> resposta() {
+            return resposta;
+        }
+    }
+
+    /**
+     * Resultado da reserva: {@code nova} quando esta requisição deve executar; senão {@code entrada} é a
+     * da requisição original, ou {@code null} se ela está em andamento em outra instância.
+     */
+    public record Reserva(Entrada entrada, boolean nova) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean persistent;
+    private final Duration lease;
+    private final Cache<String, Entrada> entradas;
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+
+    public IdempotencyStore(MongoTemplate mongoTemplate,
+            @Value("${app.idempotency.persistent}") boolean persistent,
+            @Value("${app.idempotency.cache-size}") long cacheSize,
+            @Value("${app.idempotency.ttl-seconds}") long ttlSeconds,
+            @Value("${app.idempotency.lease-seconds}") long leaseSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.persistent = persistent;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.entradas = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public Reserva reservar(String chave, String fingerprint) {
+        Entrada nova = new Entrada(fingerprint);
+        Entrada existente = entradas.asMap().putIfAbsent(chave, nova);
+        if (existente != null) {
+            acertos.increment();
+            return new Reserva(existente, false);
+        }
+        if (persistent) {
+            Reserva remota = reservarRemota(chave, nova);
+            if (remota != null) {
+                acertos.increment();
+                return remota;
+            }
+        }
+        falhas.increment();
+        return new Reserva(nova, true);
+    }
+
+    /**
+     * Libera as repetições com a resposta da requisição original e a guarda, se não for 5xx nem uma
+     * recusa transitória; nesses casos a chave é liberada para a próxima repetição executar de novo.
+     */
+    public void concluir(String chave, Entrada entrada, Resposta resposta) {
+        boolean guardar = resposta.status() < 500 && !STATUS_TRANSITORIOS.contains(resposta.status());
+        if (!guardar) {
+            entradas.asMap().remove(chave, entrada);
+        }
+        if (persistent) {
+            try {
+                Query query = daReserva(chave, entrada);
+                long alterados = guardar
+                        ? mongoTemplate.updateFirst(query, new Update().set("status", resposta.status())
+                                .set("contentType", resposta.contentType())
+                                .set("body", resposta.body()), IdempotencyRecord.class).getModifiedCount()
+                        : mongoTemplate.remove(query, IdempotencyRecord.class).getDeletedCount();
+                if (alterados == 0 && entrada.reservadoAte != null) {
+                    log.warn("Idempotency reservation lost before completion: status={}", resposta.status());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Idempotency record not persisted: status={}", resposta.status(), e);
+            }
+        }
+        entrada.resposta().complete(resposta);
+    }
+
+    /** Desiste da chave sem resposta (a requisição original falhou fora do fluxo normal). */
+    public void descartar(String chave, Entrada entrada) {
+        entradas.asMap().remove(chave, entrada);
+        if (persistent) {
+            try {
+                mongoTemplate.remove(daReserva(chave, entrada).addCriteria(Criteria.where("status").exists(false)),
+                        IdempotencyRecord.class);
+            } catch (RuntimeException e) {
+                log.warn("Idempotency reservation not released", e);
+            }
+        }
+        entrada.resposta().completeExceptionally(new IllegalStateException("Requisição original falhou."));
+    }
+
+    @ManagedAttribute(description = "Requisições repetidas respondidas pela resposta guardada")
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    @ManagedAttribute(description = "Chaves novas, executadas pelos serviços")
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    @ManagedAttribute(description = "Fração das requisições com chave que foram repetições")
+    public double getTaxaAcerto() {
+        long acertos = getAcertos();
+        long total = acertos + getFalhas();
+        return total == 0 ? 0.0 : (double) acertos / total;
+    }
+
+    @ManagedAttribute(description = "Chaves guardadas nesta instância")
+    public long getTamanho() {
+        return entradas.estimatedSize();
+    }
+
+    /**
+     * Reserva a chave em {@code idempotency_keys}. Devolve {@code null} se a reserva é desta requisição,
+     * ou a reserva existente (com a resposta já gravada, ou em andamento em outra instância).
+     */
+    private Reserva reservarRemota(String chave, Entrada nova) {
+        // Em milissegundos, como o banco guarda: o prazo também identifica a reserva na conclusão
+        Instant agora = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        IdempotencyRecord registro = new IdempotencyRecord();
+        registro.setId(chave);
+        registro.setFingerprint(nova.fingerprint());
+        registro.setCriadoEm(agora);
+        registro.setReservadoAte(agora.plus(lease));
+        try {
+            mongoTemplate.insert(registro);
+            nova.reservadoAte = registro.getReservadoAte();
+            return null;
+        } catch (DuplicateKeyException e) {
+            if (assumir(chave, nova, agora)) {
+                return null;
+            }
+            IdempotencyRecord existente = mongoTemplate.findById(chave, IdempotencyRecord.class);
+            entradas.asMap().remove(chave, nova);
+            if (existente == null || existente.getStatus() == null) {
+                return new Reserva(null, false);
+            }
+            Entrada gravada = new Entrada(existente.getFingerprint());
+            gravada.resposta().complete(new Resposta(existente.getStatus(), existente.getContentType(),
+                    existente.getBody()));
+            entradas.put(chave, gravada);
+            return new Reserva(gravada, false);
+        } catch (RuntimeException e) {
+            // Sem o banco a chave continua valendo nesta instância
+            log.warn("Idempotency key not reserved remotely", e);
+            return null;
+        }
+    }
+
+    /**
+     * Assume a reserva sem resposta cujo prazo venceu, como se a chave fosse nova. Registros anteriores ao
+     * prazo usam {@code criadoEm}.
+     */
+    private boolean assumir(String chave, Entrada nova, Instant agora) {
+        Query vencida = Query.query(Criteria.where("_id").is(chave).and("status").exists(false)
+                .orOperator(Criteria.where("reservadoAte").lt(agora),
+                        Criteria.where("reservadoAte").exists(false).and("criadoEm").lt(agora.minus(lease))));
+        Instant reservadoAte = agora.plus(lease);
+        long assumidos = mongoTemplate.updateFirst(vencida, new Update()
+                .set("fingerprint", nova.fingerprint())
+                .set("criadoEm", agora)
+                .set("reservadoAte", reservadoAte), IdempotencyRecord.class).getModifiedCount();
+        if (assumidos == 0) {
+            return false;
+        }
+        nova.reservadoAte = reservadoAte;
+        log.info("Expired idempotency reservation taken over");
+        return true;
+    }
+
+    /** O registro da chave, desde que ainda seja a reserva feita por esta entrada. */
+    private static Query daReserva(String chave, Entrada entrada) {
+        Query query = Query.query(Criteria.where("_id").is(chave));
+        if (entrada.reservadoAte != null) {
+            query.addCriteria(Criteria.where("reservadoAte").is(entrada.reservadoAte));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,158 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.ItemAnalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Análise de itens em uma única passada sobre as submissões. Cada submissão é codificada com o
+ * {@link ScoringPlan} e acumulada em arrays primitivos: escolhas por alternativa, brancos, acertos, a
+ * soma das notas de quem acertou cada questão e um vetor de bits de acertos por submissão, usado no fim
+ * para separar os grupos superior e inferior da discriminação.
+ * <p>
+ * A nota de cada submissão é recalculada pelo plano (incluindo a própria questão no ponto-bisserial,
+ * sem correção de item). Não é thread-safe.
+ */
+public final class ItemAnalysisAccumulator {
+
+    /** Fração das submissões em cada grupo extremo do índice de discriminação. */
+    static final double GRUPO_EXTREMO = 0.27;
+
+    private final ScoringPlan plan;
+    private final int questoes;
+    private final int palavras;
+    private final int[][] escolhas;
+    private final int[] outras;
+    private final int[] brancos;
+    private final int[] acertos;
+    private final double[] somaNotaAcerto;
+
+    private double[] notas;
+    private long[] corretas;
+    private int total;
+    private double somaNotas;
+    private double somaQuadrados;
+
+    public ItemAnalysisAccumulator(ScoringPlan plan, int capacidade) {
+        this.plan = plan;
+        this.questoes = plan.size();
+        this.palavras = Math.max(plan.palavras(), 1);
+        this.escolhas = new int[questoes][];
+        for (int i = 0; i < questoes; i++) {
+            escolhas[i] = new int[plan.alternativas(i)];
+        }
+        this.outras = new int[questoes];
+        this.brancos = new int[questoes];
+        this.acertos = new int[questoes];
+        this.somaNotaAcerto = new double[questoes];
+        int inicial = Math.max(capacidade, 16);
+        this.notas = new double[inicial];
+        this.corretas = new long[inicial * palavras];
+    }
+
+    public void add(Map<String, ?> respostas) {
+        if (total == notas.length) {
+            notas = Arrays.copyOf(notas, total * 2);
+            corretas = Arrays.copyOf(corretas, total * 2 * palavras);
+        }
+        int base = total * palavras;
+        double nota = 0.0;
+        for (int i = 0; i < questoes; i++) {
+            Object valor = respostas.get(plan.questionId(i));
+            int resposta = plan.encode(i, valor != null ? valor.toString() : null);
+            if (resposta >= 0) {
+                escolhas[i][resposta]++;
+            } else if (resposta == ScoringPlan.BRANCO) {
+                brancos[i]++;
+            } else {
+                outras[i]++;
+            }
+            int esperada = plan.gabarito(i);
+            if (esperada == ScoringPlan.ANULADA || (esperada >= 0 && resposta == esperada)) {
+                corretas[base + (i >>> 6)] |= 1L << i;
+                acertos[i]++;
+                nota += plan.pontuacao(i);
+            }
+        }
+        for (int w = 0; w < palavras; w++) {
+            for (long bits = corretas[base + w]; bits != 0; bits &= bits - 1) {
+                somaNotaAcerto[(w << 6) + Long.numberOfTrailingZeros(bits)] += nota;
+            }
+        }
+        notas[total++] = nota;
+        somaNotas += nota;
+        somaQuadrados += nota * nota;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    /** Índices por questão, na ordem da prova. Sem submissões, todos os índices são zero. */
+    public List<ItemAnalysis> itens() {
+        int n = total;
+        int grupo = n == 0 ? 0 : Math.max(1, (int) Math.round(n * GRUPO_EXTREMO));
+        int[] superior = new int[questoes];
+        int[] inferior = new int[questoes];
+        if (grupo > 0) {
+            int[] ordem = rankByGrade();
+            for (int j = 0; j < grupo; j++) {
+                countHits(ordem[j], inferior);
+                countHits(ordem[n - 1 - j], superior);
+            }
+        }
+
+        double media = n > 0 ? somaNotas / n : 0.0;
+        double desvio = n > 0 ? Math.sqrt(Math.max(somaQuadrados / n - media * media, 0.0)) : 0.0;
+
+        List<ItemAnalysis> itens = new ArrayList<>(questoes);
+        for (int i = 0; i < questoes; i++) {
+            double p = n > 0 ? (double) acertos[i] / n : 0.0;
+            double discriminacao = grupo > 0 ? (double) (superior[i] - inferior[i]) / grupo : 0.0;
+            double pontoBisserial = 0.0;
+            if (acertos[i] > 0 && acertos[i] < n && desvio > 0) {
+                double mediaAcerto = somaNotaAcerto[i] / acertos[i];
+                double mediaErro = (somaNotas - somaNotaAcerto[i]) / (n - acertos[i]);
+                pontoBisserial = (mediaAcerto - mediaErro) / desvio * Math.sqrt(p * (1 - p));
+            }
+            Map<String, Integer> alternativas = new LinkedHashMap<>();
+            for (int a = 0; a < escolhas[i].length; a++) {
+                alternativas.put(plan.alternativa(i, a), escolhas[i][a]);
+            }
+            itens.add(new ItemAnalysis(plan.questionId(i), round(p), round(discriminacao), round(pontoBisserial),
+                    round(n > 0 ? (double) brancos[i] / n : 0.0), alternativas, outras[i]));
+        }
+        return itens;
+    }
+
+    /** Submissões em ordem crescente de nota; empates ficam na ordem de leitura. */
+    private int[] rankByGrade() {
+        Integer[] ordem = new Integer[total];
+        for (int s = 0; s < total; s++) {
+            ordem[s] = s;
+        }
+        Arrays.sort(ordem, (a, b) -> Double.compare(notas[a], notas[b]));
+        int[] resultado = new int[total];
+        for (int s = 0; s < total; s++) {
+            resultado[s] = ordem[s];
+        }
+        return resultado;
+    }
+
+    private void countHits(int submissao, int[] contagem) {
+        int base = submissao * palavras;
+        for (int w = 0; w < palavras; w++) {
+            for (long bits = corretas[base + w]; bits != 0; bits &= bits - 1) {
+                contagem[(w << 6) + Long.numberOfTrailingZeros(bits)]++;
+            }
+        }
+    }
+
+    private static double round(double valor) {
+        return Math.round(valor * 10_000.0) / 10_000.0;
+    }
+}
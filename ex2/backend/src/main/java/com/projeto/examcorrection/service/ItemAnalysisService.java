@@ -0,0 +1,72 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.AnswerKey;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.ExamItemAnalysis;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Gera a análise de itens de uma prova lendo as submissões corrigidas uma única vez por cursor, só com o
+ * campo {@code respostas} e sem o mapeamento para entidade. O cache e a versão ficam com o
+ * {@link ReportService}.
+ */
+@Service
+public class ItemAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemAnalysisService.class);
+
+    private final AnswerKeyRepository answerKeyRepository;
+    private final ScoringPlanCache scoringPlanCache;
+    private final MongoTemplate mongoTemplate;
+
+    public ItemAnalysisService(AnswerKeyRepository answerKeyRepository, ScoringPlanCache scoringPlanCache,
+            MongoTemplate mongoTemplate) {
+        this.answerKeyRepository = answerKeyRepository;
+        this.scoringPlanCache = scoringPlanCache;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** @param capacidade estimativa do número de submissões corrigidas, para dimensionar os arrays */
+    @SuppressWarnings("unchecked")
+    public ExamItemAnalysis analyze(Exam exam, int capacidade) {
+        long inicio = System.nanoTime();
+        AnswerKey answerKey = answerKeyRepository.findByExamId(exam.getId())
+                .orElseThrow(() -> new BusinessRuleException("ANSWER_KEY_NOT_FOUND",
+                        "Gabarito não encontrado para a análise de itens."));
+        ScoringPlan plan = scoringPlanCache.get(exam, answerKey);
+        ItemAnalysisAccumulator acumulador = new ItemAnalysisAccumulator(plan, capacidade);
+
+        Query query = Query.query(Criteria.where("examId").is(exam.getId()).and("corrigida").is(true));
+        query.fields().include("respostas").exclude("_id");
+        try (Stream<Document> submissions = mongoTemplate.stream(query, Document.class,
+                mongoTemplate.getCollectionName(Submission.class))) {
+            submissions.forEach(doc -> {
+                Object respostas = doc.get("respostas");
+                acumulador.add(respostas instanceof Map<?, ?> m ? (Map<String, ?>) m : Map.of());
+            });
+        }
+
+        ExamItemAnalysis analysis = new ExamItemAnalysis();
+        analysis.setExamId(exam.getId());
+        analysis.setTotalSubmissoes(acumulador.total());
+        analysis.setItens(acumulador.itens());
+        analysis.setDataGeracao(Instant.now());
+
+        log.info("Item analysis computed: exam={}, submissoes={}, duracaoMs={}", exam.getId(), acumulador.total(),
+                (System.nanoTime() - inicio) / 1_000_000);
+        return analysis;
+    }
+}
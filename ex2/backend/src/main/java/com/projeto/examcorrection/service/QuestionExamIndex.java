@@ -0,0 +1,42 @@
+package com.projeto.examcorrection.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.error.ResourceNotFoundException;
+import com.projeto.examcorrection.repository.ExamRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prova de cada questão. A busca usa o índice multikey {@code questions_id} e lê só o ID da prova; o
+ * resultado fica num cache limitado, sem TTL, porque uma questão nunca muda de prova. A checagem de
+ * permissão e o serviço da mesma requisição compartilham a mesma busca.
+ */
+@Component
+public class QuestionExamIndex {
+
+    private final ExamRepository examRepository;
+    private final Cache<String, String> examIds;
+
+    public QuestionExamIndex(ExamRepository examRepository,
+            @Value("${app.question-index.cache-size}") long cacheSize) {
+        this.examRepository = examRepository;
+        this.examIds = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    public String examId(String questionId) {
+        String examId = examIds.get(questionId, id -> examRepository.findExamIdByQuestionId(id)
+                .map(Exam::getId)
+                .orElse(null));
+        if (examId == null) {
+            throw new ResourceNotFoundException("QUESTION_NOT_FOUND", "Questão não encontrada em nenhuma prova.");
+        }
+        return examId;
+    }
+
+    /** Esquece a questão removida (ou a prova inteira excluída). */
+    public void invalidate(String questionId) {
+        examIds.invalidate(questionId);
+    }
+}
@@ -1,16 +1,26 @@
 package com.projeto.examcorrection.service;
 
+import com.projeto.examcorrection.domain.Exam;
 import com.projeto.examcorrection.domain.GeradoPor;
+import com.projeto.examcorrection.domain.Question;
 import com.projeto.examcorrection.domain.QuestionIssue;
+import com.projeto.examcorrection.domain.Severidade;
 import com.projeto.examcorrection.dto.QuestionIssueRequest;
 import com.projeto.examcorrection.dto.QuestionIssueResponse;
 import com.projeto.examcorrection.repository.QuestionIssueRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class QuestionIssueService {
@@ -18,11 +28,23 @@ public class QuestionIssueService {
     private static final Logger log = LoggerFactory.getLogger(QuestionIssueService.class);
 
     private final QuestionIssueRepository questionIssueRepository;
-    private final ExamService examService;
+    private final QuestionService questionService;
+    private final MongoTemplate mongoTemplate;
 
-    public QuestionIssueService(QuestionIssueRepository questionIssueRepository, ExamService examService) {
+    @Value("${app.correction.threshold-low-accuracy}")
+    private double thresholdLowAccuracy;
+
+    @Value("${app.correction.threshold-high-accuracy}")
+    private double thresholdHighAccuracy;
+
+    @Value("${app.correction.threshold-high-blank}")
+    private double thresholdHighBlank;
+
+    public QuestionIssueService(QuestionIssueRepository questionIssueRepository, QuestionService questionService,
+            MongoTemplate mongoTemplate) {
         this.questionIssueRepository = questionIssueRepository;
-        this.examService = examService;
+        this.questionService = questionService;
+        this.mongoTemplate = mongoTemplate;
     }
 
     public List<QuestionIssueResponse> findByQuestionId(String questionId) {
@@ -32,12 +54,11 @@ public class QuestionIssueService {
     }
 
     public QuestionIssueResponse create(String questionId, QuestionIssueRequest request, String professorId) {
-        // Find the exam that contains this question to get the examId
-        var exam = examService.findExamByQuestionId(questionId);
+        String examId = questionService.findExamIdByQuestionId(questionId);
 
         QuestionIssue issue = new QuestionIssue();
         issue.setQuestionId(questionId);
-        issue.setExamId(exam.getId());
+        issue.setExamId(examId);
         issue.setTipoProblema(request.tipoProblema());
         issue.setSeveridade(request.severidade());
         issue.setDescricao(request.descricao());
@@ -50,9 +71,67 @@ public class QuestionIssueService {
         return toResponse(issue);
     }
 
+    /** Questões da prova com algum problema em aberto. */
+    public List<String> findOpenQuestionIds(String examId) {
+        return questionIssueRepository.findByExamIdAndResolvidaFalse(examId).stream()
+                .map(QuestionIssue::getQuestionId)
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Detecta os problemas automáticos da prova a partir das contagens do agregado, sem reler as
+     * submissões. Todas as questões e tipos vão em um único {@link BulkOperations}: cada condição que vale é
+     * um upsert pela chave (questão, tipo, {@link GeradoPor#SISTEMA}), garantida pelo índice único, e cada
+     * condição que deixou de valer resolve o problema aberto correspondente.
+     */
+    public void detectAutoIssues(Exam exam, Map<String, Double> percentualAcerto, int total,
+            Map<String, Integer> brancos) {
+        if (exam.getQuestions().isEmpty()) {
+            return;
+        }
+        Instant agora = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, QuestionIssue.class);
+        for (Question q : exam.getQuestions()) {
+            double pctAcerto = percentualAcerto.getOrDefault(q.getId(), 0.0);
+            double pctBranco = brancos.getOrDefault(q.getId(), 0) * 100.0 / total;
+
+            apply(bulk, q, exam.getId(), "MUITO_BAIXO_ACERTO", pctAcerto < thresholdLowAccuracy, Severidade.ALTA,
+                    "Taxa de acerto muito baixa: " + String.format("%.1f%%", pctAcerto), agora);
+            apply(bulk, q, exam.getId(), "MUITO_ALTO_ACERTO", pctAcerto > thresholdHighAccuracy, Severidade.BAIXA,
+                    "Taxa de acerto muito alta: " + String.format("%.1f%%", pctAcerto), agora);
+            apply(bulk, q, exam.getId(), "ALTO_INDICE_BRANCO", pctBranco > thresholdHighBlank, Severidade.MEDIA,
+                    "Alto índice de questões em branco: " + String.format("%.1f%%", pctBranco), agora);
+        }
+        var result = bulk.execute();
+        log.info("Auto issues detected: exam={}, criados={}, atualizados={}", exam.getId(),
+                result.getUpserts().size(), result.getModifiedCount());
+    }
+
+    private static void apply(BulkOperations bulk, Question q, String examId, String tipo, boolean condition,
+            Severidade severidade, String descricao, Instant agora) {
+        Criteria chave = Criteria.where("questionId").is(q.getId())
+                .and("tipoProblema").is(tipo)
+                .and("geradoPor").is(GeradoPor.SISTEMA);
+        if (condition) {
+            bulk.upsert(Query.query(chave), new Update()
+                    .setOnInsert("examId", examId)
+                    .set("severidade", severidade)
+                    .set("descricao", descricao)
+                    .set("dataIdentificacao", agora)
+                    .set("resolvida", false)
+                    .unset("dataResolucao"));
+        } else {
+            bulk.updateOne(Query.query(chave.and("resolvida").is(false)), new Update()
+                    .set("resolvida", true)
+                    .set("dataResolucao", agora));
+        }
+    }
+
     private QuestionIssueResponse toResponse(QuestionIssue issue) {
         return new QuestionIssueResponse(issue.getId(), issue.getQuestionId(), issue.getExamId(),
                 issue.getTipoProblema(), issue.getSeveridade(), issue.getDescricao(),
-                issue.getGeradoPor(), issue.getDataIdentificacao());
+                issue.getGeradoPor(), issue.getDataIdentificacao(), issue.isResolvida(),
+                issue.getDataResolucao());
     }
 }
@@ -23,10 +23,18 @@ public class QuestionService {
 
     private final ExamService examService;
     private final ExamRepository examRepository;
+    private final ScoringPlanCache scoringPlanCache;
+    private final ExamAggregateService examAggregateService;
+    private final QuestionExamIndex questionExamIndex;
 
-    public QuestionService(ExamService examService, ExamRepository examRepository) {
+    public QuestionService(ExamService examService, ExamRepository examRepository,
+            ScoringPlanCache scoringPlanCache, ExamAggregateService examAggregateService,
+            QuestionExamIndex questionExamIndex) {
         this.examService = examService;
         this.examRepository = examRepository;
+        this.scoringPlanCache = scoringPlanCache;
+        this.examAggregateService = examAggregateService;
+        this.questionExamIndex = questionExamIndex;
     }
 
     public List<Question> getQuestions(String examId) {
@@ -35,7 +43,7 @@ public class QuestionService {
     }
 
     public Question addQuestion(String examId, QuestionRequest request) {
-        Exam exam = examService.findById(examId);
+        Exam exam = examService.findForUpdate(examId);
         examService.checkStatus(exam, ExamStatus.RASCUNHO, "Questões só podem ser adicionadas em provas RASCUNHO.");
 
         validateQuestionRequest(request);
@@ -50,6 +58,9 @@ public class QuestionService {
 
         exam.getQuestions().add(question);
         examRepository.save(exam);
+        examService.invalidate(examId);
+        scoringPlanCache.invalidate(examId);
+        examAggregateService.discard(examId);
         log.info("Question added to exam {}: questionId={}", examId, question.getId());
         return question;
     }
@@ -72,6 +83,9 @@ public class QuestionService {
         question.setOrdem(request.ordem());
 
         examRepository.save(exam);
+        examService.invalidate(exam.getId());
+        scoringPlanCache.invalidate(exam.getId());
+        examAggregateService.discard(exam.getId());
         log.info("Question updated: id={}", questionId);
         return question;
     }
@@ -82,15 +96,20 @@ public class QuestionService {
 
         exam.getQuestions().removeIf(q -> q.getId().equals(questionId));
         examRepository.save(exam);
+        questionExamIndex.invalidate(questionId);
+        examService.invalidate(exam.getId());
+        scoringPlanCache.invalidate(exam.getId());
+        examAggregateService.discard(exam.getId());
         log.info("Question deleted: id={}", questionId);
     }
 
+    /** Prova que contém a questão, lida do banco para alteração. */
     public Exam findExamByQuestionId(String questionId) {
-        return examRepository.findAll().stream()
-                .filter(e -> e.getQuestions().stream().anyMatch(q -> q.getId().equals(questionId)))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("QUESTION_NOT_FOUND",
-                        "Questão não encontrada em nenhuma prova."));
+        return examService.findForUpdate(questionExamIndex.examId(questionId));
+    }
+
+    public String findExamIdByQuestionId(String questionId) {
+        return questionExamIndex.examId(questionId);
     }
 
     private void validateQuestionRequest(QuestionRequest request) {
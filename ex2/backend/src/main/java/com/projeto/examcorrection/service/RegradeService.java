@@ -0,0 +1,343 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.AnswerKey;
+import com.projeto.examcorrection.domain.CorrectionResult;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.dto.RegradeRequest;
+import com.projeto.examcorrection.dto.RegradeResponse;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.error.ResourceNotFoundException;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.ExamReportRepository;
+import com.projeto.examcorrection.repository.ExamStatisticsRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Recorreção de uma prova já corrigida. Apenas as questões alteradas (nova alternativa correta ou
+ * anulação) são recalculadas, no próprio servidor: um único {@code updateMany} com pipeline reescreve
+ * os {@code QuestionDetail} afetados e recompõe acertos, erros, mapa e nota de todos os resultados da
+ * prova, e um {@code $merge} leva a nova nota para as submissões. Resultados compactos (sem detalhes)
+ * são recorrigidos por uma agregação que busca as respostas na submissão e reescreve só as posições
+ * alteradas do {@code mapaCorrecao}.
+ */
+@Service
+public class RegradeService {
+
+    private static final Logger log = LoggerFactory.getLogger(RegradeService.class);
+
+    private final ExamService examService;
+    private final AnswerKeyRepository answerKeyRepository;
+    private final ExamReportRepository examReportRepository;
+    private final ExamStatisticsRepository examStatisticsRepository;
+    private final ExamAggregateService examAggregateService;
+    private final DashboardService dashboardService;
+    private final MongoTemplate mongoTemplate;
+
+    public RegradeService(ExamService examService, AnswerKeyRepository answerKeyRepository,
+            ExamReportRepository examReportRepository,
+            ExamStatisticsRepository examStatisticsRepository,
+            ExamAggregateService examAggregateService,
+            DashboardService dashboardService,
+            MongoTemplate mongoTemplate) {
+        this.examService = examService;
+        this.answerKeyRepository = answerKeyRepository;
+        this.examReportRepository = examReportRepository;
+        this.examStatisticsRepository = examStatisticsRepository;
+        this.examAggregateService = examAggregateService;
+        this.dashboardService = dashboardService;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public RegradeResponse regrade(String examId, RegradeRequest request, String professorId) {
+        long inicio = System.nanoTime();
+        Exam exam = examService.findById(examId);
+        if (!exam.getProfessorId().equals(professorId)) {
+            throw new BusinessRuleException("ACCESS_DENIED",
+                    "Você não tem permissão para acessar o gabarito desta prova.", HttpStatus.FORBIDDEN);
+        }
+        AnswerKey answerKey = answerKeyRepository.findByExamId(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("ANSWER_KEY_NOT_FOUND",
+                        "Gabarito não encontrado para esta prova."));
+
+        Map<String, Question> questions = exam.getQuestions().stream()
+                .collect(Collectors.toMap(Question::getId, Function.identity()));
+        Set<String> jaAnuladas = answerKey.getQuestoesAnuladas();
+
+        Set<String> anular = new HashSet<>();
+        if (request.questoesAnuladas() != null) {
+            for (String questionId : request.questoesAnuladas()) {
+                requireQuestion(questions, questionId);
+                if (!jaAnuladas.contains(questionId)) {
+                    anular.add(questionId);
+                }
+            }
+        }
+
+        Map<String, String> corrigir = new LinkedHashMap<>();
+        if (request.respostas() != null) {
+            for (Map.Entry<String, String> entry : request.respostas().entrySet()) {
+                requireQuestion(questions, entry.getKey());
+                if (entry.getValue() == null || entry.getValue().isBlank()) {
+                    throw new BusinessRuleException("INVALID_ANSWER", "Alternativa correta inválida.");
+                }
+                List<String> alternativas = questions.get(entry.getKey()).getAlternativas();
+                if (alternativas != null && !alternativas.contains(entry.getValue())) {
+                    throw new BusinessRuleException("INVALID_ANSWER",
+                            "A alternativa correta não está entre as alternativas da questão.");
+                }
+                if (jaAnuladas.contains(entry.getKey()) || anular.contains(entry.getKey())) {
+                    throw new BusinessRuleException("QUESTION_ANNULLED",
+                            "Não é possível alterar o gabarito de uma questão anulada.");
+                }
+                if (!Objects.equals(answerKey.getRespostas().get(entry.getKey()), entry.getValue())) {
+                    corrigir.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        if (anular.isEmpty() && corrigir.isEmpty()) {
+            return new RegradeResponse(examId, 0, 0, (System.nanoTime() - inicio) / 1_000_000);
+        }
+
+        // A nova versão do gabarito invalida o ScoringPlan em cache; submissões ainda pendentes já
+        // serão corrigidas com o gabarito recorrigido. O gabarito é gravado antes dos pipelines, e as
+        // pendentes são carimbadas com a nova versão: uma correção concorrente com o plano antigo não
+        // consegue marcá-las (CorrectionService#markCorrected) ou confere a versão depois de gravar o lote
+        // (BatchCorrectionService#commitBatch), e refaz o resultado
+        Map<String, String> respostas = new HashMap<>(answerKey.getRespostas());
+        respostas.putAll(corrigir);
+        Set<String> anuladas = new HashSet<>(jaAnuladas);
+        anuladas.addAll(anular);
+        answerKey.setRespostas(respostas);
+        answerKey.setQuestoesAnuladas(anuladas);
+        answerKey.setDataAtualizacao(Instant.now());
+        answerKeyRepository.save(answerKey);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("examId").is(examId).and("corrigida").is(false)),
+                new Update().set("versaoGabarito", answerKey.getDataAtualizacao()), Submission.class);
+
+        List<Document> pipeline = regradePipeline(questions, anular, corrigir);
+        List<String> alteradas = new ArrayList<>(anular);
+        alteradas.addAll(corrigir.keySet());
+        Document filtro = new Document("examId", examId)
+                .append("detalhesPorQuestao.questionId", new Document("$in", alteradas));
+        long atualizados = mongoTemplate.execute(CorrectionResult.class,
+                collection -> collection.updateMany(filtro, pipeline).getModifiedCount());
+
+        Document compactos = new Document("examId", examId)
+                .append("detalhesPorQuestao", new Document("$exists", false))
+                .append("mapaCorrecao", new Document("$exists", true));
+        long totalCompactos = mongoTemplate.execute(CorrectionResult.class,
+                collection -> collection.countDocuments(compactos));
+        if (totalCompactos > 0) {
+            List<Document> compactPipeline = compactRegradePipeline(compactos, exam.getQuestions(), anular, corrigir,
+                    mongoTemplate.getCollectionName(Submission.class),
+                    mongoTemplate.getCollectionName(CorrectionResult.class));
+            mongoTemplate.execute(CorrectionResult.class, collection -> {
+                collection.aggregate(compactPipeline).toCollection();
+                return null;
+            });
+            atualizados += totalCompactos;
+        }
+
+        if (atualizados > 0) {
+            syncSubmissionGrades(examId);
+            examAggregateService.rebuild(exam);
+            dashboardService.invalidate(exam.getProfessorId());
+            examReportRepository.deleteByExamId(examId);
+            examStatisticsRepository.deleteByExamId(examId);
+        }
+
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Exam regraded: exam={}, anuladas={}, corrigidas={}, resultados={}, duracaoMs={}", examId,
+                anular.size(), corrigir.size(), atualizados, duracaoMs);
+        return new RegradeResponse(examId, alteradas.size(), atualizados, duracaoMs);
+    }
+
+    /**
+     * Pipeline de atualização: o primeiro estágio reescreve só os detalhes das questões alteradas e o
+     * segundo recompõe os totais a partir dos detalhes já atualizados.
+     */
+    static List<Document> regradePipeline(Map<String, Question> questions, Set<String> anular,
+            Map<String, String> corrigir) {
+        List<Document> branches = new ArrayList<>();
+        for (String questionId : anular) {
+            double pontuacao = questions.get(questionId).getPontuacao();
+            branches.add(branch(questionId, new Document("correta", true).append("pontuacaoObtida", pontuacao)));
+        }
+        for (Map.Entry<String, String> entry : corrigir.entrySet()) {
+            double pontuacao = questions.get(entry.getKey()).getPontuacao();
+            Document esperada = new Document("$literal", entry.getValue());
+            Document acertou = new Document("$eq", List.of("$$d.respostaAluno", esperada));
+            branches.add(branch(entry.getKey(), new Document("respostaEsperada", esperada)
+                    .append("correta", acertou)
+                    .append("pontuacaoObtida", new Document("$cond", List.of(acertou, pontuacao, 0.0)))));
+        }
+
+        Document detalhes = new Document("$map", new Document("input", "$detalhesPorQuestao")
+                .append("as", "d")
+                .append("in", new Document("$switch", new Document("branches", branches).append("default", "$$d"))));
+
+        Document errada = new Document("$and", List.of(
+                new Document("$not", List.of("$$d.correta")),
+                new Document("$ne", Arrays.asList(new Document("$ifNull", Arrays.asList("$$d.respostaAluno", null)), null))));
+
+        return List.of(
+                new Document("$set", new Document("detalhesPorQuestao", detalhes)),
+                new Document("$set", new Document("acertos", count("$$d.correta"))
+                        .append("erros", count(errada))
+                        .append("notaFinal", new Document("$sum", "$detalhesPorQuestao.pontuacaoObtida"))
+                        .append("mapaCorrecao", mapaCorrecaoFromDetalhes())));
+    }
+
+    /**
+     * Agregação para resultados compactos: junta as respostas da submissão, reescreve as posições
+     * alteradas do mapa, ajusta a nota pela diferença de pontos dessas questões e grava de volta com
+     * {@code $merge}.
+     */
+    static List<Document> compactRegradePipeline(Document filtro, List<Question> questions, Set<String> anular,
+            Map<String, String> corrigir, String submissions, String results) {
+        List<Integer> ordinais = new ArrayList<>();
+        for (int i = 0; i < questions.size(); i++) {
+            String questionId = questions.get(i).getId();
+            if (anular.contains(questionId) || corrigir.containsKey(questionId)) {
+                ordinais.add(i);
+            }
+        }
+
+        // Reconstrói o mapa como segmentos inalterados intercalados com as novas posições
+        List<Object> segmentos = new ArrayList<>();
+        List<Object> diferencas = new ArrayList<>();
+        diferencas.add("$notaFinal");
+        int inicio = 0;
+        for (int i : ordinais) {
+            Question q = questions.get(i);
+            Object novo = anular.contains(q.getId()) ? String.valueOf(CorrectionCalculator.CORRETA)
+                    : novaPosicao("$_respostas." + q.getId(), corrigir.get(q.getId()));
+            Document antigo = new Document("$substrCP", List.of("$mapaCorrecao", i, 1));
+            segmentos.add(new Document("$substrCP", List.of("$mapaCorrecao", inicio, i - inicio)));
+            segmentos.add(novo);
+            diferencas.add(pontos(novo, q.getPontuacao()));
+            diferencas.add(new Document("$multiply", List.of(-1, pontos(antigo, q.getPontuacao()))));
+            inicio = i + 1;
+        }
+        segmentos.add(new Document("$substrCP", List.of("$mapaCorrecao", inicio,
+                new Document("$strLenCP", "$mapaCorrecao"))));
+
+        Document submissionId = new Document("$convert", new Document("input", "$submissionId")
+                .append("to", "objectId")
+                .append("onError", "$submissionId")
+                .append("onNull", "$submissionId"));
+        return List.of(
+                new Document("$match", filtro),
+                new Document("$set", new Document("_sid", submissionId)),
+                new Document("$lookup", new Document("from", submissions)
+                        .append("localField", "_sid")
+                        .append("foreignField", "_id")
+                        .append("as", "_sub")),
+                new Document("$set", new Document("_respostas", new Document("$ifNull",
+                        List.of(new Document("$arrayElemAt", List.of("$_sub.respostas", 0)), new Document())))),
+                new Document("$set", new Document("mapaCorrecao", new Document("$concat", segmentos))
+                        .append("notaFinal", new Document("$add", diferencas))),
+                new Document("$set", new Document("acertos", countChar(CorrectionCalculator.CORRETA))
+                        .append("erros", countChar(CorrectionCalculator.ERRADA))),
+                new Document("$project", new Document("mapaCorrecao", 1).append("acertos", 1)
+                        .append("erros", 1).append("notaFinal", 1)),
+                new Document("$merge", new Document("into", results)
+                        .append("on", "_id")
+                        .append("whenMatched", "merge")
+                        .append("whenNotMatched", "discard")));
+    }
+
+    /** Expressão que deriva o {@code mapaCorrecao} de {@code detalhesPorQuestao}. */
+    public static Document mapaCorrecaoFromDetalhes() {
+        Document respondida = new Document("$ne",
+                Arrays.asList(new Document("$ifNull", Arrays.asList("$$this.respostaAluno", null)), null));
+        Document posicao = new Document("$cond", List.of("$$this.correta",
+                String.valueOf(CorrectionCalculator.CORRETA),
+                new Document("$cond", List.of(respondida, String.valueOf(CorrectionCalculator.ERRADA),
+                        String.valueOf(CorrectionCalculator.EM_BRANCO)))));
+        return new Document("$reduce", new Document("input", "$detalhesPorQuestao")
+                .append("initialValue", "")
+                .append("in", new Document("$concat", List.of("$$value", posicao))));
+    }
+
+    private static Document novaPosicao(String resposta, String esperada) {
+        Document respondida = new Document("$ne",
+                Arrays.asList(new Document("$ifNull", Arrays.asList(resposta, null)), null));
+        return new Document("$cond", List.of(
+                new Document("$eq", List.of(resposta, new Document("$literal", esperada))),
+                String.valueOf(CorrectionCalculator.CORRETA),
+                new Document("$cond", List.of(respondida, String.valueOf(CorrectionCalculator.ERRADA),
+                        String.valueOf(CorrectionCalculator.EM_BRANCO)))));
+    }
+
+    private static Document pontos(Object posicao, double pontuacao) {
+        return new Document("$cond", List.of(
+                new Document("$eq", List.of(posicao, String.valueOf(CorrectionCalculator.CORRETA))), pontuacao, 0.0));
+    }
+
+    private static Document countChar(char c) {
+        return new Document("$subtract", List.of(
+                new Document("$size", new Document("$split", List.of("$mapaCorrecao", String.valueOf(c)))), 1));
+    }
+
+    /** Copia a nota final de cada resultado da prova para a submissão correspondente. */
+    private void syncSubmissionGrades(String examId) {
+        // Ids gerados pela aplicação são ObjectId; os do seed são strings que não convertem
+        Document submissionId = new Document("$convert", new Document("input", "$submissionId")
+                .append("to", "objectId")
+                .append("onError", "$submissionId")
+                .append("onNull", "$submissionId"));
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("examId", examId)),
+                new Document("$project", new Document("_id", submissionId).append("nota", "$notaFinal")),
+                new Document("$merge", new Document("into", mongoTemplate.getCollectionName(Submission.class))
+                        .append("on", "_id")
+                        .append("whenMatched", "merge")
+                        .append("whenNotMatched", "discard")));
+        mongoTemplate.execute(CorrectionResult.class, collection -> {
+            collection.aggregate(pipeline).toCollection();
+            return null;
+        });
+    }
+
+    private static Document branch(String questionId, Document alteracao) {
+        return new Document("case", new Document("$eq", List.of("$$d.questionId", questionId)))
+                .append("then", new Document("$mergeObjects", List.of("$$d", alteracao)));
+    }
+
+    private static Document count(Object condicao) {
+        return new Document("$size", new Document("$filter", new Document("input", "$detalhesPorQuestao")
+                .append("as", "d")
+                .append("cond", condicao)));
+    }
+
+    private static void requireQuestion(Map<String, Question> questions, String questionId) {
+        if (!questions.containsKey(questionId)) {
+            throw new BusinessRuleException("QUESTION_NOT_IN_EXAM", "Questão não pertence a esta prova.");
+        }
+    }
+}
@@ -1,214 +1,361 @@
 package com.projeto.examcorrection.service;
 
 import com.projeto.examcorrection.domain.*;
+import com.projeto.examcorrection.dto.GradeQuantilesResponse;
 import com.projeto.examcorrection.error.BusinessRuleException;
-import com.projeto.examcorrection.error.ResourceNotFoundException;
 import com.projeto.examcorrection.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ReportService {
 
     private static final Logger log = LoggerFactory.getLogger(ReportService.class);
 
+    /** Percentis publicados nas estatísticas. */
+    private static final double[] PERCENTIS = {0.10, 0.25, 0.50, 0.75, 0.90};
+
     private final ExamService examService;
-    private final SubmissionRepository submissionRepository;
-    private final CorrectionResultRepository correctionResultRepository;
     private final ExamReportRepository examReportRepository;
     private final ExamStatisticsRepository examStatisticsRepository;
-    private final QuestionIssueRepository questionIssueRepository;
+    private final QuestionIssueService questionIssueService;
+    private final ExamAggregateService examAggregateService;
+    private final ExamItemAnalysisRepository examItemAnalysisRepository;
+    private final ItemAnalysisService itemAnalysisService;
+
+    /** Provas com relatórios desatualizados aguardando o próximo ciclo de atualização. */
+    private final Set<String> pendentes = ConcurrentHashMap.newKeySet();
 
     @Value("${app.correction.min-submissions-for-issue}")
     private int minSubmissionsForIssue;
 
-    @Value("${app.correction.threshold-low-accuracy}")
-    private double thresholdLowAccuracy;
-
-    @Value("${app.correction.threshold-high-accuracy}")
-    private double thresholdHighAccuracy;
-
-    @Value("${app.correction.threshold-high-blank}")
-    private double thresholdHighBlank;
-
-    public ReportService(ExamService examService, SubmissionRepository submissionRepository,
-            CorrectionResultRepository correctionResultRepository,
+    public ReportService(ExamService examService,
             ExamReportRepository examReportRepository,
             ExamStatisticsRepository examStatisticsRepository,
-            QuestionIssueRepository questionIssueRepository) {
+            QuestionIssueService questionIssueService,
+            ExamAggregateService examAggregateService,
+            ExamItemAnalysisRepository examItemAnalysisRepository,
+            ItemAnalysisService itemAnalysisService) {
         this.examService = examService;
-        this.submissionRepository = submissionRepository;
-        this.correctionResultRepository = correctionResultRepository;
         this.examReportRepository = examReportRepository;
         this.examStatisticsRepository = examStatisticsRepository;
-        this.questionIssueRepository = questionIssueRepository;
+        this.questionIssueService = questionIssueService;
+        this.examAggregateService = examAggregateService;
+        this.examItemAnalysisRepository = examItemAnalysisRepository;
+        this.itemAnalysisService = itemAnalysisService;
     }
 
+    /**
+     * Relatório da prova. O relatório em cache é servido enquanto houver um, mesmo que a prova tenha
+     * recebido correções depois da geração: nesse caso ele sai marcado como desatualizado e uma única
+     * atualização em segundo plano é agendada.
+     */
     public ExamReport getReport(String examId, String userId) {
-        Exam exam = examService.findById(examId);
-        if (!exam.getProfessorId().equals(userId)) {
-            throw new BusinessRuleException("ACCESS_DENIED", "Acesso negado.", HttpStatus.FORBIDDEN);
-        }
+        Exam exam = findOwnedExam(examId, userId);
+        ExamAggregate aggregate = examAggregateService.get(exam);
 
         Optional<ExamReport> cached = examReportRepository.findByExamId(examId);
-        if (cached.isPresent())
-            return cached.get();
+        if (cached.isPresent()) {
+            ExamReport report = cached.get();
+            long pendentes = aggregate.getVersao() - report.getVersao();
+            if (pendentes != 0) {
+                report.setDesatualizado(true);
+                report.setVersoesPendentes(Math.max(pendentes, 0));
+                requestRefresh(examId);
+            }
+            return report;
+        }
 
-        List<Submission> corrected = submissionRepository.findByExamIdAndCorrigida(examId, true);
-        if (corrected.isEmpty()) {
-            throw new BusinessRuleException("NO_CORRECTED_SUBMISSIONS",
-                    "Não há submissões corrigidas para gerar relatório.");
+        return buildReport(exam, aggregate, new ExamReport());
+    }
+
+    public ExamStatistics getStatistics(String examId, String userId) {
+        Exam exam = findOwnedExam(examId, userId);
+        ExamAggregate aggregate = examAggregateService.get(exam);
+
+        Optional<ExamStatistics> cached = examStatisticsRepository.findByExamId(examId);
+        if (cached.isPresent()) {
+            ExamStatistics stats = cached.get();
+            long pendentes = aggregate.getVersao() - stats.getVersao();
+            if (pendentes != 0) {
+                stats.setDesatualizado(true);
+                stats.setVersoesPendentes(Math.max(pendentes, 0));
+                requestRefresh(examId);
+            }
+            return stats;
         }
 
-        List<Double> notas = corrected.stream().map(Submission::getNota).toList();
-        double media = notas.stream().mapToDouble(Double::doubleValue).average().orElse(0);
-        double maior = notas.stream().mapToDouble(Double::doubleValue).max().orElse(0);
-        double menor = notas.stream().mapToDouble(Double::doubleValue).min().orElse(0);
+        return buildStatistics(exam, aggregate, new ExamStatistics());
+    }
 
-        ExamReport report = new ExamReport();
-        report.setExamId(examId);
-        report.setMediaNotas(Math.round(media * 100.0) / 100.0);
-        report.setMaiorNota(maior);
-        report.setMenorNota(menor);
-        report.setTotalSubmissoes(corrected.size());
-        report.setDataGeracao(Instant.now());
+    /** Análise de itens da prova, com o mesmo cache versionado do relatório e das estatísticas. */
+    public ExamItemAnalysis getItemAnalysis(String examId, String userId) {
+        Exam exam = findOwnedExam(examId, userId);
+        ExamAggregate aggregate = examAggregateService.get(exam);
+
+        Optional<ExamItemAnalysis> cached = examItemAnalysisRepository.findByExamId(examId);
+        if (cached.isPresent()) {
+            ExamItemAnalysis analysis = cached.get();
+            long pendentes = aggregate.getVersao() - analysis.getVersao();
+            if (pendentes != 0) {
+                analysis.setDesatualizado(true);
+                analysis.setVersoesPendentes(Math.max(pendentes, 0));
+                requestRefresh(examId);
+            }
+            return analysis;
+        }
 
-        report = examReportRepository.save(report);
-        log.info("Report generated for exam {}", examId);
-        return report;
+        return buildItemAnalysis(exam, aggregate, null);
     }
 
-    public ExamStatistics getStatistics(String examId, String userId) {
-        Exam exam = examService.findById(examId);
-        if (!exam.getProfessorId().equals(userId)) {
-            throw new BusinessRuleException("ACCESS_DENIED", "Acesso negado.", HttpStatus.FORBIDDEN);
+    /**
+     * Gera o relatório em cache na versão atual do agregado, se ainda não existir ou estiver atrás dela.
+     * Usado no encerramento da prova para que o primeiro acesso já encontre o relatório pronto.
+     */
+    public void materializeReport(Exam exam) {
+        ExamAggregate aggregate = examAggregateService.get(exam);
+        if (aggregate.getTotal() == 0) {
+            return;
+        }
+        ExamReport report = examReportRepository.findByExamId(exam.getId()).orElseGet(ExamReport::new);
+        if (report.getId() == null || report.getVersao() != aggregate.getVersao()) {
+            buildReport(exam, aggregate, report);
         }
+    }
 
-        Optional<ExamStatistics> cached = examStatisticsRepository.findByExamId(examId);
-        if (cached.isPresent())
-            return cached.get();
+    /** Como {@link #materializeReport}, para as estatísticas (e a detecção automática de problemas). */
+    public void materializeStatistics(Exam exam) {
+        ExamAggregate aggregate = examAggregateService.get(exam);
+        if (aggregate.getTotal() == 0) {
+            return;
+        }
+        ExamStatistics stats = examStatisticsRepository.findByExamId(exam.getId()).orElseGet(ExamStatistics::new);
+        if (stats.getId() == null || stats.getVersao() != aggregate.getVersao()) {
+            buildStatistics(exam, aggregate, stats);
+        }
+    }
 
-        List<Submission> corrected = submissionRepository.findByExamIdAndCorrigida(examId, true);
-        if (corrected.isEmpty()) {
-            throw new BusinessRuleException("NO_CORRECTED_SUBMISSIONS",
-                    "Não há submissões corrigidas para gerar estatísticas.");
+    /**
+     * Quantis arbitrários das notas da prova, lidos do sketch do agregado (sempre na versão atual, sem
+     * passar pelo cache de estatísticas).
+     */
+    public GradeQuantilesResponse getQuantiles(String examId, String userId, List<Double> quantis) {
+        Exam exam = findOwnedExam(examId, userId);
+        ExamAggregate aggregate = examAggregateService.get(exam);
+        double notaMaxima = notaMaxima(exam);
+        return new GradeQuantilesResponse(examId, aggregate.getTotal(), notaMaxima,
+                quantiles(aggregate.sketch(), quantis, notaMaxima));
+    }
+
+    /**
+     * Quantis combinados de todas as provas do professor. Os sketches são somados na escala relativa à
+     * nota máxima de cada prova, então os quantis saem em percentual da nota máxima.
+     */
+    public GradeQuantilesResponse getProfessorQuantiles(String professorId, List<Double> quantis) {
+        GradeSketch combinado = new GradeSketch();
+        for (ExamAggregate aggregate : examAggregateService.getAll(examService.findByProfessorId(professorId))) {
+            combinado = combinado.merge(aggregate.sketch());
         }
+        return new GradeQuantilesResponse(null, combinado.total(), 100.0, quantiles(combinado, quantis, 100.0));
+    }
 
-        int total = corrected.size();
-        List<Question> questions = exam.getQuestions();
+    private static Map<String, Double> quantiles(GradeSketch sketch, List<Double> quantis, double escala) {
+        Map<String, Double> valores = new LinkedHashMap<>();
+        for (Double q : quantis) {
+            if (q == null || q < 0 || q > 1) {
+                throw new BusinessRuleException("INVALID_QUANTILE", "Quantis devem estar entre 0 e 1.");
+            }
+            valores.put(String.valueOf(q), quantile(sketch, q, escala));
+        }
+        return valores;
+    }
 
-        // Percentual de acerto por questão
-        Map<String, Double> percentualAcerto = new LinkedHashMap<>();
-        for (Question q : questions) {
-            long acertos = corrected.stream()
-                    .filter(s -> {
-                        CorrectionResult cr = correctionResultRepository.findBySubmissionId(s.getId()).orElse(null);
-                        if (cr == null)
-                            return false;
-                        return cr.getDetalhesPorQuestao().stream()
-                                .filter(d -> d.questionId().equals(q.getId()))
-                                .findFirst()
-                                .map(QuestionDetail::correta)
-                                .orElse(false);
-                    }).count();
-            double pct = Math.round((acertos * 100.0 / total) * 100.0) / 100.0;
-            percentualAcerto.put(q.getId(), pct);
+    private static double quantile(GradeSketch sketch, double q, double escala) {
+        return Math.round(sketch.quantile(q) * escala * 100.0) / 100.0;
+    }
+
+    private static double notaMaxima(Exam exam) {
+        return exam.getQuestions().stream().mapToDouble(Question::getPontuacao).sum();
+    }
+
+    /**
+     * Agenda a atualização dos relatórios da prova. Pedidos repetidos até o próximo ciclo são agrupados,
+     * de modo que uma sequência de correções e acessos gera uma única atualização.
+     */
+    void requestRefresh(String examId) {
+        pendentes.add(examId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.correction.report-refresh-delay-ms}")
+    public void refreshPending() {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        List<String> examIds = new ArrayList<>();
+        for (Iterator<String> it = pendentes.iterator(); it.hasNext();) {
+            examIds.add(it.next());
+            it.remove();
+        }
+        for (String examId : examIds) {
+            try {
+                refresh(examId);
+            } catch (RuntimeException e) {
+                log.warn("Report refresh failed for exam {}", examId, e);
+            }
         }
+    }
 
-        // Distribuição de notas (faixas de 10%)
-        double maxNota = questions.stream().mapToDouble(Question::getPontuacao).sum();
-        Map<String, Integer> distribuicao = new LinkedHashMap<>();
-        for (int i = 0; i < 10; i++) {
-            String faixa = (i * 10) + "-" + ((i + 1) * 10) + "%";
-            distribuicao.put(faixa, 0);
+    /** Regera os relatórios em cache da prova que estejam atrás da versão atual. */
+    void refresh(String examId) {
+        Exam exam = examService.findById(examId);
+        ExamAggregate aggregate = examAggregateService.get(exam);
+        examReportRepository.findByExamId(examId)
+                .filter(report -> report.getVersao() != aggregate.getVersao())
+                .ifPresent(report -> buildReport(exam, aggregate, report));
+        examStatisticsRepository.findByExamId(examId)
+                .filter(stats -> stats.getVersao() != aggregate.getVersao())
+                .ifPresent(stats -> buildStatistics(exam, aggregate, stats));
+        examItemAnalysisRepository.findByExamId(examId)
+                .filter(analysis -> analysis.getVersao() != aggregate.getVersao())
+                .ifPresent(analysis -> buildItemAnalysis(exam, aggregate, analysis));
+    }
+
+    private ExamReport buildReport(Exam exam, ExamAggregate aggregate, ExamReport report) {
+        if (aggregate.getTotal() == 0) {
+            throw new BusinessRuleException("NO_CORRECTED_SUBMISSIONS",
+                    "Não há submissões corrigidas para gerar relatório.");
         }
-        for (Submission s : corrected) {
-            double pct = maxNota > 0 ? (s.getNota() / maxNota) * 100.0 : 0;
-            int bucket = Math.min((int) (pct / 10), 9);
-            String faixa = (bucket * 10) + "-" + ((bucket + 1) * 10) + "%";
-            distribuicao.merge(faixa, 1, Integer::sum);
+
+        report.setExamId(aggregate.getExamId());
+        report.setMediaNotas(Math.round(aggregate.getSomaNotas() / aggregate.getTotal() * 100.0) / 100.0);
+        report.setMaiorNota(aggregate.getMaiorNota());
+        report.setMenorNota(aggregate.getMenorNota());
+        report.setMediana(quantile(aggregate.sketch(), 0.5, notaMaxima(exam)));
+        report.setTotalSubmissoes(aggregate.getTotal());
+        report.setVersao(aggregate.getVersao());
+        report.setDataGeracao(Instant.now());
+
+        try {
+            report = examReportRepository.save(report);
+        } catch (DuplicateKeyException e) {
+            // Outra requisição gerou o relatório ao mesmo tempo; o conteúdo é o mesmo
+            return report;
+        }
+        log.info("Report generated for exam {}: versao={}", aggregate.getExamId(), aggregate.getVersao());
+        return report;
+    }
+
+    private ExamStatistics buildStatistics(Exam exam, ExamAggregate aggregate, ExamStatistics stats) {
+        int total = aggregate.getTotal();
+        if (total == 0) {
+            throw new BusinessRuleException("NO_CORRECTED_SUBMISSIONS",
+                    "Não há submissões corrigidas para gerar estatísticas.");
         }
 
-        // Questões com problema
-        List<String> questoesComProblema = questionIssueRepository.findByExamId(examId).stream()
-                .map(QuestionIssue::getQuestionId)
-                .distinct()
-                .toList();
+        Map<String, Double> percentualAcerto = percentualAcerto(exam.getQuestions(), total,
+                aggregate.getAcertosPorQuestao());
+        Map<String, Integer> distribuicao = distribuicaoNotas(aggregate.getDistribuicaoNotas());
+
+        // Detecta os problemas automáticos antes de listar as questões com problema em aberto
+        if (total >= minSubmissionsForIssue) {
+            questionIssueService.detectAutoIssues(exam, percentualAcerto, total, aggregate.getBrancosPorQuestao());
+        }
+        List<String> questoesComProblema = questionIssueService.findOpenQuestionIds(exam.getId());
 
-        ExamStatistics stats = new ExamStatistics();
-        stats.setExamId(examId);
+        stats.setExamId(exam.getId());
         stats.setPercentualAcertoPorQuestao(percentualAcerto);
         stats.setDistribuicaoNotas(distribuicao);
+        GradeSketch sketch = aggregate.sketch();
+        double notaMaxima = notaMaxima(exam);
+        Map<String, Double> percentis = new LinkedHashMap<>();
+        for (double q : PERCENTIS) {
+            percentis.put("p" + Math.round(q * 100), quantile(sketch, q, notaMaxima));
+        }
+        stats.setPercentis(percentis);
+        stats.setNotaMaxima(notaMaxima);
+        stats.setSketchNotas(sketch);
         stats.setQuestoesComProblema(questoesComProblema);
+        stats.setVersao(aggregate.getVersao());
         stats.setDataGeracao(Instant.now());
 
-        stats = examStatisticsRepository.save(stats);
-        log.info("Statistics generated for exam {}", examId);
-
-        // Auto-detect question issues
-        if (total >= minSubmissionsForIssue) {
-            generateAutoIssues(exam, percentualAcerto, corrected);
+        try {
+            stats = examStatisticsRepository.save(stats);
+        } catch (DuplicateKeyException e) {
+            // Outra requisição gerou as estatísticas ao mesmo tempo; o conteúdo é o mesmo
+            return stats;
         }
+        log.info("Statistics generated for exam {}: versao={}", exam.getId(), aggregate.getVersao());
 
         return stats;
     }
 
-    private void generateAutoIssues(Exam exam, Map<String, Double> percentualAcerto, List<Submission> corrected) {
-        int total = corrected.size();
-
-        for (Question q : exam.getQuestions()) {
-            double pctAcerto = percentualAcerto.getOrDefault(q.getId(), 0.0);
-
-            // Branco rate
-            long blanks = corrected.stream()
-                    .filter(s -> s.getRespostas() == null || !s.getRespostas().containsKey(q.getId())
-                            || s.getRespostas().get(q.getId()) == null)
-                    .count();
-            double pctBranco = (blanks * 100.0 / total);
-
-            checkAndCreateIssue(q, exam.getId(), "MUITO_BAIXO_ACERTO", pctAcerto < thresholdLowAccuracy,
-                    Severidade.ALTA,
-                    "Taxa de acerto muito baixa: " + String.format("%.1f%%", pctAcerto));
-
-            checkAndCreateIssue(q, exam.getId(), "MUITO_ALTO_ACERTO", pctAcerto > thresholdHighAccuracy,
-                    Severidade.BAIXA,
-                    "Taxa de acerto muito alta: " + String.format("%.1f%%", pctAcerto));
-
-            checkAndCreateIssue(q, exam.getId(), "ALTO_INDICE_BRANCO", pctBranco > thresholdHighBlank, Severidade.MEDIA,
-                    "Alto índice de questões em branco: " + String.format("%.1f%%", pctBranco));
-        }
-    }
-
-    private void checkAndCreateIssue(Question q, String examId, String tipo, boolean condition, Severidade severidade,
-            String descricao) {
-        Optional<QuestionIssue> existing = questionIssueRepository
-                .findByQuestionIdAndTipoProblemaAndGeradoPor(q.getId(), tipo, GeradoPor.SISTEMA);
-
-        if (condition) {
-            if (existing.isPresent()) {
-                QuestionIssue issue = existing.get();
-                issue.setDescricao(descricao);
-                issue.setSeveridade(severidade);
-                issue.setDataIdentificacao(Instant.now());
-                questionIssueRepository.save(issue);
-            } else {
-                QuestionIssue issue = new QuestionIssue();
-                issue.setQuestionId(q.getId());
-                issue.setExamId(examId);
-                issue.setTipoProblema(tipo);
-                issue.setSeveridade(severidade);
-                issue.setDescricao(descricao);
-                issue.setGeradoPor(GeradoPor.SISTEMA);
-                issue.setDataIdentificacao(Instant.now());
-                questionIssueRepository.save(issue);
-            }
+    private ExamItemAnalysis buildItemAnalysis(Exam exam, ExamAggregate aggregate, ExamItemAnalysis existente) {
+        if (aggregate.getTotal() == 0) {
+            throw new BusinessRuleException("NO_CORRECTED_SUBMISSIONS",
+                    "Não há submissões corrigidas para gerar a análise de itens.");
+        }
+
+        ExamItemAnalysis analysis = itemAnalysisService.analyze(exam, aggregate.getTotal());
+        if (existente != null) {
+            analysis.setId(existente.getId());
+        }
+        analysis.setVersao(aggregate.getVersao());
+
+        try {
+            return examItemAnalysisRepository.save(analysis);
+        } catch (DuplicateKeyException e) {
+            // Outra requisição gerou a análise ao mesmo tempo; o conteúdo é o mesmo
+            return analysis;
+        }
+    }
+
+    /**
+     * Recalcula o agregado da prova a partir dos dados brutos e descarta os relatórios em cache. Usado para
+     * reparar contadores que tenham divergido (por exemplo, correções gravadas durante uma reconstrução).
+     */
+    public ExamAggregate rebuildStatistics(String examId, String userId) {
+        Exam exam = findOwnedExam(examId, userId);
+        ExamAggregate aggregate = examAggregateService.rebuild(exam);
+        examReportRepository.deleteByExamId(examId);
+        examStatisticsRepository.deleteByExamId(examId);
+        return aggregate;
+    }
+
+    private Exam findOwnedExam(String examId, String userId) {
+        Exam exam = examService.findById(examId);
+        if (!exam.getProfessorId().equals(userId)) {
+            throw new BusinessRuleException("ACCESS_DENIED", "Acesso negado.", HttpStatus.FORBIDDEN);
+        }
+        return exam;
+    }
+
+    /** Percentual de acerto por questão, na ordem das questões da prova. */
+    static Map<String, Double> percentualAcerto(List<Question> questions, int total, Map<String, Integer> acertos) {
+        Map<String, Double> percentualAcerto = new LinkedHashMap<>();
+        for (Question q : questions) {
+            int hits = acertos.getOrDefault(q.getId(), 0);
+            double pct = Math.round((hits * 100.0 / total) * 100.0) / 100.0;
+            percentualAcerto.put(q.getId(), pct);
+        }
+        return percentualAcerto;
+    }
+
+    /** Distribuição de notas com todas as faixas, de "0-10%" a "90-100%", inclusive as vazias. */
+    static Map<String, Integer> distribuicaoNotas(Map<String, Integer> contagemPorFaixa) {
+        Map<String, Integer> distribuicao = new LinkedHashMap<>();
+        for (int i = 0; i < ExamAggregate.FAIXAS; i++) {
+            String faixa = ExamAggregate.faixa(i);
+            distribuicao.put(faixa, contagemPorFaixa.getOrDefault(faixa, 0));
         }
+        return distribuicao;
     }
 }
@@ -0,0 +1,198 @@
+package com.projeto.examcorrection.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoCursor;
+import com.projeto.examcorrection.domain.CorrectionResult;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Exportação dos resultados de uma prova. Submissões (com o nome do aluno gravado nelas) e resultados de
+ * correção vêm de uma única agregação com {@code $lookup} indexado, lida por cursor e escrita lote a lote
+ * na saída, de modo que a memória usada não depende do tamanho da prova.
+ */
+@Service
+public class ResultExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultExportService.class);
+
+    private static final int CURSOR_BATCH_SIZE = 500;
+    /** Primeiros caracteres que fazem uma planilha tratar a célula como fórmula. */
+    private static final String FORMULA = "=+-@\t\r";
+
+    private static final List<String> COLUNAS = List.of("submissionId", "alunoId", "alunoNome", "corrigida", "nota",
+            "acertos", "erros", "mapaCorrecao", "dataEnvio");
+
+    public enum Formato {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extensao;
+
+        Formato(String contentType, String extensao) {
+            this.contentType = contentType;
+            this.extensao = extensao;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtensao() {
+            return extensao;
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final StudentNameCache studentNameCache;
+
+    public ResultExportService(MongoTemplate mongoTemplate, ObjectMapper objectMapper,
+            StudentNameCache studentNameCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.studentNameCache = studentNameCache;
+    }
+
+    public static Formato formato(String valor) {
+        try {
+            return Formato.valueOf(valor.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessRuleException("INVALID_EXPORT_FORMAT", "Formato de exportação inválido: " + valor,
+                    HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /** Escreve os resultados da prova em {@code out}, sem fechá-lo. */
+    public void export(String examId, Formato formato, OutputStream out) throws IOException {
+        long inicio = System.nanoTime();
+        long linhas = 0;
+        if (formato == Formato.CSV) {
+            out.write(csvLine(COLUNAS));
+        }
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(
+                        mongoTemplate.getCollectionName(Submission.class))
+                .aggregate(pipeline(examId))
+                .batchSize(CURSOR_BATCH_SIZE)
+                .cursor()) {
+            List<Document> lote = new ArrayList<>(CURSOR_BATCH_SIZE);
+            while (cursor.hasNext()) {
+                lote.add(cursor.next());
+                if (lote.size() == CURSOR_BATCH_SIZE || !cursor.hasNext()) {
+                    linhas += write(lote, formato, out);
+                    lote.clear();
+                }
+            }
+        }
+        out.flush();
+        log.info("Results exported: exam={}, formato={}, linhas={}, duracaoMs={}", examId, formato, linhas,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /** Escreve um lote do cursor; nomes ausentes (submissões anteriores ao campo) são buscados juntos. */
+    private int write(List<Document> lote, Formato formato, OutputStream out) throws IOException {
+        List<String> semNome = lote.stream()
+                .filter(doc -> doc.getString("alunoNome") == null)
+                .map(doc -> doc.getString("alunoId"))
+                .distinct()
+                .toList();
+        Map<String, String> nomes = semNome.isEmpty() ? Map.of() : studentNameCache.nomes(semNome);
+        for (Document doc : lote) {
+            Map<String, Object> linha = row(doc, nomes);
+            out.write(formato == Formato.CSV
+                    ? csvLine(linha.values().stream().map(v -> v != null ? v.toString() : "").toList())
+                    : ndjsonLine(linha));
+        }
+        return lote.size();
+    }
+
+    private List<Document> pipeline(String examId) {
+        Document resultado = new Document("$lookup", new Document("from",
+                mongoTemplate.getCollectionName(CorrectionResult.class))
+                .append("let", new Document("submissionId", new Document("$toString", "$_id")))
+                .append("pipeline", List.of(
+                        new Document("$match", new Document("$expr",
+                                new Document("$eq", List.of("$submissionId", "$$submissionId")))),
+                        new Document("$project", new Document("acertos", 1).append("erros", 1)
+                                .append("mapaCorrecao", 1))))
+                .append("as", "resultado"));
+
+        return List.of(
+                new Document("$match", new Document("examId", examId)),
+                new Document("$project", new Document("alunoId", 1).append("alunoNome", 1).append("corrigida", 1)
+                        .append("nota", 1).append("dataEnvio", 1)),
+                resultado,
+                new Document("$project", new Document("alunoId", 1).append("alunoNome", 1).append("corrigida", 1)
+                        .append("nota", 1).append("dataEnvio", 1)
+                        .append("resultado", new Document("$first", "$resultado"))));
+    }
+
+    private static Map<String, Object> row(Document doc, Map<String, String> nomes) {
+        Document resultado = doc.get("resultado", Document.class);
+        String nome = doc.getString("alunoNome") != null ? doc.getString("alunoNome")
+                : nomes.get(doc.getString("alunoId"));
+        Date dataEnvio = doc.getDate("dataEnvio");
+
+        Map<String, Object> linha = new LinkedHashMap<>();
+        linha.put("submissionId", doc.get("_id").toString());
+        linha.put("alunoId", doc.getString("alunoId"));
+        linha.put("alunoNome", nome);
+        linha.put("corrigida", doc.getBoolean("corrigida", false));
+        linha.put("nota", doc.get("nota"));
+        linha.put("acertos", resultado != null ? resultado.get("acertos") : null);
+        linha.put("erros", resultado != null ? resultado.get("erros") : null);
+        linha.put("mapaCorrecao", resultado != null ? resultado.getString("mapaCorrecao") : null);
+        linha.put("dataEnvio", dataEnvio != null ? dataEnvio.toInstant() : null);
+        return linha;
+    }
+
+    private byte[] ndjsonLine(Map<String, Object> linha) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(linha);
+        byte[] bytes = new byte[json.length + 1];
+        System.arraycopy(json, 0, bytes, 0, json.length);
+        bytes[json.length] = '\n';
+        return bytes;
+    }
+
+    /**
+     * Linha CSV (RFC 4180): campos com vírgula, aspas ou quebra de linha vão entre aspas. Campos que uma
+     * planilha interpretaria como fórmula (começando com {@code = + - @}, tab ou CR), como um nome de aluno
+     * malicioso, recebem um apóstrofo na frente.
+     */
+    static byte[] csvLine(List<String> campos) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < campos.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String campo = campos.get(i);
+            if (!campo.isEmpty() && FORMULA.indexOf(campo.charAt(0)) >= 0) {
+                campo = "'" + campo;
+            }
+            if (campo.indexOf(',') >= 0 || campo.indexOf('"') >= 0 || campo.indexOf('\n') >= 0
+                    || campo.indexOf('\r') >= 0) {
+                sb.append('"').append(campo.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(campo);
+            }
+        }
+        return sb.append("\r\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
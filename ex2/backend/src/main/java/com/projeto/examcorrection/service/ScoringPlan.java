@@ -0,0 +1,215 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.Question;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Plano de correção compilado de uma prova. Cada questão recebe um ordinal denso (a ordem de
+ * {@code exam.getQuestions()}), as alternativas são codificadas como inteiros pequenos e a pontuação
+ * fica em um {@code double[]}, de modo que a correção seja um único laço sobre arrays primitivos.
+ * <p>
+ * Instâncias são imutáveis e podem ser compartilhadas entre threads.
+ */
+public final class ScoringPlan {
+
+    /** Resposta ausente (questão em branco). */
+    public static final int BRANCO = -1;
+    /** Resposta que não pertence às alternativas da questão. */
+    public static final int DESCONHECIDA = -2;
+    /** Questão sem alternativa correta no gabarito; nenhuma resposta pontua. */
+    public static final int SEM_GABARITO = -3;
+    /** Questão anulada; todos recebem a pontuação, inclusive quem deixou em branco. */
+    public static final int ANULADA = -4;
+
+    private final String examId;
+    private final Instant versao;
+    private final String[] questionIds;
+    private final Map<String, Integer> ordinais;
+    private final String[][] alternativas;
+    private final int[] gabarito;
+    private final String[] gabaritoTexto;
+    private final double[] pontuacao;
+    private final double pontuacaoMaxima;
+    private final boolean pontuacaoUniforme;
+    private final int palavras;
+    private final long[][] planosGabarito;
+    private final long[] anuladas;
+
+    private ScoringPlan(String examId, Instant versao, String[] questionIds, Map<String, Integer> ordinais,
+            String[][] alternativas, int[] gabarito, String[] gabaritoTexto, double[] pontuacao) {
+        this.examId = examId;
+        this.versao = versao;
+        this.questionIds = questionIds;
+        this.ordinais = ordinais;
+        this.alternativas = alternativas;
+        this.gabarito = gabarito;
+        this.gabaritoTexto = gabaritoTexto;
+        this.pontuacao = pontuacao;
+        boolean uniforme = true;
+        int maxAlternativas = 0;
+        for (int i = 0; i < pontuacao.length; i++) {
+            uniforme &= pontuacao[i] == pontuacao[0];
+            maxAlternativas = Math.max(maxAlternativas, alternativas[i].length);
+        }
+        // Mesma soma compensada de exam.getQuestions().stream().mapToDouble(...).sum(), usada nos relatórios
+        this.pontuacaoMaxima = Arrays.stream(pontuacao).sum();
+        this.pontuacaoUniforme = uniforme;
+        this.palavras = (questionIds.length + 63) >>> 6;
+
+        // Um plano de bits por alternativa: bit i ligado se a alternativa correta da questão i é a alternativa a
+        this.planosGabarito = new long[maxAlternativas][palavras];
+        this.anuladas = new long[palavras];
+        for (int i = 0; i < gabarito.length; i++) {
+            if (gabarito[i] >= 0) {
+                planosGabarito[gabarito[i]][i >>> 6] |= 1L << i;
+            } else if (gabarito[i] == ANULADA) {
+                anuladas[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Compila o plano a partir das questões da prova e do gabarito. Uma alternativa do gabarito que não
+     * esteja entre as alternativas da questão é incluída no dicionário, preservando a comparação textual
+     * feita pela correção original.
+     */
+    public static ScoringPlan compile(String examId, Instant versao, List<Question> questions,
+            Map<String, String> respostasGabarito) {
+        return compile(examId, versao, questions, respostasGabarito, Set.of());
+    }
+
+    public static ScoringPlan compile(String examId, Instant versao, List<Question> questions,
+            Map<String, String> respostasGabarito, Collection<String> questoesAnuladas) {
+        int n = questions.size();
+        String[] questionIds = new String[n];
+        Map<String, Integer> ordinais = new HashMap<>(n * 2);
+        String[][] alternativas = new String[n][];
+        int[] gabarito = new int[n];
+        String[] gabaritoTexto = new String[n];
+        double[] pontuacao = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Question q = questions.get(i);
+            questionIds[i] = q.getId();
+            ordinais.put(q.getId(), i);
+            pontuacao[i] = q.getPontuacao();
+
+            String esperada = respostasGabarito.get(q.getId());
+            gabaritoTexto[i] = esperada;
+
+            List<String> alts = q.getAlternativas() != null ? q.getAlternativas() : List.of();
+            int idx = esperada != null ? alts.indexOf(esperada) : -1;
+            if (esperada != null && idx < 0) {
+                String[] ampliadas = alts.toArray(new String[alts.size() + 1]);
+                ampliadas[alts.size()] = esperada;
+                alternativas[i] = ampliadas;
+                idx = alts.size();
+            } else {
+                alternativas[i] = alts.toArray(new String[0]);
+            }
+            if (questoesAnuladas.contains(q.getId())) {
+                gabarito[i] = ANULADA;
+            } else {
+                gabarito[i] = esperada != null ? idx : SEM_GABARITO;
+            }
+        }
+        return new ScoringPlan(examId, versao, questionIds, Collections.unmodifiableMap(ordinais), alternativas, gabarito,
+                gabaritoTexto, pontuacao);
+    }
+
+    public String getExamId() {
+        return examId;
+    }
+
+    public Instant getVersao() {
+        return versao;
+    }
+
+    public boolean isVersao(Instant versaoGabarito) {
+        return Objects.equals(versao, versaoGabarito);
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public String questionId(int ordinal) {
+        return questionIds[ordinal];
+    }
+
+    /** Ordinal da questão, ou -1 se a questão não pertence à prova. */
+    public int ordinal(String questionId) {
+        Integer ordinal = ordinais.get(questionId);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    public int gabarito(int ordinal) {
+        return gabarito[ordinal];
+    }
+
+    public String gabaritoTexto(int ordinal) {
+        return gabaritoTexto[ordinal];
+    }
+
+    public double pontuacao(int ordinal) {
+        return pontuacao[ordinal];
+    }
+
+    public double getPontuacaoMaxima() {
+        return pontuacaoMaxima;
+    }
+
+    public int alternativas(int ordinal) {
+        return alternativas[ordinal].length;
+    }
+
+    /** Texto da alternativa {@code alternativa} da questão. */
+    public String alternativa(int ordinal, int alternativa) {
+        return alternativas[ordinal][alternativa];
+    }
+
+    /** Verdadeiro quando todas as questões valem o mesmo, permitindo nota = acertos × pontuação. */
+    public boolean isPontuacaoUniforme() {
+        return pontuacaoUniforme;
+    }
+
+    /** Quantidade de {@code long} necessária para um vetor de bits com uma posição por questão. */
+    public int palavras() {
+        return palavras;
+    }
+
+    public int maxAlternativas() {
+        return planosGabarito.length;
+    }
+
+    long[] planoGabarito(int alternativa) {
+        return planosGabarito[alternativa];
+    }
+
+    long[] anuladas() {
+        return anuladas;
+    }
+
+    /** Codifica a resposta textual da questão no índice da alternativa. */
+    public int encode(int ordinal, String resposta) {
+        if (resposta == null) {
+            return BRANCO;
+        }
+        String[] alts = alternativas[ordinal];
+        for (int a = 0; a < alts.length; a++) {
+            if (alts[a].equals(resposta)) {
+                return a;
+            }
+        }
+        return DESCONHECIDA;
+    }
+}
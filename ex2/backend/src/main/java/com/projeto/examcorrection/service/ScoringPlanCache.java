@@ -0,0 +1,38 @@
+package com.projeto.examcorrection.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.projeto.examcorrection.domain.AnswerKey;
+import com.projeto.examcorrection.domain.Exam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache de {@link ScoringPlan} por prova. O plano guardado só é reaproveitado enquanto a versão do
+ * gabarito ({@code AnswerKey.dataAtualizacao}) for a mesma com que foi compilado.
+ */
+@Component
+public class ScoringPlanCache {
+
+    private final Cache<String, ScoringPlan> plans;
+
+    public ScoringPlanCache(@Value("${app.correction.plan-cache-size}") int maximumSize) {
+        this.plans = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    public ScoringPlan get(Exam exam, AnswerKey answerKey) {
+        ScoringPlan plan = plans.getIfPresent(exam.getId());
+        if (plan != null && plan.isVersao(answerKey.getDataAtualizacao())) {
+            return plan;
+        }
+        plan = ScoringPlan.compile(exam.getId(), answerKey.getDataAtualizacao(), exam.getQuestions(),
+                answerKey.getRespostas(), answerKey.getQuestoesAnuladas());
+        plans.put(exam.getId(), plan);
+        return plan;
+    }
+
+    /** Descarta o plano de uma prova cujas questões foram alteradas. */
+    public void invalidate(String examId) {
+        plans.invalidate(examId);
+    }
+}
@@ -0,0 +1,79 @@
+package com.projeto.examcorrection.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.projeto.examcorrection.domain.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nomes de exibição dos alunos para os casos em que a submissão ainda não traz {@code alunoNome}. As
+ * ausências no cache são buscadas juntas, num único {@code find} com {@code $in} que lê só nome e email.
+ * Alunos que não existem mais ficam com o próprio ID. O TTL limita a defasagem entre instâncias, que só
+ * enxergam as próprias invalidações; por isso o nome gravado numa submissão nova vem de
+ * {@link #nomeAtual}, e não do cache.
+ */
+@Component
+public class StudentNameCache {
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, String> nomes;
+
+    public StudentNameCache(MongoTemplate mongoTemplate,
+            @Value("${app.student-names.cache-size}") long cacheSize,
+            @Value("${app.student-names.cache-ttl-seconds}") long cacheTtlSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.nomes = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    public String nome(String alunoId) {
+        return nomes(List.of(alunoId)).get(alunoId);
+    }
+
+    /**
+     * Nome lido do usuário, sem passar pelo cache, para ser gravado na submissão: um nome defasado gravado
+     * depois que o {@code StudentNamePropagator} já limpou a pendência do aluno não seria mais corrigido.
+     */
+    public String nomeAtual(String alunoId) {
+        String nome = load(Set.of(alunoId)).get(alunoId);
+        nomes.put(alunoId, nome);
+        return nome;
+    }
+
+    public Map<String, String> nomes(Collection<String> alunoIds) {
+        return nomes.getAll(alunoIds, this::load);
+    }
+
+    public void invalidate(String alunoId) {
+        nomes.invalidate(alunoId);
+    }
+
+    private Map<String, String> load(Set<? extends String> alunoIds) {
+        Query query = Query.query(Criteria.where("_id").in(alunoIds));
+        query.fields().include("nome").include("email");
+        Map<String, String> encontrados = new HashMap<>(alunoIds.size() * 2);
+        for (String alunoId : alunoIds) {
+            encontrados.put(alunoId, alunoId);
+        }
+        for (User user : mongoTemplate.find(query, User.class)) {
+            String nome = user.nomeExibicao();
+            if (nome != null) {
+                encontrados.put(user.getId(), nome);
+            }
+        }
+        return encontrados;
+    }
+}
@@ -0,0 +1,53 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.domain.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Propaga às submissões o nome de exibição dos alunos que o alteraram. A pendência fica no próprio
+ * usuário ({@code nomeAlteradoEm}), então sobrevive a reinícios e qualquer instância pode processá-la.
+ * A marca só é limpa se o usuário não mudou durante a propagação; caso contrário o próximo ciclo
+ * propaga de novo, com o nome mais recente.
+ */
+@Component
+public class StudentNamePropagator {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentNamePropagator.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    private final MongoTemplate mongoTemplate;
+
+    public StudentNamePropagator(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${app.student-names.propagation-interval-ms}")
+    public void propagate() {
+        Query pendentes = Query.query(Criteria.where("nomeAlteradoEm").exists(true)).limit(BATCH_SIZE);
+        pendentes.fields().include("nome").include("email").include("nomeAlteradoEm");
+        List<User> users = mongoTemplate.find(pendentes, User.class);
+        for (User user : users) {
+            long atualizadas = mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("alunoId").is(user.getId())),
+                    new Update().set("alunoNome", user.nomeExibicao()),
+                    Submission.class).getModifiedCount();
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(user.getId())
+                            .and("nomeAlteradoEm").is(user.getNomeAlteradoEm())),
+                    new Update().unset("nomeAlteradoEm"),
+                    User.class);
+            log.info("Student name propagated: aluno={}, submissoes={}", user.getId(), atualizadas);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.projeto.examcorrection.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.projeto.examcorrection.domain.SubmissionReceipt;
+import com.projeto.examcorrection.dto.SubmissionReceiptResponse;
+import com.projeto.examcorrection.dto.SubmissionResponse;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.error.ConflictException;
+import com.projeto.examcorrection.error.ResourceNotFoundException;
+import com.projeto.examcorrection.error.ServiceOverloadedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Admissão de submissões nos picos de fim de prazo. A requisição já chega com o instante de recebimento
+ * carimbado (ver {@code RequestArrivalFilter}) e entra numa fila limitada por prova, drenada pelo pool
+ * {@code submissionAdmissionExecutor} no ritmo que o banco sustenta. O prazo é conferido contra o
+ * recibo, então quem enviou a tempo não é recusado por ter esperado na fila.
+ * <p>
+ * A requisição espera até {@code wait-ms} pelo processamento; se a fila estiver funda e o envio não
+ * terminar nesse tempo, recebe o recibo (202) e acompanha o resultado por ele. Acima de
+ * {@code max-queue-per-exam} envios pendentes a prova recusa novos com 503 e {@code Retry-After}.
+ * <p>
+ * Os recibos ficam em memória na instância que os emitiu. Os que chegam ao cliente (202) também são
+ * gravados em {@code submission_receipts} e atualizados na conclusão, para que a consulta funcione em
+ * qualquer instância. O recibo só é gravado quando a espera estoura, então o envio rápido não paga
+ * essa escrita.
+ */
+@Service
+public class SubmissionAdmission {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionAdmission.class);
+
+    public enum StatusRecibo {
+        PENDENTE, ACEITA, RECUSADA
+    }
+
+    /** Resultado da admissão: a submissão, se processada dentro da espera, ou o recibo pendente. */
+    public record Admissao(SubmissionResponse submissao, SubmissionReceiptResponse recibo) {
+    }
+
+    private static final class Recibo {
+        final String id;
+        final String examId;
+        final String alunoId;
+        final Instant recebidaEm;
+        volatile StatusRecibo status = StatusRecibo.PENDENTE;
+        volatile String submissionId;
+        volatile String code;
+        volatile String message;
+        /** Entregue ao cliente e gravado no banco; a conclusão passa a atualizar o documento. */
+        volatile boolean persistido;
+
+        Recibo(String examId, String alunoId, Instant recebidaEm) {
+            this.id = UUID.randomUUID().toString();
+            this.examId = examId;
+            this.alunoId = alunoId;
+            this.recebidaEm = recebidaEm;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final MongoTemplate mongoTemplate;
+    private final int maxQueuePerExam;
+    private final long waitMs;
+    private final long retryAfterSeconds;
+    private final Duration receiptTtl;
+    /** Envios admitidos e ainda não concluídos, por prova. */
+    private final Map<String, AtomicInteger> filas = new ConcurrentHashMap<>();
+    private final Cache<String, Recibo> recibos;
+
+    public SubmissionAdmission(@Qualifier("submissionAdmissionExecutor") ExecutorService executor,
+            MongoTemplate mongoTemplate,
+            @Value("${app.submission.admission.max-queue-per-exam}") int maxQueuePerExam,
+            @Value("${app.submission.admission.wait-ms}") long waitMs,
+            @Value("${app.submission.admission.retry-after-seconds}") long retryAfterSeconds,
+            @Value("${app.submission.admission.receipt-ttl-seconds}") long receiptTtlSeconds) {
+        this.executor = executor;
+        this.mongoTemplate = mongoTemplate;
+        this.maxQueuePerExam = maxQueuePerExam;
+        this.waitMs = waitMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.receiptTtl = Duration.ofSeconds(receiptTtlSeconds);
+        this.recibos = Caffeine.newBuilder()
+                .expireAfterWrite(receiptTtl)
+                .build();
+    }
+
+    /**
+     * Enfileira o envio e espera o processamento por até {@code wait-ms}. Erros do envio concluído dentro
+     * da espera são relançados como vieram, para manter os códigos de resposta do envio direto.
+     */
+    public Admissao admit(String examId, String alunoId, Instant recebidaEm, Supplier<SubmissionResponse> envio) {
+        AtomicInteger fila = filas.computeIfAbsent(examId, id -> new AtomicInteger());
+        if (fila.incrementAndGet() > maxQueuePerExam) {
+            fila.decrementAndGet();
+            log.warn("Submission admission queue full: exam={}, limite={}", examId, maxQueuePerExam);
+            throw new ServiceOverloadedException("SUBMISSION_QUEUE_FULL",
+                    "Muitos envios para esta prova no momento. Tente novamente em instantes.", retryAfterSeconds);
+        }
+
+        Recibo recibo = new Recibo(examId, alunoId, recebidaEm);
+        recibos.put(recibo.id, recibo);
+        CompletableFuture<SubmissionResponse> resultado;
+        try {
+            resultado = CompletableFuture.supplyAsync(envio, executor);
+        } catch (RejectedExecutionException e) {
+            fila.decrementAndGet();
+            recibos.invalidate(recibo.id);
+            throw new ServiceOverloadedException("SUBMISSION_QUEUE_FULL",
+                    "O serviço de envio está indisponível no momento. Tente novamente em instantes.",
+                    retryAfterSeconds);
+        }
+        resultado.whenComplete((response, erro) -> {
+            fila.decrementAndGet();
+            conclude(recibo, response, erro);
+        });
+
+        try {
+            return new Admissao(resultado.get(waitMs, TimeUnit.MILLISECONDS), null);
+        } catch (TimeoutException e) {
+            log.info("Submission queued: recibo={}, exam={}, aluno={}, fila={}", recibo.id, examId, alunoId,
+                    fila.get());
+            persist(recibo);
+            return new Admissao(null, toResponse(recibo));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            // O envio continua na fila; o aluno acompanha pelo recibo
+            Thread.currentThread().interrupt();
+            persist(recibo);
+            return new Admissao(null, toResponse(recibo));
+        }
+    }
+
+    /** Recibo em memória, se emitido nesta instância; senão, o gravado por outra. */
+    public SubmissionReceiptResponse findReceipt(String id, String alunoId) {
+        Recibo recibo = recibos.getIfPresent(id);
+        if (recibo != null && recibo.alunoId.equals(alunoId)) {
+            return toResponse(recibo);
+        }
+        SubmissionReceipt gravado = recibo == null ? mongoTemplate.findById(id, SubmissionReceipt.class) : null;
+        if (gravado == null || !gravado.getAlunoId().equals(alunoId)) {
+            throw new ResourceNotFoundException("SUBMISSION_RECEIPT_NOT_FOUND", "Recibo de envio não encontrado.");
+        }
+        return new SubmissionReceiptResponse(gravado.getId(), gravado.getExamId(), gravado.getStatus(),
+                gravado.getRecebidaEm(), gravado.getSubmissionId(), gravado.getCode(), gravado.getMessage());
+    }
+
+    int pending(String examId) {
+        AtomicInteger fila = filas.get(examId);
+        return fila != null ? fila.get() : 0;
+    }
+
+    /**
+     * Grava o recibo entregue ao cliente. A marca vem antes da leitura do status e a conclusão escreve o
+     * status antes de conferir a marca: ou a conclusão vê a marca e atualiza o documento, ou este insert
+     * já leva o status final. Se a atualização chegar primeiro, o insert esbarra na chave e é ignorado.
+     */
+    private void persist(Recibo recibo) {
+        recibo.persistido = true;
+        try {
+            mongoTemplate.insert(toDocument(recibo));
+        } catch (DuplicateKeyException e) {
+            // A conclusão já gravou o recibo com o status final
+        } catch (RuntimeException e) {
+            log.warn("Submission receipt not persisted, only this instance can resolve it: recibo={}",
+                    recibo.id, e);
+        }
+    }
+
+    private void conclude(Recibo recibo, SubmissionResponse response, Throwable erro) {
+        if (erro == null) {
+            recibo.submissionId = response.id();
+            recibo.status = StatusRecibo.ACEITA;
+        } else {
+            reject(recibo, erro);
+        }
+        if (recibo.persistido) {
+            try {
+                mongoTemplate.save(toDocument(recibo));
+            } catch (RuntimeException e) {
+                log.warn("Submission receipt update failed: recibo={}, status={}", recibo.id, recibo.status, e);
+            }
+        }
+    }
+
+    private static void reject(Recibo recibo, Throwable erro) {
+        Throwable cause = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+        recibo.code = switch (cause) {
+            case BusinessRuleException e -> e.getCode();
+            case ConflictException e -> e.getCode();
+            case ResourceNotFoundException e -> e.getCode();
+            case ServiceOverloadedException e -> e.getCode();
+            default -> "INTERNAL_ERROR";
+        };
+        recibo.message = recibo.code.equals("INTERNAL_ERROR") ? "Erro interno do servidor." : cause.getMessage();
+        recibo.status = StatusRecibo.RECUSADA;
+        if (recibo.code.equals("INTERNAL_ERROR")) {
+            log.error("Queued submission failed: recibo={}, exam={}", recibo.id, recibo.examId, cause);
+        }
+    }
+
+    private SubmissionReceipt toDocument(Recibo recibo) {
+        SubmissionReceipt doc = new SubmissionReceipt();
+        // O status é lido primeiro: a escrita volátil dele publica os demais campos da conclusão
+        doc.setStatus(recibo.status.name());
+        doc.setId(recibo.id);
+        doc.setExamId(recibo.examId);
+        doc.setAlunoId(recibo.alunoId);
+        doc.setRecebidaEm(recibo.recebidaEm);
+        doc.setSubmissionId(recibo.submissionId);
+        doc.setCode(recibo.code);
+        doc.setMessage(recibo.message);
+        doc.setExpiraEm(Instant.now().plus(receiptTtl));
+        return doc;
+    }
+
+    private static SubmissionReceiptResponse toResponse(Recibo recibo) {
+        return new SubmissionReceiptResponse(recibo.id, recibo.examId, recibo.status.name(), recibo.recebidaEm,
+                recibo.submissionId, recibo.code, recibo.message);
+    }
+}
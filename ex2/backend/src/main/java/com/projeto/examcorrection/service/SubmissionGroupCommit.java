@@ -0,0 +1,198 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.error.ConflictException;
+import com.projeto.examcorrection.error.ServiceOverloadedException;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Inserção de submissões em grupo, para os picos de envio no fim do prazo. As requisições entregam a
+ * submissão já validada a uma fila e esperam; uma única thread junta o que chegou em até
+ * {@code max-delay-ms} (ou {@code max-batch} documentos) e grava tudo em um {@code insertMany} não
+ * ordenado. Cada requisição é liberada quando o lote é confirmado.
+ * <p>
+ * Duplicatas ficam a cargo do índice único {@code exam_aluno_unique}: o erro de chave duplicada de um
+ * documento vira {@link ConflictException} só para a requisição dele, sem afetar o resto do lote.
+ * <p>
+ * A espera é limitada a {@code timeout-ms}. Depois do início do encerramento, ou se a thread de gravação
+ * tiver morrido, novas submissões são recusadas com {@link ServiceOverloadedException} em vez de ficarem
+ * presas numa fila que ninguém mais consome.
+ */
+@Component
+public class SubmissionGroupCommit {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionGroupCommit.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private record Pendente(Submission submission, CompletableFuture<Submission> resultado) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final long timeoutMs;
+    private final BlockingQueue<Pendente> fila = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean ativo = true;
+
+    public SubmissionGroupCommit(MongoTemplate mongoTemplate,
+            @Value("${app.submission.group-commit.enabled}") boolean enabled,
+            @Value("${app.submission.group-commit.max-batch}") int maxBatch,
+            @Value("${app.submission.group-commit.max-delay-ms}") long maxDelayMs,
+            @Value("${app.submission.group-commit.timeout-ms}") long timeoutMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.timeoutMs = timeoutMs;
+        this.flusher = new Thread(this::run, "submission-group-commit");
+        this.flusher.setDaemon(true);
+        if (enabled) {
+            flusher.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enfileira a submissão e espera a gravação do lote. O ID é gerado aqui, para que cada requisição
+     * receba o seu sem depender do retorno do {@code insertMany}.
+     */
+    public Submission insert(Submission submission) {
+        if (!ativo || !flusher.isAlive()) {
+            throw indisponivel();
+        }
+        submission.setId(new ObjectId().toHexString());
+        Pendente pendente = new Pendente(submission, new CompletableFuture<>());
+        fila.add(pendente);
+        try {
+            return pendente.resultado().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Falha ao gravar a submissão.", e.getCause());
+        } catch (TimeoutException e) {
+            // Fora da fila, não será mais gravada; já no lote em gravação, o resultado fica incerto e a
+            // nova tentativa do cliente esbarra no índice único se ela tiver sido gravada
+            log.warn("Submission group commit timed out: aluno={}, naFila={}", submission.getAlunoId(),
+                    fila.contains(pendente));
+            fila.remove(pendente);
+            throw indisponivel();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fila.remove(pendente);
+            throw indisponivel();
+        }
+    }
+
+    private ServiceOverloadedException indisponivel() {
+        return new ServiceOverloadedException("SUBMISSION_WRITER_UNAVAILABLE",
+                "Não foi possível gravar a submissão agora. Tente novamente em instantes.",
+                Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs)));
+    }
+
+    private void run() {
+        try {
+            loop();
+        } finally {
+            // Saída anormal (Error ou interrupção): quem ainda está na fila não espera o timeout
+            ativo = false;
+            for (Pendente p; (p = fila.poll()) != null; ) {
+                p.resultado().completeExceptionally(indisponivel());
+            }
+        }
+    }
+
+    private void loop() {
+        List<Pendente> lote = new ArrayList<>(maxBatch);
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeira = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeira == null) {
+                    continue;
+                }
+                lote.add(primeira);
+                long limite = System.nanoTime() + maxDelayNanos;
+                while (lote.size() < maxBatch) {
+                    Pendente proxima = fila.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (proxima == null) {
+                        break;
+                    }
+                    lote.add(proxima);
+                }
+                flush(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ativo = false;
+            } catch (RuntimeException e) {
+                log.error("Submission group commit failed: lote={}", lote.size(), e);
+                lote.forEach(p -> p.resultado().completeExceptionally(e));
+            } catch (Error e) {
+                ativo = false;
+                log.error("Submission group commit thread died: lote={}", lote.size(), e);
+                lote.forEach(p -> p.resultado().completeExceptionally(e));
+                throw e;
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    void flush(List<Pendente> lote) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Submission.class);
+        bulk.insert(lote.stream().map(Pendente::submission).toList());
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            boolean[] falhou = new boolean[lote.size()];
+            for (BulkWriteError erro : e.getErrors()) {
+                falhou[erro.getIndex()] = true;
+                lote.get(erro.getIndex()).resultado().completeExceptionally(erro.getCode() == DUPLICATE_KEY
+                        ? new ConflictException("SUBMISSION_ALREADY_EXISTS",
+                                "Você já enviou uma submissão para esta prova.")
+                        : new IllegalStateException("Falha ao gravar a submissão: " + erro.getMessage()));
+            }
+            for (int i = 0; i < lote.size(); i++) {
+                if (!falhou[i]) {
+                    lote.get(i).resultado().complete(lote.get(i).submission());
+                }
+            }
+            log.info("Submission batch written with errors: lote={}, erros={}", lote.size(), e.getErrors().size());
+            return;
+        }
+        lote.forEach(p -> p.resultado().complete(p.submission()));
+        log.debug("Submission batch written: lote={}", lote.size());
+    }
+
+    /** Grava o que ainda estiver na fila antes de encerrar. */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ativo = false;
+        if (enabled) {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.error.BusinessRuleException;
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Parâmetros da listagem paginada de submissões. A página seguinte começa depois do par
+ * {@code (dataEnvio, _id)} da última submissão devolvida, codificado no cursor opaco; assim cada página
+ * é uma leitura de índice a partir da chave, sem {@code skip}.
+ * <p>
+ * Filtrar por faixa de nota implica {@code corrigida = true}, pois só submissões corrigidas têm nota; com
+ * isso o filtro usa a igualdade do índice {@code exam_corrigida_envio}.
+ */
+public record SubmissionListQuery(
+        Instant aposDataEnvio,
+        String aposId,
+        int limit,
+        Boolean corrigida,
+        Double notaMin,
+        Double notaMax,
+        boolean decrescente,
+        boolean incluirRespostas) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    public static SubmissionListQuery of(String cursor, Integer limit, Boolean corrigida, Double notaMin,
+            Double notaMax, String ordem, boolean incluirRespostas) {
+        int tamanho = limit != null ? limit : DEFAULT_LIMIT;
+        if (tamanho < 1 || tamanho > MAX_LIMIT) {
+            throw invalid("INVALID_PAGE_SIZE", "O tamanho da página deve estar entre 1 e " + MAX_LIMIT + ".");
+        }
+        if (notaMin != null && notaMax != null && notaMin > notaMax) {
+            throw invalid("INVALID_GRADE_RANGE", "A nota mínima não pode ser maior que a máxima.");
+        }
+        boolean decrescente;
+        if (ordem == null || ordem.equalsIgnoreCase("asc")) {
+            decrescente = false;
+        } else if (ordem.equalsIgnoreCase("desc")) {
+            decrescente = true;
+        } else {
+            throw invalid("INVALID_SORT_ORDER", "Ordem inválida: " + ordem);
+        }
+        if ((notaMin != null || notaMax != null) && corrigida == null) {
+            corrigida = true;
+        }
+
+        Instant aposDataEnvio = null;
+        String aposId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String chave = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separador = chave.indexOf(':');
+                aposDataEnvio = Instant.ofEpochMilli(Long.parseLong(chave.substring(0, separador)));
+                aposId = chave.substring(separador + 1);
+                if (!ObjectId.isValid(aposId)) {
+                    throw new IllegalArgumentException(aposId);
+                }
+            } catch (RuntimeException e) {
+                throw invalid("INVALID_CURSOR", "Cursor de paginação inválido.");
+            }
+        }
+        return new SubmissionListQuery(aposDataEnvio, aposId, tamanho, corrigida, notaMin, notaMax, decrescente,
+                incluirRespostas);
+    }
+
+    /** Cursor que continua a listagem depois da submissão informada. */
+    public static String cursor(Instant dataEnvio, String id) {
+        String chave = dataEnvio.toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(chave.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BusinessRuleException invalid(String code, String message) {
+        return new BusinessRuleException(code, message, HttpStatus.BAD_REQUEST);
+    }
+}
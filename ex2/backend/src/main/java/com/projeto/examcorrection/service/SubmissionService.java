@@ -3,66 +3,175 @@ package com.projeto.examcorrection.service;
 import com.projeto.examcorrection.domain.*;
 import com.projeto.examcorrection.dto.SubmissionRequest;
 import com.projeto.examcorrection.dto.SubmissionResponse;
-import com.projeto.examcorrection.error.BusinessRuleException;
 import com.projeto.examcorrection.error.ConflictException;
 import com.projeto.examcorrection.error.ResourceNotFoundException;
 import com.projeto.examcorrection.repository.SubmissionRepository;
-import com.projeto.examcorrection.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatus;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.query.Criteria;
 
 @Service
 public class SubmissionService {
 
     private static final Logger log = LoggerFactory.getLogger(SubmissionService.class);
 
+    private static final int LIST_BATCH_SIZE = 200;
+
     private final SubmissionRepository submissionRepository;
     private final ExamService examService;
-    private final UserRepository userRepository;
+    private final StudentNameCache studentNameCache;
     private final MongoTemplate mongoTemplate;
+    private final CorrectionService correctionService;
+    private final DashboardService dashboardService;
+    private final SubmissionGroupCommit groupCommit;
+    private final DraftService draftService;
+    private final ObjectMapper objectMapper;
 
     public SubmissionService(SubmissionRepository submissionRepository,
             ExamService examService,
-            UserRepository userRepository,
-            MongoTemplate mongoTemplate) {
+            StudentNameCache studentNameCache,
+            MongoTemplate mongoTemplate,
+            CorrectionService correctionService,
+            DashboardService dashboardService,
+            SubmissionGroupCommit groupCommit,
+            DraftService draftService,
+            ObjectMapper objectMapper) {
         this.submissionRepository = submissionRepository;
         this.examService = examService;
-        this.userRepository = userRepository;
+        this.studentNameCache = studentNameCache;
         this.mongoTemplate = mongoTemplate;
+        this.correctionService = correctionService;
+        this.dashboardService = dashboardService;
+        this.groupCommit = groupCommit;
+        this.draftService = draftService;
+        this.objectMapper = objectMapper;
     }
 
-    public List<SubmissionResponse> findByExamId(String examId, String userId, String roleAuthority) {
-        Criteria criteria = Criteria.where("examId").is(examId);
-        if ("ROLE_ALUNO".equals(roleAuthority)) {
-            criteria.and("alunoId").is(userId);
+    /**
+     * Escreve uma página da listagem em {@code out} como {@code {"items": [...], "nextCursor": "..."}},
+     * lendo por cursor e serializando em lotes do tamanho do lote do cursor. Alunos só enxergam a própria
+     * submissão. {@code respostas} só é incluído quando pedido; o nome do aluno vem da própria submissão.
+     */
+    public void writePage(String examId, String userId, String roleAuthority, SubmissionListQuery consulta,
+            OutputStream out) throws IOException {
+        String alunoId = "ROLE_ALUNO".equals(roleAuthority) ? userId : null;
+        int loteMaximo = Math.min(consulta.limit() + 1, LIST_BATCH_SIZE);
+
+        int itens = 0;
+        Submission ultima = null;
+        boolean haMais = false;
+        List<Submission> lote = new ArrayList<>(loteMaximo);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+                MongoCursor<Document> cursor = mongoTemplate.getCollection(
+                                mongoTemplate.getCollectionName(Submission.class))
+                        .find(filter(examId, alunoId, consulta))
+                        .sort(sort(consulta))
+                        .limit(consulta.limit() + 1)
+                        .projection(projection(consulta))
+                        .batchSize(loteMaximo)
+                        .cursor()) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeArrayFieldStart("items");
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                if (itens == consulta.limit()) {
+                    haMais = true;
+                    break;
+                }
+                ultima = mongoTemplate.getConverter().read(Submission.class, doc);
+                lote.add(ultima);
+                itens++;
+                if (lote.size() == loteMaximo) {
+                    writeItems(json, lote);
+                }
+            }
+            writeItems(json, lote);
+            json.writeEndArray();
+            if (haMais) {
+                json.writeStringField("nextCursor", SubmissionListQuery.cursor(ultima.getDataEnvio(), ultima.getId()));
+            }
+            json.writeEndObject();
         }
+        log.debug("Submissions listed: exam={}, itens={}, haMais={}", examId, itens, haMais);
+    }
 
-        Aggregation agg = Aggregation.newAggregation(
-                Aggregation.match(criteria),
-                Aggregation.lookup("users", "alunoId", "_id", "studentInfo"),
-                Aggregation.unwind("studentInfo", true),
-                Aggregation.project("id", "examId", "alunoId", "respostas", "nota", "corrigida", "dataEnvio")
-                        .andExpression("ifNull($studentInfo.nome, ifNull($studentInfo.email, 'UNKNOWN'))")
-                        .as("alunoNome")
-        );
+    /** Escreve e esvazia o lote; nomes ausentes (submissões anteriores ao campo) são buscados juntos. */
+    private void writeItems(JsonGenerator json, List<Submission> lote) throws IOException {
+        List<String> semNome = lote.stream()
+                .filter(sub -> sub.getAlunoNome() == null)
+                .map(Submission::getAlunoId)
+                .distinct()
+                .toList();
+        Map<String, String> nomes = semNome.isEmpty() ? Map.of() : studentNameCache.nomes(semNome);
+        for (Submission sub : lote) {
+            objectMapper.writeValue(json, toResponse(sub, sub.getAlunoNome() != null
+                    ? sub.getAlunoNome() : nomes.get(sub.getAlunoId())));
+        }
+        lote.clear();
+    }
 
-        return mongoTemplate.aggregate(agg, "submissions", SubmissionResponse.class).getMappedResults();
+    static Document filter(String examId, String alunoId, SubmissionListQuery consulta) {
+        Document filtro = new Document("examId", examId);
+        if (alunoId != null) {
+            filtro.append("alunoId", alunoId);
+        }
+        if (consulta.corrigida() != null) {
+            filtro.append("corrigida", consulta.corrigida());
+        }
+        if (consulta.notaMin() != null || consulta.notaMax() != null) {
+            Document faixa = new Document();
+            if (consulta.notaMin() != null) {
+                faixa.append("$gte", consulta.notaMin());
+            }
+            if (consulta.notaMax() != null) {
+                faixa.append("$lte", consulta.notaMax());
+            }
+            filtro.append("nota", faixa);
+        }
+        if (consulta.aposDataEnvio() != null) {
+            String op = consulta.decrescente() ? "$lt" : "$gt";
+            Date dataEnvio = Date.from(consulta.aposDataEnvio());
+            filtro.append("$or", List.of(
+                    new Document("dataEnvio", new Document(op, dataEnvio)),
+                    new Document("dataEnvio", dataEnvio)
+                            .append("_id", new Document(op, new ObjectId(consulta.aposId())))));
+        }
+        return filtro;
+    }
+
+    private static Document sort(SubmissionListQuery consulta) {
+        int direcao = consulta.decrescente() ? -1 : 1;
+        return new Document("dataEnvio", direcao).append("_id", direcao);
+    }
+
+    private static Document projection(SubmissionListQuery consulta) {
+        Document campos = new Document("examId", 1).append("alunoId", 1).append("alunoNome", 1).append("nota", 1)
+                .append("corrigida", 1).append("dataEnvio", 1);
+        if (consulta.incluirRespostas()) {
+            campos.append("respostas", 1);
+        }
+        return campos;
     }
 
     public SubmissionResponse findResponseById(String id) {
         Submission sub = findById(id);
-        String alunoNome = resolveNome(sub.getAlunoId());
-        return toResponse(sub, alunoNome);
+        return toResponse(sub, alunoNome(sub));
     }
 
     public Submission findById(String id) {
@@ -70,62 +179,62 @@ public class SubmissionService {
                 .orElseThrow(() -> new ResourceNotFoundException("SUBMISSION_NOT_FOUND", "Submissão não encontrada."));
     }
 
-    public SubmissionResponse create(String examId, SubmissionRequest request, String alunoId) {
-        Exam exam = examService.findById(examId);
-
-        if (exam.getStatus() != ExamStatus.PUBLICADA) {
-            throw new BusinessRuleException("EXAM_NOT_PUBLISHED", "A prova não está publicada para submissões.");
-        }
-
-        Instant now = Instant.now();
-        if (exam.getDataInicio() != null && now.isBefore(exam.getDataInicio())) {
-            throw new BusinessRuleException("EXAM_NOT_STARTED", "A prova ainda não está disponível para submissões.");
-        }
-        if (exam.getDataFim() != null && now.isAfter(exam.getDataFim())) {
-            throw new BusinessRuleException("EXAM_EXPIRED", "O prazo para submissões desta prova já encerrou.");
-        }
+    /**
+     * Cria a submissão. {@code recebidaEm} é o instante em que a requisição chegou, e não o do
+     * processamento: é contra ele que o prazo da prova é conferido e ele vira a data de envio.
+     */
+    public SubmissionResponse create(String examId, SubmissionRequest request, String alunoId, Instant recebidaEm) {
+        ExamSnapshot snapshot = examService.snapshotAcceptingAnswers(examId, recebidaEm);
+        Exam exam = snapshot.exam();
 
-        if (submissionRepository.existsByExamIdAndAlunoId(examId, alunoId)) {
-            throw new ConflictException("SUBMISSION_ALREADY_EXISTS", "Você já enviou uma submissão para esta prova.");
+        // Com a gravação em grupo, a duplicata só é detectada pelo índice único, na gravação do lote
+        if (!groupCommit.isEnabled() && submissionRepository.existsByExamIdAndAlunoId(examId, alunoId)) {
+            throw alreadySubmitted();
         }
 
         // Validate alternatives
-        Set<String> questionIds = exam.getQuestions().stream().map(Question::getId).collect(Collectors.toSet());
-        for (var entry : request.respostas().entrySet()) {
-            if (!questionIds.contains(entry.getKey())) {
-                throw new BusinessRuleException("INVALID_QUESTION_ID", "Questão inválida: " + entry.getKey(),
-                        HttpStatus.BAD_REQUEST);
-            }
-            Question q = exam.getQuestions().stream().filter(x -> x.getId().equals(entry.getKey())).findFirst()
-                    .orElse(null);
-            if (q != null && !q.getAlternativas().contains(entry.getValue())) {
-                throw new BusinessRuleException("INVALID_ALTERNATIVE",
-                        "Alternativa inválida para questão " + entry.getKey() + ": " + entry.getValue(),
-                        HttpStatus.BAD_REQUEST);
-            }
-        }
+        request.respostas().forEach(snapshot::validateAnswer);
 
         Submission sub = new Submission();
         sub.setExamId(examId);
         sub.setAlunoId(alunoId);
+        sub.setAlunoNome(studentNameCache.nomeAtual(alunoId));
         sub.setRespostas(request.respostas());
         sub.setCorrigida(false);
-        sub.setDataEnvio(now);
-
-        sub = submissionRepository.save(sub);
+        sub.setDataEnvio(recebidaEm);
+
+        try {
+            if (exam.isCorrecaoAutomatica()) {
+                sub = correctionService.correctOnSubmit(exam, sub);
+            } else {
+                sub = groupCommit.isEnabled() ? groupCommit.insert(sub) : submissionRepository.save(sub);
+                dashboardService.invalidate(exam.getProfessorId());
+            }
+        } catch (DuplicateKeyException e) {
+            // Checagem pulada (gravação em grupo) ou vencida por uma requisição concorrente do mesmo aluno
+            throw alreadySubmitted();
+        }
         log.info("Submission created: id={}, exam={}, aluno={}", sub.getId(), examId, alunoId);
-        return toResponse(sub, resolveNome(alunoId));
+        return toResponse(sub, sub.getAlunoNome());
+    }
+
+    /** Envia o rascunho salvo como submissão, sem reenviar as respostas, e descarta o rascunho. */
+    public SubmissionResponse submitDraft(String examId, String alunoId, Long versao, Instant recebidaEm) {
+        SubmissionResponse response = create(examId,
+                new SubmissionRequest(draftService.take(examId, alunoId, versao)), alunoId, recebidaEm);
+        draftService.delete(examId, alunoId);
+        return response;
     }
 
     // checkAccess removed, replaced by Method Security
 
-    /**
-     * Resolve o nome do aluno pelo ID, com fallback para o email ou o próprio ID.
-     */
-    private String resolveNome(String alunoId) {
-        return userRepository.findById(alunoId)
-                .map(u -> u.getNome() != null && !u.getNome().isBlank() ? u.getNome() : u.getEmail())
-                .orElse(alunoId);
+    private static ConflictException alreadySubmitted() {
+        return new ConflictException("SUBMISSION_ALREADY_EXISTS", "Você já enviou uma submissão para esta prova.");
+    }
+
+    /** Nome gravado na submissão; as anteriores ao campo recorrem ao cache de nomes. */
+    private String alunoNome(Submission sub) {
+        return sub.getAlunoNome() != null ? sub.getAlunoNome() : studentNameCache.nome(sub.getAlunoId());
     }
 
     private SubmissionResponse toResponse(Submission sub, String alunoNome) {
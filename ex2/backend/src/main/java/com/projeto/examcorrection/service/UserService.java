@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class UserService {
@@ -24,12 +25,14 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final StudentNameCache studentNameCache;
 
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
-            JwtTokenProvider jwtTokenProvider) {
+            JwtTokenProvider jwtTokenProvider, StudentNameCache studentNameCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.studentNameCache = studentNameCache;
     }
 
     public AuthResponse register(RegisterRequest request) {
@@ -108,15 +111,21 @@ public class UserService {
         return toResponse(user);
     }
 
+    /** Uma mudança no nome de exibição é propagada às submissões pelo {@link StudentNamePropagator}. */
     public UserResponse update(String id, UserRequest request) {
         User user = findById(id);
+        String nomeAnterior = user.nomeExibicao();
         user.setNome(request.nome());
         user.setEmail(request.email());
+        if (!Objects.equals(nomeAnterior, user.nomeExibicao())) {
+            user.setNomeAlteradoEm(Instant.now());
+        }
         user.setRole(request.role());
         if (request.senha() != null && !request.senha().isBlank()) {
             user.setSenhaHash(passwordEncoder.encode(request.senha()));
         }
         user = userRepository.save(user);
+        studentNameCache.invalidate(id);
         log.info("User updated: id={}", user.getId());
         return toResponse(user);
     }
@@ -0,0 +1,119 @@
+package com.projeto.examcorrection.benchmark;
+
+import com.projeto.examcorrection.domain.CorrectionResult;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.QuestionDetail;
+import com.projeto.examcorrection.domain.QuestionType;
+import com.projeto.examcorrection.service.BitPackedScoring;
+import com.projeto.examcorrection.service.CorrectionCalculator;
+import com.projeto.examcorrection.service.ScoringPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a correção por plano compilado com a implementação anterior, baseada em streams.
+ * Execução: {@code mvn -Pbenchmark test-compile exec:exec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CorrectionCalculatorBenchmark {
+
+    private static final List<String> ALTERNATIVAS = List.of("A", "B", "C", "D", "E");
+
+    @Param({"20", "100"})
+    private int questoes;
+
+    private List<Question> questions;
+    private Map<String, String> gabarito;
+    private Map<String, String> respostas;
+    private ScoringPlan plan;
+    private BitPackedScoring.PackedAnswers empacotadas;
+    private final CorrectionCalculator calculator = new CorrectionCalculator();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        questions = new ArrayList<>();
+        gabarito = new HashMap<>();
+        respostas = new HashMap<>();
+        for (int i = 0; i < questoes; i++) {
+            Question q = new Question();
+            q.setId(UUID.randomUUID().toString());
+            q.setTipo(QuestionType.OBJETIVA);
+            q.setAlternativas(ALTERNATIVAS);
+            q.setPontuacao(1.0);
+            q.setOrdem(i + 1);
+            questions.add(q);
+            gabarito.put(q.getId(), ALTERNATIVAS.get(random.nextInt(ALTERNATIVAS.size())));
+            if (random.nextInt(10) > 0) {
+                respostas.put(q.getId(), ALTERNATIVAS.get(random.nextInt(ALTERNATIVAS.size())));
+            }
+        }
+        plan = ScoringPlan.compile("exam", Instant.EPOCH, questions, gabarito);
+        empacotadas = BitPackedScoring.pack(plan, respostas, null);
+    }
+
+    @Benchmark
+    public CorrectionResult legacyStreams() {
+        return calculateLegacy(gabarito, respostas, questions, "sub");
+    }
+
+    @Benchmark
+    public CorrectionResult compiledPlan() {
+        return calculator.calculate(plan, respostas, "sub");
+    }
+
+    /** Apenas acertos, erros, brancos e nota, sem montar os detalhes por questão. */
+    @Benchmark
+    public BitPackedScoring.PackedScore bitPackedScore() {
+        return BitPackedScoring.score(plan, BitPackedScoring.pack(plan, respostas, null));
+    }
+
+    /** Só a parte de popcount, com a submissão já empacotada (caso de recorreções sobre o mesmo vetor). */
+    @Benchmark
+    public BitPackedScoring.PackedScore bitPackedScorePrepacked() {
+        return BitPackedScoring.score(plan, empacotadas);
+    }
+
+    /** Implementação anterior de {@code CorrectionCalculator.calculate}, mantida como referência. */
+    private static CorrectionResult calculateLegacy(Map<String, String> gabarito, Map<String, String> respostasAluno,
+            List<Question> questions, String submissionId) {
+        List<QuestionDetail> detalhes = questions.stream().map(q -> {
+            boolean correta = false;
+            double pontuacaoObtida = 0.0;
+            String respostaEsperada = gabarito.get(q.getId());
+            String respostaAluno = respostasAluno.get(q.getId());
+
+            if (respostaAluno != null && respostaAluno.equals(respostaEsperada)) {
+                correta = true;
+                pontuacaoObtida = q.getPontuacao();
+            }
+
+            return new QuestionDetail(q.getId(), correta, respostaAluno, respostaEsperada, pontuacaoObtida);
+        }).toList();
+
+        int acertos = (int) detalhes.stream().filter(QuestionDetail::correta).count();
+        int erros = (int) detalhes.stream().filter(d -> !d.correta() && d.respostaAluno() != null).count();
+        double notaFinal = detalhes.stream().mapToDouble(QuestionDetail::pontuacaoObtida).sum();
+
+        CorrectionResult result = new CorrectionResult();
+        result.setSubmissionId(submissionId);
+        result.setAcertos(acertos);
+        result.setErros(erros);
+        result.setNotaFinal(notaFinal);
+        result.setDetalhesPorQuestao(detalhes);
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+package com.projeto.examcorrection.benchmark;
+
+import com.projeto.examcorrection.domain.ItemAnalysis;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.QuestionType;
+import com.projeto.examcorrection.service.ItemAnalysisAccumulator;
+import com.projeto.examcorrection.service.ScoringPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Análise de itens de 50 mil submissões com 100 questões, sem o custo de leitura do banco.
+ * Execução: {@code mvn -Pbenchmark test-compile exec:exec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemAnalysisBenchmark {
+
+    private static final List<String> ALTERNATIVAS = List.of("A", "B", "C", "D", "E");
+
+    @Param({"50000"})
+    private int submissoes;
+
+    @Param({"100"})
+    private int questoes;
+
+    private ScoringPlan plan;
+    private List<Map<String, String>> respostas;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Question> questions = new ArrayList<>();
+        Map<String, String> gabarito = new HashMap<>();
+        for (int i = 0; i < questoes; i++) {
+            Question q = new Question();
+            q.setId(UUID.randomUUID().toString());
+            q.setTipo(QuestionType.OBJETIVA);
+            q.setAlternativas(ALTERNATIVAS);
+            q.setPontuacao(1.0);
+            questions.add(q);
+            gabarito.put(q.getId(), ALTERNATIVAS.get(random.nextInt(ALTERNATIVAS.size())));
+        }
+        plan = ScoringPlan.compile("exam", Instant.EPOCH, questions, gabarito);
+
+        respostas = new ArrayList<>(submissoes);
+        for (int s = 0; s < submissoes; s++) {
+            Map<String, String> r = new HashMap<>();
+            for (Question q : questions) {
+                if (random.nextInt(10) > 0) {
+                    r.put(q.getId(), ALTERNATIVAS.get(random.nextInt(ALTERNATIVAS.size())));
+                }
+            }
+            respostas.add(r);
+        }
+    }
+
+    @Benchmark
+    public List<ItemAnalysis> singlePass() {
+        ItemAnalysisAccumulator acumulador = new ItemAnalysisAccumulator(plan, submissoes);
+        respostas.forEach(acumulador::add);
+        return acumulador.itens();
+    }
+}
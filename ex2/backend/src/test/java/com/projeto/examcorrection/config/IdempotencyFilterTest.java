@@ -0,0 +1,70 @@
+package com.projeto.examcorrection.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projeto.examcorrection.service.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyFilterTest {
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_shouldReplayOriginalResponseAndRejectKeyReuseWithAnotherBody() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("aluno1", null,
+                List.of(new SimpleGrantedAuthority("ROLE_ALUNO"))));
+        IdempotencyStore store = new IdempotencyStore(mock(MongoTemplate.class), false, 100, 60, 60);
+        IdempotencyFilter filter = new IdempotencyFilter(store, new ObjectMapper(), 1_000);
+        AtomicInteger execucoes = new AtomicInteger();
+        FilterChain chain = (req, res) -> {
+            execucoes.incrementAndGet();
+            req.getInputStream().readAllBytes();
+            ((HttpServletResponse) res).setStatus(201);
+            res.setContentType("application/json");
+            res.getOutputStream().write("{\"id\":\"sub1\"}".getBytes(StandardCharsets.UTF_8));
+        };
+
+        MockHttpServletResponse primeira = new MockHttpServletResponse();
+        filter.doFilter(post("{\"respostas\":{}}"), primeira, chain);
+        MockHttpServletResponse repetida = new MockHttpServletResponse();
+        filter.doFilter(post("{\"respostas\":{}}"), repetida, chain);
+        MockHttpServletResponse outroCorpo = new MockHttpServletResponse();
+        filter.doFilter(post("{\"respostas\":{\"q1\":\"A\"}}"), outroCorpo, chain);
+
+        assertEquals(1, execucoes.get());
+        assertEquals(201, primeira.getStatus());
+        assertEquals(201, repetida.getStatus());
+        assertEquals("{\"id\":\"sub1\"}", repetida.getContentAsString());
+        assertEquals("true", repetida.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(422, outroCorpo.getStatus());
+        assertEquals(2, store.getAcertos());
+        assertEquals(1, store.getFalhas());
+    }
+
+    private static MockHttpServletRequest post(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/exams/exam1/submissions");
+        request.setServletPath("/exams/exam1/submissions");
+        request.addHeader(IdempotencyFilter.HEADER, "chave-1");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
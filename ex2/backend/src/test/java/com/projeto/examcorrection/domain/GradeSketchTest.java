@@ -0,0 +1,48 @@
+package com.projeto.examcorrection.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeSketchTest {
+
+    private static final double NOTA_MAXIMA = 37.5;
+
+    @Test
+    void quantile_shouldStayWithinHalfPositionOfExactNearestRank() {
+        Random random = new Random(3);
+        double[] notas = new double[20_000];
+        Map<String, Integer> contagem = new HashMap<>();
+        for (int i = 0; i < notas.length; i++) {
+            notas[i] = Math.min(NOTA_MAXIMA, Math.max(0, NOTA_MAXIMA * (0.6 + random.nextGaussian() * 0.15)));
+            contagem.merge(String.valueOf(GradeSketch.posicao(notas[i], NOTA_MAXIMA)), 1, Integer::sum);
+        }
+        Arrays.sort(notas);
+        GradeSketch sketch = GradeSketch.of(contagem);
+
+        assertEquals(notas.length, sketch.total());
+        for (double q : new double[] {0.0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1.0}) {
+            double exato = notas[(int) Math.max(0, Math.ceil(q * notas.length) - 1)];
+            assertEquals(exato, sketch.quantile(q) * NOTA_MAXIMA, NOTA_MAXIMA / GradeSketch.RESOLUCAO / 2 + 1e-9,
+                    "q=" + q);
+        }
+    }
+
+    @Test
+    void merge_shouldEqualSketchOfCombinedCounts() {
+        GradeSketch a = GradeSketch.of(Map.of("100", 2, "500", 1, "1000", 4));
+        GradeSketch b = GradeSketch.of(Map.of("0", 3, "500", 2, "750", 1));
+
+        GradeSketch merged = a.merge(b);
+
+        assertArrayEquals(new int[] {0, 100, 500, 750, 1000}, merged.getPosicoes());
+        assertArrayEquals(new long[] {3, 2, 3, 1, 4}, merged.getContagens());
+        assertEquals(0.5, merged.quantile(0.5));
+        assertEquals(0.0, new GradeSketch().quantile(0.5));
+    }
+}
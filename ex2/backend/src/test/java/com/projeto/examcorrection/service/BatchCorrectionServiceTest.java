@@ -0,0 +1,188 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.projeto.examcorrection.domain.AnswerKey;
+import com.projeto.examcorrection.domain.CorrectionResult;
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.QuestionType;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.dto.CorrectionBatchResponse;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.SubmissionRepository;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BatchCorrectionServiceTest {
+
+    @Test
+    void commitBatch_shouldAlignDuplicateToExistingResultWithoutCountingItTwice() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations resultados = mock(BulkOperations.class);
+        BulkOperations submissoes = mock(BulkOperations.class);
+        ExamAggregateService examAggregateService = mock(ExamAggregateService.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CorrectionResult.class)).thenReturn(resultados);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Submission.class)).thenReturn(submissoes);
+        when(resultados.insert(anyList())).thenReturn(resultados);
+        // O resultado da segunda submissão já foi gravado por outra correção
+        when(resultados.execute()).thenThrow(new BulkOperationException("duplicate", new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)), null,
+                new ServerAddress(), Set.of())));
+        CorrectionResult existente = new CorrectionResult();
+        existente.setSubmissionId("s2");
+        existente.setNotaFinal(3.0);
+        when(mongoTemplate.find(any(Query.class), eq(CorrectionResult.class))).thenReturn(List.of(existente));
+        AnswerKeyRepository answerKeyRepository = mock(AnswerKeyRepository.class);
+        when(answerKeyRepository.existsByExamIdAndDataAtualizacao("exam1", Instant.EPOCH)).thenReturn(true);
+
+        BatchCorrectionService service = new BatchCorrectionService(mock(SubmissionRepository.class),
+                answerKeyRepository, mock(ExamService.class), new CorrectionCalculator(),
+                new ScoringPlanCache(10), examAggregateService, mock(DashboardService.class), mongoTemplate,
+                mock(ExecutorService.class));
+
+        BatchCorrectionService.BatchOutcome outcome = service.commitBatch(plan(),
+                List.of(submission("s1", "A"), submission("s2", "B")));
+
+        assertEquals(1, outcome.corrigidas());
+        assertEquals(1, outcome.falhas());
+        ArgumentCaptor<Query> alvo = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(submissoes, times(2)).updateOne(alvo.capture(), update.capture());
+        verify(submissoes).execute();
+        assertEquals("s2", alvo.getAllValues().get(1).getQueryObject().get("_id"));
+        assertEquals(3.0, update.getAllValues().get(1).getUpdateObject().get("$set", Document.class).get("nota"));
+
+        ArgumentCaptor<List<Submission>> registradas = ArgumentCaptor.captor();
+        verify(examAggregateService).record(any(), any(), registradas.capture(), anyList());
+        assertEquals(List.of("s1"), registradas.getValue().stream().map(Submission::getId).toList());
+    }
+
+    @Test
+    void commitBatch_shouldDiscardResults_whenAnswerKeyChangedDuringBatch() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations resultados = mock(BulkOperations.class);
+        ExamAggregateService examAggregateService = mock(ExamAggregateService.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CorrectionResult.class)).thenReturn(resultados);
+        when(resultados.insert(anyList())).thenReturn(resultados);
+        // Gabarito recorrigido depois da compilação do plano
+        AnswerKeyRepository answerKeyRepository = mock(AnswerKeyRepository.class);
+        when(answerKeyRepository.existsByExamIdAndDataAtualizacao("exam1", Instant.EPOCH)).thenReturn(false);
+
+        BatchCorrectionService service = new BatchCorrectionService(mock(SubmissionRepository.class),
+                answerKeyRepository, mock(ExamService.class), new CorrectionCalculator(),
+                new ScoringPlanCache(10), examAggregateService, mock(DashboardService.class), mongoTemplate,
+                mock(ExecutorService.class));
+
+        BatchCorrectionService.BatchOutcome outcome = service.commitBatch(plan(),
+                List.of(submission("s1", "A"), submission("s2", "B")));
+
+        assertTrue(outcome.desatualizado());
+        assertEquals(0, outcome.corrigidas());
+        ArgumentCaptor<Query> removidos = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removidos.capture(), eq(CorrectionResult.class));
+        assertEquals(List.of("s1", "s2"),
+                removidos.getValue().getQueryObject().get("submissionId", Document.class).get("$in"));
+        verify(mongoTemplate, never()).bulkOps(BulkOperations.BulkMode.UNORDERED, Submission.class);
+        verifyNoInteractions(examAggregateService);
+    }
+
+    @Test
+    void correctAll_shouldRedoBatchesDiscardedByAnAnswerKeyChange() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations resultados = mock(BulkOperations.class);
+        BulkOperations submissoes = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CorrectionResult.class)).thenReturn(resultados);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Submission.class)).thenReturn(submissoes);
+        when(resultados.insert(anyList())).thenReturn(resultados);
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        exam.setQuestions(new ArrayList<>(List.of(question())));
+        ExamService examService = mock(ExamService.class);
+        when(examService.findById("exam1")).thenReturn(exam);
+        SubmissionRepository submissionRepository = mock(SubmissionRepository.class);
+        when(submissionRepository.streamByExamIdAndCorrigida("exam1", false))
+                .thenReturn(Stream.of(submission("s1", "A"), submission("s2", "B")));
+        // A recorreção troca o gabarito enquanto o primeiro lote é corrigido
+        Instant v2 = Instant.EPOCH.plusSeconds(1);
+        AnswerKeyRepository answerKeyRepository = mock(AnswerKeyRepository.class);
+        when(answerKeyRepository.findByExamId("exam1"))
+                .thenReturn(Optional.of(answerKey(Instant.EPOCH, "A")), Optional.of(answerKey(v2, "B")));
+        when(answerKeyRepository.existsByExamIdAndDataAtualizacao("exam1", Instant.EPOCH)).thenReturn(false);
+        when(answerKeyRepository.existsByExamIdAndDataAtualizacao("exam1", v2)).thenReturn(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        BatchCorrectionService service = new BatchCorrectionService(submissionRepository, answerKeyRepository,
+                examService, new CorrectionCalculator(), new ScoringPlanCache(10), mock(ExamAggregateService.class),
+                mock(DashboardService.class), mongoTemplate, executor);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "parallelism", 1);
+
+        try {
+            CorrectionBatchResponse response = service.correctAll("exam1");
+
+            assertEquals(2, response.corrigidas());
+            assertEquals(0, response.pendentes());
+            verify(mongoTemplate, times(1)).remove(any(Query.class), eq(CorrectionResult.class));
+            ArgumentCaptor<List<CorrectionResult>> inseridos = ArgumentCaptor.captor();
+            verify(resultados, times(2)).insert(inseridos.capture());
+            // Refeito com o gabarito novo: s2 (B) acerta
+            assertEquals(10.0, inseridos.getAllValues().get(1).get(1).getNotaFinal());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static AnswerKey answerKey(Instant versao, String resposta) {
+        AnswerKey answerKey = new AnswerKey();
+        answerKey.setExamId("exam1");
+        answerKey.setDataAtualizacao(versao);
+        answerKey.setRespostas(Map.of("q1", resposta));
+        return answerKey;
+    }
+
+    private static ScoringPlan plan() {
+        return ScoringPlan.compile("exam1", Instant.EPOCH, List.of(question()), Map.of("q1", "A"));
+    }
+
+    private static Question question() {
+        Question q1 = new Question();
+        q1.setId("q1");
+        q1.setTipo(QuestionType.OBJETIVA);
+        q1.setAlternativas(List.of("A", "B"));
+        q1.setPontuacao(10.0);
+        return q1;
+    }
+
+    private static Submission submission(String id, String resposta) {
+        Submission sub = new Submission();
+        sub.setId(id);
+        sub.setExamId("exam1");
+        sub.setRespostas(Map.of("q1", resposta));
+        return sub;
+    }
+}
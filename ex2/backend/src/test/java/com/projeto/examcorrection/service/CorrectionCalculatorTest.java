@@ -0,0 +1,187 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.CorrectionResult;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.QuestionDetail;
+import com.projeto.examcorrection.domain.QuestionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorrectionCalculatorTest {
+
+    private final CorrectionCalculator calculator = new CorrectionCalculator();
+
+    private List<Question> questions;
+    private Map<String, String> gabarito;
+
+    @BeforeEach
+    void setUp() {
+        questions = List.of(
+                question("q1", QuestionType.OBJETIVA, List.of("A", "B", "C", "D"), 2.0),
+                question("q2", QuestionType.VERDADEIRO_FALSO, List.of("V", "F"), 1.0),
+                question("q3", QuestionType.OBJETIVA, List.of("A", "B", "C"), 1.5));
+        gabarito = Map.of("q1", "B", "q2", "V", "q3", "C");
+    }
+
+    @Test
+    void calculate_shouldCountBlankAsNeitherHitNorError() {
+        CorrectionResult result = calculator.calculate(plan(), Map.of("q1", "B"), "sub1");
+
+        assertEquals(1, result.getAcertos());
+        assertEquals(0, result.getErros());
+        assertEquals(2.0, result.getNotaFinal());
+        QuestionDetail blank = result.getDetalhesPorQuestao().get(1);
+        assertNull(blank.respostaAluno());
+        assertEquals("V", blank.respostaEsperada());
+        assertFalse(blank.correta());
+    }
+
+    @Test
+    void calculate_shouldCountUnknownAlternativeAsError() {
+        CorrectionResult result = calculator.calculate(plan(), Map.of("q1", "Z", "q2", "V", "q3", "C"), "sub1");
+
+        assertEquals(2, result.getAcertos());
+        assertEquals(1, result.getErros());
+        assertEquals(2.5, result.getNotaFinal());
+    }
+
+    @Test
+    void calculate_shouldNeverScore_whenAnswerKeyMissesQuestion() {
+        Map<String, String> incompleto = new HashMap<>(gabarito);
+        incompleto.remove("q3");
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, questions, incompleto);
+
+        CorrectionResult result = calculator.calculate(plan, Map.of("q1", "B", "q2", "V", "q3", "C"), "sub1");
+
+        assertEquals(2, result.getAcertos());
+        assertEquals(1, result.getErros());
+        assertEquals(3.0, result.getNotaFinal());
+    }
+
+    @Test
+    void calculate_shouldKeepQuestionOrder_inDetails() {
+        CorrectionResult result = calculator.calculate(plan(), Map.of(), "sub1");
+
+        assertEquals(List.of("q1", "q2", "q3"),
+                result.getDetalhesPorQuestao().stream().map(QuestionDetail::questionId).toList());
+        assertEquals(0, result.getAcertos());
+        assertEquals(0, result.getErros());
+        assertEquals(0.0, result.getNotaFinal());
+    }
+
+    @Test
+    void calculate_shouldEncodeCorrectionMap_inQuestionOrder() {
+        CorrectionResult result = calculator.calculate(plan(), Map.of("q1", "A", "q3", "C"), "sub1");
+
+        assertEquals("0-1", result.getMapaCorrecao());
+    }
+
+    @Test
+    void calculate_shouldOmitDetails_whenCompactAndRebuildThemOnDemand() {
+        CorrectionCalculator compact = new CorrectionCalculator();
+        ReflectionTestUtils.setField(compact, "compactResults", true);
+        Map<String, String> respostas = Map.of("q1", "B", "q2", "F");
+
+        CorrectionResult result = compact.calculate(plan(), respostas, "sub1");
+
+        assertNull(result.getDetalhesPorQuestao());
+        assertEquals("10-", result.getMapaCorrecao());
+        assertEquals(2.0, result.getNotaFinal());
+        assertEquals(calculator.calculate(plan(), respostas, "sub1").getDetalhesPorQuestao(),
+                compact.details(plan(), respostas));
+    }
+
+    @Test
+    void calculate_shouldAwardAnnulledQuestion_evenWhenBlankOrWrong() {
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, questions, gabarito, Set.of("q1", "q2"));
+
+        CorrectionResult result = calculator.calculate(plan, Map.of("q1", "A", "q3", "A"), "sub1");
+
+        assertEquals(2, result.getAcertos());
+        assertEquals(1, result.getErros());
+        assertEquals(3.0, result.getNotaFinal());
+        assertTrue(result.getDetalhesPorQuestao().get(1).correta());
+        assertSameResult(result, calculator.calculatePacked(plan, Map.of("q1", "A", "q3", "A"), "sub1"));
+    }
+
+    @Test
+    void calculatePacked_shouldMatchLoop_whenWeightsAreUniform() {
+        assertPackedMatchesLoop(150, false);
+    }
+
+    @Test
+    void calculatePacked_shouldMatchLoop_whenWeightsDiffer() {
+        assertPackedMatchesLoop(150, true);
+    }
+
+    @Test
+    void calculatePacked_shouldMatchLoop_forEdgeCases() {
+        Map<String, String> incompleto = new HashMap<>(gabarito);
+        incompleto.remove("q3");
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, questions, incompleto);
+        Map<String, String> respostas = Map.of("q1", "Z", "q2", "V", "q3", "C", "qX", "A");
+
+        assertSameResult(calculator.calculate(plan, respostas, "sub1"),
+                calculator.calculatePacked(plan, respostas, "sub1"));
+    }
+
+    private void assertPackedMatchesLoop(int n, boolean pesosDiferentes) {
+        Random random = new Random(7);
+        List<String> alternativas = List.of("A", "B", "C", "D", "E");
+        List<Question> prova = new ArrayList<>();
+        Map<String, String> chave = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            double peso = pesosDiferentes ? 0.5 + random.nextInt(4) * 0.25 : 1.0;
+            Question q = i % 3 == 0
+                    ? question("q" + i, QuestionType.VERDADEIRO_FALSO, List.of("V", "F"), peso)
+                    : question("q" + i, QuestionType.OBJETIVA, alternativas, peso);
+            prova.add(q);
+            chave.put(q.getId(), q.getAlternativas().get(random.nextInt(q.getAlternativas().size())));
+        }
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, prova, chave);
+
+        for (int s = 0; s < 50; s++) {
+            Map<String, String> respostas = new HashMap<>();
+            for (Question q : prova) {
+                if (random.nextInt(5) > 0) {
+                    respostas.put(q.getId(), q.getAlternativas().get(random.nextInt(q.getAlternativas().size())));
+                }
+            }
+            assertSameResult(calculator.calculate(plan, respostas, "sub" + s),
+                    calculator.calculatePacked(plan, respostas, "sub" + s));
+        }
+    }
+
+    private static void assertSameResult(CorrectionResult esperado, CorrectionResult obtido) {
+        assertEquals(esperado.getAcertos(), obtido.getAcertos());
+        assertEquals(esperado.getErros(), obtido.getErros());
+        assertEquals(esperado.getNotaFinal(), obtido.getNotaFinal(), 1e-9);
+        assertEquals(esperado.getMapaCorrecao(), obtido.getMapaCorrecao());
+        assertEquals(esperado.getDetalhesPorQuestao(), obtido.getDetalhesPorQuestao());
+    }
+
+    private ScoringPlan plan() {
+        return ScoringPlan.compile("exam1", Instant.EPOCH, questions, gabarito);
+    }
+
+    private static Question question(String id, QuestionType tipo, List<String> alternativas, double pontuacao) {
+        Question q = new Question();
+        q.setId(id);
+        q.setEnunciado(id);
+        q.setTipo(tipo);
+        q.setAlternativas(alternativas);
+        q.setPontuacao(pontuacao);
+        return q;
+    }
+}
@@ -0,0 +1,110 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.projeto.examcorrection.domain.*;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.CorrectionJobRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CorrectionJobServiceTest {
+
+    @Mock
+    private CorrectionJobRepository correctionJobRepository;
+    @Mock
+    private AnswerKeyRepository answerKeyRepository;
+    @Mock
+    private ExamService examService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private CorrectionJobService correctionJobService;
+
+    @Test
+    void cancel_shouldReleaseReservedSubmissions() {
+        CorrectionJob job = job(CorrectionJobStatus.EM_ANDAMENTO);
+        when(correctionJobRepository.findById("job1")).thenReturn(Optional.of(job));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(UpdateResult.acknowledged(3, 3L, null));
+
+        correctionJobService.cancel("job1", "prof1");
+
+        ArgumentCaptor<Query> alvo = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> liberacao = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(alvo.capture(), liberacao.capture(), eq(Submission.class));
+        assertEquals("job1", alvo.getValue().getQueryObject().get("correcaoJobId"));
+        assertTrue(liberacao.getValue().getUpdateObject().get("$unset", Document.class)
+                .keySet().containsAll(List.of("correcaoJobId", "reservadaEm", "reserva")));
+    }
+
+    @Test
+    void create_shouldResetAttemptsOfPendingSubmissions() {
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        when(examService.findById("exam1")).thenReturn(exam);
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(new AnswerKey()));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.count(any(Query.class), eq(Submission.class))).thenReturn(4L);
+        when(correctionJobRepository.save(any(CorrectionJob.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        var response = correctionJobService.create("exam1", "prof1");
+
+        assertEquals(4, response.total());
+        ArgumentCaptor<Update> reset = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(any(Query.class), reset.capture(), eq(Submission.class));
+        assertTrue(reset.getValue().getUpdateObject().get("$unset", Document.class).containsKey("tentativasCorrecao"));
+    }
+
+    @Test
+    void recoverClosings_shouldQueueClosingForClosedExamWithoutPipeline() {
+        ReflectionTestUtils.setField(correctionJobService, "closingSweepIntervalMs", 60000L);
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        exam.setProfessorId("prof1");
+        exam.setStatus(ExamStatus.ENCERRADA);
+        when(mongoTemplate.find(any(Query.class), eq(Exam.class))).thenReturn(List.of(exam));
+        when(mongoTemplate.exists(any(Query.class), eq(CorrectionJob.class))).thenReturn(false);
+        when(answerKeyRepository.existsByExamId("exam1")).thenReturn(true);
+        when(examService.findById("exam1")).thenReturn(exam);
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(new AnswerKey()));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(CorrectionJob.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(correctionJobRepository.save(any(CorrectionJob.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        correctionJobService.recoverClosings();
+
+        verify(correctionJobRepository).save(argThat(CorrectionJob::isEncerramento));
+    }
+
+    private static CorrectionJob job(CorrectionJobStatus status) {
+        CorrectionJob job = new CorrectionJob();
+        job.setId("job1");
+        job.setExamId("exam1");
+        job.setSolicitadoPor("prof1");
+        job.setStatus(status);
+        job.setDataCriacao(Instant.now());
+        return job;
+    }
+}
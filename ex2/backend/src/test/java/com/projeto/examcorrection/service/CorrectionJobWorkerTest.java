@@ -0,0 +1,185 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.projeto.examcorrection.domain.*;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.CorrectionJobRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CorrectionJobWorkerTest {
+
+    @Mock
+    private CorrectionJobRepository correctionJobRepository;
+    @Mock
+    private AnswerKeyRepository answerKeyRepository;
+    @Mock
+    private ExamService examService;
+    @Mock
+    private BatchCorrectionService batchCorrectionService;
+    @Mock
+    private ScoringPlanCache scoringPlanCache;
+    @Mock
+    private DashboardService dashboardService;
+    @Mock
+    private ReportService reportService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ExecutorService correctionJobExecutor;
+
+    private CorrectionJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new CorrectionJobWorker(correctionJobRepository, answerKeyRepository, examService,
+                batchCorrectionService, scoringPlanCache, dashboardService, reportService, mongoTemplate,
+                correctionJobExecutor);
+        ReflectionTestUtils.setField(worker, "leaseSeconds", 300L);
+        ReflectionTestUtils.setField(worker, "maxTentativas", 3);
+        ReflectionTestUtils.setField(worker, "batchSize", 500);
+    }
+
+    @Test
+    void reserve_shouldClaimBatchWithSingleUpdate() {
+        Submission s1 = submission("s1");
+        Submission s2 = submission("s2");
+        when(mongoTemplate.find(any(Query.class), eq(Submission.class)))
+                .thenReturn(List.of(s1, s2))
+                .thenReturn(List.of(s1, s2));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(UpdateResult.acknowledged(2, 2L, null));
+
+        List<Submission> lote = worker.reserve("exam1", "job1");
+
+        assertEquals(2, lote.size());
+        ArgumentCaptor<Update> reserva = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(any(Query.class), reserva.capture(), eq(Submission.class));
+        Document update = reserva.getValue().getUpdateObject();
+        assertEquals("job1", update.get("$set", Document.class).get("correcaoJobId"));
+        assertEquals(1, update.get("$inc", Document.class).get("tentativasCorrecao"));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Submission.class));
+    }
+
+    @Test
+    void reserve_shouldReturnEmpty_whenAnotherWorkerTookTheCandidates() {
+        when(mongoTemplate.find(any(Query.class), eq(Submission.class))).thenReturn(List.of(submission("s1")));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertTrue(worker.reserve("exam1", "job1").isEmpty());
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Submission.class));
+    }
+
+    @Test
+    void process_shouldFailJob_whenSubmissionsExhaustAttempts() {
+        CorrectionJob job = new CorrectionJob();
+        job.setId("job1");
+        job.setExamId("exam1");
+        job.setStatus(CorrectionJobStatus.EM_ANDAMENTO);
+        when(correctionJobRepository.findById("job1")).thenReturn(Optional.of(job));
+        when(examService.findById("exam1")).thenReturn(new Exam());
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(new AnswerKey()));
+        when(mongoTemplate.exists(any(Query.class), eq(CorrectionJob.class))).thenReturn(true);
+        // Nada a reservar e nada em andamento: as duas restantes esgotaram as tentativas
+        when(mongoTemplate.find(any(Query.class), eq(Submission.class))).thenReturn(List.of());
+        when(mongoTemplate.exists(any(Query.class), eq(Submission.class))).thenReturn(false);
+        when(mongoTemplate.count(any(Query.class), eq(Submission.class))).thenReturn(2L);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(CorrectionJob.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        worker.process("job1");
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, atLeastOnce()).updateFirst(any(Query.class), updates.capture(), eq(CorrectionJob.class));
+        Document fim = updates.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(CorrectionJobStatus.FALHOU, fim.get("status"));
+        assertEquals(2L, fim.get("naoCorrigidas"));
+        verifyNoInteractions(batchCorrectionService, reportService);
+    }
+
+    @Test
+    void process_shouldFailClosingJob_whenMaterializationExhaustsAttempts() {
+        CorrectionJob job = closingJob();
+        job.setTentativasMaterializacao(4);
+        stubClosingReady(job);
+
+        worker.process("job1");
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, atLeastOnce()).updateFirst(any(Query.class), updates.capture(), eq(CorrectionJob.class));
+        Document fim = updates.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(CorrectionJobStatus.FALHOU, fim.get("status"));
+        assertNotNull(fim.get("motivoFalha"));
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void process_shouldReleaseMaterializationLease_whenStepFails() {
+        CorrectionJob job = closingJob();
+        job.setEtapa(EtapaEncerramento.RELATORIO);
+        job.setTentativasMaterializacao(1);
+        stubClosingReady(job);
+        doThrow(new IllegalStateException("boom")).when(reportService).materializeReport(any(Exam.class));
+
+        worker.process("job1");
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, atLeastOnce()).updateFirst(any(Query.class), updates.capture(), eq(CorrectionJob.class));
+        assertTrue(updates.getValue().getUpdateObject().get("$unset", Document.class).containsKey("materializacaoEm"));
+        verify(reportService, never()).materializeStatistics(any());
+    }
+
+    private CorrectionJob closingJob() {
+        CorrectionJob job = new CorrectionJob();
+        job.setId("job1");
+        job.setExamId("exam1");
+        job.setStatus(CorrectionJobStatus.EM_ANDAMENTO);
+        job.setEncerramento(true);
+        return job;
+    }
+
+    /** Correção terminada, sem pendências: o job segue para a materialização reservada. */
+    private void stubClosingReady(CorrectionJob job) {
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        when(correctionJobRepository.findById("job1")).thenReturn(Optional.of(job));
+        when(examService.findById("exam1")).thenReturn(exam);
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(new AnswerKey()));
+        when(mongoTemplate.exists(any(Query.class), eq(CorrectionJob.class))).thenReturn(true);
+        when(mongoTemplate.find(any(Query.class), eq(Submission.class))).thenReturn(List.of());
+        when(mongoTemplate.exists(any(Query.class), eq(Submission.class))).thenReturn(false);
+        when(mongoTemplate.count(any(Query.class), eq(Submission.class))).thenReturn(0L);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(CorrectionJob.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(CorrectionJob.class))).thenReturn(job);
+    }
+
+    private static Submission submission(String id) {
+        Submission sub = new Submission();
+        sub.setId(id);
+        sub.setExamId("exam1");
+        return sub;
+    }
+}
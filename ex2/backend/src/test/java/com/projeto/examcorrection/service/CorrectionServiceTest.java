@@ -1,14 +1,21 @@
 package com.projeto.examcorrection.service;
 
+import com.mongodb.client.result.UpdateResult;
 import com.projeto.examcorrection.domain.*;
 import com.projeto.examcorrection.dto.CorrectionResultResponse;
 import com.projeto.examcorrection.repository.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.time.Instant;
 import java.util.*;
@@ -29,9 +36,15 @@ class CorrectionServiceTest {
     @Mock
     private ExamService examService;
     @Mock
-    private ExamReportRepository examReportRepository;
+    private ExamAggregateService examAggregateService;
     @Mock
-    private ExamStatisticsRepository examStatisticsRepository;
+    private DashboardService dashboardService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Spy
+    private CorrectionCalculator correctionCalculator;
+    @Spy
+    private ScoringPlanCache scoringPlanCache = new ScoringPlanCache(10);
 
     @InjectMocks
     private CorrectionService correctionService;
@@ -80,59 +93,166 @@ class CorrectionServiceTest {
 
     @Test
     void correct_shouldReturnPerfectScore_whenAllAnswersCorrect() {
-        when(submissionRepository.findById("sub1")).thenReturn(Optional.of(submission));
-        when(examService.findById("exam1")).thenReturn(exam);
-        when(correctionResultRepository.existsBySubmissionId("sub1")).thenReturn(false);
-        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(answerKey));
-        when(correctionResultRepository.save(any())).thenAnswer(inv -> {
-            CorrectionResult r = inv.getArgument(0);
-            r.setId("cr1");
-            return r;
-        });
-        when(submissionRepository.save(any())).thenReturn(submission);
+        stubCorrection();
 
-        CorrectionResultResponse result = correctionService.correct("sub1", "prof1", Role.PROFESSOR);
+        CorrectionResultResponse result = correctionService.correct("sub1");
 
         assertEquals(2, result.acertos());
         assertEquals(0, result.erros());
         assertEquals(3.0, result.notaFinal());
         assertEquals(2, result.detalhesPorQuestao().size());
-        assertTrue(result.detalhesPorQuestao().stream().allMatch(QuestionDetail::isCorreta));
+        assertTrue(result.detalhesPorQuestao().stream().allMatch(QuestionDetail::correta));
 
-        verify(correctionResultRepository).save(any());
-        verify(submissionRepository).save(any());
-        verify(examReportRepository).deleteByExamId("exam1");
-        verify(examStatisticsRepository).deleteByExamId("exam1");
+        verify(correctionResultRepository).insert(any(CorrectionResult.class));
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(Submission.class));
+        verify(submissionRepository, never()).save(any());
+        verify(examAggregateService).record(any(ScoringPlan.class), any(), anyList(), anyList());
     }
 
     @Test
     void correct_shouldReturnPartialScore_whenSomeAnswersWrong() {
         submission.setRespostas(Map.of("q1", "A", "q2", "V")); // q1 wrong
+        stubCorrection();
+
+        CorrectionResultResponse result = correctionService.correct("sub1");
+
+        assertEquals(1, result.acertos());
+        assertEquals(1, result.erros());
+        assertEquals(1.0, result.notaFinal());
+    }
+
+    @Test
+    void correct_shouldThrow_whenAlreadyCorrected() {
+        submission.setCorrigida(true);
+        when(submissionRepository.findById("sub1")).thenReturn(Optional.of(submission));
+
+        assertThrows(Exception.class, () -> correctionService.correct("sub1"));
+        verifyNoInteractions(correctionResultRepository);
+    }
 
+    @Test
+    void correct_shouldThrowAndRecordExistingResult_whenResultAlreadyExists() {
+        CorrectionResult existente = new CorrectionResult();
+        existente.setSubmissionId("sub1");
+        existente.setNotaFinal(2.0);
         when(submissionRepository.findById("sub1")).thenReturn(Optional.of(submission));
         when(examService.findById("exam1")).thenReturn(exam);
-        when(correctionResultRepository.existsBySubmissionId("sub1")).thenReturn(false);
         when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(answerKey));
-        when(correctionResultRepository.save(any())).thenAnswer(inv -> {
-            CorrectionResult r = inv.getArgument(0);
-            r.setId("cr1");
-            return r;
-        });
-        when(submissionRepository.save(any())).thenReturn(submission);
+        when(correctionResultRepository.insert(any(CorrectionResult.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+        when(correctionResultRepository.findBySubmissionId("sub1")).thenReturn(Optional.of(existente));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(marcada(true));
+
+        assertThrows(Exception.class, () -> correctionService.correct("sub1"));
+        // Quem gravou o resultado caiu antes de marcar a submissão; quem a marca soma o resultado existente
+        verify(examAggregateService).record(any(ScoringPlan.class), any(), anyList(), eq(List.of(existente)));
+    }
 
-        CorrectionResultResponse result = correctionService.correct("sub1", "prof1", Role.PROFESSOR);
+    @Test
+    void correct_shouldRedoResult_whenAnswerKeyChangedDuringCorrection() {
+        when(submissionRepository.findById("sub1")).thenReturn(Optional.of(submission));
+        when(examService.findById("exam1")).thenReturn(exam);
+        when(correctionResultRepository.insert(any(CorrectionResult.class))).thenAnswer(inv -> inv.getArgument(0));
+        // A recorreção troca a resposta de q1 entre a leitura do gabarito e a gravação do resultado
+        AnswerKey recorrigido = new AnswerKey();
+        recorrigido.setExamId("exam1");
+        recorrigido.setRespostas(Map.of("q1", "A", "q2", "V"));
+        recorrigido.setDataAtualizacao(Instant.now().plusSeconds(60));
+        when(answerKeyRepository.findByExamId("exam1"))
+                .thenReturn(Optional.of(answerKey))
+                .thenReturn(Optional.of(recorrigido));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(marcada(false))
+                .thenReturn(marcada(true));
+
+        CorrectionResultResponse result = correctionService.correct("sub1");
 
         assertEquals(1, result.acertos());
-        assertEquals(1, result.erros());
         assertEquals(1.0, result.notaFinal());
+        verify(correctionResultRepository).delete(any(CorrectionResult.class));
+        verify(correctionResultRepository, times(2)).insert(any(CorrectionResult.class));
+        verify(examAggregateService, times(1)).record(any(ScoringPlan.class), any(), anyList(), anyList());
     }
 
     @Test
-    void correct_shouldThrow_whenAlreadyCorrected() {
+    void getResult_shouldRebuildDetails_whenStoredCompact() {
+        CorrectionResult compacto = new CorrectionResult();
+        compacto.setSubmissionId("sub1");
+        compacto.setAcertos(2);
+        compacto.setNotaFinal(3.0);
+        compacto.setMapaCorrecao("11");
         when(submissionRepository.findById("sub1")).thenReturn(Optional.of(submission));
+        when(correctionResultRepository.findBySubmissionId("sub1")).thenReturn(Optional.of(compacto));
         when(examService.findById("exam1")).thenReturn(exam);
-        when(correctionResultRepository.existsBySubmissionId("sub1")).thenReturn(true);
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(answerKey));
+
+        CorrectionResultResponse semDetalhes = correctionService.getResult("sub1", false);
+        CorrectionResultResponse comDetalhes = correctionService.getResult("sub1", true);
+
+        assertNull(semDetalhes.detalhesPorQuestao());
+        assertEquals("11", comDetalhes.mapaCorrecao());
+        assertEquals(List.of("q1", "q2"),
+                comDetalhes.detalhesPorQuestao().stream().map(QuestionDetail::questionId).toList());
+        assertTrue(comDetalhes.detalhesPorQuestao().stream().allMatch(QuestionDetail::correta));
+    }
+
+    @Test
+    void correctOnSubmit_shouldStoreGradedSubmissionAndResult() {
+        submission.setId(null);
+        submission.setRespostas(Map.of("q1", "B", "q2", "F"));
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(answerKey));
+        when(submissionRepository.insert(any(Submission.class))).thenAnswer(inv -> {
+            Submission s = inv.getArgument(0);
+            assertFalse(s.isCorrigida());
+            assertNull(s.getNota());
+            s.setId("sub1");
+            return s;
+        });
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(marcada(true));
+
+        Submission saved = correctionService.correctOnSubmit(exam, submission);
+
+        assertTrue(saved.isCorrigida());
+        assertEquals(2.0, saved.getNota());
+        // A submissão só é marcada como corrigida depois que o resultado existe
+        InOrder ordem = inOrder(submissionRepository, answerKeyRepository, correctionResultRepository, mongoTemplate);
+        ordem.verify(submissionRepository).insert(any(Submission.class));
+        ordem.verify(answerKeyRepository).findByExamId("exam1");
+        ordem.verify(correctionResultRepository).insert(argThat((CorrectionResult r) -> "sub1".equals(r.getSubmissionId())));
+        ordem.verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(Submission.class));
+        verify(examAggregateService).record(any(ScoringPlan.class), any(), anyList(), anyList());
+    }
+
+    @Test
+    void correctOnSubmit_shouldLeaveSubmissionPending_whenResultInsertFails() {
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(answerKey));
+        when(submissionRepository.insert(any(Submission.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(correctionResultRepository.insert(any(CorrectionResult.class))).thenThrow(new RuntimeException("boom"));
+
+        Submission saved = correctionService.correctOnSubmit(exam, submission);
+
+        assertFalse(saved.isCorrigida());
+        assertNull(saved.getNota());
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Submission.class));
+        verify(examAggregateService, never()).record(any(), any(), anyList(), anyList());
+    }
+
+    private void stubCorrection() {
+        when(submissionRepository.findById("sub1")).thenReturn(Optional.of(submission));
+        when(examService.findById("exam1")).thenReturn(exam);
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(answerKey));
+        when(correctionResultRepository.insert(any(CorrectionResult.class))).thenAnswer(inv -> {
+            CorrectionResult r = inv.getArgument(0);
+            r.setId("cr1");
+            return r;
+        });
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Submission.class)))
+                .thenReturn(marcada(true));
+    }
 
-        assertThrows(Exception.class, () -> correctionService.correct("sub1", "prof1", Role.PROFESSOR));
+    private static UpdateResult marcada(boolean marcada) {
+        return UpdateResult.acknowledged(marcada ? 1 : 0, marcada ? 1L : 0L, null);
     }
 }
@@ -0,0 +1,94 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.ExamStatus;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.SubmissionDraft;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.error.ConflictException;
+import com.projeto.examcorrection.repository.SubmissionDraftRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DraftServiceTest {
+
+    @Test
+    void patch_shouldCoalesceEditsIntoOneUpsertPerStudent() {
+        ExamService examService = mock(ExamService.class);
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(examService.snapshotAcceptingAnswers(eq("exam1"), any())).thenReturn(ExamSnapshot.compile(publishedExam()));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SubmissionDraft.class)).thenReturn(bulk);
+        DraftService service = new DraftService(mock(SubmissionDraftRepository.class), examService, mongoTemplate, 0);
+
+        service.patch("exam1", "aluno1", Map.of("q1", "A"), 1L);
+        service.patch("exam1", "aluno1", Map.of("q1", "C", "q2", "B"), 2L);
+        Map<String, String> limpa = new HashMap<>();
+        limpa.put("q2", null);
+        service.patch("exam1", "aluno1", limpa, 3L);
+        assertThrows(BusinessRuleException.class, () -> service.patch("exam1", "aluno1", Map.of("q1", "Z"), 4L));
+
+        service.flush();
+        service.flush();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(1)).upsert(any(Query.class), update.capture());
+        verify(bulk, times(1)).execute();
+        Document doc = update.getValue().getUpdateObject();
+        assertEquals("C", doc.get("$set", Document.class).get("respostas.q1"));
+        assertTrue(doc.get("$unset", Document.class).containsKey("respostas.q2"));
+        assertEquals(3L, doc.get("$max", Document.class).get("versao"));
+    }
+
+    @Test
+    void take_shouldWaitForTheClientVersionWrittenByAnotherInstance() {
+        SubmissionDraftRepository repository = mock(SubmissionDraftRepository.class);
+        SubmissionDraft atrasado = draft(Map.of("q1", "A"), 1);
+        SubmissionDraft gravado = draft(Map.of("q1", "A", "q2", "B"), 2);
+        // A outra instância grava a versão 2 depois da primeira leitura
+        when(repository.findByExamIdAndAlunoId("exam1", "aluno1"))
+                .thenReturn(Optional.of(atrasado), Optional.of(gravado));
+        DraftService service = new DraftService(repository, mock(ExamService.class), mock(MongoTemplate.class), 2_000);
+
+        assertEquals(Map.of("q1", "A", "q2", "B"), service.take("exam1", "aluno1", 2L));
+
+        DraftService semEspera = new DraftService(repository, mock(ExamService.class), mock(MongoTemplate.class), 0);
+        when(repository.findByExamIdAndAlunoId("exam1", "aluno1")).thenReturn(Optional.of(atrasado));
+        ConflictException ex = assertThrows(ConflictException.class, () -> semEspera.take("exam1", "aluno1", 2L));
+        assertEquals("DRAFT_NOT_SAVED", ex.getCode());
+    }
+
+    private static SubmissionDraft draft(Map<String, String> respostas, long versao) {
+        SubmissionDraft draft = new SubmissionDraft();
+        draft.setRespostas(new HashMap<>(respostas));
+        draft.setVersao(versao);
+        return draft;
+    }
+
+    private static Exam publishedExam() {
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        exam.setStatus(ExamStatus.PUBLICADA);
+        for (String id : List.of("q1", "q2")) {
+            Question q = new Question();
+            q.setId(id);
+            q.setAlternativas(List.of("A", "B", "C"));
+            exam.getQuestions().add(q);
+        }
+        return exam;
+    }
+}
@@ -0,0 +1,165 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.projeto.examcorrection.domain.*;
+import com.projeto.examcorrection.repository.ExamAggregateRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExamAggregateServiceTest {
+
+    @Mock
+    private ExamAggregateRepository examAggregateRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private ExamAggregateService examAggregateService;
+
+    private Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        Question q1 = new Question();
+        q1.setId("q1");
+        q1.setTipo(QuestionType.OBJETIVA);
+        q1.setAlternativas(List.of("A", "B"));
+        q1.setPontuacao(10.0);
+        exam = new Exam();
+        exam.setId("exam1");
+        exam.setQuestions(List.of(q1));
+    }
+
+    @Test
+    void rebuild_shouldRedoAggregations_whenCorrectionIsRecordedDuringRebuild() {
+        // Contagens das agregações: na primeira rodada 1 corrigida; a correção gravada durante a
+        // reconstrução (versão 5 -> 6) aparece na segunda
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("submissions"), eq(Document.class)))
+                .thenReturn(results(new Document("total", 1).append("soma", 4.0).append("menor", 4.0).append("maior", 4.0)))
+                .thenReturn(results())
+                .thenReturn(results())
+                .thenReturn(results())
+                .thenReturn(results(new Document("total", 2).append("soma", 12.0).append("menor", 4.0).append("maior", 8.0)))
+                .thenReturn(results())
+                .thenReturn(results())
+                .thenReturn(results());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("correction_results"), eq(Document.class)))
+                .thenReturn(results());
+        when(examAggregateRepository.findByExamId("exam1"))
+                .thenReturn(Optional.of(aggregate(5, 1, 4.0)))
+                .thenReturn(Optional.of(aggregate(6, 2, 12.0)));
+        ExamAggregate gravado = aggregate(7, 2, 12.0);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ExamAggregate.class)))
+                .thenReturn(null)
+                .thenReturn(gravado);
+
+        ExamAggregate aggregate = examAggregateService.rebuild(exam);
+
+        assertSame(gravado, aggregate);
+        ArgumentCaptor<Query> condicao = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> escrita = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).findAndModify(condicao.capture(), escrita.capture(),
+                any(FindAndModifyOptions.class), eq(ExamAggregate.class));
+        assertEquals(5L, condicao.getAllValues().get(0).getQueryObject().get("versao"));
+        assertEquals(6L, condicao.getAllValues().get(1).getQueryObject().get("versao"));
+        Document set = escrita.getAllValues().get(1).getUpdateObject().get("$set", Document.class);
+        assertEquals(2, set.get("total"));
+        assertEquals(12.0, set.get("somaNotas"));
+        // Nunca substitui o documento inteiro
+        verify(examAggregateRepository, never()).save(any());
+    }
+
+    @Test
+    void record_shouldCreateMissingAggregateAsOutdated() {
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, exam.getQuestions(), Map.of("q1", "A"));
+        Submission sub = new Submission();
+        sub.setRespostas(Map.of("q1", "A"));
+        CorrectionResult result = new CorrectionCalculator().calculate(plan, sub.getRespostas(), "s1");
+
+        examAggregateService.record(plan, null, List.of(sub), List.of(result));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(ExamAggregate.class));
+        assertEquals(true, update.getValue().getUpdateObject().get("$set", Document.class).get("desatualizado"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(ExamAggregate.class));
+    }
+
+    @Test
+    void record_shouldDiscardInsteadOfCounting_whenRebuiltBetweenMarkAndRecord() {
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, exam.getQuestions(), Map.of("q1", "A"));
+        Submission sub = new Submission();
+        sub.setRespostas(Map.of("q1", "A"));
+        CorrectionResult result = new CorrectionCalculator().calculate(plan, sub.getRespostas(), "s1");
+
+        // A correção lê a geração 3 e marca a submissão como corrigida
+        ExamAggregate lido = aggregate(5, 1, 10.0);
+        lido.setGeracao(3);
+        when(mongoTemplate.findOne(any(Query.class), eq(ExamAggregate.class))).thenReturn(lido);
+        Long geracao = examAggregateService.generation("exam1");
+
+        // Uma reconstrução entra antes do incremento e já conta a submissão marcada
+        when(examAggregateRepository.findByExamId("exam1")).thenReturn(Optional.of(lido));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("submissions"), eq(Document.class)))
+                .thenReturn(results(new Document("total", 2).append("soma", 20.0).append("menor", 10.0).append("maior", 10.0)))
+                .thenReturn(results());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("correction_results"), eq(Document.class)))
+                .thenReturn(results());
+        ExamAggregate reconstruido = aggregate(6, 2, 20.0);
+        reconstruido.setGeracao(4);
+        ArgumentCaptor<Update> reconstrucao = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.findAndModify(any(Query.class), reconstrucao.capture(), any(FindAndModifyOptions.class),
+                eq(ExamAggregate.class))).thenReturn(reconstruido);
+        examAggregateService.rebuild(exam);
+        assertEquals(1, reconstrucao.getValue().getUpdateObject().get("$inc", Document.class).get("geracao"));
+
+        // O incremento condicionado à geração 3 não encontra o documento
+        ArgumentCaptor<Query> condicao = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.updateFirst(condicao.capture(), any(Update.class), eq(ExamAggregate.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        examAggregateService.record(plan, geracao, List.of(sub), List.of(result));
+
+        assertEquals(3L, condicao.getValue().getQueryObject().get("geracao"));
+        // Em vez de contar a submissão de novo, o agregado é marcado como desatualizado
+        ArgumentCaptor<Update> descarte = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), descarte.capture(), eq(ExamAggregate.class));
+        assertEquals(true, descarte.getValue().getUpdateObject().get("$set", Document.class).get("desatualizado"));
+    }
+
+    private static AggregationResults<Document> results(Document... documentos) {
+        return new AggregationResults<>(List.of(documentos), new Document());
+    }
+
+    private static ExamAggregate aggregate(long versao, int total, double soma) {
+        ExamAggregate aggregate = new ExamAggregate();
+        aggregate.setId("agg1");
+        aggregate.setExamId("exam1");
+        aggregate.setVersao(versao);
+        aggregate.setTotal(total);
+        aggregate.setSomaNotas(soma);
+        return aggregate;
+    }
+}
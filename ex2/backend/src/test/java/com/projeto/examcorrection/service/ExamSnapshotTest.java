@@ -0,0 +1,91 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.ExamStatus;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.ExamRepository;
+import com.projeto.examcorrection.repository.SubmissionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExamSnapshotTest {
+
+    @Test
+    void compile_shouldIndexQuestionsAndAlternatives() {
+        Question objetiva = new Question();
+        objetiva.setId("q1");
+        objetiva.setAlternativas(List.of("A", "B", "C"));
+        Question livre = new Question();
+        livre.setId("q2");
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        exam.setQuestions(new ArrayList<>(List.of(objetiva, livre)));
+
+        ExamSnapshot snapshot = ExamSnapshot.compile(exam);
+
+        assertEquals(2, snapshot.size());
+        assertEquals(0, snapshot.ordinal("q1"));
+        assertEquals(1, snapshot.ordinal("q2"));
+        assertEquals(-1, snapshot.ordinal("q3"));
+        assertTrue(snapshot.isAlternativaValida(0, "B"));
+        assertFalse(snapshot.isAlternativaValida(0, "D"));
+        assertFalse(snapshot.isAlternativaValida(0, null));
+        assertTrue(snapshot.isAlternativaValida(1, "qualquer"));
+    }
+
+    @Test
+    void snapshotAcceptingAnswers_shouldRejectExamClosedByAnotherInstance() {
+        Exam publicada = new Exam();
+        publicada.setId("exam1");
+        publicada.setStatus(ExamStatus.PUBLICADA);
+        Exam encerrada = new Exam();
+        encerrada.setId("exam1");
+        encerrada.setStatus(ExamStatus.ENCERRADA);
+        ExamRepository examRepository = mock(ExamRepository.class);
+        when(examRepository.findById("exam1")).thenReturn(Optional.of(publicada), Optional.of(encerrada));
+        when(examRepository.existsByIdAndStatus("exam1", ExamStatus.PUBLICADA)).thenReturn(true, false);
+        ExamService examService = new ExamService(examRepository, mock(AnswerKeyRepository.class),
+                mock(SubmissionRepository.class), mock(QuestionExamIndex.class), 100, 60);
+
+        assertNotNull(examService.snapshotAcceptingAnswers("exam1", Instant.now()));
+        // Encerrada em outra instância: o snapshot em cache ainda diz PUBLICADA
+        assertEquals(ExamStatus.PUBLICADA, examService.snapshot("exam1").status());
+
+        BusinessRuleException ex = assertThrows(BusinessRuleException.class,
+                () -> examService.snapshotAcceptingAnswers("exam1", Instant.now()));
+        assertEquals("EXAM_NOT_PUBLISHED", ex.getCode());
+        assertEquals(ExamStatus.ENCERRADA, examService.snapshot("exam1").status());
+    }
+
+    @Test
+    void snapshotAcceptingAnswers_shouldAcceptExamPublishedByAnotherInstance() {
+        Exam rascunho = new Exam();
+        rascunho.setId("exam1");
+        rascunho.setStatus(ExamStatus.RASCUNHO);
+        Exam publicada = new Exam();
+        publicada.setId("exam1");
+        publicada.setStatus(ExamStatus.PUBLICADA);
+        ExamRepository examRepository = mock(ExamRepository.class);
+        when(examRepository.findById("exam1")).thenReturn(Optional.of(rascunho), Optional.of(publicada));
+        when(examRepository.existsByIdAndStatus("exam1", ExamStatus.PUBLICADA)).thenReturn(true);
+        ExamService examService = new ExamService(examRepository, mock(AnswerKeyRepository.class),
+                mock(SubmissionRepository.class), mock(QuestionExamIndex.class), 100, 60);
+
+        // Guardada em cache como rascunho; publicada em outra instância
+        assertEquals(ExamStatus.RASCUNHO, examService.snapshot("exam1").status());
+
+        ExamSnapshot snapshot = examService.snapshotAcceptingAnswers("exam1", Instant.now());
+
+        assertEquals(ExamStatus.PUBLICADA, snapshot.status());
+        verify(examRepository, times(2)).findById("exam1");
+    }
+}
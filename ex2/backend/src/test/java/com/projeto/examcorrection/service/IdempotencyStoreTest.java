@@ -0,0 +1,85 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.projeto.examcorrection.domain.IdempotencyRecord;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyStoreTest {
+
+    @Test
+    void reservar_shouldTakeOverAnExpiredReservationLeftByAnotherInstance() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("E11000"));
+        // A instância que reservou caiu antes de concluir; o prazo da reserva já venceu
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        IdempotencyStore store = new IdempotencyStore(mongoTemplate, true, 100, 60, 60);
+
+        IdempotencyStore.Reserva reserva = store.reservar("aluno1:chave", "fp");
+
+        assertTrue(reserva.nova());
+        ArgumentCaptor<Query> assumida = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(assumida.capture(), update.capture(), eq(IdempotencyRecord.class));
+        assertTrue(assumida.getValue().getQueryObject().containsKey("$or"));
+        Instant reservadoAte = (Instant) update.getValue().getUpdateObject().get("$set", Document.class)
+                .get("reservadoAte");
+
+        // A conclusão só grava a resposta na reserva assumida
+        store.concluir("aluno1:chave", reserva.entrada(), new IdempotencyStore.Resposta(201, "application/json",
+                new byte[0]));
+        ArgumentCaptor<Query> conclusao = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateFirst(conclusao.capture(), any(Update.class),
+                eq(IdempotencyRecord.class));
+        assertEquals(reservadoAte, conclusao.getAllValues().get(1).getQueryObject().get("reservadoAte"));
+        verify(mongoTemplate, never()).findById(any(), eq(IdempotencyRecord.class));
+    }
+
+    @Test
+    void reservar_shouldReportAReservationStillWithinItsLeaseAsInProgress() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("E11000"));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        IdempotencyRecord emAndamento = new IdempotencyRecord();
+        emAndamento.setId("aluno1:chave");
+        emAndamento.setReservadoAte(Instant.now().plusSeconds(30));
+        when(mongoTemplate.findById("aluno1:chave", IdempotencyRecord.class)).thenReturn(emAndamento);
+        IdempotencyStore store = new IdempotencyStore(mongoTemplate, true, 100, 60, 60);
+
+        IdempotencyStore.Reserva reserva = store.reservar("aluno1:chave", "fp");
+
+        assertFalse(reserva.nova());
+        assertNull(reserva.entrada());
+    }
+
+    @Test
+    void concluir_shouldReleaseKey_whenConflictIsTransient() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.remove(any(Query.class), eq(IdempotencyRecord.class)))
+                .thenReturn(DeleteResult.acknowledged(1));
+        IdempotencyStore store = new IdempotencyStore(mongoTemplate, true, 100, 60, 60);
+        IdempotencyStore.Reserva reserva = store.reservar("prof1:chave", "fp");
+
+        // ANSWER_KEY_CHANGED: a repetição deve corrigir de novo, e não receber o 409 guardado
+        store.concluir("prof1:chave", reserva.entrada(), new IdempotencyStore.Resposta(409, "application/json",
+                new byte[0]));
+
+        verify(mongoTemplate).remove(any(Query.class), eq(IdempotencyRecord.class));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class));
+        assertTrue(store.reservar("prof1:chave", "fp").nova());
+    }
+}
@@ -0,0 +1,172 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.ItemAnalysis;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.QuestionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara a passada única com o cálculo direto, questão a questão, sobre as mesmas respostas.
+ */
+class ItemAnalysisAccumulatorTest {
+
+    private static final List<String> ALTERNATIVAS = List.of("A", "B", "C", "D");
+
+    @Test
+    void itens_shouldMatchPerQuestionComputation() {
+        Random random = new Random(5);
+        List<Question> questions = new ArrayList<>();
+        Map<String, String> gabarito = new HashMap<>();
+        for (int i = 0; i < 70; i++) {
+            Question q = new Question();
+            q.setId("q" + i);
+            q.setTipo(QuestionType.OBJETIVA);
+            q.setAlternativas(ALTERNATIVAS);
+            q.setPontuacao(0.5 + random.nextInt(4) * 0.5);
+            questions.add(q);
+            gabarito.put(q.getId(), ALTERNATIVAS.get(random.nextInt(ALTERNATIVAS.size())));
+        }
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, questions, gabarito, Set.of("q3"));
+
+        // Alunos com habilidades diferentes, para que os índices não fiquem todos perto de zero
+        List<Map<String, String>> submissoes = new ArrayList<>();
+        for (int s = 0; s < 300; s++) {
+            double habilidade = random.nextDouble();
+            Map<String, String> respostas = new HashMap<>();
+            for (Question q : questions) {
+                int sorteio = random.nextInt(20);
+                if (sorteio == 0) {
+                    continue;
+                } else if (sorteio == 1) {
+                    respostas.put(q.getId(), "Z");
+                } else if (random.nextDouble() < habilidade) {
+                    respostas.put(q.getId(), gabarito.get(q.getId()));
+                } else {
+                    respostas.put(q.getId(), ALTERNATIVAS.get(random.nextInt(ALTERNATIVAS.size())));
+                }
+            }
+            submissoes.add(respostas);
+        }
+
+        // Capacidade pequena para exercitar o crescimento dos arrays
+        ItemAnalysisAccumulator acumulador = new ItemAnalysisAccumulator(plan, 1);
+        submissoes.forEach(acumulador::add);
+        List<ItemAnalysis> itens = acumulador.itens();
+
+        assertEquals(submissoes.size(), acumulador.total());
+        assertEquals(questions.size(), itens.size());
+        for (int i = 0; i < questions.size(); i++) {
+            assertSameItem(expected(plan, questions, submissoes, i), itens.get(i));
+        }
+        assertEquals(1.0, itens.get(3).dificuldade());
+        assertEquals(0.0, itens.get(3).pontoBisserial());
+    }
+
+    @Test
+    void itens_shouldReturnZeros_whenThereAreNoSubmissions() {
+        Question q = new Question();
+        q.setId("q1");
+        q.setAlternativas(ALTERNATIVAS);
+        q.setPontuacao(1.0);
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, List.of(q), Map.of("q1", "A"));
+
+        ItemAnalysis item = new ItemAnalysisAccumulator(plan, 0).itens().get(0);
+
+        assertEquals(0.0, item.dificuldade());
+        assertEquals(0.0, item.discriminacao());
+        assertEquals(Map.of("A", 0, "B", 0, "C", 0, "D", 0), item.alternativas());
+    }
+
+    private static ItemAnalysis expected(ScoringPlan plan, List<Question> questions,
+            List<Map<String, String>> submissoes, int i) {
+        int n = submissoes.size();
+        String questionId = questions.get(i).getId();
+        boolean[][] corretas = new boolean[n][questions.size()];
+        double[] notas = new double[n];
+        for (int s = 0; s < n; s++) {
+            for (int j = 0; j < questions.size(); j++) {
+                int resposta = plan.encode(j, submissoes.get(s).get(questions.get(j).getId()));
+                int esperada = plan.gabarito(j);
+                corretas[s][j] = esperada == ScoringPlan.ANULADA || (esperada >= 0 && resposta == esperada);
+                notas[s] += corretas[s][j] ? plan.pontuacao(j) : 0.0;
+            }
+        }
+
+        Map<String, Integer> alternativas = new LinkedHashMap<>();
+        ALTERNATIVAS.forEach(a -> alternativas.put(a, 0));
+        int brancos = 0;
+        int outras = 0;
+        for (Map<String, String> respostas : submissoes) {
+            String resposta = respostas.get(questionId);
+            if (resposta == null) {
+                brancos++;
+            } else if (alternativas.containsKey(resposta)) {
+                alternativas.merge(resposta, 1, Integer::sum);
+            } else {
+                outras++;
+            }
+        }
+
+        int[] ordem = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble(s -> notas[s])).mapToInt(Integer::intValue).toArray();
+        int grupo = (int) Math.round(n * ItemAnalysisAccumulator.GRUPO_EXTREMO);
+        int inferior = 0;
+        int superior = 0;
+        for (int j = 0; j < grupo; j++) {
+            inferior += corretas[ordem[j]][i] ? 1 : 0;
+            superior += corretas[ordem[n - 1 - j]][i] ? 1 : 0;
+        }
+
+        double media = 0.0;
+        for (double nota : notas) {
+            media += nota;
+        }
+        media /= n;
+        double variancia = 0.0;
+        for (double nota : notas) {
+            variancia += (nota - media) * (nota - media);
+        }
+        double desvio = Math.sqrt(variancia / n);
+        double somaAcerto = 0.0;
+        double somaErro = 0.0;
+        int acertos = 0;
+        for (int s = 0; s < n; s++) {
+            if (corretas[s][i]) {
+                somaAcerto += notas[s];
+                acertos++;
+            } else {
+                somaErro += notas[s];
+            }
+        }
+        double p = (double) acertos / n;
+        double pontoBisserial = acertos > 0 && acertos < n
+                ? (somaAcerto / acertos - somaErro / (n - acertos)) / desvio * Math.sqrt(p * (1 - p))
+                : 0.0;
+
+        return new ItemAnalysis(questionId, p, (double) (superior - inferior) / grupo, pontoBisserial,
+                (double) brancos / n, alternativas, outras);
+    }
+
+    private static void assertSameItem(ItemAnalysis esperado, ItemAnalysis obtido) {
+        assertEquals(esperado.questionId(), obtido.questionId());
+        assertEquals(esperado.dificuldade(), obtido.dificuldade(), 1e-4);
+        assertEquals(esperado.discriminacao(), obtido.discriminacao(), 1e-4);
+        assertEquals(esperado.pontoBisserial(), obtido.pontoBisserial(), 1e-4);
+        assertEquals(esperado.taxaBranco(), obtido.taxaBranco(), 1e-4);
+        assertEquals(esperado.alternativas(), obtido.alternativas());
+        assertEquals(esperado.outras(), obtido.outras());
+    }
+}
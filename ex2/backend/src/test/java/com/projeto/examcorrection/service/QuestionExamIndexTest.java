@@ -0,0 +1,34 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.error.ResourceNotFoundException;
+import com.projeto.examcorrection.repository.ExamRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class QuestionExamIndexTest {
+
+    @Test
+    void examId_shouldQueryOnceForRepeatedLookupsAndRejectUnknownQuestion() {
+        ExamRepository examRepository = mock(ExamRepository.class);
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        when(examRepository.findExamIdByQuestionId("q1")).thenReturn(Optional.of(exam));
+        when(examRepository.findExamIdByQuestionId("q9")).thenReturn(Optional.empty());
+        QuestionExamIndex index = new QuestionExamIndex(examRepository, 100);
+
+        assertEquals("exam1", index.examId("q1"));
+        assertEquals("exam1", index.examId("q1"));
+        verify(examRepository, times(1)).findExamIdByQuestionId("q1");
+        assertThrows(ResourceNotFoundException.class, () -> index.examId("q9"));
+
+        index.invalidate("q1");
+        index.examId("q1");
+        verify(examRepository, times(2)).findExamIdByQuestionId("q1");
+        verify(examRepository, never()).findAll();
+    }
+}
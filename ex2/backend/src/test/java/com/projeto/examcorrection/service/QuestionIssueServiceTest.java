@@ -0,0 +1,61 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.QuestionIssue;
+import com.projeto.examcorrection.repository.QuestionIssueRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class QuestionIssueServiceTest {
+
+    @Test
+    void detectAutoIssues_oneBulkWithUpsertsAndResolutions() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, QuestionIssue.class)).thenReturn(bulk);
+        when(bulk.execute()).thenReturn(BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of()));
+        QuestionIssueService service = new QuestionIssueService(mock(QuestionIssueRepository.class),
+                mock(QuestionService.class), mongoTemplate);
+        ReflectionTestUtils.setField(service, "thresholdLowAccuracy", 20.0);
+        ReflectionTestUtils.setField(service, "thresholdHighAccuracy", 95.0);
+        ReflectionTestUtils.setField(service, "thresholdHighBlank", 30.0);
+
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        exam.setQuestions(List.of(question("q1"), question("q2")));
+
+        // q1: acerto baixo e muitos brancos; q2: nenhuma condição
+        service.detectAutoIssues(exam, Map.of("q1", 10.0, "q2", 50.0), 100, Map.of("q1", 40, "q2", 5));
+
+        ArgumentCaptor<Query> upserts = ArgumentCaptor.forClass(Query.class);
+        verify(bulk, times(2)).upsert(upserts.capture(), any(Update.class));
+        assertEquals(List.of("MUITO_BAIXO_ACERTO", "ALTO_INDICE_BRANCO"), upserts.getAllValues().stream()
+                .map(q -> q.getQueryObject().getString("tipoProblema")).toList());
+
+        ArgumentCaptor<Query> resolvidas = ArgumentCaptor.forClass(Query.class);
+        verify(bulk, times(4)).updateOne(resolvidas.capture(), any(Update.class));
+        assertTrue(resolvidas.getAllValues().stream()
+                .allMatch(q -> Boolean.FALSE.equals(q.getQueryObject().get("resolvida"))));
+        verify(bulk).execute();
+    }
+
+    private static Question question(String id) {
+        Question q = new Question();
+        q.setId(id);
+        return q;
+    }
+}
@@ -0,0 +1,130 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.*;
+import com.projeto.examcorrection.dto.RegradeRequest;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.ExamReportRepository;
+import com.projeto.examcorrection.repository.ExamStatisticsRepository;
+import com.projeto.examcorrection.support.MongoTestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Executa a recorreção num MongoDB real: o {@code updateMany} com pipeline (resultados detalhados), a
+ * agregação com {@code $lookup}/{@code $merge} (resultados compactos) e o {@code $merge} que leva a nota às
+ * submissões, inclusive para ids do seed que não convertem para ObjectId. Cada resultado recorrigido é
+ * comparado com uma correção completa feita do zero com o gabarito novo.
+ */
+@EnabledIfEnvironmentVariable(named = MongoTestDatabase.URI_ENV, matches = ".+")
+class RegradeServiceMongoTest {
+
+    private MongoTestDatabase database;
+    private MongoTemplate mongoTemplate;
+    private Exam exam;
+    private AnswerKey answerKey;
+
+    @BeforeEach
+    void setUp() {
+        database = new MongoTestDatabase();
+        mongoTemplate = database.template();
+
+        exam = new Exam();
+        exam.setId("exam1");
+        exam.setProfessorId("prof1");
+        exam.setQuestions(List.of(question("q1", List.of("A", "B", "C", "D"), 2.0),
+                question("q2", List.of("V", "F"), 1.0),
+                question("q3", List.of("A", "B", "C", "D"), 1.5)));
+
+        answerKey = new AnswerKey();
+        answerKey.setExamId("exam1");
+        answerKey.setRespostas(Map.of("q1", "B", "q2", "V", "q3", "C"));
+        answerKey.setDataAtualizacao(Instant.EPOCH);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void regrade_shouldMatchFullRecorrectionWithNewKey() {
+        ScoringPlan antigo = new ScoringPlanCache(10).get(exam, answerKey);
+        CorrectionCalculator detalhado = new CorrectionCalculator();
+        CorrectionCalculator compacto = new CorrectionCalculator();
+        ReflectionTestUtils.setField(compacto, "compactResults", true);
+
+        Map<String, Map<String, String>> respostas = new LinkedHashMap<>();
+        store(detalhado, antigo, null, Map.of("q1", "B", "q2", "V", "q3", "C"), respostas);
+        store(detalhado, antigo, null, Map.of("q1", "A", "q2", "F"), respostas);
+        store(compacto, antigo, null, Map.of("q1", "A", "q2", "V", "q3", "D"), respostas);
+        // Id do seed, que não converte para ObjectId
+        store(compacto, antigo, "seed-aluno4", Map.of("q1", "C"), respostas);
+
+        AnswerKeyRepository answerKeyRepository = mock(AnswerKeyRepository.class);
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(answerKey));
+        ExamService examService = mock(ExamService.class);
+        when(examService.findById("exam1")).thenReturn(exam);
+        RegradeService regradeService = new RegradeService(examService, answerKeyRepository,
+                mock(ExamReportRepository.class), mock(ExamStatisticsRepository.class),
+                mock(ExamAggregateService.class), mock(DashboardService.class), mongoTemplate);
+
+        regradeService.regrade("exam1", new RegradeRequest(Map.of("q1", "A"), Set.of("q3")), "prof1");
+
+        ScoringPlan novo = ScoringPlan.compile("exam1", Instant.now(), exam.getQuestions(),
+                Map.of("q1", "A", "q2", "V", "q3", "C"), Set.of("q3"));
+        for (Map.Entry<String, Map<String, String>> entry : respostas.entrySet()) {
+            String submissionId = entry.getKey();
+            CorrectionResult esperado = detalhado.calculate(novo, entry.getValue(), submissionId);
+            CorrectionResult gravado = mongoTemplate.findOne(
+                    Query.query(Criteria.where("submissionId").is(submissionId)), CorrectionResult.class);
+            assertNotNull(gravado, submissionId);
+            assertEquals(esperado.getAcertos(), gravado.getAcertos(), submissionId);
+            assertEquals(esperado.getErros(), gravado.getErros(), submissionId);
+            assertEquals(esperado.getNotaFinal(), gravado.getNotaFinal(), 1e-9, submissionId);
+            assertEquals(esperado.getMapaCorrecao(), gravado.getMapaCorrecao(), submissionId);
+
+            Submission sub = mongoTemplate.findById(submissionId, Submission.class);
+            assertNotNull(sub, submissionId);
+            assertEquals(esperado.getNotaFinal(), sub.getNota(), 1e-9, submissionId);
+        }
+    }
+
+    private void store(CorrectionCalculator calculator, ScoringPlan plan, String id, Map<String, String> respostas,
+            Map<String, Map<String, String>> porSubmissao) {
+        Submission sub = new Submission();
+        sub.setId(id);
+        sub.setExamId("exam1");
+        sub.setAlunoId("aluno" + porSubmissao.size());
+        sub.setRespostas(respostas);
+        sub.setDataEnvio(Instant.now());
+        sub = mongoTemplate.insert(sub);
+
+        CorrectionResult result = calculator.calculate(plan, respostas, sub.getId());
+        mongoTemplate.insert(result);
+        sub.setCorrigida(true);
+        sub.setNota(result.getNotaFinal());
+        mongoTemplate.save(sub);
+        porSubmissao.put(sub.getId(), respostas);
+    }
+
+    private static Question question(String id, List<String> alternativas, double pontuacao) {
+        Question q = new Question();
+        q.setId(id);
+        q.setTipo(alternativas.size() == 2 ? QuestionType.VERDADEIRO_FALSO : QuestionType.OBJETIVA);
+        q.setAlternativas(alternativas);
+        q.setPontuacao(pontuacao);
+        return q;
+    }
+}
@@ -0,0 +1,145 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.result.UpdateResult;
+import com.projeto.examcorrection.domain.*;
+import com.projeto.examcorrection.dto.RegradeRequest;
+import com.projeto.examcorrection.error.BusinessRuleException;
+import com.projeto.examcorrection.repository.AnswerKeyRepository;
+import com.projeto.examcorrection.repository.ExamReportRepository;
+import com.projeto.examcorrection.repository.ExamStatisticsRepository;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegradeServiceTest {
+
+    @Mock
+    private ExamService examService;
+    @Mock
+    private AnswerKeyRepository answerKeyRepository;
+    @Mock
+    private ExamReportRepository examReportRepository;
+    @Mock
+    private ExamStatisticsRepository examStatisticsRepository;
+    @Mock
+    private ExamAggregateService examAggregateService;
+    @Mock
+    private DashboardService dashboardService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private RegradeService regradeService;
+
+    private Exam exam;
+    private AnswerKey answerKey;
+
+    @BeforeEach
+    void setUp() {
+        Question q1 = new Question();
+        q1.setId("q1");
+        q1.setTipo(QuestionType.OBJETIVA);
+        q1.setAlternativas(List.of("A", "B", "C", "D"));
+        q1.setPontuacao(2.0);
+
+        exam = new Exam();
+        exam.setId("exam1");
+        exam.setProfessorId("prof1");
+        exam.setQuestions(List.of(q1));
+
+        answerKey = new AnswerKey();
+        answerKey.setExamId("exam1");
+        answerKey.setRespostas(Map.of("q1", "B"));
+        answerKey.setDataAtualizacao(Instant.EPOCH);
+    }
+
+    @Test
+    void regrade_shouldRejectAnswerOutsideQuestionAlternatives() {
+        stubExam();
+        BusinessRuleException e = assertThrows(BusinessRuleException.class,
+                () -> regradeService.regrade("exam1", new RegradeRequest(Map.of("q1", "Z"), null), "prof1"));
+
+        assertEquals("INVALID_ANSWER", e.getCode());
+        verify(answerKeyRepository, never()).save(any());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void regrade_shouldSaveKeyBeforeRegradingAndMergeGradesIntoSubmissions() {
+        stubExam();
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        AggregateIterable<Document> agregacao = mock(AggregateIterable.class);
+        when(collection.updateMany(any(Bson.class), anyList())).thenReturn(UpdateResult.acknowledged(2, 2L, null));
+        when(collection.countDocuments(any(Bson.class))).thenReturn(0L);
+        when(collection.aggregate(anyList())).thenReturn(agregacao);
+        when(mongoTemplate.execute(eq(CorrectionResult.class), any(CollectionCallback.class)))
+                .thenAnswer(inv -> inv.<CollectionCallback<?>>getArgument(1).doInCollection(collection));
+        when(mongoTemplate.getCollectionName(Submission.class)).thenReturn("submissions");
+
+        regradeService.regrade("exam1", new RegradeRequest(Map.of("q1", "A"), null), "prof1");
+
+        // O gabarito novo é gravado antes dos pipelines, para que correções concorrentes detectem a troca
+        var ordem = inOrder(answerKeyRepository, collection);
+        ordem.verify(answerKeyRepository).save(argThat(ak -> "A".equals(ak.getRespostas().get("q1"))));
+        ordem.verify(collection).updateMany(any(Bson.class), anyList());
+
+        ArgumentCaptor<List<Document>> pipeline = ArgumentCaptor.captor();
+        verify(collection).aggregate(pipeline.capture());
+        List<Document> estagios = pipeline.getValue();
+        Document merge = estagios.get(estagios.size() - 1).get("$merge", Document.class);
+        assertEquals("submissions", merge.get("into"));
+        assertEquals("_id", merge.get("on"));
+        assertEquals("discard", merge.get("whenNotMatched"));
+        Document convert = estagios.get(1).get("$project", Document.class).get("_id", Document.class)
+                .get("$convert", Document.class);
+        assertEquals("objectId", convert.get("to"));
+        assertEquals("$submissionId", convert.get("onError"));
+        verify(agregacao).toCollection();
+        verify(examAggregateService).rebuild(any(Exam.class));
+    }
+
+    @Test
+    void regradePipeline_shouldRewriteOnlyChangedQuestions() {
+        Question q1 = new Question();
+        q1.setId("q1");
+        q1.setPontuacao(2.0);
+        Question q2 = new Question();
+        q2.setId("q2");
+        q2.setPontuacao(1.0);
+
+        List<Document> pipeline = RegradeService.regradePipeline(Map.of("q1", q1, "q2", q2), Set.of("q2"),
+                Map.of("q1", "A"));
+
+        assertEquals(2, pipeline.size());
+        List<?> branches = pipeline.get(0).get("$set", Document.class).get("detalhesPorQuestao", Document.class)
+                .get("$map", Document.class).get("in", Document.class).get("$switch", Document.class)
+                .getList("branches", Document.class);
+        assertEquals(2, branches.size());
+        Set<String> chaves = pipeline.get(1).get("$set", Document.class).keySet();
+        assertEquals(Set.of("acertos", "erros", "notaFinal", "mapaCorrecao"), chaves);
+    }
+
+    private void stubExam() {
+        when(examService.findById("exam1")).thenReturn(exam);
+        when(answerKeyRepository.findByExamId("exam1")).thenReturn(Optional.of(answerKey));
+    }
+}
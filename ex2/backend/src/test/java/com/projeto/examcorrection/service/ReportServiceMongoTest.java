@@ -0,0 +1,246 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.*;
+import com.projeto.examcorrection.repository.ExamAggregateRepository;
+import com.projeto.examcorrection.repository.ExamItemAnalysisRepository;
+import com.projeto.examcorrection.repository.ExamReportRepository;
+import com.projeto.examcorrection.repository.ExamStatisticsRepository;
+import com.projeto.examcorrection.support.MongoTestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Executa num MongoDB real as agregações que alimentam relatório e estatísticas ({@code $group} do
+ * resumo e do histograma, {@code $bucket} das faixas, {@code $unwind}/{@code $group} dos acertos e das
+ * respostas) e compara o relatório e as estatísticas gerados com a implementação anterior, que lia cada
+ * submissão e buscava o resultado de cada uma para cada questão, sobre a mesma massa de dados.
+ */
+@EnabledIfEnvironmentVariable(named = MongoTestDatabase.URI_ENV, matches = ".+")
+class ReportServiceMongoTest {
+
+    private final Random random = new Random(11);
+
+    private MongoTestDatabase database;
+    private MongoTemplate mongoTemplate;
+    private Exam exam;
+    private List<Question> questions;
+    private List<Submission> corrected;
+    private Map<String, CorrectionResult> results;
+
+    @BeforeEach
+    void setUp() {
+        database = new MongoTestDatabase();
+        mongoTemplate = database.template();
+
+        questions = new ArrayList<>();
+        Map<String, String> gabarito = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            Question q = new Question();
+            q.setId("q" + i);
+            q.setTipo(QuestionType.OBJETIVA);
+            q.setAlternativas(List.of("A", "B", "C", "D"));
+            q.setPontuacao(0.5 + random.nextInt(4) * 0.25);
+            questions.add(q);
+            gabarito.put(q.getId(), q.getAlternativas().get(random.nextInt(4)));
+        }
+        exam = new Exam();
+        exam.setId("exam1");
+        exam.setProfessorId("prof1");
+        exam.setQuestions(questions);
+
+        ScoringPlan plan = ScoringPlan.compile("exam1", Instant.EPOCH, questions, gabarito);
+        CorrectionCalculator detalhado = new CorrectionCalculator();
+        CorrectionCalculator compacto = new CorrectionCalculator();
+        ReflectionTestUtils.setField(compacto, "compactResults", true);
+
+        corrected = new ArrayList<>();
+        results = new HashMap<>();
+        List<Submission> submissions = new ArrayList<>();
+        for (int s = 0; s < 400; s++) {
+            Map<String, String> respostas = new HashMap<>();
+            for (Question q : questions) {
+                if (random.nextInt(6) > 0) {
+                    respostas.put(q.getId(), q.getAlternativas().get(random.nextInt(4)));
+                }
+            }
+            Submission sub = submission("sub" + s, "exam1", respostas);
+            sub.setCorrigida(true);
+
+            // Algumas submissões do seed são marcadas como corrigidas sem resultado gravado
+            if (s % 25 != 0) {
+                CorrectionResult result = (s % 2 == 0 ? detalhado : compacto).calculate(plan, respostas, sub.getId());
+                results.put(sub.getId(), result);
+                sub.setNota(result.getNotaFinal());
+            } else {
+                sub.setNota(random.nextInt(20) * 1.0);
+            }
+            corrected.add(sub);
+            submissions.add(sub);
+        }
+        corrected.get(0).setNota(questions.stream().mapToDouble(Question::getPontuacao).sum());
+
+        // Fora do filtro: submissão pendente da prova e submissão corrigida de outra prova
+        submissions.add(submission("pendente", "exam1", Map.of("q0", "A")));
+        Submission outra = submission("outra", "exam2", Map.of("q0", "A"));
+        outra.setCorrigida(true);
+        outra.setNota(1.0);
+        submissions.add(outra);
+        CorrectionResult resultadoOutra = detalhado.calculate(
+                ScoringPlan.compile("exam2", Instant.EPOCH, questions, gabarito), outra.getRespostas(), "outra");
+
+        mongoTemplate.insert(submissions, Submission.class);
+        List<CorrectionResult> todos = new ArrayList<>(results.values());
+        todos.add(resultadoOutra);
+        mongoTemplate.insert(todos, CorrectionResult.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void reportAndStatistics_shouldMatchPreviousInMemoryComputation() {
+        ExamAggregateRepository aggregateRepository = mock(ExamAggregateRepository.class);
+        when(aggregateRepository.findByExamId("exam1")).thenReturn(Optional.empty());
+        ExamAggregateService aggregateService = new ExamAggregateService(aggregateRepository, mongoTemplate);
+        ExamAggregate aggregate = aggregateService.rebuild(exam);
+
+        ExamAggregateService leitura = mock(ExamAggregateService.class);
+        when(leitura.get(exam)).thenReturn(aggregate);
+        ExamReportRepository reportRepository = mock(ExamReportRepository.class);
+        ExamStatisticsRepository statisticsRepository = mock(ExamStatisticsRepository.class);
+        QuestionIssueService questionIssueService = mock(QuestionIssueService.class);
+        when(reportRepository.findByExamId("exam1")).thenReturn(Optional.empty());
+        when(statisticsRepository.findByExamId("exam1")).thenReturn(Optional.empty());
+        ReportService service = new ReportService(mock(ExamService.class), reportRepository, statisticsRepository,
+                questionIssueService, leitura, mock(ExamItemAnalysisRepository.class),
+                mock(ItemAnalysisService.class));
+
+        service.materializeReport(exam);
+        service.materializeStatistics(exam);
+
+        ArgumentCaptor<ExamReport> report = ArgumentCaptor.forClass(ExamReport.class);
+        verify(reportRepository).save(report.capture());
+        List<Double> notas = corrected.stream().map(Submission::getNota).toList();
+        double media = notas.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        assertEquals(corrected.size(), report.getValue().getTotalSubmissoes());
+        assertEquals(Math.round(media * 100.0) / 100.0, report.getValue().getMediaNotas());
+        assertEquals(notas.stream().mapToDouble(Double::doubleValue).max().orElse(0), report.getValue().getMaiorNota());
+        assertEquals(notas.stream().mapToDouble(Double::doubleValue).min().orElse(0), report.getValue().getMenorNota());
+
+        ArgumentCaptor<ExamStatistics> stats = ArgumentCaptor.forClass(ExamStatistics.class);
+        verify(statisticsRepository).save(stats.capture());
+        Map<String, Double> percentualAcerto = legacyPercentualAcerto();
+        assertEquals(List.copyOf(percentualAcerto.keySet()),
+                List.copyOf(stats.getValue().getPercentualAcertoPorQuestao().keySet()));
+        assertEquals(percentualAcerto, stats.getValue().getPercentualAcertoPorQuestao());
+        Map<String, Integer> distribuicao = legacyDistribuicao();
+        assertEquals(List.copyOf(distribuicao.keySet()), List.copyOf(stats.getValue().getDistribuicaoNotas().keySet()));
+        assertEquals(distribuicao, stats.getValue().getDistribuicaoNotas());
+
+        ArgumentCaptor<Map<String, Integer>> brancos = ArgumentCaptor.captor();
+        verify(questionIssueService).detectAutoIssues(eq(exam), eq(percentualAcerto), eq(corrected.size()),
+                brancos.capture());
+        assertEquals(legacyBrancos(), brancos.getValue());
+        assertEquals(legacyHistograma(), aggregate.getHistogramaNotas());
+    }
+
+    // Implementação anterior de ReportService, com os repositórios trocados pela massa em memória
+
+    private Map<String, Double> legacyPercentualAcerto() {
+        int total = corrected.size();
+        Map<String, Double> percentualAcerto = new LinkedHashMap<>();
+        for (Question q : questions) {
+            long acertos = corrected.stream()
+                    .filter(s -> {
+                        CorrectionResult cr = results.get(s.getId());
+                        if (cr == null)
+                            return false;
+                        return detalhes(cr).stream()
+                                .filter(d -> d.questionId().equals(q.getId()))
+                                .findFirst()
+                                .map(QuestionDetail::correta)
+                                .orElse(false);
+                    }).count();
+            double pct = Math.round((acertos * 100.0 / total) * 100.0) / 100.0;
+            percentualAcerto.put(q.getId(), pct);
+        }
+        return percentualAcerto;
+    }
+
+    private Map<String, Integer> legacyDistribuicao() {
+        double maxNota = questions.stream().mapToDouble(Question::getPontuacao).sum();
+        Map<String, Integer> distribuicao = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            String faixa = (i * 10) + "-" + ((i + 1) * 10) + "%";
+            distribuicao.put(faixa, 0);
+        }
+        for (Submission s : corrected) {
+            double pct = maxNota > 0 ? (s.getNota() / maxNota) * 100.0 : 0;
+            int bucket = Math.min((int) (pct / 10), 9);
+            String faixa = (bucket * 10) + "-" + ((bucket + 1) * 10) + "%";
+            distribuicao.merge(faixa, 1, Integer::sum);
+        }
+        return distribuicao;
+    }
+
+    /** Brancos por questão como em generateAutoIssues; o agregado só guarda as questões com algum branco. */
+    private Map<String, Integer> legacyBrancos() {
+        Map<String, Integer> brancos = new HashMap<>();
+        for (Question q : questions) {
+            int blanks = (int) corrected.stream()
+                    .filter(s -> s.getRespostas() == null || !s.getRespostas().containsKey(q.getId())
+                            || s.getRespostas().get(q.getId()) == null)
+                    .count();
+            if (blanks > 0) {
+                brancos.put(q.getId(), blanks);
+            }
+        }
+        return brancos;
+    }
+
+    private Map<String, Integer> legacyHistograma() {
+        double maxNota = questions.stream().mapToDouble(Question::getPontuacao).sum();
+        Map<String, Integer> histograma = new HashMap<>();
+        for (Submission s : corrected) {
+            histograma.merge(String.valueOf(GradeSketch.posicao(s.getNota(), maxNota)), 1, Integer::sum);
+        }
+        return histograma;
+    }
+
+    /** Detalhes como a implementação anterior os via; resultados compactos são expandidos pelo mapa. */
+    private List<QuestionDetail> detalhes(CorrectionResult cr) {
+        if (cr.getDetalhesPorQuestao() != null) {
+            return cr.getDetalhesPorQuestao();
+        }
+        List<QuestionDetail> detalhes = new ArrayList<>();
+        for (int i = 0; i < cr.getMapaCorrecao().length(); i++) {
+            detalhes.add(new QuestionDetail(questions.get(i).getId(),
+                    cr.getMapaCorrecao().charAt(i) == CorrectionCalculator.CORRETA, null, null, 0.0));
+        }
+        return detalhes;
+    }
+
+    private static Submission submission(String id, String examId, Map<String, String> respostas) {
+        Submission sub = new Submission();
+        sub.setId(id);
+        sub.setExamId(examId);
+        sub.setAlunoId("aluno-" + id);
+        sub.setRespostas(respostas);
+        sub.setDataEnvio(Instant.now());
+        return sub;
+    }
+}
@@ -0,0 +1,119 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.Exam;
+import com.projeto.examcorrection.domain.ExamAggregate;
+import com.projeto.examcorrection.domain.ExamReport;
+import com.projeto.examcorrection.domain.Question;
+import com.projeto.examcorrection.domain.QuestionType;
+import com.projeto.examcorrection.repository.ExamItemAnalysisRepository;
+import com.projeto.examcorrection.repository.ExamReportRepository;
+import com.projeto.examcorrection.repository.ExamStatisticsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReportServiceTest {
+
+    private List<Question> questions;
+
+    @BeforeEach
+    void setUp() {
+        questions = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Question q = new Question();
+            q.setId("q" + i);
+            q.setTipo(QuestionType.OBJETIVA);
+            q.setAlternativas(List.of("A", "B", "C", "D"));
+            q.setPontuacao(1.0);
+            questions.add(q);
+        }
+    }
+
+    @Test
+    void getReport_shouldServeStaleReportAndScheduleSingleRefresh() {
+        ExamService examService = mock(ExamService.class);
+        ExamReportRepository reportRepository = mock(ExamReportRepository.class);
+        ExamAggregateService aggregateService = mock(ExamAggregateService.class);
+        ReportService service = new ReportService(examService, reportRepository, mock(ExamStatisticsRepository.class),
+                mock(QuestionIssueService.class), aggregateService, mock(ExamItemAnalysisRepository.class),
+                mock(ItemAnalysisService.class));
+
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        exam.setProfessorId("prof1");
+        exam.setQuestions(questions);
+        ExamAggregate aggregate = new ExamAggregate();
+        aggregate.setExamId("exam1");
+        aggregate.setTotal(10);
+        aggregate.setSomaNotas(75.0);
+        aggregate.setMenorNota(2.0);
+        aggregate.setMaiorNota(10.0);
+        aggregate.setVersao(12);
+        ExamReport cached = new ExamReport();
+        cached.setExamId("exam1");
+        cached.setVersao(7);
+        when(examService.findById("exam1")).thenReturn(exam);
+        when(aggregateService.get(exam)).thenReturn(aggregate);
+        when(reportRepository.findByExamId("exam1")).thenReturn(Optional.of(cached));
+        when(reportRepository.save(any(ExamReport.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        for (int i = 0; i < 5; i++) {
+            ExamReport report = service.getReport("exam1", "prof1");
+            assertTrue(report.isDesatualizado());
+            assertEquals(5, report.getVersoesPendentes());
+        }
+        verify(reportRepository, never()).save(any());
+
+        service.refreshPending();
+        service.refreshPending();
+
+        verify(reportRepository, times(1)).save(cached);
+        assertEquals(12, cached.getVersao());
+        assertEquals(7.5, cached.getMediaNotas());
+    }
+
+    @Test
+    void materializeReport_shouldBuildOnceForCurrentVersion() {
+        ExamReportRepository reportRepository = mock(ExamReportRepository.class);
+        ExamAggregateService aggregateService = mock(ExamAggregateService.class);
+        ReportService service = new ReportService(mock(ExamService.class), reportRepository,
+                mock(ExamStatisticsRepository.class), mock(QuestionIssueService.class), aggregateService,
+                mock(ExamItemAnalysisRepository.class), mock(ItemAnalysisService.class));
+
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        exam.setQuestions(questions);
+        ExamAggregate aggregate = new ExamAggregate();
+        aggregate.setExamId("exam1");
+        aggregate.setTotal(4);
+        aggregate.setSomaNotas(20.0);
+        aggregate.setMenorNota(3.0);
+        aggregate.setMaiorNota(7.0);
+        aggregate.setVersao(3);
+        when(aggregateService.get(exam)).thenReturn(aggregate);
+        when(reportRepository.findByExamId("exam1")).thenReturn(Optional.empty());
+        when(reportRepository.save(any(ExamReport.class))).thenAnswer(inv -> {
+            ExamReport saved = inv.getArgument(0);
+            saved.setId("r1");
+            return saved;
+        });
+
+        service.materializeReport(exam);
+        ArgumentCaptor<ExamReport> salvo = ArgumentCaptor.forClass(ExamReport.class);
+        verify(reportRepository).save(salvo.capture());
+        assertEquals(3, salvo.getValue().getVersao());
+
+        // Retomada depois de uma queda: o relatório já está na versão atual e não é regerado
+        when(reportRepository.findByExamId("exam1")).thenReturn(Optional.of(salvo.getValue()));
+        service.materializeReport(exam);
+        verify(reportRepository, times(1)).save(any());
+    }
+}
@@ -0,0 +1,38 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.error.BusinessRuleException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultExportServiceTest {
+
+    @Test
+    void csvLine_shouldQuoteOnlyFieldsThatNeedIt() {
+        String linha = new String(ResultExportService.csvLine(
+                List.of("s1", "Silva, Ana", "diz \"oi\"", "", "7.5")), StandardCharsets.UTF_8);
+
+        assertEquals("s1,\"Silva, Ana\",\"diz \"\"oi\"\"\",,7.5\r\n", linha);
+    }
+
+    @Test
+    void csvLine_shouldNeutralizeFormulaCells() {
+        String linha = new String(ResultExportService.csvLine(
+                List.of("=HYPERLINK(\"http://x\",\"Ana\")", "+1", "-2+3", "@SUM(A1)", "\tcmd", "\rcmd", "Ana")),
+                StandardCharsets.UTF_8);
+
+        assertEquals("\"'=HYPERLINK(\"\"http://x\"\",\"\"Ana\"\")\",'+1,'-2+3,'@SUM(A1),'\tcmd,\"'\rcmd\",Ana\r\n",
+                linha);
+    }
+
+    @Test
+    void formato_shouldRejectUnknownFormat() {
+        assertEquals(ResultExportService.Formato.NDJSON, ResultExportService.formato("ndjson"));
+        BusinessRuleException e = assertThrows(BusinessRuleException.class,
+                () -> ResultExportService.formato("xlsx"));
+        assertEquals("INVALID_EXPORT_FORMAT", e.getCode());
+    }
+}
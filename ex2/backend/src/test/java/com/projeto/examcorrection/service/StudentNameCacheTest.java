@@ -0,0 +1,55 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StudentNameCacheTest {
+
+    @Test
+    void nomes_shouldLoadMissesInOneQueryAndFallBackToEmailOrId() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(User.class)))
+                .thenReturn(List.of(user("a1", "Ana", "ana@x.com"), user("a2", " ", "bia@x.com")));
+        StudentNameCache cache = new StudentNameCache(mongoTemplate, 100, 60);
+
+        Map<String, String> nomes = cache.nomes(List.of("a1", "a2", "a3"));
+        assertEquals(Map.of("a1", "Ana", "a2", "bia@x.com", "a3", "a3"), nomes);
+        assertEquals("Ana", cache.nome("a1"));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(User.class));
+
+        cache.invalidate("a1");
+        cache.nome("a1");
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(User.class));
+    }
+
+    @Test
+    void nomeAtual_shouldReadTheUserEvenWhenCached() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(User.class)))
+                .thenReturn(List.of(user("a1", "Ana", "ana@x.com")), List.of(user("a1", "Ana Maria", "ana@x.com")));
+        StudentNameCache cache = new StudentNameCache(mongoTemplate, 100, 60);
+
+        assertEquals("Ana", cache.nome("a1"));
+        // Renomeada em outra instância: o cache local ainda tem o nome antigo
+        assertEquals("Ana Maria", cache.nomeAtual("a1"));
+        assertEquals("Ana Maria", cache.nome("a1"));
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(User.class));
+    }
+
+    private static User user(String id, String nome, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setNome(nome);
+        user.setEmail(email);
+        return user;
+    }
+}
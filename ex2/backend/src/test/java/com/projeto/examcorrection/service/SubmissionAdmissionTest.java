@@ -0,0 +1,84 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.domain.SubmissionReceipt;
+import com.projeto.examcorrection.dto.SubmissionReceiptResponse;
+import com.projeto.examcorrection.dto.SubmissionResponse;
+import com.projeto.examcorrection.error.ResourceNotFoundException;
+import com.projeto.examcorrection.error.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SubmissionAdmissionTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void admit_shouldReturnReceiptWhenQueueIsDeepAndRejectAboveTheBound() throws Exception {
+        SubmissionAdmission admission = new SubmissionAdmission(executor, mongoTemplate, 2, 50, 7, 3600);
+        Instant recebidaEm = Instant.parse("2026-06-01T12:00:00Z");
+        CountDownLatch liberar = new CountDownLatch(1);
+        Supplier<SubmissionResponse> lento = () -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new SubmissionResponse("sub1", "exam1", "aluno1", "Aluno", Map.of(), null, false, recebidaEm);
+        };
+
+        SubmissionAdmission.Admissao primeira = admission.admit("exam1", "aluno1", recebidaEm, lento);
+        SubmissionAdmission.Admissao segunda = admission.admit("exam1", "aluno2", recebidaEm, lento);
+        ServiceOverloadedException cheia = assertThrows(ServiceOverloadedException.class,
+                () -> admission.admit("exam1", "aluno3", recebidaEm, lento));
+        // O limite é por prova: outra prova ainda é admitida e fica na fila do pool
+        assertNotNull(admission.admit("exam2", "aluno3", recebidaEm, lento).recibo());
+
+        assertNull(primeira.submissao());
+        SubmissionReceiptResponse recibo = primeira.recibo();
+        assertEquals("PENDENTE", recibo.status());
+        assertEquals(recebidaEm, recibo.recebidaEm());
+        assertNotNull(segunda.recibo());
+        assertEquals(7, cheia.getRetryAfterSeconds());
+        assertThrows(ResourceNotFoundException.class, () -> admission.findReceipt(recibo.id(), "aluno2"));
+
+        liberar.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals("ACEITA", admission.findReceipt(recibo.id(), "aluno1").status());
+        assertEquals("sub1", admission.findReceipt(recibo.id(), "aluno1").submissionId());
+        assertEquals(0, admission.pending("exam1"));
+
+        // Os recibos entregues com 202 são gravados e atualizados na conclusão, para outras instâncias
+        ArgumentCaptor<SubmissionReceipt> gravado = ArgumentCaptor.forClass(SubmissionReceipt.class);
+        verify(mongoTemplate, atLeastOnce()).save(gravado.capture());
+        SubmissionReceipt concluido = gravado.getAllValues().stream()
+                .filter(r -> r.getId().equals(recibo.id())).findFirst().orElseThrow();
+        assertEquals("ACEITA", concluido.getStatus());
+        assertEquals("sub1", concluido.getSubmissionId());
+
+        // Recibo emitido por outra instância
+        SubmissionAdmission outra = new SubmissionAdmission(executor, mongoTemplate, 2, 50, 7, 3600);
+        when(mongoTemplate.findById(recibo.id(), SubmissionReceipt.class)).thenReturn(concluido);
+        assertEquals("sub1", outra.findReceipt(recibo.id(), "aluno1").submissionId());
+        assertThrows(ResourceNotFoundException.class, () -> outra.findReceipt(recibo.id(), "aluno2"));
+    }
+}
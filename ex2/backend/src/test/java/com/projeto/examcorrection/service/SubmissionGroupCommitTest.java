@@ -0,0 +1,94 @@
+package com.projeto.examcorrection.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.projeto.examcorrection.domain.Submission;
+import com.projeto.examcorrection.error.ConflictException;
+import com.projeto.examcorrection.error.ServiceOverloadedException;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SubmissionGroupCommitTest {
+
+    private final ExecutorService requisicoes = Executors.newFixedThreadPool(3);
+    private SubmissionGroupCommit groupCommit;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        requisicoes.shutdownNow();
+        groupCommit.shutdown();
+    }
+
+    @Test
+    void insert_shouldWriteConcurrentSubmissionsInOneBatchAndRejectOnlyTheDuplicate() throws Exception {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Submission.class)).thenReturn(bulk);
+        List<List<?>> lotes = new ArrayList<>();
+        when(bulk.insert(anyList())).thenAnswer(inv -> {
+            lotes.add(inv.getArgument(0));
+            return bulk;
+        });
+        // O segundo documento do lote viola o índice único exam+aluno
+        BulkWriteError duplicata = new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1);
+        when(bulk.execute()).thenThrow(new BulkOperationException("duplicate", new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of()), List.of(duplicata), null,
+                new ServerAddress(), Set.of())));
+        groupCommit = new SubmissionGroupCommit(mongoTemplate, true, 3, 1_000, 5_000);
+
+        List<CompletableFuture<Submission>> envios = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Submission sub = new Submission();
+            sub.setAlunoId("aluno" + i);
+            envios.add(CompletableFuture.supplyAsync(() -> groupCommit.insert(sub), requisicoes));
+        }
+
+        int conflitos = 0;
+        for (CompletableFuture<Submission> envio : envios) {
+            try {
+                assertNotNull(envio.join().getId());
+            } catch (RuntimeException e) {
+                assertInstanceOf(ConflictException.class, e.getCause());
+                conflitos++;
+            }
+        }
+        assertEquals(1, conflitos);
+        assertEquals(1, lotes.size());
+        assertEquals(3, lotes.get(0).size());
+        verify(bulk, times(1)).execute();
+    }
+
+    @Test
+    void insert_shouldFailPendingAndRejectNewSubmissionsWhenTheFlusherDies() throws Exception {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Submission.class))
+                .thenThrow(new OutOfMemoryError("simulado"));
+        groupCommit = new SubmissionGroupCommit(mongoTemplate, true, 3, 1, 5_000);
+
+        CompletableFuture<Submission> envio = CompletableFuture.supplyAsync(
+                () -> groupCommit.insert(new Submission()), requisicoes);
+        RuntimeException falha = assertThrows(RuntimeException.class, envio::join);
+        assertInstanceOf(IllegalStateException.class, falha.getCause());
+
+        ServiceOverloadedException recusa = assertThrows(ServiceOverloadedException.class,
+                () -> groupCommit.insert(new Submission()));
+        assertEquals("SUBMISSION_WRITER_UNAVAILABLE", recusa.getCode());
+    }
+}
@@ -0,0 +1,40 @@
+package com.projeto.examcorrection.service;
+
+import com.projeto.examcorrection.error.BusinessRuleException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubmissionListQueryTest {
+
+    @Test
+    void of_shouldResumeAfterCursorKeyAndImplyCorrectedForGradeRange() {
+        String id = new ObjectId().toHexString();
+        Instant dataEnvio = Instant.parse("2026-06-01T12:00:00.123Z");
+
+        SubmissionListQuery consulta = SubmissionListQuery.of(SubmissionListQuery.cursor(dataEnvio, id), 20, null,
+                6.0, null, "desc", false);
+        Document filtro = SubmissionService.filter("exam1", null, consulta);
+
+        assertEquals(Boolean.TRUE, filtro.get("corrigida"));
+        assertEquals(new Document("$gte", 6.0), filtro.get("nota"));
+        List<Document> chave = filtro.getList("$or", Document.class);
+        assertEquals(new Document("$lt", Date.from(dataEnvio)), chave.get(0).get("dataEnvio"));
+        assertEquals(Date.from(dataEnvio), chave.get(1).get("dataEnvio"));
+        assertEquals(new Document("$lt", new ObjectId(id)), chave.get(1).get("_id"));
+    }
+
+    @Test
+    void of_shouldRejectInvalidCursorAndPageSize() {
+        assertEquals("INVALID_CURSOR", assertThrows(BusinessRuleException.class,
+                () -> SubmissionListQuery.of("nao-e-cursor", null, null, null, null, "asc", false)).getCode());
+        assertEquals("INVALID_PAGE_SIZE", assertThrows(BusinessRuleException.class,
+                () -> SubmissionListQuery.of(null, 0, null, null, null, "asc", false)).getCode());
+    }
+}
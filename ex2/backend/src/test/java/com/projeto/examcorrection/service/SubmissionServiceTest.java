@@ -0,0 +1,74 @@
+package com.projeto.examcorrection.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projeto.examcorrection.domain.*;
+import com.projeto.examcorrection.dto.SubmissionRequest;
+import com.projeto.examcorrection.error.ConflictException;
+import com.projeto.examcorrection.repository.SubmissionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubmissionServiceTest {
+
+    @Mock
+    private SubmissionRepository submissionRepository;
+    @Mock
+    private ExamService examService;
+    @Mock
+    private StudentNameCache studentNameCache;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private CorrectionService correctionService;
+    @Mock
+    private DashboardService dashboardService;
+    @Mock
+    private SubmissionGroupCommit groupCommit;
+    @Mock
+    private DraftService draftService;
+    @Mock
+    private ObjectMapper objectMapper;
+
+    @InjectMocks
+    private SubmissionService submissionService;
+
+    @Test
+    void create_shouldReturnConflict_whenInlineCorrectionHitsDuplicateWithGroupCommit() {
+        Question q1 = new Question();
+        q1.setId("q1");
+        q1.setTipo(QuestionType.OBJETIVA);
+        q1.setAlternativas(List.of("A", "B"));
+        q1.setPontuacao(1.0);
+        Exam exam = new Exam();
+        exam.setId("exam1");
+        exam.setStatus(ExamStatus.PUBLICADA);
+        exam.setCorrecaoAutomatica(true);
+        exam.setQuestions(List.of(q1));
+        Instant agora = Instant.now();
+        when(examService.snapshotAcceptingAnswers("exam1", agora)).thenReturn(ExamSnapshot.compile(exam));
+        // Com a gravação em grupo a checagem prévia é pulada; o índice único exam+aluno barra a duplicata
+        when(groupCommit.isEnabled()).thenReturn(true);
+        when(correctionService.correctOnSubmit(eq(exam), any(Submission.class)))
+                .thenThrow(new DuplicateKeyException("E11000 exam_aluno_unique"));
+
+        ConflictException ex = assertThrows(ConflictException.class, () -> submissionService.create("exam1",
+                new SubmissionRequest(Map.of("q1", "A")), "aluno1", agora));
+
+        assertEquals("SUBMISSION_ALREADY_EXISTS", ex.getCode());
+        verify(submissionRepository, never()).existsByExamIdAndAlunoId(any(), any());
+    }
+}
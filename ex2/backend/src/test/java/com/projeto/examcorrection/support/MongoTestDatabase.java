@@ -0,0 +1,51 @@
+package com.projeto.examcorrection.support;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Banco descartável em um MongoDB real, para testes que precisam executar agregações e pipelines de
+ * atualização no servidor. Esses testes só rodam com {@value #URI_ENV} definida (por exemplo
+ * {@code mongodb://localhost:27017}); cada instância cria um banco próprio e o remove ao fechar.
+ */
+public final class MongoTestDatabase implements AutoCloseable {
+
+    public static final String URI_ENV = "MONGODB_TEST_URI";
+
+    private final MongoClient client;
+    private final String database;
+    private final MongoTemplate template;
+
+    public MongoTestDatabase() {
+        this.client = MongoClients.create(System.getenv(URI_ENV));
+        this.database = "examcorrection_test_" + UUID.randomUUID().toString().replace("-", "");
+
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        this.template = new MongoTemplate(new SimpleMongoClientDatabaseFactory(client, database), converter);
+    }
+
+    public MongoTemplate template() {
+        return template;
+    }
+
+    @Override
+    public void close() {
+        client.getDatabase(database).drop();
+        client.close();
+    }
+}
@@ -1,14 +1,30 @@
 import api from './client';
 
-export const getSubmissions = (examId) => api.get(`/exams/${examId}/submissions`);
+export const getSubmissions = (examId, params = {}) => api.get(`/exams/${examId}/submissions`, { params });
 export const getSubmission = (id) => api.get(`/submissions/${id}`);
-export const createSubmission = (examId, data) => api.post(`/exams/${examId}/submissions`, data);
+// Idempotency-Key: repetições do mesmo envio recebem a resposta original em vez de um erro de duplicata
+const idempotent = (key = crypto.randomUUID()) => ({ headers: { 'Idempotency-Key': key } });
 
-export const correctSubmission = (id) => api.post(`/submissions/${id}/correct`);
-export const getCorrectionResult = (id) => api.get(`/submissions/${id}/correction-result`);
+export const createSubmission = (examId, data, key) =>
+    api.post(`/exams/${examId}/submissions`, data, idempotent(key));
+
+export const getDraft = (examId) => api.get(`/exams/${examId}/draft`);
+export const patchDraft = (examId, respostas, versao) => api.patch(`/exams/${examId}/draft`, { respostas, versao });
+// versao: a do último PATCH; o servidor espera o rascunho alcançá-la antes de promovê-lo
+export const submitDraft = (examId, versao, key) =>
+    api.post(`/exams/${examId}/draft/submit`, null, { ...idempotent(key), params: { versao } });
+export const getReceipt = (id) => api.get(`/submissions/receipts/${id}`);
+
+export const correctSubmission = (id, key) => api.post(`/submissions/${id}/correct`, null, idempotent(key));
+export const correctAll = (examId) => api.post(`/exams/${examId}/correct-all`);
+export const getCorrectionResult = (id, details = true) =>
+    api.get(`/submissions/${id}/correction-result`, { params: { details } });
 
 export const getReport = (examId) => api.get(`/exams/${examId}/report`);
 export const getStatistics = (examId) => api.get(`/exams/${examId}/statistics`);
+export const getItemAnalysis = (examId) => api.get(`/exams/${examId}/item-analysis`);
+export const exportResults = (examId, format = 'csv', gzip = false) =>
+    api.get(`/exams/${examId}/results/export`, { params: { format, gzip }, responseType: 'blob' });
 
 export const getIssues = (questionId) => api.get(`/questions/${questionId}/issues`);
 export const createIssue = (questionId, data) => api.post(`/questions/${questionId}/issues`, data);
@@ -14,9 +14,18 @@ export default function ExamHeader({ exam, isProfessor, id, onPublish, onClose }
         <div className="bg-slate-800/50 rounded-xl border border-slate-700/50 p-6 mb-6">
             <div className="flex justify-between items-start mb-4">
                 <h1 className="text-2xl font-bold text-white">{exam.titulo}</h1>
-                <span className={`text-xs px-2 py-1 rounded-full border ${STATUS_COLORS[exam.status]}`}>
-                    {label(STATUS_LABEL, exam.status)}
-                </span>
+                <div className="flex gap-2">
+                    {exam.status === 'ENCERRADA' && (
+                        <span className={`text-xs px-2 py-1 rounded-full border ${exam.resultadosProntos
+                            ? 'bg-green-500/10 text-green-400 border-green-500/20'
+                            : 'bg-slate-500/10 text-slate-400 border-slate-500/20'}`}>
+                            {exam.resultadosProntos ? 'Resultados prontos' : 'Processando resultados...'}
+                        </span>
+                    )}
+                    <span className={`text-xs px-2 py-1 rounded-full border ${STATUS_COLORS[exam.status]}`}>
+                        {label(STATUS_LABEL, exam.status)}
+                    </span>
+                </div>
             </div>
             <p className="text-slate-400 mb-4">{exam.descricao || 'Sem descrição'}</p>
 
@@ -1,7 +1,7 @@
 import { START_LABEL, TIPO_QUESTAO_LABEL, label } from '../utils/labels';
 import { useNavigate } from 'react-router-dom';
 
-export default function QuestionList({ questions, isProfessor, examStatus, alreadySubmitted, onAnswerChange, examId }) {
+export default function QuestionList({ questions, isProfessor, examStatus, alreadySubmitted, answers, onAnswerChange, examId }) {
     const navigate = useNavigate();
 
     return (
@@ -19,6 +19,7 @@ export default function QuestionList({ questions, isProfessor, examStatus, alrea
                                 <label key={i} className="flex items-center gap-2 text-sm text-slate-300 cursor-pointer hover:text-white transition">
                                     {!isProfessor && examStatus === 'PUBLICADA' && !alreadySubmitted && (
                                         <input type="radio" name={q.id} value={alt}
+                                            checked={answers?.[q.id] === alt}
                                             onChange={() => onAnswerChange(q.id, alt)}
                                             className="accent-blue-500" />
                                     )}
@@ -1,13 +1,19 @@
 import { useNavigate } from 'react-router-dom';
 
-export default function SubmissionsList({ submissions, onCorrect }) {
+export default function SubmissionsList({ submissions, onCorrect, onCorrectAll, hasMore, onLoadMore, loadingMore }) {
     const navigate = useNavigate();
 
     if (!submissions || submissions.length === 0) return null;
 
     return (
         <div className="mt-8">
-            <h2 className="text-lg font-semibold text-white mb-4">Envios ({submissions.length})</h2>
+            <div className="flex items-center justify-between mb-4">
+                <h2 className="text-lg font-semibold text-white">Envios ({submissions.length}{hasMore ? '+' : ''})</h2>
+                {onCorrectAll && submissions.some(s => !s.corrigida) && (
+                    <button onClick={onCorrectAll}
+                        className="text-xs px-3 py-1 rounded bg-blue-600 text-white hover:bg-blue-500 transition">Corrigir todos</button>
+                )}
+            </div>
             <div className="space-y-2">
                 {submissions.map((sub, idx) => (
                     <div key={sub.id} className="flex items-center justify-between p-3 bg-slate-800/30 rounded-lg border border-slate-700/30">
@@ -32,6 +38,12 @@ export default function SubmissionsList({ submissions, onCorrect }) {
                     </div>
                 ))}
             </div>
+            {hasMore && (
+                <button onClick={() => onLoadMore()} disabled={loadingMore}
+                    className="mt-4 w-full text-xs px-3 py-2 rounded bg-slate-700 text-white hover:bg-slate-600 transition disabled:opacity-50">
+                    {loadingMore ? 'Carregando...' : 'Carregar mais'}
+                </button>
+            )}
         </div>
     );
 }
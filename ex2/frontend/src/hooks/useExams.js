@@ -11,6 +11,17 @@ export function useExams() {
     });
 }
 
+export function useDashboard(enabled) {
+    return useQuery({
+        queryKey: ['dashboard'],
+        queryFn: async () => {
+            const res = await examsApi.getDashboard();
+            return res.data;
+        },
+        enabled
+    });
+}
+
 export function useExam(id) {
     return useQuery({
         queryKey: ['exam', id],
@@ -172,3 +183,19 @@ export function useSaveAnswerKey() {
         }
     });
 }
+
+export function useRegradeAnswerKey() {
+    const queryClient = useQueryClient();
+    return useMutation({
+        mutationFn: async ({ examId, data }) => {
+            const res = await examsApi.regradeAnswerKey(examId, data);
+            return res.data;
+        },
+        onSuccess: (data, variables) => {
+            queryClient.invalidateQueries({ queryKey: ['answerKey', variables.examId] });
+            queryClient.invalidateQueries({ queryKey: ['submissions', variables.examId] });
+            queryClient.invalidateQueries({ queryKey: ['report', variables.examId] });
+            queryClient.invalidateQueries({ queryKey: ['statistics', variables.examId] });
+        }
+    });
+}
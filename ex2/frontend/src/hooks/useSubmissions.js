@@ -1,13 +1,36 @@
-import { useQuery, useMutation, useQueryClient } from '@tanstack/react-query';
+import { useQuery, useInfiniteQuery, useMutation, useQueryClient } from '@tanstack/react-query';
 import * as subsApi from '../api/submissions';
 
+const RECEIPT_POLL_MS = 1000;
+
+/**
+ * Envios aceitos na fila de admissão voltam com 202 e um recibo; acompanha o recibo até a submissão ser
+ * gravada ou recusada, para que a tela trate os dois casos como o envio direto.
+ */
+async function awaitSubmission(res) {
+    if (res.status !== 202) {
+        return res.data;
+    }
+    let recibo = res.data;
+    while (recibo.status === 'PENDENTE') {
+        await new Promise((resolve) => setTimeout(resolve, RECEIPT_POLL_MS));
+        recibo = (await subsApi.getReceipt(recibo.id)).data;
+    }
+    if (recibo.status === 'RECUSADA') {
+        throw { response: { data: { code: recibo.code, message: recibo.message } } };
+    }
+    return (await subsApi.getSubmission(recibo.submissionId)).data;
+}
+
 export function useSubmissions(examId) {
-    return useQuery({
+    return useInfiniteQuery({
         queryKey: ['submissions', examId],
-        queryFn: async () => {
-            const res = await subsApi.getSubmissions(examId);
+        queryFn: async ({ pageParam }) => {
+            const res = await subsApi.getSubmissions(examId, { cursor: pageParam });
             return res.data;
         },
+        initialPageParam: undefined,
+        getNextPageParam: (lastPage) => lastPage.nextCursor,
         enabled: !!examId
     });
 }
@@ -16,7 +39,7 @@ export function useCorrectionResult(submissionId) {
     return useQuery({
         queryKey: ['correctionResult', submissionId],
         queryFn: async () => {
-            const res = await subsApi.getCorrectionResult(submissionId);
+            const res = await subsApi.getCorrectionResult(submissionId, true);
             return res.data;
         },
         enabled: !!submissionId
@@ -30,7 +53,9 @@ export function useReport(examId) {
             const res = await subsApi.getReport(examId);
             return res.data;
         },
-        enabled: !!examId
+        enabled: !!examId,
+        // Enquanto o servidor atualiza um relatório desatualizado, busca de novo até receber a versão atual
+        refetchInterval: (query) => (query.state.data?.desatualizado ? 3000 : false)
     });
 }
 
@@ -41,7 +66,21 @@ export function useStatistics(examId) {
             const res = await subsApi.getStatistics(examId);
             return res.data;
         },
-        enabled: !!examId
+        enabled: !!examId,
+        // Enquanto o servidor atualiza um relatório desatualizado, busca de novo até receber a versão atual
+        refetchInterval: (query) => (query.state.data?.desatualizado ? 3000 : false)
+    });
+}
+
+export function useItemAnalysis(examId) {
+    return useQuery({
+        queryKey: ['item-analysis', examId],
+        queryFn: async () => {
+            const res = await subsApi.getItemAnalysis(examId);
+            return res.data;
+        },
+        enabled: !!examId,
+        refetchInterval: (query) => (query.state.data?.desatualizado ? 3000 : false)
     });
 }
 
@@ -60,7 +99,33 @@ export function useCreateSubmission() {
     return useMutation({
         mutationFn: async ({ examId, data }) => {
             const res = await subsApi.createSubmission(examId, data);
+            return awaitSubmission(res);
+        }
+    });
+}
+
+export function useDraft(examId, enabled) {
+    return useQuery({
+        queryKey: ['draft', examId],
+        queryFn: async () => {
+            const res = await subsApi.getDraft(examId);
             return res.data;
+        },
+        enabled: !!examId && enabled,
+        staleTime: Infinity
+    });
+}
+
+export function useSubmitDraft() {
+    const queryClient = useQueryClient();
+    return useMutation({
+        mutationFn: async ({ examId, versao }) => {
+            const res = await subsApi.submitDraft(examId, versao);
+            return awaitSubmission(res);
+        },
+        onSuccess: (_, { examId }) => {
+            queryClient.invalidateQueries({ queryKey: ['submissions', examId] });
+            queryClient.removeQueries({ queryKey: ['draft', examId] });
         }
     });
 }
@@ -79,6 +144,21 @@ export function useCorrectSubmission() {
     });
 }
 
+export function useCorrectAll() {
+    const queryClient = useQueryClient();
+    return useMutation({
+        mutationFn: async (examId) => {
+            const res = await subsApi.correctAll(examId);
+            return res.data;
+        },
+        onSuccess: (data, variables) => {
+            queryClient.invalidateQueries({ queryKey: ['submissions', variables] });
+            queryClient.invalidateQueries({ queryKey: ['report', variables] });
+            queryClient.invalidateQueries({ queryKey: ['statistics', variables] });
+        }
+    });
+}
+
 export function useCreateIssue() {
     const queryClient = useQueryClient();
     return useMutation({
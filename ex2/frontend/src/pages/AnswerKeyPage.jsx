@@ -1,25 +1,49 @@
 import { useState, useEffect } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
-import { useQuestions, useAnswerKey, useSaveAnswerKey } from '../hooks/useExams';
+import { useQuestions, useAnswerKey, useSaveAnswerKey, useRegradeAnswerKey } from '../hooks/useExams';
 
 export default function AnswerKeyPage() {
     const { examId } = useParams();
     const navigate = useNavigate();
 
     const [respostas, setRespostas] = useState({});
+    const [anuladas, setAnuladas] = useState([]);
     const [localError, setLocalError] = useState('');
     const [success, setSuccess] = useState('');
 
     const { data: questions = [], isLoading: isLoadingQuestions } = useQuestions(examId);
     const { data: answerKey, isLoading: isLoadingAnswerKey } = useAnswerKey(examId);
     const saveMutation = useSaveAnswerKey();
+    const regradeMutation = useRegradeAnswerKey();
 
     useEffect(() => {
         if (answerKey?.respostas) {
             setRespostas(answerKey.respostas);
         }
+        setAnuladas(answerKey?.questoesAnuladas || []);
     }, [answerKey]);
 
+    const toggleAnulada = (questionId) => {
+        setAnuladas(prev => prev.includes(questionId) ? prev : [...prev, questionId]);
+    };
+
+    const handleRegrade = async () => {
+        setLocalError('');
+        setSuccess('');
+        const alteradas = Object.fromEntries(
+            Object.entries(respostas).filter(([qid, alt]) => answerKey.respostas[qid] !== alt && !anuladas.includes(qid))
+        );
+        try {
+            const res = await regradeMutation.mutateAsync({
+                examId,
+                data: { respostas: alteradas, questoesAnuladas: anuladas }
+            });
+            setSuccess(`Recorreção concluída: ${res.resultadosAtualizados} resultado(s) atualizado(s).`);
+        } catch (err) {
+            setLocalError(err.response?.data?.message || 'Erro ao recorrigir a prova.');
+        }
+    };
+
     const handleSave = async () => {
         setLocalError(''); 
         setSuccess('');
@@ -52,7 +76,16 @@ export default function AnswerKeyPage() {
             <div className="space-y-4 mb-6">
                 {[...questions].sort((a, b) => a.ordem - b.ordem).map(q => (
                     <div key={q.id} className="p-4 bg-slate-800/30 rounded-lg border border-slate-700/30">
-                        <p className="text-white mb-3 font-medium">{q.ordem}. {q.enunciado}</p>
+                        <div className="flex items-start justify-between gap-3 mb-3">
+                            <p className="text-white font-medium">{q.ordem}. {q.enunciado}</p>
+                            {answerKey && (
+                                <button type="button" onClick={() => toggleAnulada(q.id)}
+                                    disabled={answerKey.questoesAnuladas?.includes(q.id)}
+                                    className={`text-xs px-2 py-1 rounded-md border transition ${anuladas.includes(q.id) ? 'border-amber-500/50 text-amber-400' : 'border-slate-600 text-slate-400 hover:text-white'}`}>
+                                    {anuladas.includes(q.id) ? 'Anulada' : 'Anular'}
+                                </button>
+                            )}
+                        </div>
                         <div className="space-y-2">
                             {q.alternativas?.map((alt, i) => (
                                 <label key={i} className="flex items-start gap-3 text-sm text-slate-300 cursor-pointer hover:text-white p-2 rounded-md hover:bg-slate-700/30 transition">
@@ -72,6 +105,13 @@ export default function AnswerKeyPage() {
                 className="w-full py-3 rounded-lg bg-gradient-to-r from-green-600 to-emerald-600 text-white font-semibold hover:from-green-500 hover:to-emerald-500 transition disabled:opacity-50 disabled:cursor-not-allowed">
                 {saveMutation.isPending ? 'Salvando...' : 'Salvar Gabarito'}
             </button>
+
+            {answerKey && (
+                <button onClick={handleRegrade} disabled={regradeMutation.isPending}
+                    className="w-full mt-3 py-3 rounded-lg border border-amber-500/40 text-amber-400 font-semibold hover:bg-amber-500/10 transition disabled:opacity-50 disabled:cursor-not-allowed">
+                    {regradeMutation.isPending ? 'Recorrigindo...' : 'Recorrigir submissões'}
+                </button>
+            )}
         </div>
     );
 }
@@ -1,8 +1,9 @@
-import { useState } from 'react';
+import { useEffect, useRef, useState } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import { useAuth } from '../contexts/AuthContext';
 import { useExam, usePublishExam, useCloseExam } from '../hooks/useExams';
-import { useSubmissions, useCreateSubmission, useCorrectSubmission } from '../hooks/useSubmissions';
+import { useSubmissions, useDraft, useSubmitDraft, useCorrectSubmission, useCorrectAll } from '../hooks/useSubmissions';
+import { patchDraft } from '../api/submissions';
 import ExamHeader from '../components/ExamHeader';
 import QuestionList from '../components/QuestionList';
 import SubmissionsList from '../components/SubmissionsList';
@@ -20,12 +21,49 @@ export default function ExamDetailPage() {
     const { data: exam, isLoading: isLoadingExam, isError: isExamError, error: examError } = useExam(id);
     
     // Only fetch submissions if user is professor or exam is not a draft (already handled by enabled flag implicitly via API, but we can just fetch it always for this page)
-    const { data: submissions = [] } = useSubmissions(id);
+    const { data: submissionPages, hasNextPage, fetchNextPage, isFetchingNextPage } = useSubmissions(id);
+    const submissions = submissionPages?.pages.flatMap(page => page.items) ?? [];
 
     const publishMutation = usePublishExam();
     const closeMutation = useCloseExam();
-    const submitMutation = useCreateSubmission();
+    const submitMutation = useSubmitDraft();
     const correctMutation = useCorrectSubmission();
+    const correctAllMutation = useCorrectAll();
+
+    // Autosave: só as respostas alteradas vão no PATCH, agrupadas por 1s sem novas alterações
+    const canAnswer = !isProfessor && exam?.status === 'PUBLICADA' && submissions.length === 0;
+    const { data: draft } = useDraft(id, canAnswer);
+    const pendingRef = useRef({});
+    const timerRef = useRef(null);
+    // Sequência dos PATCHes, continuada a partir da versão já salva do rascunho
+    const versaoRef = useRef(0);
+
+    useEffect(() => {
+        if (draft?.respostas) setAnswers(prev => ({ ...draft.respostas, ...prev }));
+        if (draft?.versao) versaoRef.current = Math.max(versaoRef.current, draft.versao);
+    }, [draft]);
+
+    useEffect(() => () => clearTimeout(timerRef.current), []);
+
+    const saveDraft = async () => {
+        clearTimeout(timerRef.current);
+        const changes = pendingRef.current;
+        if (Object.keys(changes).length === 0) return;
+        pendingRef.current = {};
+        try {
+            await patchDraft(id, changes, ++versaoRef.current);
+        } catch (err) {
+            pendingRef.current = { ...changes, ...pendingRef.current };
+            throw err;
+        }
+    };
+
+    const handleAnswerChange = (qId, alt) => {
+        setAnswers(prev => ({ ...prev, [qId]: alt }));
+        pendingRef.current = { ...pendingRef.current, [qId]: alt };
+        clearTimeout(timerRef.current);
+        timerRef.current = setTimeout(() => saveDraft().catch(() => {}), 1000);
+    };
 
     const handlePublish = async () => {
         try {
@@ -45,7 +83,8 @@ export default function ExamDetailPage() {
 
     const handleSubmit = async () => {
         try {
-            await submitMutation.mutateAsync({ examId: id, data: { respostas: answers } });
+            await saveDraft();
+            await submitMutation.mutateAsync({ examId: id, versao: versaoRef.current || undefined });
             setSuccess('Envio realizado com sucesso!');
             setLocalError('');
         } catch (err) { setLocalError(err.response?.data?.message || 'Erro ao enviar respostas.'); }
@@ -59,6 +98,15 @@ export default function ExamDetailPage() {
         } catch (err) { setLocalError(err.response?.data?.message || 'Erro ao corrigir.'); }
     };
 
+    const handleCorrectAll = async () => {
+        try {
+            const result = await correctAllMutation.mutateAsync(id);
+            setSuccess(`${result.corrigidas} envio(s) corrigido(s)!`
+                + (result.pendentes > 0 ? ` ${result.pendentes} continuam pendentes: o gabarito mudou durante a correção.` : ''));
+            setLocalError('');
+        } catch (err) { setLocalError(err.response?.data?.message || 'Erro ao corrigir envios.'); }
+    };
+
     if (isLoadingExam) return (
         <div className="flex items-center justify-center py-20 gap-3 text-slate-400">
             <svg className="animate-spin h-5 w-5" viewBox="0 0 24 24" fill="none">
@@ -94,7 +142,8 @@ export default function ExamDetailPage() {
                 isProfessor={isProfessor} 
                 examStatus={exam.status}
                 alreadySubmitted={alreadySubmitted}
-                onAnswerChange={(qId, alt) => setAnswers(prev => ({ ...prev, [qId]: alt }))}
+                answers={answers}
+                onAnswerChange={handleAnswerChange}
                 examId={id}
             />
 
@@ -112,7 +161,8 @@ export default function ExamDetailPage() {
                 </div>
             )}
 
-            {isProfessor && <SubmissionsList submissions={submissions} onCorrect={handleCorrect} />}
+            {isProfessor && <SubmissionsList submissions={submissions} onCorrect={handleCorrect} onCorrectAll={handleCorrectAll}
+                hasMore={hasNextPage} onLoadMore={fetchNextPage} loadingMore={isFetchingNextPage} />}
         </div>
     );
 }
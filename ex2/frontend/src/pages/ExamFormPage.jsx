@@ -11,6 +11,7 @@ export default function ExamFormPage() {
     const [descricao, setDescricao] = useState('');
     const [dataInicio, setDataInicio] = useState('');
     const [dataFim, setDataFim] = useState('');
+    const [correcaoAutomatica, setCorrecaoAutomatica] = useState(false);
 
     const { data: examData, isLoading: isLoadingExam, isError: isExamError } = useExam(isEdit ? id : null);
     const createMutation = useCreateExam();
@@ -22,6 +23,7 @@ export default function ExamFormPage() {
             setDescricao(examData.descricao || '');
             if (examData.dataInicio) setDataInicio(examData.dataInicio.substring(0, 16));
             if (examData.dataFim) setDataFim(examData.dataFim.substring(0, 16));
+            setCorrecaoAutomatica(!!examData.correcaoAutomatica);
         }
     }, [examData, isEdit]);
 
@@ -33,6 +35,7 @@ export default function ExamFormPage() {
             descricao: descricao || null,
             dataInicio: dataInicio ? new Date(dataInicio).toISOString() : null,
             dataFim: dataFim ? new Date(dataFim).toISOString() : null,
+            correcaoAutomatica,
         };
         
         try {
@@ -86,6 +89,14 @@ export default function ExamFormPage() {
                             className="w-full px-4 py-2.5 rounded-lg bg-slate-700/50 border border-slate-600 text-white focus:ring-2 focus:ring-blue-500 outline-none" />
                     </div>
                 </div>
+                <div className="flex items-center gap-2">
+                    <input id="correcaoAutomatica" type="checkbox" checked={correcaoAutomatica}
+                        onChange={e => setCorrecaoAutomatica(e.target.checked)}
+                        className="h-4 w-4 rounded border-slate-600 bg-slate-700/50 text-blue-600 focus:ring-2 focus:ring-blue-500" />
+                    <label htmlFor="correcaoAutomatica" className="text-sm text-slate-300">
+                        Corrigir automaticamente no envio
+                    </label>
+                </div>
                 <div className="flex gap-3">
                     <button type="submit" disabled={isPending}
                         className="px-6 py-2.5 rounded-lg bg-gradient-to-r from-blue-600 to-purple-600 text-white font-semibold hover:from-blue-500 hover:to-purple-500 transition disabled:opacity-50">
@@ -2,7 +2,7 @@ import { Link, useNavigate } from 'react-router-dom';
 import { useAuth } from '../contexts/AuthContext';
 import { STATUS_LABEL, label } from '../utils/labels';
 import { STATUS_COLORS } from '../utils/constants';
-import { useExams, useDeleteExam } from '../hooks/useExams';
+import { useExams, useDeleteExam, useDashboard } from '../hooks/useExams';
 
 export default function ExamListPage() {
     const { user } = useAuth();
@@ -11,6 +11,8 @@ export default function ExamListPage() {
 
     const { data: exams, isLoading, isError, error } = useExams();
     const { mutateAsync: deleteExamAsync } = useDeleteExam();
+    const { data: dashboard } = useDashboard(isProfessor);
+    const resumo = Object.fromEntries((dashboard?.provas || []).map(p => [p.examId, p]));
 
     const handleDelete = async (id) => {
         if (!window.confirm('Tem certeza que deseja excluir esta prova?')) return;
@@ -59,6 +61,13 @@ export default function ExamListPage() {
                             </div>
                             <p className="text-sm text-slate-400 mb-3 line-clamp-2">{exam.descricao || 'Sem descrição'}</p>
                             <div className="text-xs text-slate-500">{exam.questions?.length || 0} questões</div>
+                            {resumo[exam.id] && (
+                                <div className="mt-2 text-xs text-slate-400">
+                                    {resumo[exam.id].submissoes} envios · {resumo[exam.id].pendentes} pendentes
+                                    {resumo[exam.id].mediaNotas != null && ` · média ${resumo[exam.id].mediaNotas}`}
+                                    {resumo[exam.id].problemasAbertos > 0 && ` · ${resumo[exam.id].problemasAbertos} problemas`}
+                                </div>
+                            )}
                             {isProfessor && exam.status === 'RASCUNHO' && (
                                 <button onClick={(e) => { e.preventDefault(); handleDelete(exam.id); }}
                                     className="mt-3 text-xs text-red-400 hover:text-red-300">Excluir</button>
@@ -59,10 +59,12 @@ export default function IssuesPage() {
                     </div>
                 )}
                 {issues.map(issue => (
-                    <div key={issue.id} className={`p-4 rounded-lg border ${SEV_COLORS[issue.severidade] || SEV_COLORS.BAIXA}`}>
+                    <div key={issue.id} className={`p-4 rounded-lg border ${SEV_COLORS[issue.severidade] || SEV_COLORS.BAIXA} ${issue.resolvida ? 'opacity-50' : ''}`}>
                         <div className="flex justify-between items-start mb-1">
                             <span className="font-medium text-sm">{issue.tipoProblema}</span>
                             <div className="flex items-center gap-2 text-xs opacity-70">
+                                {issue.resolvida && <span>Resolvido</span>}
+                                {issue.resolvida && <span className="w-px h-3 bg-current opacity-30" />}
                                 <span>{label(GERADO_POR_LABEL, issue.geradoPor)}</span>
                                 <span className="w-px h-3 bg-current opacity-30" />
                                 <span>{label(SEVERIDADE_LABEL, issue.severidade)}</span>
@@ -1,5 +1,16 @@
 import { useParams, useNavigate } from 'react-router-dom';
-import { useReport, useStatistics } from '../hooks/useSubmissions';
+import { useItemAnalysis, useReport, useStatistics } from '../hooks/useSubmissions';
+import { exportResults } from '../api/submissions';
+
+async function downloadResults(examId, format) {
+    const { data } = await exportResults(examId, format);
+    const url = URL.createObjectURL(data);
+    const link = document.createElement('a');
+    link.href = url;
+    link.download = `resultados-${examId}.${format}`;
+    link.click();
+    URL.revokeObjectURL(url);
+}
 
 export default function ReportPage() {
     const { examId } = useParams();
@@ -7,6 +18,7 @@ export default function ReportPage() {
 
     const { data: report, isLoading: isLoadingReport, isError, error } = useReport(examId);
     const { data: stats, isLoading: isLoadingStats } = useStatistics(examId);
+    const { data: itemAnalysis } = useItemAnalysis(examId);
 
     return (
         <div className="max-w-4xl mx-auto p-6">
@@ -17,7 +29,18 @@ export default function ReportPage() {
 
             {report && (
                 <div className="bg-slate-800/50 rounded-xl border border-slate-700/50 p-6 mb-6">
-                    <h1 className="text-2xl font-bold text-white mb-4">Relatório</h1>
+                    <div className="flex justify-between items-start mb-4">
+                        <h1 className="text-2xl font-bold text-white">Relatório</h1>
+                        <div className="flex gap-2">
+                            <button onClick={() => downloadResults(examId, 'csv')} className="px-3 py-1.5 text-sm rounded-lg bg-slate-700 text-slate-200 hover:bg-slate-600 transition">Exportar CSV</button>
+                            <button onClick={() => downloadResults(examId, 'ndjson')} className="px-3 py-1.5 text-sm rounded-lg bg-slate-700 text-slate-200 hover:bg-slate-600 transition">Exportar NDJSON</button>
+                        </div>
+                    </div>
+                    {report.desatualizado && (
+                        <div className="text-xs text-amber-400 mb-4">
+                            Atualizando: {report.versoesPendentes} alteração(ões) ainda não refletida(s).
+                        </div>
+                    )}
                     <div className="grid grid-cols-2 md:grid-cols-4 gap-4">
                         <div className="text-center p-4 bg-blue-500/10 rounded-lg border border-blue-500/20">
                             <div className="text-2xl font-bold text-blue-400">{report.mediaNotas}</div>
@@ -59,6 +82,20 @@ export default function ReportPage() {
                         ))}
                     </div>
 
+                    {stats.percentis && (
+                        <>
+                            <h3 className="text-sm font-semibold text-slate-300 mb-3">Percentis das Notas</h3>
+                            <div className="grid grid-cols-5 gap-2 mb-6">
+                                {Object.entries(stats.percentis).map(([percentil, nota]) => (
+                                    <div key={percentil} className="text-center p-3 bg-slate-700/50 rounded-lg">
+                                        <div className="text-lg font-bold text-white">{nota}</div>
+                                        <div className="text-xs text-slate-400">{percentil === 'p50' ? 'Mediana' : percentil.toUpperCase()}</div>
+                                    </div>
+                                ))}
+                            </div>
+                        </>
+                    )}
+
                     <h3 className="text-sm font-semibold text-slate-300 mb-3">Distribuição de Notas</h3>
                     <div className="grid grid-cols-5 gap-2">
                         {Object.entries(stats.distribuicaoNotas || {}).map(([faixa, count]) => (
@@ -71,6 +108,39 @@ export default function ReportPage() {
                 </div>
             )}
 
+            {itemAnalysis && (
+                <div className="bg-slate-800/50 rounded-xl border border-slate-700/50 p-6 mb-6 overflow-x-auto">
+                    <h2 className="text-xl font-bold text-white mb-4">Análise de Itens</h2>
+                    <table className="w-full text-xs text-slate-300">
+                        <thead>
+                            <tr className="text-slate-400 text-left">
+                                <th className="py-2">Questão</th>
+                                <th>Dificuldade</th>
+                                <th>Discriminação</th>
+                                <th>Ponto-bisserial</th>
+                                <th>Em branco</th>
+                                <th>Alternativas</th>
+                            </tr>
+                        </thead>
+                        <tbody>
+                            {itemAnalysis.itens.map((item, idx) => (
+                                <tr key={item.questionId} className="border-t border-slate-700/50">
+                                    <td className="py-2">Questão {idx + 1}</td>
+                                    <td>{item.dificuldade.toFixed(2)}</td>
+                                    <td>{item.discriminacao.toFixed(2)}</td>
+                                    <td>{item.pontoBisserial.toFixed(2)}</td>
+                                    <td>{(item.taxaBranco * 100).toFixed(1)}%</td>
+                                    <td>
+                                        {Object.entries(item.alternativas).map(([alt, count]) => `${alt}: ${count}`).join(' · ')}
+                                        {item.outras > 0 && ` · outras: ${item.outras}`}
+                                    </td>
+                                </tr>
+                            ))}
+                        </tbody>
+                    </table>
+                </div>
+            )}
+
             {!report && !isLoadingReport && !isError && (
                 <div className="text-center py-16 text-slate-500">Nenhum dado disponível. Os relatórios são gerados após envios corrigidos.</div>
             )}